@@ -0,0 +1,289 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.niis.xroad.signer.core.tokenmanager.token;
+
+import ee.ria.xroad.common.CodedException;
+
+import iaik.pkcs.pkcs11.Session;
+import iaik.pkcs.pkcs11.Token;
+import iaik.pkcs.pkcs11.TokenException;
+import iaik.pkcs.pkcs11.wrapper.PKCS11Constants;
+import iaik.pkcs.pkcs11.wrapper.PKCS11Exception;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static ee.ria.xroad.common.ErrorCodes.X_INTERNAL_ERROR;
+import static iaik.pkcs.pkcs11.Token.SessionReadWriteBehavior.RO_SESSION;
+import static iaik.pkcs.pkcs11.Token.SessionType.SERIAL_SESSION;
+
+/**
+ * Pool of read-only PKCS#11 sessions used for signing on a hardware token.
+ * <p>
+ * All sessions are opened by the same application, so the login state of the token is shared by every session
+ * in the pool. Newly opened sessions are passed to the session initializer, which can be used to log in again
+ * if the token has lost the login state (e.g. after the device has been restarted).
+ */
+@Slf4j
+class HardwareTokenSessionPool {
+
+    @FunctionalInterface
+    interface SessionInitializer {
+        void initialize(Session session) throws TokenException;
+    }
+
+    @FunctionalInterface
+    interface SessionOperation<T> {
+        T apply(Session session) throws TokenException;
+    }
+
+    private final String tokenId;
+    private final Token token;
+    private final int poolSize;
+    private final long acquireTimeoutMillis;
+    private final SessionInitializer sessionInitializer;
+
+    private final BlockingQueue<Session> idleSessions = new LinkedBlockingQueue<>();
+    private final AtomicInteger openSessions = new AtomicInteger();
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder totalWaitTimeNanos = new LongAdder();
+    private final AtomicLong maxWaitTimeNanos = new AtomicLong();
+    private final LongAdder recreatedSessions = new LongAdder();
+
+    private volatile boolean closed = true;
+
+    HardwareTokenSessionPool(String tokenId, Token token, int poolSize, long acquireTimeoutMillis,
+                             SessionInitializer sessionInitializer) {
+        this.tokenId = tokenId;
+        this.token = token;
+        this.poolSize = poolSize;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.sessionInitializer = sessionInitializer;
+    }
+
+    /**
+     * Opens all sessions of the pool.
+     */
+    void open() throws TokenException {
+        log.debug("Opening {} signing sessions on token '{}'", poolSize, tokenId);
+
+        closed = false;
+
+        try {
+            fill();
+        } catch (TokenException e) {
+            close();
+
+            throw e;
+        }
+    }
+
+    /**
+     * Takes a free session from the pool, waiting until one becomes available.
+     */
+    Session acquire() {
+        acquisitions.increment();
+
+        Session session = idleSessions.poll();
+
+        if (session != null) {
+            return session;
+        }
+
+        waits.increment();
+
+        long start = System.nanoTime();
+
+        try {
+            session = idleSessions.poll(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new CodedException(X_INTERNAL_ERROR, "Interrupted while waiting for a session on token %s", tokenId);
+        } finally {
+            recordWaitTime(System.nanoTime() - start);
+        }
+
+        if (session == null) {
+            throw new CodedException(X_INTERNAL_ERROR, "No free session available on token %s", tokenId);
+        }
+
+        return session;
+    }
+
+    /**
+     * Runs the operation with a session taken from the pool. If the session turns out to be invalid, it is
+     * re-created and the operation is retried once with the new session.
+     */
+    <T> T execute(SessionOperation<T> operation) throws TokenException {
+        Session session = acquire();
+        try {
+            try {
+                return operation.apply(session);
+            } catch (TokenException e) {
+                if (!isSessionInvalid(e)) {
+                    throw e;
+                }
+
+                Session invalidSession = session;
+                session = null;
+                session = recreate(invalidSession);
+
+                return operation.apply(session);
+            }
+        } finally {
+            release(session);
+        }
+    }
+
+    /**
+     * Returns the session to the pool. Sessions released after the pool has been closed are closed.
+     */
+    void release(Session session) {
+        if (session == null) {
+            return;
+        }
+
+        if (closed) {
+            discard(session);
+        } else {
+            idleSessions.offer(session);
+        }
+    }
+
+    /**
+     * Closes the invalid session and opens a new one in its place. The returned session must be released by the caller.
+     */
+    Session recreate(Session invalidSession) throws TokenException {
+        log.warn("Re-creating invalid signing session on token '{}'", tokenId);
+
+        discard(invalidSession);
+        recreatedSessions.increment();
+
+        return openSession();
+    }
+
+    /**
+     * Checks the idle sessions of the pool, replacing the invalid ones and opening any missing sessions.
+     */
+    void checkHealth() {
+        if (closed) {
+            return;
+        }
+
+        List<Session> sessions = new ArrayList<>();
+        idleSessions.drainTo(sessions);
+
+        for (Session session : sessions) {
+            try {
+                session.getSessionInfo();
+                idleSessions.offer(session);
+            } catch (TokenException e) {
+                log.warn("Signing session on token '{}' failed health check: {}", tokenId, e.getMessage());
+
+                discard(session);
+                recreatedSessions.increment();
+            }
+        }
+
+        try {
+            fill();
+        } catch (TokenException e) {
+            log.error("Failed to open signing sessions on token '{}'", tokenId, e);
+        }
+    }
+
+    /**
+     * Closes all idle sessions of the pool. Sessions in use are closed when released.
+     */
+    void close() {
+        closed = true;
+
+        Session session;
+        while ((session = idleSessions.poll()) != null) {
+            discard(session);
+        }
+    }
+
+    TokenSessionPoolStatus getStatus() {
+        return new TokenSessionPoolStatus(tokenId, poolSize, openSessions.get(), idleSessions.size(),
+                acquisitions.sum(), waits.sum(),
+                TimeUnit.NANOSECONDS.toMicros(totalWaitTimeNanos.sum()),
+                TimeUnit.NANOSECONDS.toMicros(maxWaitTimeNanos.get()),
+                recreatedSessions.sum());
+    }
+
+    static boolean isSessionInvalid(TokenException e) {
+        return e instanceof PKCS11Exception pkcs11Exception
+                && (pkcs11Exception.getErrorCode() == PKCS11Constants.CKR_SESSION_HANDLE_INVALID
+                || pkcs11Exception.getErrorCode() == PKCS11Constants.CKR_SESSION_CLOSED);
+    }
+
+    private void fill() throws TokenException {
+        while (!closed && openSessions.get() < poolSize) {
+            idleSessions.offer(openSession());
+        }
+    }
+
+    private Session openSession() throws TokenException {
+        Session session = token.openSession(SERIAL_SESSION, RO_SESSION, null, null);
+        openSessions.incrementAndGet();
+
+        try {
+            sessionInitializer.initialize(session);
+        } catch (TokenException e) {
+            discard(session);
+
+            throw e;
+        }
+
+        return session;
+    }
+
+    private void discard(Session session) {
+        openSessions.decrementAndGet();
+
+        try {
+            session.closeSession();
+        } catch (Exception e) {
+            log.debug("Failed to close signing session on token '{}'", tokenId, e);
+        }
+    }
+
+    private void recordWaitTime(long waitTimeNanos) {
+        totalWaitTimeNanos.add(waitTimeNanos);
+        maxWaitTimeNanos.accumulateAndGet(waitTimeNanos, Math::max);
+    }
+}
@@ -63,6 +63,8 @@ public class HardwareTokenType implements TokenType {
 
     boolean batchSigningEnabled;
 
+    int signSessionPoolSize;
+
     Map<KeyAlgorithm, SignMechanism> signMechanisms;
 
     PrivKeyAttributes privKeyAttributes;
@@ -33,6 +33,7 @@ import ee.ria.xroad.common.crypto.identifier.SignMechanism;
 import iaik.pkcs.pkcs11.Mechanism;
 import iaik.pkcs.pkcs11.Module;
 import iaik.pkcs.pkcs11.Session;
+import iaik.pkcs.pkcs11.State;
 import iaik.pkcs.pkcs11.TokenException;
 import iaik.pkcs.pkcs11.TokenInfo;
 import iaik.pkcs.pkcs11.objects.Key;
@@ -104,6 +105,16 @@ public final class HardwareTokenUtil {
         }
     }
 
+    /**
+     * @return whether the user is logged in to the token of the session. The login state is shared by all sessions
+     * of the token.
+     */
+    static boolean isLoggedIn(Session session) throws TokenException {
+        State state = session.getSessionInfo().getState();
+
+        return State.RO_USER_FUNCTIONS.equals(state) || State.RW_USER_FUNCTIONS.equals(state);
+    }
+
     static void logout(Session session) throws TokenException {
         try {
             session.logout();
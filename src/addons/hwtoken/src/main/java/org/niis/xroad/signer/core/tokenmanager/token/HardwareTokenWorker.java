@@ -26,6 +26,7 @@
 package org.niis.xroad.signer.core.tokenmanager.token;
 
 import ee.ria.xroad.common.CodedException;
+import ee.ria.xroad.common.SystemProperties;
 import ee.ria.xroad.common.crypto.CryptoException;
 import ee.ria.xroad.common.crypto.SignDataPreparer;
 import ee.ria.xroad.common.crypto.identifier.KeyAlgorithm;
@@ -82,6 +83,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static ee.ria.xroad.common.ErrorCodes.X_INTERNAL_ERROR;
 import static ee.ria.xroad.common.ErrorCodes.X_KEY_NOT_FOUND;
@@ -95,6 +97,7 @@ import static iaik.pkcs.pkcs11.Token.SessionType.SERIAL_SESSION;
 import static org.niis.xroad.signer.core.tokenmanager.TokenManager.addCert;
 import static org.niis.xroad.signer.core.tokenmanager.TokenManager.addKey;
 import static org.niis.xroad.signer.core.tokenmanager.TokenManager.getKeyInfo;
+import static org.niis.xroad.signer.core.tokenmanager.TokenManager.isTokenActive;
 import static org.niis.xroad.signer.core.tokenmanager.TokenManager.isTokenAvailable;
 import static org.niis.xroad.signer.core.tokenmanager.TokenManager.listKeys;
 import static org.niis.xroad.signer.core.tokenmanager.TokenManager.setKeyAvailable;
@@ -126,10 +129,13 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
     private final Map<SignAlgorithm, Mechanism> signMechanisms;
 
     // maps key id (hex) to PrivateKey
-    private final Map<String, PrivateKey> privateKeys = new HashMap<>();
+    private final Map<String, PrivateKey> privateKeys = new ConcurrentHashMap<>();
     private final Map<String, List<X509PublicKeyCertificate>> certs = new HashMap<>();
 
-    private Session activeSession;
+    private volatile Session activeSession;
+
+    // signing sessions, used instead of the active session if more than one signing session is configured
+    private volatile HardwareTokenSessionPool sessionPool;
 
     /**
      * @param tokenInfo the token info
@@ -197,6 +203,10 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
             findKeysNotInConf();
             findPublicKeysForPrivateKeys();
             findCertificatesNotInConf();
+
+            if (sessionPool != null) {
+                sessionPool.checkHealth();
+            }
         }
     }
 
@@ -205,6 +215,16 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
         updateTokenInfo();
     }
 
+    @Override
+    public boolean isConcurrentSigningSupported() {
+        return sessionPool != null;
+    }
+
+    @Override
+    public Optional<TokenSessionPoolStatus> getSessionPoolStatus() {
+        return Optional.ofNullable(sessionPool).map(HardwareTokenSessionPool::getStatus);
+    }
+
     // ----------------------- Message handlers -------------------------------
 
     @Override
@@ -280,7 +300,7 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
         assertTokenWritable();
         assertActiveSession();
 
-        PrivateKey privateKey = getPrivateKey(keyId);
+        PrivateKey privateKey = getPrivateKey(activeSession, keyId);
 
         if (privateKey != null) {
             log.info("Deleting private key '{}' on token '{}'", keyId, getWorkerId());
@@ -363,10 +383,16 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
         log.trace("sign({}, {})", keyId, signatureAlgorithmId);
 
         assertActiveSession();
+
+        HardwareTokenSessionPool pool = sessionPool;
+        if (pool != null) {
+            return signWithPooledSession(pool, keyId, signatureAlgorithmId, data);
+        }
+
         pinVerificationPerSigningLogin();
         assertKeyAvailable(keyId);
 
-        PrivateKey key = getPrivateKey(keyId);
+        PrivateKey key = getPrivateKey(activeSession, keyId);
         if (key == null) {
             throw CodedException.tr(X_KEY_NOT_FOUND, "key_not_found_on_token", "Key '%s' not found on token '%s'",
                     keyId, tokenId);
@@ -383,6 +409,25 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
         }
     }
 
+    private byte[] signWithPooledSession(HardwareTokenSessionPool pool, String keyId, SignAlgorithm signatureAlgorithmId,
+                                         byte[] data) throws TokenException {
+        assertKeyAvailable(keyId);
+
+        return pool.execute(session -> {
+            PrivateKey key = getPrivateKey(session, keyId);
+            if (key == null) {
+                throw CodedException.tr(X_KEY_NOT_FOUND, "key_not_found_on_token", "Key '%s' not found on token '%s'",
+                        keyId, tokenId);
+            }
+
+            log.debug("Signing with key '{}' and signature algorithm '{}'", keyId, signatureAlgorithmId);
+            Mechanism signMechanism = verifyAndReturnSignMechanism(signatureAlgorithmId, KeyAlgorithm.valueOf(key.getKeyType().toString()));
+
+            session.signInit(signMechanism, key);
+            return session.sign(data);
+        });
+    }
+
     private Mechanism verifyAndReturnSignMechanism(SignAlgorithm signatureAlgorithmId, KeyAlgorithm algorithm) throws CodedException {
         Mechanism signMechanism = signMechanisms.get(signatureAlgorithmId);
 
@@ -468,12 +513,14 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
         }
     }
 
-    private PrivateKey getPrivateKey(String keyId) throws TokenException {
+    private PrivateKey getPrivateKey(Session session, String keyId) throws TokenException {
         PrivateKey privateKey = privateKeys.get(keyId);
         if (privateKey == null) {
             log.debug("Key {} not found in cache, trying to find it from hardware token", keyId);
-            privateKey = findPrivateKey(activeSession, keyId, tokenType.getPrivKeyAttributes().getAllowedMechanisms());
-            privateKeys.put(keyId, privateKey);
+            privateKey = findPrivateKey(session, keyId, tokenType.getPrivKeyAttributes().getAllowedMechanisms());
+            if (privateKey != null) {
+                privateKeys.put(keyId, privateKey);
+            }
         }
         return privateKey;
     }
@@ -637,6 +684,44 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
 
         if (getToken() != null) {
             activeSession = getToken().openSession(SERIAL_SESSION, true, null, null);
+            createSessionPool();
+        }
+    }
+
+    private void createSessionPool() throws TokenException {
+        int poolSize = ((HardwareTokenType) tokenType).getSignSessionPoolSize();
+
+        if (poolSize <= 1) {
+            return;
+        }
+
+        if (tokenType.isPinVerificationPerSigning()) {
+            log.warn("Signing session pool is not used for token '{}' since PIN verification per signing is enabled",
+                    getWorkerId());
+
+            return;
+        }
+
+        var pool = new HardwareTokenSessionPool(tokenId, getToken(), poolSize,
+                SystemProperties.getSignerTokenSessionAcquireTimeout(),
+                this::propagateLogin);
+        pool.open();
+
+        sessionPool = pool;
+    }
+
+    private void propagateLogin(Session session) throws TokenException {
+        // the login state is shared by all sessions of the token, so a new session of a logged in token is normally
+        // already logged in. The login is repeated only if the state was lost, e.g. after the token was reinserted.
+        if (!isTokenActive(tokenId) || HardwareTokenUtil.isLoggedIn(session)) {
+            return;
+        }
+
+        var password = PasswordStore.getPassword(tokenId);
+        if (password.isPresent()) {
+            log.debug("Session of token '{}' is not logged in, logging in again", getWorkerId());
+
+            HardwareTokenUtil.login(session, password.get());
         }
     }
 
@@ -704,6 +789,11 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
     }
 
     private void closeActiveSession() throws TokenException {
+        if (sessionPool != null) {
+            sessionPool.close();
+            sessionPool = null;
+        }
+
         if (activeSession != null) {
             try {
                 logout();
@@ -799,7 +889,7 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
                 assertActiveSession();
                 pinVerificationPerSigningLogin();
                 byte[] dataToSign = out.toByteArray();
-                PrivateKey privateKey = getPrivateKey(keyId);
+                PrivateKey privateKey = getPrivateKey(activeSession, keyId);
                 if (privateKey == null) {
                     throw CodedException.tr(X_KEY_NOT_FOUND, "key_not_found_on_token", "Key '%s' not found on token '%s'",
                             keyId, tokenId);
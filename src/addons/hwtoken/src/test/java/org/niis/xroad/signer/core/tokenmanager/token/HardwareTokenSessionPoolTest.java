@@ -0,0 +1,234 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.niis.xroad.signer.core.tokenmanager.token;
+
+import ee.ria.xroad.common.CodedException;
+
+import iaik.pkcs.pkcs11.Session;
+import iaik.pkcs.pkcs11.Token;
+import iaik.pkcs.pkcs11.TokenException;
+import iaik.pkcs.pkcs11.wrapper.PKCS11Constants;
+import iaik.pkcs.pkcs11.wrapper.PKCS11Exception;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link HardwareTokenSessionPool} with mocked PKCS#11 sessions.
+ */
+public class HardwareTokenSessionPoolTest {
+
+    private static final int POOL_SIZE = 2;
+    private static final long ACQUIRE_TIMEOUT_MILLIS = 100;
+
+    private final List<Session> openedSessions = new ArrayList<>();
+    private final List<Session> initializedSessions = new ArrayList<>();
+
+    private Token token;
+    private HardwareTokenSessionPool pool;
+
+    /**
+     * Creates a pool on a mocked token that opens a new mocked session on every call.
+     */
+    @Before
+    public void setUp() throws Exception {
+        token = mock(Token.class);
+        when(token.openSession(anyBoolean(), anyBoolean(), any(), any())).thenAnswer(invocation -> {
+            Session session = mock(Session.class);
+            openedSessions.add(session);
+
+            return session;
+        });
+
+        pool = new HardwareTokenSessionPool("token", token, POOL_SIZE, ACQUIRE_TIMEOUT_MILLIS,
+                initializedSessions::add);
+        pool.open();
+    }
+
+    /**
+     * Test that opening the pool opens and initializes all sessions.
+     */
+    @Test
+    public void openFillsPool() {
+        assertEquals(POOL_SIZE, openedSessions.size());
+        assertEquals(openedSessions, initializedSessions);
+        assertEquals(POOL_SIZE, pool.getStatus().openSessions());
+        assertEquals(POOL_SIZE, pool.getStatus().idleSessions());
+    }
+
+    /**
+     * Test that acquiring a session from an exhausted pool fails after the acquire timeout.
+     */
+    @Test
+    public void acquireTimesOutWhenPoolExhausted() {
+        pool.acquire();
+        pool.acquire();
+
+        long start = System.nanoTime();
+        CodedException e = assertThrows(CodedException.class, pool::acquire);
+        long waitedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals("No free session available on token token", e.getFaultString());
+        assertTrue(waitedMillis >= ACQUIRE_TIMEOUT_MILLIS);
+        assertEquals(1, pool.getStatus().waits());
+    }
+
+    /**
+     * Test that a session released after a failed operation is available again.
+     */
+    @Test
+    public void sessionReturnedAfterFailure() throws Exception {
+        TokenException failure = new PKCS11Exception(PKCS11Constants.CKR_KEY_HANDLE_INVALID);
+
+        TokenException e = assertThrows(TokenException.class, () -> pool.execute(session -> {
+            throw failure;
+        }));
+
+        assertSame(failure, e);
+        assertEquals(POOL_SIZE, pool.getStatus().idleSessions());
+        assertEquals(POOL_SIZE, openedSessions.size());
+        assertEquals(0, pool.getStatus().recreatedSessions());
+    }
+
+    /**
+     * Test that an operation failing with an invalid session handle is retried once with a re-created session.
+     */
+    @Test
+    public void recreatesInvalidSession() throws Exception {
+        List<Session> usedSessions = new ArrayList<>();
+
+        String result = pool.execute(session -> {
+            usedSessions.add(session);
+
+            if (usedSessions.size() == 1) {
+                throw new PKCS11Exception(PKCS11Constants.CKR_SESSION_HANDLE_INVALID);
+            }
+
+            return "signed";
+        });
+
+        assertEquals("signed", result);
+        assertEquals(2, usedSessions.size());
+        assertNotSame(usedSessions.get(0), usedSessions.get(1));
+        verify(usedSessions.get(0)).closeSession();
+        assertEquals(openedSessions.get(POOL_SIZE), usedSessions.get(1));
+        assertEquals(POOL_SIZE + 1, initializedSessions.size());
+
+        assertEquals(POOL_SIZE, pool.getStatus().openSessions());
+        assertEquals(POOL_SIZE, pool.getStatus().idleSessions());
+        assertEquals(1, pool.getStatus().recreatedSessions());
+    }
+
+    /**
+     * Test that an operation is not retried more than once if the re-created session is invalid as well.
+     */
+    @Test
+    public void retriesInvalidSessionOnlyOnce() {
+        List<Session> usedSessions = new ArrayList<>();
+
+        assertThrows(PKCS11Exception.class, () -> pool.execute(session -> {
+            usedSessions.add(session);
+
+            throw new PKCS11Exception(PKCS11Constants.CKR_SESSION_CLOSED);
+        }));
+
+        assertEquals(2, usedSessions.size());
+        assertEquals(POOL_SIZE, pool.getStatus().idleSessions());
+    }
+
+    /**
+     * Test that the health check replaces the idle sessions that are no longer valid.
+     */
+    @Test
+    public void checkHealthReplacesInvalidSessions() throws Exception {
+        Session invalid = openedSessions.get(0);
+        Session valid = openedSessions.get(1);
+        when(invalid.getSessionInfo()).thenThrow(new PKCS11Exception(PKCS11Constants.CKR_SESSION_HANDLE_INVALID));
+
+        pool.checkHealth();
+
+        verify(invalid).closeSession();
+        verify(valid, never()).closeSession();
+        assertEquals(POOL_SIZE + 1, openedSessions.size());
+        assertEquals(POOL_SIZE, pool.getStatus().openSessions());
+        assertEquals(POOL_SIZE, pool.getStatus().idleSessions());
+        assertEquals(1, pool.getStatus().recreatedSessions());
+    }
+
+    /**
+     * Test that the health check opens the sessions that could not be re-created earlier.
+     */
+    @Test
+    public void checkHealthRefillsAfterFailedRecreate() throws Exception {
+        Session session = pool.acquire();
+        doThrow(new PKCS11Exception(PKCS11Constants.CKR_DEVICE_REMOVED))
+                .when(token).openSession(anyBoolean(), anyBoolean(), any(), any());
+
+        assertThrows(PKCS11Exception.class, () -> pool.recreate(session));
+        assertEquals(POOL_SIZE - 1, pool.getStatus().openSessions());
+
+        doReturn(mock(Session.class)).when(token).openSession(anyBoolean(), anyBoolean(), any(), any());
+        pool.checkHealth();
+
+        assertEquals(POOL_SIZE, pool.getStatus().openSessions());
+        assertEquals(POOL_SIZE, pool.getStatus().idleSessions());
+    }
+
+    /**
+     * Test that sessions are closed when the pool is closed, including the ones released afterwards.
+     */
+    @Test
+    public void closeClosesIdleAndReleasedSessions() throws Exception {
+        Session inUse = pool.acquire();
+
+        pool.close();
+
+        verify(openedSessions.get(1)).closeSession();
+        verify(inUse, never()).closeSession();
+
+        pool.release(inUse);
+
+        verify(inUse).closeSession();
+        assertEquals(0, pool.getStatus().openSessions());
+        assertEquals(0, pool.getStatus().idleSessions());
+    }
+}
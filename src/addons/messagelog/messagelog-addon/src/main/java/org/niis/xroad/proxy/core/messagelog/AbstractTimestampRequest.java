@@ -52,8 +52,16 @@ import java.io.InputStream;
 import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static ee.ria.xroad.common.crypto.Digests.calculateDigest;
 import static ee.ria.xroad.common.crypto.Digests.getAlgorithmIdentifier;
@@ -69,8 +77,12 @@ import static org.niis.xroad.proxy.core.messagelog.TimestamperUtil.getTimestampR
 @Slf4j
 @RequiredArgsConstructor
 public abstract class AbstractTimestampRequest {
+    // time-stamp requests mostly wait for the providers, abandoned requests are interrupted
+    private static final ExecutorService TSP_REQUEST_EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
     protected final GlobalConfProvider globalConfProvider;
     protected final Long[] logRecords;
+    protected final TspHealth tspHealth;
 
     abstract byte[] getRequestData() throws XMLSignatureException, JAXBException, IOException;
 
@@ -94,28 +106,51 @@ public abstract class AbstractTimestampRequest {
         }
     }
 
+    /**
+     * Sends the time-stamp request to the providers in the given order. The next provider is tried when the previous
+     * one fails, or in parallel when the previous one has not responded within its usual response time. The first
+     * valid response is used and the requests still waiting for a response are abandoned.
+     */
     protected Timestamper.TimestampResult makeTsRequest(TimeStampRequest tsRequest, List<String> tspUrls)  {
         log.debug("tspUrls: {}", tspUrls);
         Map<String, Exception> errorsByUrl = new HashMap<>();
-        for (String url : tspUrls) {
-            try {
-                log.debug("Sending time-stamp request to {}", url);
-
-                TsRequest req = new TsRequest(getTsRequestInputStream(tsRequest, url), url);
+        CompletionService<TimeStampResponse> completionService = new ExecutorCompletionService<>(TSP_REQUEST_EXECUTOR);
+        Map<Future<TimeStampResponse>, Attempt> attempts = new HashMap<>();
+        Iterator<String> nextUrls = tspUrls.iterator();
+        Attempt latest = null;
 
-                TimeStampResponse tsResponse = getTimestampResponse(req.getInputStream());
-                log.info("tsresponse {}", tsResponse);
-
-                verify(tsRequest, tsResponse);
+        try {
+            while (nextUrls.hasNext() || !attempts.isEmpty()) {
+                if (nextUrls.hasNext() && (attempts.isEmpty() || latest.isOverdue())) {
+                    latest = send(completionService, tsRequest, nextUrls.next());
+                    attempts.put(latest.future(), latest);
+                    continue;
+                }
 
-                Timestamper.TimestampResult result = result(tsResponse, url);
-                result.setErrorsByUrl(errorsByUrl);
-                return result;
+                Future<TimeStampResponse> done = nextUrls.hasNext() && latest.hedgeDelay() >= 0
+                        ? completionService.poll(latest.hedgeAtNanos() - System.nanoTime(), TimeUnit.NANOSECONDS)
+                        : completionService.take();
+                if (done == null) {
+                    log.debug("No time-stamp response from {} in {} ms, sending the request also to the next provider",
+                            latest.url(), latest.hedgeDelay());
+                    continue;
+                }
 
-            } catch (Exception ex) {
-                log.error("Failed to get time stamp from " + url, ex);
-                errorsByUrl.put(url, ex);
+                Attempt attempt = attempts.remove(done);
+                try {
+                    Timestamper.TimestampResult result = result(getResponse(done), attempt.url());
+                    result.setErrorsByUrl(errorsByUrl);
+                    return result;
+                } catch (Exception ex) {
+                    log.error("Failed to get time stamp from " + attempt.url(), ex);
+                    errorsByUrl.put(attempt.url(), ex);
+                }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            errorsByUrl.put(latest.url(), e);
+        } finally {
+            attempts.values().forEach(this::abandon);
         }
 
         Timestamper.TimestampFailed timestampFailed = new Timestamper.TimestampFailed(logRecords,
@@ -127,6 +162,52 @@ public abstract class AbstractTimestampRequest {
         return timestampFailed;
     }
 
+    private Attempt send(CompletionService<TimeStampResponse> completionService, TimeStampRequest tsRequest, String url) {
+        long hedgeDelay = tspHealth.hedgeDelay(url);
+        long start = System.nanoTime();
+        Future<TimeStampResponse> future = completionService.submit(() -> {
+            try {
+                log.debug("Sending time-stamp request to {}", url);
+
+                TimeStampResponse tsResponse = getTimestampResponse(getTsRequestInputStream(tsRequest, url));
+                log.info("tsresponse {}", tsResponse);
+
+                verify(tsRequest, tsResponse);
+
+                tspHealth.success(url, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                return tsResponse;
+            } catch (Exception e) {
+                if (!Thread.currentThread().isInterrupted()) {
+                    tspHealth.failure(url);
+                }
+                throw e;
+            }
+        });
+
+        return new Attempt(url, future, start, hedgeDelay, start + TimeUnit.MILLISECONDS.toNanos(Math.max(hedgeDelay, 0)));
+    }
+
+    private static TimeStampResponse getResponse(Future<TimeStampResponse> done) throws Exception {
+        try {
+            return done.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    private void abandon(Attempt attempt) {
+        if (attempt.future().cancel(true)) {
+            tspHealth.abandoned(attempt.url(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - attempt.startNanos()));
+        }
+    }
+
+    private record Attempt(String url, Future<TimeStampResponse> future, long startNanos, long hedgeDelay,
+                           long hedgeAtNanos) {
+        boolean isOverdue() {
+            return hedgeDelay >= 0 && System.nanoTime() - hedgeAtNanos >= 0;
+        }
+    }
+
     private static InputStream getTsRequestInputStream(TimeStampRequest tsRequest, String url) {
         try {
             return TimestamperUtil.makeTsRequest(tsRequest, url);
@@ -53,8 +53,9 @@ class BatchTimestampRequest extends AbstractTimestampRequest {
     private String[] hashChains = null;
 
 
-    BatchTimestampRequest(GlobalConfProvider globalConfProvider, Long[] logRecords, String[] signatureHashes) {
-        super(globalConfProvider, logRecords);
+    BatchTimestampRequest(GlobalConfProvider globalConfProvider, Long[] logRecords, String[] signatureHashes,
+                          TspHealth tspHealth) {
+        super(globalConfProvider, logRecords, tspHealth);
 
         this.signatureHashes = signatureHashes;
     }
@@ -0,0 +1,115 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.niis.xroad.proxy.core.messagelog;
+
+import ee.ria.xroad.common.messagelog.MessageRecord;
+import ee.ria.xroad.common.messagelog.TimestampRecord;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+/**
+ * Time-stamps immediately logged message records in groups. A batch of concurrently logged records is
+ * time-stamped with a single time-stamp request over the hash chain of their signatures. At most
+ * {@code maxInFlight} requests are sent concurrently, records arriving meanwhile are grouped into the next batch.
+ * The future of every record is completed only after the shared time-stamp has been saved.
+ */
+@Slf4j
+class ImmediateTimestamper extends MessageRecordBatcher<TimestampRecord> {
+
+    private final Semaphore inFlight;
+    private final Function<Timestamper.TimestampTask, TimestampRecord> batchTimestamper;
+    private final ExecutorService requestExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    ImmediateTimestamper(int maxRecords, long maxDelayMicros, int maxInFlight,
+                         Function<Timestamper.TimestampTask, TimestampRecord> batchTimestamper) {
+        super("Immediate timestamper", maxRecords, maxDelayMicros);
+        this.inFlight = new Semaphore(Math.max(1, maxInFlight));
+        this.batchTimestamper = batchTimestamper;
+        start();
+    }
+
+    /**
+     * Queues the message record for time-stamping.
+     *
+     * @param messageRecord the saved message record
+     * @return future that is completed with the time-stamp record once it has been saved
+     */
+    CompletableFuture<TimestampRecord> timestamp(MessageRecord messageRecord) {
+        return submit(messageRecord);
+    }
+
+    @Override
+    void shutdown() {
+        super.shutdown();
+        // requests already sent are allowed to complete
+        requestExecutor.shutdown();
+    }
+
+    @Override
+    protected void awaitCapacity() throws InterruptedException {
+        // records keep queueing up while all the permitted requests are in flight
+        inFlight.acquire();
+    }
+
+    @Override
+    protected void handleBatch(List<PendingRecord<TimestampRecord>> batch) {
+        try {
+            requestExecutor.execute(() -> {
+                try {
+                    timestampBatch(batch);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            IllegalStateException stopped = stoppedException();
+            batch.forEach(pending -> pending.result().completeExceptionally(stopped));
+        }
+    }
+
+    private void timestampBatch(List<PendingRecord<TimestampRecord>> batch) {
+        log.trace("Time-stamping {} message records", batch.size());
+        Timestamper.TimestampTask task = new Timestamper.TimestampTask(
+                batch.stream().map(pending -> pending.messageRecord().getId()).toArray(Long[]::new),
+                batch.stream().map(pending -> pending.messageRecord().getSignatureHash()).toArray(String[]::new));
+        try {
+            TimestampRecord timestampRecord = batchTimestamper.apply(task);
+            batch.forEach(pending -> pending.result().complete(timestampRecord));
+        } catch (Exception e) {
+            // one time-stamp covers the whole batch, none of the records were time-stamped
+            batch.forEach(pending -> pending.result().completeExceptionally(e));
+        }
+    }
+}
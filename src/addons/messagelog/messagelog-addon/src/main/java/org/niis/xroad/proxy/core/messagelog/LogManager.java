@@ -47,6 +47,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.input.BoundedInputStream;
 import org.niis.xroad.common.core.exception.ErrorCode;
 import org.niis.xroad.common.core.exception.XrdRuntimeException;
+import org.niis.xroad.common.core.exception.XrdRuntimeExceptionBuilder;
 import org.niis.xroad.globalconf.GlobalConfProvider;
 import org.niis.xroad.serverconf.ServerConfProvider;
 
@@ -57,6 +58,7 @@ import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Date;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -91,6 +93,8 @@ public class LogManager extends AbstractLogManager {
 
     private final Timestamper timestamper;
     private final TimestamperJob timestamperJob;
+    private final MessageRecordWriter messageRecordWriter;
+    private final ImmediateTimestamper immediateTimestamper;
 
     // package private for testing
     final TaskQueue taskQueue;
@@ -103,11 +107,39 @@ public class LogManager extends AbstractLogManager {
         this.timestamper = getTimestamperImpl();
         this.taskQueue = getTaskQueueImpl(timestamper);
         this.timestamperJob = createTimestamperJob(taskQueue);
+        this.messageRecordWriter = createMessageRecordWriter();
+        this.immediateTimestamper = createImmediateTimestamper();
     }
 
     @PreDestroy
     public void destroy() {
         timestamperJob.shutdown();
+        if (messageRecordWriter != null) {
+            messageRecordWriter.shutdown();
+        }
+        if (immediateTimestamper != null) {
+            immediateTimestamper.shutdown();
+        }
+    }
+
+    private static MessageRecordWriter createMessageRecordWriter() {
+        int maxRecords = MessageLogProperties.getWriteBatchMaxRecords();
+        if (maxRecords <= 1) {
+            return null;
+        }
+        log.info("Message records are written in batches of up to {} records, waiting at most {} microseconds",
+                maxRecords, MessageLogProperties.getWriteBatchMaxDelay());
+        return new MessageRecordWriter(maxRecords, MessageLogProperties.getWriteBatchMaxDelay());
+    }
+
+    private ImmediateTimestamper createImmediateTimestamper() {
+        int maxRecords = MessageLogProperties.getTimestampImmediatelyBatchMaxRecords();
+        if (maxRecords <= 1) {
+            return null;
+        }
+        return new ImmediateTimestamper(maxRecords, MessageLogProperties.getTimestampImmediatelyBatchMaxDelay(),
+                MessageLogProperties.getTimestamperBatchesInFlight(),
+                task -> handleImmediateTimestampResult(timestamper.handleTimestampTask(task)));
     }
 
     private TimestamperJob createTimestamperJob(TaskQueue taskQueueParam) {
@@ -188,8 +220,21 @@ public class LogManager extends AbstractLogManager {
     private TimestampRecord timestampImmediately(MessageRecord logRecord) {
         log.trace("timestampImmediately({})", logRecord);
 
-        Timestamper.TimestampResult result = timestamper.handleTimestampTask(new Timestamper.TimestampTask(logRecord));
+        if (immediateTimestamper == null) {
+            return handleImmediateTimestampResult(timestamper.handleTimestampTask(new Timestamper.TimestampTask(logRecord)));
+        }
 
+        try {
+            return immediateTimestamper.timestamp(logRecord).get();
+        } catch (ExecutionException e) {
+            throw batchFailure(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw XrdRuntimeException.systemException(e);
+        }
+    }
+
+    private TimestampRecord handleImmediateTimestampResult(Timestamper.TimestampResult result) {
         switch (result) {
             case Timestamper.TimestampSucceeded tts:
                 return saveTimestampRecord(tts);
@@ -293,10 +338,39 @@ public class LogManager extends AbstractLogManager {
     }
 
     protected MessageRecord saveMessageRecord(MessageRecord messageRecord) {
-        LogRecordManager.saveMessageRecord(messageRecord);
+        if (messageRecordWriter == null) {
+            LogRecordManager.saveMessageRecord(messageRecord);
+            return messageRecord;
+        }
+
+        try {
+            messageRecordWriter.write(messageRecord).get();
+        } catch (ExecutionException e) {
+            throw batchFailure(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw XrdRuntimeException.systemException(e);
+        }
         return messageRecord;
     }
 
+    /**
+     * The failure of a batch is shared by all the callers waiting for it. Every caller gets its own exception with
+     * the same error code, as the exceptions are modified on their way up (see CodedException#withPrefix).
+     */
+    private static XrdRuntimeException batchFailure(Throwable cause) {
+        if (cause instanceof XrdRuntimeException xrdEx) {
+            // the error code already includes the prefix of the origin
+            return new XrdRuntimeExceptionBuilder(xrdEx.getCategory(), ErrorCode.withCode(xrdEx.getErrorCode()))
+                    .cause(xrdEx)
+                    .metadataItems(xrdEx.getErrorCodeMetadata().toArray())
+                    .details(xrdEx.getDetails())
+                    .httpStatus(xrdEx.getHttpStatus().orElse(null))
+                    .build();
+        }
+        return XrdRuntimeException.systemException(cause);
+    }
+
     static TimestampRecord saveTimestampRecord(Timestamper.TimestampSucceeded message) {
         log.trace("saveTimestampRecord()");
 
@@ -25,6 +25,7 @@
  */
 package org.niis.xroad.proxy.core.messagelog;
 
+import ee.ria.xroad.common.CodedException;
 import ee.ria.xroad.common.db.HibernateUtil;
 import ee.ria.xroad.common.identifier.ClientId;
 import ee.ria.xroad.common.message.AttachmentStream;
@@ -42,6 +43,8 @@ import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
 import lombok.extern.slf4j.Slf4j;
 import org.hibernate.Session;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.hibernate.query.MutationQuery;
 import org.niis.xroad.common.core.exception.ErrorCode;
 import org.niis.xroad.common.core.exception.XrdRuntimeException;
@@ -50,7 +53,9 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
 
 import static org.niis.xroad.proxy.core.messagelog.MessageLogDatabaseCtx.doInTransaction;
@@ -152,6 +157,63 @@ public final class LogRecordManager {
         });
     }
 
+    /**
+     * Saves the message records to database in a single transaction. Record ids are allocated
+     * for all records at once and the inserts are sent to the database in JDBC batches.
+     * A record that cannot be prepared for saving (e.g. its attachment cannot be read) is left out
+     * without affecting the other records. The reason is reported the same way as
+     * {@link #saveMessageRecord(MessageRecord)} reports a failed save.
+     *
+     * @param messageRecords the message records to be saved.
+     * @return the records that were left out, with the reason
+     */
+    static Map<MessageRecord, Exception> saveMessageRecords(List<MessageRecord> messageRecords) {
+
+        final MessageRecordEncryption encryption = MessageRecordEncryption.getInstance();
+        final boolean encrypt = encryption.encryptionEnabled();
+
+        return doInTransaction(session -> {
+            session.setJdbcBatchSize(Math.max(messageRecords.size(), getConfiguredBatchSize(session)));
+
+            final Map<MessageRecord, Exception> rejected = new IdentityHashMap<>();
+            final long[] ids = getNextRecordIds(session, messageRecords.size());
+            for (int i = 0; i < messageRecords.size(); i++) {
+                final MessageRecord messageRecord = messageRecords.get(i);
+                try {
+                    messageRecord.setId(ids[i]);
+
+                    if (encrypt) {
+                        encryption.prepareEncryption(messageRecord);
+                    }
+
+                    //the blob must be created within hibernate session
+                    int attachmentNo = 0;
+                    for (AttachmentStream attachmentStream : messageRecord.getAttachmentStreams()) {
+                        attachmentNo++;
+                        messageRecord.addAttachment(attachmentNo,   // attachment numbering starts from one as in asic container
+                                session.getLobHelper().createBlob(attachmentStream.getStream(), attachmentStream.getSize()));
+                    }
+                } catch (Exception e) {
+                    rejected.put(messageRecord, toSaveFailure(e));
+                    continue;
+                }
+
+                save(session, messageRecord);
+            }
+            return rejected;
+        });
+    }
+
+    private static RuntimeException toSaveFailure(Exception e) {
+        if (e instanceof CodedException codedException) {
+            return codedException;
+        }
+
+        return XrdRuntimeException.systemException(ErrorCode.DATABASE_ERROR)
+                .cause(e)
+                .build();
+    }
+
     /**
      * Saves the message record in the database.
      *
@@ -213,6 +275,35 @@ public final class LogRecordManager {
         return session.createNativeQuery("SELECT nextval('logrecord_sequence')", Long.class).getSingleResult();
     }
 
+    /**
+     * Allocates a range of record ids. On PostgreSQL the whole range is fetched with one query,
+     * other databases fall back to fetching the ids one by one.
+     *
+     * @param session the Hibernate session.
+     * @param count   number of ids to allocate.
+     * @return the allocated ids
+     */
+    static long[] getNextRecordIds(Session session, int count) {
+        if (count == 1 || !isPostgreSql(session)) {
+            final long[] ids = new long[count];
+            for (int i = 0; i < count; i++) {
+                ids[i] = getNextRecordId(session);
+            }
+            return ids;
+        }
+
+        return session.createNativeQuery("SELECT nextval('logrecord_sequence') FROM generate_series(1, :count)", Long.class)
+                .setParameter("count", count)
+                .getResultList().stream()
+                .mapToLong(Long::longValue)
+                .toArray();
+    }
+
+    private static boolean isPostgreSql(Session session) {
+        return session.getSessionFactory().unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect() instanceof PostgreSQLDialect;
+    }
+
     /**
      * Associates each log record with the time-stamp record.
      *
@@ -0,0 +1,160 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.niis.xroad.proxy.core.messagelog;
+
+import ee.ria.xroad.common.messagelog.MessageRecord;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Groups concurrently logged message records into batches handled by a single collector thread. Once a record is
+ * queued, the batch is filled with at most {@code maxRecords} records, waiting at most {@code maxDelayMicros} for
+ * more records. The future of a record is completed by the batch handler, records still queued on shutdown fail.
+ *
+ * @param <R> the type of the result of a record
+ */
+@Slf4j
+abstract class MessageRecordBatcher<R> {
+
+    private final BlockingQueue<PendingRecord<R>> queue = new LinkedBlockingQueue<>();
+    private final String name;
+    private final int maxRecords;
+    private final long maxDelayNanos;
+    private final Thread collectorThread;
+
+    private volatile boolean stopping;
+
+    MessageRecordBatcher(String name, int maxRecords, long maxDelayMicros) {
+        this.name = name;
+        this.maxRecords = Math.max(1, maxRecords);
+        this.maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, maxDelayMicros));
+
+        collectorThread = new Thread(this::process, name);
+        collectorThread.setDaemon(true);
+    }
+
+    /**
+     * Starts collecting batches, called by the subclass once it has been initialized.
+     */
+    protected final void start() {
+        collectorThread.start();
+    }
+
+    /**
+     * Queues the message record for the next batch.
+     *
+     * @param messageRecord the message record
+     * @return future that is completed when the batch containing the record has been handled
+     */
+    protected final CompletableFuture<R> submit(MessageRecord messageRecord) {
+        PendingRecord<R> pending = new PendingRecord<>(messageRecord, new CompletableFuture<>());
+        if (stopping) {
+            pending.result().completeExceptionally(stoppedException());
+            return pending.result();
+        }
+
+        queue.add(pending);
+        // the collector may have stopped and failed the queued records before the record was added
+        if (stopping && queue.remove(pending)) {
+            pending.result().completeExceptionally(stoppedException());
+        }
+        return pending.result();
+    }
+
+    void shutdown() {
+        log.trace("shutdown({})", name);
+        stopping = true;
+        collectorThread.interrupt();
+    }
+
+    /**
+     * Waits until the next batch can be handled. Records keep queueing up for the batch meanwhile.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    protected void awaitCapacity() throws InterruptedException {
+        // no limit by default
+    }
+
+    /**
+     * Handles the collected batch, completing the future of every record.
+     *
+     * @param batch the records of the batch, in the order they were queued
+     */
+    protected abstract void handleBatch(List<PendingRecord<R>> batch);
+
+    protected final IllegalStateException stoppedException() {
+        return new IllegalStateException(name + " is stopped");
+    }
+
+    private void process() {
+        List<PendingRecord<R>> batch = new ArrayList<>();
+        while (!stopping) {
+            try {
+                batch.add(queue.take());
+                awaitCapacity();
+                collectBatch(batch);
+                List<PendingRecord<R>> collected = batch;
+                batch = new ArrayList<>();
+                handleBatch(collected);
+            } catch (InterruptedException e) {
+                log.trace("{} interrupted", name);
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // fail the records nobody is going to handle anymore
+        queue.drainTo(batch);
+        RuntimeException stopped = stoppedException();
+        batch.forEach(pending -> pending.result().completeExceptionally(stopped));
+    }
+
+    private void collectBatch(List<PendingRecord<R>> batch) throws InterruptedException {
+        queue.drainTo(batch, maxRecords - batch.size());
+
+        long deadline = System.nanoTime() + maxDelayNanos;
+        long remaining = maxDelayNanos;
+        while (remaining > 0 && batch.size() < maxRecords) {
+            PendingRecord<R> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+            queue.drainTo(batch, maxRecords - batch.size());
+            remaining = deadline - System.nanoTime();
+        }
+    }
+
+    protected record PendingRecord<R>(MessageRecord messageRecord, CompletableFuture<R> result) {
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.niis.xroad.proxy.core.messagelog;
+
+import ee.ria.xroad.common.messagelog.MessageRecord;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Writes message records to the database using group commit. A batch of concurrently logged records
+ * is saved in a single transaction, and the future of every record is completed only after the shared
+ * transaction has been committed.
+ */
+@Slf4j
+class MessageRecordWriter extends MessageRecordBatcher<Void> {
+
+    private final Function<List<MessageRecord>, Map<MessageRecord, Exception>> batchSaver;
+
+    MessageRecordWriter(int maxRecords, long maxDelayMicros) {
+        this(maxRecords, maxDelayMicros, LogRecordManager::saveMessageRecords);
+    }
+
+    MessageRecordWriter(int maxRecords, long maxDelayMicros, Function<List<MessageRecord>, Map<MessageRecord, Exception>> batchSaver) {
+        super("Message record writer", maxRecords, maxDelayMicros);
+        this.batchSaver = batchSaver;
+        start();
+    }
+
+    /**
+     * Queues the message record for writing.
+     *
+     * @param messageRecord the message record
+     * @return future that is completed when the record has been committed to the database
+     */
+    CompletableFuture<Void> write(MessageRecord messageRecord) {
+        return submit(messageRecord);
+    }
+
+    @Override
+    protected void handleBatch(List<PendingRecord<Void>> batch) {
+        log.trace("Writing {} message records", batch.size());
+        try {
+            Map<MessageRecord, Exception> rejected = batchSaver.apply(batch.stream().map(PendingRecord::messageRecord).toList());
+            for (PendingRecord<Void> pending : batch) {
+                Exception error = rejected.get(pending.messageRecord());
+                if (error == null) {
+                    pending.result().complete(null);
+                } else {
+                    pending.result().completeExceptionally(error);
+                }
+            }
+        } catch (Exception e) {
+            // the shared transaction was rolled back, none of the records were saved
+            batch.forEach(pending -> pending.result().completeExceptionally(e));
+        }
+    }
+}
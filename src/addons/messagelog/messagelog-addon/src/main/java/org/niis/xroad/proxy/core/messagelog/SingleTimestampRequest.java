@@ -53,8 +53,8 @@ class SingleTimestampRequest extends AbstractTimestampRequest {
     private MessageRecord message;
     private Signature signature;
 
-    SingleTimestampRequest(GlobalConfProvider globalConfProvider, Long logRecord) {
-        super(globalConfProvider, new Long[]{logRecord});
+    SingleTimestampRequest(GlobalConfProvider globalConfProvider, Long logRecord, TspHealth tspHealth) {
+        super(globalConfProvider, new Long[]{logRecord}, tspHealth);
     }
 
     @Override
@@ -27,16 +27,23 @@ package org.niis.xroad.proxy.core.messagelog;
 
 import ee.ria.xroad.common.messagelog.MessageLogProperties;
 
+import com.google.common.collect.Lists;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.hibernate.Session;
+import org.niis.xroad.common.core.exception.XrdRuntimeException;
 import org.niis.xroad.proxy.core.messagelog.Timestamper.TimestampFailed;
 import org.niis.xroad.proxy.core.messagelog.Timestamper.TimestampSucceeded;
 import org.niis.xroad.proxy.core.messagelog.Timestamper.TimestampTask;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.niis.xroad.proxy.core.messagelog.MessageLogDatabaseCtx.doInTransaction;
 
@@ -50,41 +57,34 @@ public class TaskQueue {
     static final double TIMESTAMPED_RECORDS_RATIO_THRESHOLD = 0.7;
     static final int TIMESTAMP_RECORDS_LIMIT_RETRY_MODE = 1;
 
+    private static final long NO_MORE_RECORDS = -1L;
+
     private final Timestamper timestamper;
     private final LogManager logManager;
-
-    protected void handleTimestampSucceeded(TimestampSucceeded timestampSucceededResult) {
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * Saves the time-stamp of a batch.
+     *
+     * @return null if the time-stamp was saved, otherwise the failure to report for the batch
+     */
+    protected TimestampFailed handleTimestampSucceeded(TimestampSucceeded timestampSucceededResult) {
         log.trace("handleTimestampSucceeded");
 
         if (log.isTraceEnabled()) {
             log.trace("Time-stamped message records {}", Arrays.toString(timestampSucceededResult.getMessageRecords()));
         }
 
-        boolean succeeded = true;
-        Exception failureCause = null;
-
         try {
             saveTimestampRecord(timestampSucceededResult);
+            return null;
         } catch (Exception e) {
             log.error("Failed to save time-stamp record to database", e);
-            failureCause = e;
-            succeeded = false;
-        } finally {
-            if (succeeded) {
-                indicateSuccess();
-                // If time-stamped records count equals to time-stamp records limit, there are probably
-                // still records to be time-stamped. Init another time-stamping round to prevent
-                // messagelog records to begin to bloat.
-                if (timestampSucceededResult.getMessageRecords().length == MessageLogProperties.getTimestampRecordsLimit()) {
-                    log.info("Time-stamped records count equaled to time-stamp records limit");
-                    handleStartTimestamping();
-                }
-            } else {
-                TimestampFailed timestampFailed = new TimestampFailed(timestampSucceededResult.getMessageRecords(), failureCause);
-                timestampFailed.setErrorsByUrl(timestampSucceededResult.getErrorsByUrl());
-                timestampFailed.putError(timestampSucceededResult.getUrl(), failureCause);
-                indicateFailure(timestampFailed);
-            }
+
+            TimestampFailed timestampFailed = new TimestampFailed(timestampSucceededResult.getMessageRecords(), e);
+            timestampFailed.setErrorsByUrl(timestampSucceededResult.getErrorsByUrl());
+            timestampFailed.putError(timestampSucceededResult.getUrl(), e);
+            return timestampFailed;
         }
     }
 
@@ -116,53 +116,145 @@ public class TaskQueue {
         logManager.setTimestampingStatus(new SetTimestampingStatusMessage(status));
     }
 
-    protected void handleTimestampFailed(TimestampFailed timestampFailedResult) {
+    /**
+     * Handles a batch whose time-stamping failed.
+     *
+     * @return the failure to report for the batch
+     */
+    protected TimestampFailed handleTimestampFailed(TimestampFailed timestampFailedResult) {
         log.trace("handleTimestampFailed");
 
-        indicateFailure(timestampFailedResult);
+        return timestampFailedResult;
     }
 
     protected void handleStartTimestamping() {
-        handleStartTimestamping(MessageLogProperties.getTimestampRecordsLimit());
+        runExclusively(this::timestampAll);
     }
 
     protected void handleStartTimestampingRetryMode() {
-        handleStartTimestamping(TIMESTAMP_RECORDS_LIMIT_RETRY_MODE);
+        runExclusively(() -> {
+            // a single record tests whether time-stamping works again before the backlog is time-stamped
+            if (timestampRound(TIMESTAMP_RECORDS_LIMIT_RETRY_MODE, 1, 0L) != NO_MORE_RECORDS) {
+                timestampAll();
+            }
+        });
+    }
+
+    /**
+     * Runs the time-stamping unless it is already running, in which case the running time-stamping takes care of
+     * the records in the queue.
+     */
+    private void runExclusively(Runnable timestamping) {
+        if (!running.compareAndSet(false, true)) {
+            log.trace("Time-stamping is already running");
+            return;
+        }
+
+        try {
+            timestamping.run();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Time-stamps the records in the queue until the queue is drained or time-stamping fails. Each round time-stamps
+     * several batches concurrently and continues from the last record of the previous round.
+     */
+    private void timestampAll() {
+        int timestampRecordsLimit = MessageLogProperties.getTimestampRecordsLimit();
+        int batchesInFlight = MessageLogProperties.getTimestamperBatchesInFlight();
+
+        long lastRecordNo = timestampRound(timestampRecordsLimit, batchesInFlight, 0L);
+        while (lastRecordNo != NO_MORE_RECORDS) {
+            // There are probably still records to be time-stamped. Continue to prevent
+            // messagelog records to begin to bloat.
+            log.info("Time-stamped records count equaled to time-stamp records limit");
+            lastRecordNo = timestampRound(timestampRecordsLimit, batchesInFlight, lastRecordNo);
+        }
     }
 
-    private void handleStartTimestamping(int timestampRecordsLimit) {
+    /**
+     * Time-stamps the records following the given record in up to the given number of concurrent batches.
+     *
+     * @return the number of the last time-stamped record if all batches were full and succeeded, otherwise
+     * {@link #NO_MORE_RECORDS}
+     */
+    private long timestampRound(int timestampRecordsLimit, int batchesInFlight, long afterRecordNo) {
         List<Task> timestampTasks;
 
         try {
-            timestampTasks = doInTransaction(session -> getTimestampTasks(session, timestampRecordsLimit));
+            timestampTasks = doInTransaction(session ->
+                    getTimestampTasks(session, afterRecordNo, timestampRecordsLimit * batchesInFlight));
         } catch (Exception e) {
             log.error("Error getting time-stamp tasks", e);
 
-            return;
+            return NO_MORE_RECORDS;
         }
 
         if (timestampTasks.isEmpty()) {
             log.trace("Nothing to time-stamp, task queue is empty");
             indicateSuccess();
-            return;
+            return NO_MORE_RECORDS;
         }
 
         int timestampTasksSize = timestampTasks.size();
 
         log.info("Start time-stamping {} message records", timestampTasksSize);
 
-        if (timestampTasksSize / (double) MessageLogProperties.getTimestampRecordsLimit()
+        if (Math.min(timestampTasksSize, timestampRecordsLimit) / (double) MessageLogProperties.getTimestampRecordsLimit()
                 >= TIMESTAMPED_RECORDS_RATIO_THRESHOLD) {
             log.warn("Number of time-stamped records is over {} % of 'timestamp-records-limit' value",
                     TIMESTAMPED_RECORDS_RATIO_THRESHOLD * 100);
         }
 
-        final Timestamper.TimestampResult timestampResult = timestamper
-                .handleTimestampTask(createTimestampTask(timestampTasks));
-        if (timestampResult instanceof TimestampSucceeded timestampSucceeded) {
-            handleTimestampSucceeded(timestampSucceeded);
-        } else if (timestampResult instanceof TimestampFailed timestampFailed) {
-            handleTimestampFailed(timestampFailed);
+        List<List<Task>> batches = Lists.partition(timestampTasks, timestampRecordsLimit);
+        TimestampFailed failure = null;
+
+        // the batches are sent concurrently, the results are saved in the order of the records
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Timestamper.TimestampResult>> results = batches.stream()
+                    .map(batch -> executor.submit(() -> timestamper.handleTimestampTask(createTimestampTask(batch))))
+                    .toList();
+
+            for (Future<Timestamper.TimestampResult> result : results) {
+                TimestampFailed batchFailure = handleTimestampResult(getResult(result));
+                if (failure == null) {
+                    failure = batchFailure;
+                }
+            }
+        }
+
+        // the status of the round is reported once, a later successful batch must not hide a failed one
+        boolean succeeded = failure == null;
+        if (succeeded) {
+            indicateSuccess();
+        } else {
+            indicateFailure(failure);
+        }
+
+        return succeeded && timestampTasksSize == timestampRecordsLimit * batchesInFlight
+                ? timestampTasks.getLast().getMessageRecordNo() : NO_MORE_RECORDS;
+    }
+
+    /**
+     * @return null if the time-stamp of the batch was saved, otherwise the failure of the batch
+     */
+    private TimestampFailed handleTimestampResult(Timestamper.TimestampResult timestampResult) {
+        return switch (timestampResult) {
+            case TimestampSucceeded timestampSucceeded -> handleTimestampSucceeded(timestampSucceeded);
+            case TimestampFailed timestampFailed -> handleTimestampFailed(timestampFailed);
+        };
+    }
+
+    private static Timestamper.TimestampResult getResult(Future<Timestamper.TimestampResult> result) {
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            throw XrdRuntimeException.systemException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw XrdRuntimeException.systemException(e);
         }
     }
 
@@ -188,8 +280,11 @@ public class TaskQueue {
         }
     }
 
-    private List<Task> getTimestampTasks(Session session, int timestampRecordsLimit) {
-        return session.createQuery(getTaskQueueQuery(), Task.class).setMaxResults(timestampRecordsLimit).list();
+    private List<Task> getTimestampTasks(Session session, long afterRecordNo, int maxResults) {
+        return session.createQuery(getTaskQueuePageQuery(), Task.class)
+                .setParameter("afterRecordNo", afterRecordNo)
+                .setMaxResults(maxResults)
+                .list();
     }
 
     private static Long getTasksQueueSize(Session session) {
@@ -201,6 +296,11 @@ public class TaskQueue {
                 + "from MessageRecordEntity m where m.timestampRecord is null order by m.id";
     }
 
+    private static String getTaskQueuePageQuery() {
+        return "select new " + Task.class.getName() + "(m.id, m.signatureHash) "
+                + "from MessageRecordEntity m where m.timestampRecord is null and m.id > :afterRecordNo order by m.id";
+    }
+
     private static String getTaskQueueSizeQuery() {
         return "select COUNT(*) from MessageRecordEntity m where m.timestampRecord is null";
     }
@@ -52,6 +52,7 @@ import static org.niis.xroad.common.core.exception.ErrorCode.GLOBAL_CONF_OUTDATE
 public class Timestamper {
     private final GlobalConfProvider globalConfProvider;
     private final ServerConfProvider serverConfProvider;
+    protected final TspHealth tspHealth = new TspHealth();
 
     @Data
     @RequiredArgsConstructor
@@ -95,7 +96,7 @@ public class Timestamper {
     }
 
     protected TimestamperWorker getWorkerImpl() {
-        return new TimestamperWorker(globalConfProvider, serverConfProvider.getOrderedTspUrls());
+        return new TimestamperWorker(globalConfProvider, serverConfProvider.getOrderedTspUrls(), tspHealth);
     }
 
     public TimestampResult handleTimestampTask(TimestampTask timestampTask) {
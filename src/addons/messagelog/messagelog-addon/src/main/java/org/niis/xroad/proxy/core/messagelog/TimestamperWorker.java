@@ -25,6 +25,8 @@
  */
 package org.niis.xroad.proxy.core.messagelog;
 
+import ee.ria.xroad.common.SystemProperties;
+
 import jakarta.xml.bind.JAXBException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -51,6 +53,7 @@ import static org.niis.xroad.common.core.exception.ErrorCode.NO_TIMESTAMPING_PRO
 public class TimestamperWorker {
     private final GlobalConfProvider globalConfProvider;
     private final List<String> tspUrls;
+    protected final TspHealth tspHealth;
 
     public Timestamper.TimestampResult timestamp(TimestampTask timestampTask) {
         log.trace("timestamp({})", timestampTask.getClass());
@@ -101,7 +104,7 @@ public class TimestamperWorker {
 
         AbstractTimestampRequest tsRequest = createTimestampRequest(logRecords, signatureHashes);
 
-        Timestamper.TimestampResult result = tsRequest.execute(tspUrls);
+        Timestamper.TimestampResult result = tsRequest.execute(getPreferredTspUrls());
 
         log.info("Timestamped {} timestampTask records in {} ms",
                 timestampTask.getMessageRecords().length,
@@ -110,6 +113,14 @@ public class TimestamperWorker {
         return result;
     }
 
+    private List<String> getPreferredTspUrls() {
+        // the providers are not reordered across cost types
+        return switch (SystemProperties.getTimestampingPrioritizationStrategy()) {
+            case FREE_FIRST, PAID_FIRST -> tspUrls;
+            default -> tspHealth.prefer(tspUrls);
+        };
+    }
+
     private AbstractTimestampRequest createTimestampRequest(Long[] logRecords,
                                                             String[] signatureHashes) {
         if (logRecords.length == 1) {
@@ -125,11 +136,11 @@ public class TimestamperWorker {
     }
 
     protected AbstractTimestampRequest createSingleTimestampRequest(Long logRecord) {
-        return new SingleTimestampRequest(globalConfProvider, logRecord);
+        return new SingleTimestampRequest(globalConfProvider, logRecord, tspHealth);
     }
 
     protected AbstractTimestampRequest createBatchTimestampRequest(Long[] logRecords, String[] signatureHashes) {
-        return new BatchTimestampRequest(globalConfProvider, logRecords, signatureHashes);
+        return new BatchTimestampRequest(globalConfProvider, logRecords, signatureHashes, tspHealth);
     }
 
 }
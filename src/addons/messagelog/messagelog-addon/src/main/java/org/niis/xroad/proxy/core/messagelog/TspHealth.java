@@ -0,0 +1,152 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.niis.xroad.proxy.core.messagelog;
+
+import ee.ria.xroad.common.messagelog.MessageLogProperties;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps track of the response times and failures of time-stamping providers.
+ * <p>
+ * Providers that responded last time are preferred over failing ones, and faster providers over slower ones.
+ * The recent response times of a provider determine how long a request waits for it before the request is also
+ * sent to the next provider.
+ */
+class TspHealth {
+    static final int SAMPLE_COUNT = 64;
+    static final int MIN_SAMPLES_FOR_HEDGING = 8;
+
+    private static final int MAX_PERCENTILE = 100;
+
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+
+    /**
+     * Records a time-stamp response that was received from the provider.
+     *
+     * @param url    provider URL
+     * @param millis response time in milliseconds
+     */
+    void success(String url, long millis) {
+        Stats s = stats(url);
+        s.add(millis);
+        s.consecutiveFailures.set(0);
+    }
+
+    /**
+     * Records a failed time-stamp request.
+     *
+     * @param url provider URL
+     */
+    void failure(String url) {
+        stats(url).consecutiveFailures.incrementAndGet();
+    }
+
+    /**
+     * Records the time a request was waiting for the provider before it was abandoned. The provider would have
+     * responded later, so the time counts as a response time.
+     *
+     * @param url    provider URL
+     * @param millis time waited in milliseconds
+     */
+    void abandoned(String url, long millis) {
+        stats(url).add(millis);
+    }
+
+    /**
+     * Orders the providers so that the ones that responded last time come before the failing ones and the faster
+     * ones before the slower ones. Providers that have not been used yet are tried first, otherwise the original
+     * order is kept.
+     *
+     * @param urls provider URLs
+     * @return provider URLs in the preferred order
+     */
+    List<String> prefer(List<String> urls) {
+        return urls.stream()
+                .sorted(Comparator.comparing((String url) -> isFailing(url))
+                        .thenComparingLong(url -> percentile(url, MAX_PERCENTILE / 2)))
+                .toList();
+    }
+
+    /**
+     * @param url provider URL
+     * @return how long in milliseconds a request waits for the provider before it is also sent to the next
+     * provider, or -1 if the request should only be sent to the next provider after it fails
+     */
+    long hedgeDelay(String url) {
+        int percentile = MessageLogProperties.getTimestamperHedgePercentile();
+        if (percentile <= 0 || percentile >= MAX_PERCENTILE) {
+            return -1;
+        }
+
+        Stats s = stats.get(url);
+        if (s == null || s.count.get() < MIN_SAMPLES_FOR_HEDGING) {
+            return -1;
+        }
+        return s.percentile(percentile);
+    }
+
+    private boolean isFailing(String url) {
+        Stats s = stats.get(url);
+        return s != null && s.consecutiveFailures.get() > 0;
+    }
+
+    private long percentile(String url, int percentile) {
+        Stats s = stats.get(url);
+        return s == null || s.count.get() == 0 ? 0 : s.percentile(percentile);
+    }
+
+    private Stats stats(String url) {
+        return stats.computeIfAbsent(url, u -> new Stats());
+    }
+
+    private static final class Stats {
+        private final AtomicLongArray samples = new AtomicLongArray(SAMPLE_COUNT);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+        void add(long millis) {
+            samples.set((int) (count.getAndIncrement() % SAMPLE_COUNT), millis);
+        }
+
+        long percentile(int percentile) {
+            int size = (int) Math.min(count.get(), SAMPLE_COUNT);
+            long[] sorted = new long[size];
+            for (int i = 0; i < size; i++) {
+                sorted[i] = samples.get(i);
+            }
+            Arrays.sort(sorted);
+            return sorted[Math.min(size - 1, size * percentile / MAX_PERCENTILE)];
+        }
+    }
+}
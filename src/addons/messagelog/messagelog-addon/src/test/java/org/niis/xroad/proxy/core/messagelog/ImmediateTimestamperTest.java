@@ -0,0 +1,179 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.niis.xroad.proxy.core.messagelog;
+
+import ee.ria.xroad.common.messagelog.MessageRecord;
+import ee.ria.xroad.common.messagelog.TimestampRecord;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests grouping of immediately time-stamped message records.
+ */
+public class ImmediateTimestamperTest {
+
+    private ImmediateTimestamper timestamper;
+
+    @After
+    public void tearDown() {
+        if (timestamper != null) {
+            timestamper.shutdown();
+        }
+    }
+
+    /**
+     * Records logged while a time-stamp request is in flight share the next time-stamp.
+     *
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void groupsRecordsWaitingForPreviousTimestamp() throws Exception {
+        CountDownLatch firstRequestSent = new CountDownLatch(1);
+        CountDownLatch releaseFirstRequest = new CountDownLatch(1);
+        List<Long[]> requests = Collections.synchronizedList(new ArrayList<>());
+
+        timestamper = new ImmediateTimestamper(10, 0, 1, task -> {
+            requests.add(task.getMessageRecords());
+            firstRequestSent.countDown();
+            await(releaseFirstRequest);
+            return new TimestampRecord();
+        });
+
+        CompletableFuture<TimestampRecord> first = timestamper.timestamp(messageRecord(0L));
+        assertTrue(firstRequestSent.await(5, TimeUnit.SECONDS));
+
+        List<CompletableFuture<TimestampRecord>> waiting = new ArrayList<>();
+        for (long i = 1; i <= 15; i++) {
+            waiting.add(timestamper.timestamp(messageRecord(i)));
+        }
+        releaseFirstRequest.countDown();
+
+        first.get(5, TimeUnit.SECONDS);
+        TimestampRecord shared = waiting.getFirst().get(5, TimeUnit.SECONDS);
+        for (CompletableFuture<TimestampRecord> future : waiting.subList(1, 10)) {
+            assertSame(shared, future.get(5, TimeUnit.SECONDS));
+        }
+        for (CompletableFuture<TimestampRecord> future : waiting.subList(10, 15)) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+
+        assertEquals(3, requests.size());
+        assertArrayEquals(new Long[]{0L}, requests.get(0));
+        assertArrayEquals(new Long[]{1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L}, requests.get(1));
+        assertArrayEquals(new Long[]{11L, 12L, 13L, 14L, 15L}, requests.get(2));
+    }
+
+    /**
+     * A failed time-stamp request fails every record of the batch.
+     *
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void failedTimestampFailsAllRecords() throws Exception {
+        timestamper = new ImmediateTimestamper(2, TimeUnit.SECONDS.toMicros(5), 1, task -> {
+            assertEquals(2, task.getSignatureHashes().length);
+            throw new IllegalStateException("time-stamping failed");
+        });
+
+        List<CompletableFuture<TimestampRecord>> futures = List.of(
+                timestamper.timestamp(messageRecord(1L)), timestamper.timestamp(messageRecord(2L)));
+
+        for (CompletableFuture<TimestampRecord> future : futures) {
+            try {
+                future.get(5, TimeUnit.SECONDS);
+                fail("Expected the record to fail");
+            } catch (ExecutionException e) {
+                assertEquals("time-stamping failed", e.getCause().getMessage());
+            }
+        }
+    }
+
+    /**
+     * Records waiting for a time-stamp request or logged after shutdown fail instead of waiting forever.
+     *
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void shutdownFailsWaitingAndLateRecords() throws Exception {
+        CountDownLatch firstRequestSent = new CountDownLatch(1);
+        CountDownLatch releaseFirstRequest = new CountDownLatch(1);
+
+        timestamper = new ImmediateTimestamper(10, 0, 1, task -> {
+            firstRequestSent.countDown();
+            await(releaseFirstRequest);
+            return new TimestampRecord();
+        });
+
+        CompletableFuture<TimestampRecord> first = timestamper.timestamp(messageRecord(0L));
+        assertTrue(firstRequestSent.await(5, TimeUnit.SECONDS));
+        CompletableFuture<TimestampRecord> waiting = timestamper.timestamp(messageRecord(1L));
+
+        timestamper.shutdown();
+        CompletableFuture<TimestampRecord> late = timestamper.timestamp(messageRecord(2L));
+        releaseFirstRequest.countDown();
+
+        // the request already sent completes normally
+        first.get(5, TimeUnit.SECONDS);
+        for (CompletableFuture<TimestampRecord> future : List.of(waiting, late)) {
+            try {
+                future.get(5, TimeUnit.SECONDS);
+                fail("Expected the record to fail");
+            } catch (ExecutionException e) {
+                assertEquals("Immediate timestamper is stopped", e.getCause().getMessage());
+            }
+        }
+    }
+
+    private static MessageRecord messageRecord(Long id) {
+        MessageRecord messageRecord = new MessageRecord();
+        messageRecord.setId(id);
+        messageRecord.setSignatureHash("hash" + id);
+        return messageRecord;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
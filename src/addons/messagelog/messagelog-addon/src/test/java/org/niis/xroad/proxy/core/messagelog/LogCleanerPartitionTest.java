@@ -0,0 +1,202 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.niis.xroad.proxy.core.messagelog;
+
+import ee.ria.xroad.common.db.TransactionCallback;
+import ee.ria.xroad.common.messagelog.MessageLogProperties;
+import ee.ria.xroad.common.messagelog.PartitionInterval;
+import ee.ria.xroad.common.util.TimeUtils;
+import ee.ria.xroad.messagelog.database.LogRecordPartitions;
+import ee.ria.xroad.messagelog.database.LogRecordPartitions.Partition;
+import ee.ria.xroad.messagelog.database.MessageLogDatabaseCtx;
+
+import org.hibernate.Session;
+import org.hibernate.query.MutationQuery;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.MockedStatic;
+import org.niis.xroad.messagelog.archiver.application.LogCleaner;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests cleaning of archived records from a partitioned logrecord table.
+ */
+public class LogCleanerPartitionTest {
+
+    private static final Instant NOW = Instant.parse("2024-03-15T10:30:00Z");
+    private static final int KEEP_RECORDS_FOR_DAYS = 10;
+
+    private final Session session = mock(Session.class);
+
+    private MockedStatic<MessageLogDatabaseCtx> databaseCtx;
+    private MockedStatic<LogRecordPartitions> partitions;
+
+    @Before
+    public void setUp() {
+        TimeUtils.setClock(Clock.fixed(NOW, ZoneOffset.UTC));
+        System.setProperty(MessageLogProperties.KEEP_RECORDS_FOR, String.valueOf(KEEP_RECORDS_FOR_DAYS));
+
+        databaseCtx = mockStatic(MessageLogDatabaseCtx.class);
+        databaseCtx.when(() -> MessageLogDatabaseCtx.doInTransaction(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).apply(session));
+        partitions = mockStatic(LogRecordPartitions.class);
+    }
+
+    @After
+    public void tearDown() {
+        partitions.close();
+        databaseCtx.close();
+        System.clearProperty(MessageLogProperties.KEEP_RECORDS_FOR);
+        System.clearProperty(MessageLogProperties.PARTITION_INTERVAL);
+        TimeUtils.setClock(Clock.systemDefaultZone());
+    }
+
+    /**
+     * Tests that the partition interval is read case-insensitively and defaults to no partitioning.
+     */
+    @Test
+    public void readsPartitionInterval() {
+        assertEquals(PartitionInterval.NONE, MessageLogProperties.getPartitionInterval());
+
+        System.setProperty(MessageLogProperties.PARTITION_INTERVAL, "weekly");
+        assertEquals(PartitionInterval.WEEKLY, MessageLogProperties.getPartitionInterval());
+        assertEquals(Duration.ofDays(7), MessageLogProperties.getPartitionInterval().getDuration());
+
+        System.setProperty(MessageLogProperties.PARTITION_INTERVAL, "DAILY");
+        assertEquals(Duration.ofDays(1), MessageLogProperties.getPartitionInterval().getDuration());
+    }
+
+    /**
+     * Tests that upcoming partitions are created a week ahead and only the partitions older than the
+     * retention period are dropped, each in a transaction of its own.
+     */
+    @Test
+    public void dropsRemovablePartitions() {
+        System.setProperty(MessageLogProperties.PARTITION_INTERVAL, PartitionInterval.DAILY.name());
+        long retentionStart = NOW.minus(Duration.ofDays(KEEP_RECORDS_FOR_DAYS)).toEpochMilli();
+        Partition older = partition("2024-03-03", "2024-03-04");
+        Partition old = partition("2024-03-04", "2024-03-05");
+
+        partitions.when(() -> LogRecordPartitions.isPartitioned(session)).thenReturn(true);
+        partitions.when(() -> LogRecordPartitions.getRemovablePartitions(session, retentionStart))
+                .thenReturn(List.of(older, old));
+
+        assertEquals(2, new PartitionLogCleaner().clean());
+
+        partitions.verify(() -> LogRecordPartitions.createPartitions(session, Duration.ofDays(1),
+                NOW.plus(Duration.ofDays(7))));
+        partitions.verify(() -> LogRecordPartitions.markArchivedPartitions(session, NOW));
+        partitions.verify(() -> LogRecordPartitions.getRemovablePartitions(session, retentionStart));
+        partitions.verify(() -> LogRecordPartitions.dropPartition(any(), any()), times(2));
+        // create, mark and select in one transaction, then one transaction per dropped partition
+        databaseCtx.verify(() -> MessageLogDatabaseCtx.doInTransaction(any()), times(4));
+
+        InOrder inOrder = inOrder(LogRecordPartitions.class);
+        inOrder.verify(partitions, () -> LogRecordPartitions.dropPartition(session, older));
+        inOrder.verify(partitions, () -> LogRecordPartitions.dropPartition(session, old));
+    }
+
+    /**
+     * Tests that nothing is dropped when no partition is both archived and older than the retention period.
+     */
+    @Test
+    public void keepsPartitionsWithinRetentionPeriod() {
+        System.setProperty(MessageLogProperties.PARTITION_INTERVAL, PartitionInterval.WEEKLY.name());
+        partitions.when(() -> LogRecordPartitions.isPartitioned(session)).thenReturn(true);
+        partitions.when(() -> LogRecordPartitions.getRemovablePartitions(any(), anyLong())).thenReturn(List.of());
+
+        assertEquals(0, new PartitionLogCleaner().clean());
+
+        partitions.verify(() -> LogRecordPartitions.createPartitions(session, Duration.ofDays(7),
+                NOW.plus(Duration.ofDays(49))));
+        partitions.verify(() -> LogRecordPartitions.dropPartition(any(), any()), never());
+    }
+
+    /**
+     * Tests that records are deleted row by row when partitioning is configured but the table
+     * has not been converted yet.
+     */
+    @Test
+    public void deletesRecordsWhenTableIsNotPartitioned() {
+        System.setProperty(MessageLogProperties.PARTITION_INTERVAL, PartitionInterval.DAILY.name());
+        partitions.when(() -> LogRecordPartitions.isPartitioned(session)).thenReturn(false);
+        MutationQuery query = mock(MutationQuery.class, RETURNS_SELF);
+        when(session.createNamedMutationQuery(anyString())).thenReturn(query);
+        when(query.executeUpdate()).thenReturn(3, 0);
+
+        assertEquals(3, new PartitionLogCleaner().clean());
+
+        partitions.verify(() -> LogRecordPartitions.createPartitions(any(), any(), any()), never());
+        partitions.verify(() -> LogRecordPartitions.dropPartition(any(), any()), never());
+    }
+
+    /**
+     * Tests that the partitioning functions are not called at all when partitioning is not configured.
+     */
+    @Test
+    public void doesNotCheckPartitioningWhenNotConfigured() {
+        MutationQuery query = mock(MutationQuery.class, RETURNS_SELF);
+        when(session.createNamedMutationQuery(anyString())).thenReturn(query);
+        when(query.executeUpdate()).thenReturn(0);
+
+        assertEquals(0, new PartitionLogCleaner().clean());
+
+        partitions.verify(() -> LogRecordPartitions.isPartitioned(any()), never());
+        partitions.verify(() -> LogRecordPartitions.getRemovablePartitions(any(), anyLong()), never());
+        partitions.verify(() -> LogRecordPartitions.markArchivedPartitions(any(), any()), never());
+        partitions.verify(() -> LogRecordPartitions.createPartitions(any(), any(), any()), never());
+    }
+
+    private static Partition partition(String start, String end) {
+        return new Partition("logrecord_" + start.replace("-", ""),
+                Instant.parse(start + "T00:00:00Z").toEpochMilli(), Instant.parse(end + "T00:00:00Z").toEpochMilli());
+    }
+
+    private static final class PartitionLogCleaner extends LogCleaner {
+        long clean() {
+            return handleClean();
+        }
+    }
+}
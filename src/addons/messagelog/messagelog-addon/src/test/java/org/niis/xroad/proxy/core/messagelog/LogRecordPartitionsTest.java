@@ -0,0 +1,143 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.niis.xroad.proxy.core.messagelog;
+
+import ee.ria.xroad.messagelog.database.LogRecordPartitions;
+import ee.ria.xroad.messagelog.database.LogRecordPartitions.Partition;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.niis.xroad.proxy.core.messagelog.MessageLogDatabaseCtx.doInTransaction;
+import static org.niis.xroad.proxy.core.messagelog.TestUtil.initForTest;
+
+/**
+ * Tests the selection of archived and removable logrecord partitions. The partitions themselves are created and
+ * dropped by PostgreSQL functions, here the partition bookkeeping table is used with a plain logrecord table.
+ */
+public class LogRecordPartitionsTest {
+
+    // far above the ids allocated by the other message log tests sharing the database
+    private static final long FIRST_ID = 1_000_000L;
+    private static final Instant NOW = Instant.parse("2024-03-10T12:00:00Z");
+
+    private static final Partition ARCHIVED_RECORDS = partition("2024-03-01", "2024-03-02");
+    private static final Partition NON_ARCHIVED_RECORD = partition("2024-03-02", "2024-03-03");
+    private static final Partition ALREADY_ARCHIVED = partition("2024-03-03", "2024-03-04");
+    private static final Partition CURRENT = partition("2024-03-10", "2024-03-11");
+
+    @BeforeClass
+    public static void setUpBeforeClass() {
+        initForTest();
+    }
+
+    @Before
+    public void setUp() {
+        executeUpdate("CREATE TABLE logrecord_partition (name VARCHAR(63) PRIMARY KEY, range_start BIGINT NOT NULL, "
+                + "range_end BIGINT NOT NULL, archived BOOLEAN DEFAULT FALSE NOT NULL)");
+        insertPartition(ARCHIVED_RECORDS, false);
+        insertPartition(NON_ARCHIVED_RECORD, false);
+        insertPartition(ALREADY_ARCHIVED, true);
+        insertPartition(CURRENT, false);
+
+        insertRecord(FIRST_ID, ARCHIVED_RECORDS.rangeStart(), true);
+        insertRecord(FIRST_ID + 1, ARCHIVED_RECORDS.rangeEnd() - 1, true);
+        insertRecord(FIRST_ID + 2, NON_ARCHIVED_RECORD.rangeStart(), true);
+        insertRecord(FIRST_ID + 3, NON_ARCHIVED_RECORD.rangeEnd() - 1, false);
+        insertRecord(FIRST_ID + 4, CURRENT.rangeStart(), true);
+    }
+
+    @After
+    public void tearDown() {
+        executeUpdate("DELETE FROM logrecord WHERE id >= " + FIRST_ID);
+        executeUpdate("DROP TABLE logrecord_partition");
+    }
+
+    /**
+     * Tests that only partitions whose time range has passed and whose records are all archived are marked archived.
+     */
+    @Test
+    public void marksPassedAndFullyArchivedPartitions() {
+        assertEquals(1, (int) doInTransaction(session -> LogRecordPartitions.markArchivedPartitions(session, NOW)));
+
+        assertEquals(NON_ARCHIVED_RECORD.rangeStart(),
+                (long) doInTransaction(LogRecordPartitions::getNonArchivedRangeStart));
+        // a second run finds nothing new to mark
+        assertEquals(0, (int) doInTransaction(session -> LogRecordPartitions.markArchivedPartitions(session, NOW)));
+    }
+
+    /**
+     * Tests that only archived partitions whose whole time range is older than the given time are removable,
+     * oldest first.
+     */
+    @Test
+    public void selectsArchivedPartitionsOlderThanRetentionTime() {
+        doInTransaction(session -> LogRecordPartitions.markArchivedPartitions(session, NOW));
+
+        assertEquals(List.of(ARCHIVED_RECORDS, ALREADY_ARCHIVED), doInTransaction(session ->
+                LogRecordPartitions.getRemovablePartitions(session, ALREADY_ARCHIVED.rangeEnd())));
+        // the range end is exclusive, a partition is removable only once all of its records are older
+        assertEquals(List.of(ARCHIVED_RECORDS), doInTransaction(session ->
+                LogRecordPartitions.getRemovablePartitions(session, ALREADY_ARCHIVED.rangeEnd() - 1)));
+        assertEquals(List.of(), doInTransaction(session ->
+                LogRecordPartitions.getRemovablePartitions(session, ARCHIVED_RECORDS.rangeStart())));
+    }
+
+    private static Partition partition(String start, String end) {
+        return new Partition("logrecord_" + start.replace("-", ""),
+                Instant.parse(start + "T00:00:00Z").toEpochMilli(), Instant.parse(end + "T00:00:00Z").toEpochMilli());
+    }
+
+    private static void insertPartition(Partition partition, boolean archived) {
+        doInTransaction(session -> session.createNativeMutationQuery(
+                        "INSERT INTO logrecord_partition (name, range_start, range_end, archived) "
+                                + "VALUES (:name, :start, :end, :archived)")
+                .setParameter("name", partition.name())
+                .setParameter("start", partition.rangeStart())
+                .setParameter("end", partition.rangeEnd())
+                .setParameter("archived", archived)
+                .executeUpdate());
+    }
+
+    private static void insertRecord(long id, long time, boolean archived) {
+        doInTransaction(session -> session.createNativeMutationQuery(
+                        "INSERT INTO logrecord (id, discriminator, time, archived) VALUES (:id, 'm', :time, :archived)")
+                .setParameter("id", id)
+                .setParameter("time", time)
+                .setParameter("archived", archived)
+                .executeUpdate());
+    }
+
+    private static void executeUpdate(String sql) {
+        doInTransaction(session -> session.createNativeMutationQuery(sql).executeUpdate());
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.niis.xroad.proxy.core.messagelog;
+
+import ee.ria.xroad.common.identifier.ClientId;
+import ee.ria.xroad.common.messagelog.MessageLogProperties;
+import ee.ria.xroad.common.messagelog.archive.GroupingStrategy;
+import ee.ria.xroad.messagelog.database.entity.AbstractLogRecordEntity;
+import ee.ria.xroad.messagelog.database.entity.MessageRecordEntity;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.niis.xroad.globalconf.GlobalConfProvider;
+import org.niis.xroad.messagelog.archiver.application.LogArchiver;
+import org.quartz.JobExecutionContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.niis.xroad.proxy.core.messagelog.MessageLogDatabaseCtx.doInTransaction;
+import static org.niis.xroad.proxy.core.messagelog.TestUtil.assertTaskQueueSize;
+import static org.niis.xroad.proxy.core.messagelog.TestUtil.cleanUpDatabase;
+import static org.niis.xroad.proxy.core.messagelog.TestUtil.createMessage;
+import static org.niis.xroad.proxy.core.messagelog.TestUtil.createSignature;
+import static org.niis.xroad.proxy.core.messagelog.TestUtil.initForTest;
+
+/**
+ * Tests archiving the archive groups in parallel.
+ */
+@Slf4j
+public class MessageLogParallelArchiveTest extends AbstractMessageLogTest {
+
+    private static final List<String> MEMBERS = List.of("member1", "member2", "member3");
+    private static final int RECORDS_PER_MEMBER = 3;
+    private static final int RECORDS = MEMBERS.size() * RECORDS_PER_MEMBER;
+
+    /**
+     * Set up configuration.
+     *
+     * @throws Exception in case of any unexpected errors
+     */
+    @Before
+    public void setUp() throws Exception {
+        System.setProperty(MessageLogProperties.TIMESTAMP_IMMEDIATELY, "false");
+        System.setProperty(MessageLogProperties.ACCEPTABLE_TIMESTAMP_FAILURE_PERIOD, "1800");
+        System.setProperty(MessageLogProperties.ARCHIVE_INTERVAL, "0 0 0 1 1 ? 2099");
+        System.setProperty(MessageLogProperties.CLEAN_INTERVAL, "0 0 0 1 1 ? 2099");
+        System.setProperty(MessageLogProperties.ARCHIVE_GROUPING, GroupingStrategy.MEMBER.name());
+        System.setProperty(MessageLogProperties.ARCHIVE_PARALLELISM, "2");
+
+        initForTest();
+        testSetUp();
+
+        initLogManager();
+        TestLogManager.initSetTimestampingStatusLatch();
+        TestTaskQueue.initGateLatch();
+        TestTaskQueue.initTimestampSavedLatch();
+
+        MessageLogTest.logRecordTime = null;
+        TestTaskQueue.throwWhenSavingTimestamp = null;
+        TestTimestamperWorker.failNextTimestamping(false);
+    }
+
+    /**
+     * Cleanup test environment for other tests.
+     *
+     * @throws Exception in case of any unexpected errors
+     */
+    @After
+    public void tearDown() throws Exception {
+        System.clearProperty(MessageLogProperties.ARCHIVE_GROUPING);
+        System.clearProperty(MessageLogProperties.ARCHIVE_PARALLELISM);
+
+        testTearDown();
+        cleanUpDatabase();
+    }
+
+    /**
+     * Archives the records of every member into an archive of its own. The records of a member whose archiving
+     * fails stay non-archived, together with the time-stamp they share with the other members, and are archived
+     * by the next run.
+     *
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void archivesEachGroupOnceAndKeepsRecordsOfFailedGroup() throws Exception {
+        for (int i = 0; i < RECORDS_PER_MEMBER; i++) {
+            for (String member : MEMBERS) {
+                log(createMessage(member + "-" + i, member), createSignature());
+            }
+        }
+        assertTaskQueueSize(RECORDS);
+
+        startTimestamping();
+        waitForTimestampSuccessful();
+        assertTrue(TestTaskQueue.waitForTimestampSaved());
+        assertTaskQueueSize(0);
+
+        new FailingGroupLogArchiver(globalConfProvider, "member2").execute(mock(JobExecutionContext.class));
+
+        assertEquals(1, countArchives("member1"));
+        assertEquals(0, countArchives("member2"));
+        assertEquals(1, countArchives("member3"));
+        assertEquals(RECORDS_PER_MEMBER, countNonArchivedMessageRecords());
+        // the time-stamp is still needed by the records of the failed group
+        assertEquals(RECORDS - RECORDS_PER_MEMBER, countArchivedRecords());
+
+        new FailingGroupLogArchiver(globalConfProvider, null).execute(mock(JobExecutionContext.class));
+
+        for (String member : MEMBERS) {
+            assertEquals(1, countArchives(member));
+        }
+        assertEquals(0, countNonArchivedMessageRecords());
+        assertEquals(RECORDS + 1, countArchivedRecords());
+        assertEquals(RECORDS, countArchivedContainers());
+    }
+
+    private long countArchives(String member) throws Exception {
+        try (Stream<Path> files = Files.list(archivesPath)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith("mlog-") && name.endsWith(".zip"))
+                    .filter(name -> name.contains("_" + member + "-"))
+                    .count();
+        }
+    }
+
+    private int countArchivedContainers() throws Exception {
+        int containers = 0;
+        try (Stream<Path> files = Files.list(archivesPath)) {
+            for (Path file : files.filter(f -> f.getFileName().toString().endsWith(".zip")).toList()) {
+                try (ZipInputStream zis = new ZipInputStream(Files.newInputStream(file))) {
+                    ZipEntry entry;
+                    while ((entry = zis.getNextEntry()) != null) {
+                        if (!"linkinginfo".equals(entry.getName())) {
+                            containers++;
+                        }
+                    }
+                }
+            }
+        }
+        return containers;
+    }
+
+    private static int countNonArchivedMessageRecords() {
+        return doInTransaction(session -> {
+            final CriteriaBuilder cb = session.getCriteriaBuilder();
+            final CriteriaQuery<Long> query = cb.createQuery(Long.class);
+            final Root<MessageRecordEntity> r = query.from(MessageRecordEntity.class);
+            query.select(cb.count(r)).where(cb.isFalse(r.get("archived")));
+            return session.createQuery(query).getSingleResult().intValue();
+        });
+    }
+
+    private static int countArchivedRecords() {
+        return doInTransaction(session -> {
+            final CriteriaBuilder cb = session.getCriteriaBuilder();
+            final CriteriaQuery<Long> query = cb.createQuery(Long.class);
+            final Root<AbstractLogRecordEntity> r = query.from(AbstractLogRecordEntity.class);
+            query.select(cb.count(r)).where(cb.isTrue(r.get("archived")));
+            return session.createQuery(query).getSingleResult().intValue();
+        });
+    }
+
+    private static final class FailingGroupLogArchiver extends LogArchiver {
+
+        private final String failingMemberCode;
+
+        FailingGroupLogArchiver(GlobalConfProvider globalConfProvider, String failingMemberCode) {
+            super(globalConfProvider);
+            this.failingMemberCode = failingMemberCode;
+        }
+
+        @Override
+        protected Stream<MessageRecordEntity> getNonArchivedMessageRecords(Session session, Long maxId, Long minTime,
+                                                                           ClientId group, int limit) {
+            if (group != null && group.getMemberCode().equals(failingMemberCode)) {
+                throw new IllegalStateException("Archiving of " + group + " failed");
+            }
+            return super.getNonArchivedMessageRecords(session, maxId, minTime, group, limit);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.niis.xroad.proxy.core.messagelog;
+
+import ee.ria.xroad.common.messagelog.MessageRecord;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests group commit of message records.
+ */
+public class MessageRecordWriterTest {
+
+    private MessageRecordWriter writer;
+
+    @After
+    public void tearDown() {
+        if (writer != null) {
+            writer.shutdown();
+        }
+    }
+
+    /**
+     * Records logged while a transaction is in progress are written together in the next transaction.
+     *
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void groupsRecordsWaitingForPreviousCommit() throws Exception {
+        CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+
+        writer = new MessageRecordWriter(10, 0, records -> {
+            batchSizes.add(records.size());
+            firstBatchStarted.countDown();
+            await(releaseFirstBatch);
+            return Map.of();
+        });
+
+        CompletableFuture<Void> first = writer.write(new MessageRecord());
+        assertTrue(firstBatchStarted.await(5, TimeUnit.SECONDS));
+
+        List<CompletableFuture<Void>> waiting = new ArrayList<>();
+        for (int i = 0; i < 15; i++) {
+            waiting.add(writer.write(new MessageRecord()));
+        }
+        releaseFirstBatch.countDown();
+
+        first.get(5, TimeUnit.SECONDS);
+        for (CompletableFuture<Void> future : waiting) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+
+        assertEquals(List.of(1, 10, 5), batchSizes);
+    }
+
+    /**
+     * A record rejected by the batch saver fails only its own caller.
+     *
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void rejectedRecordDoesNotFailOtherRecords() throws Exception {
+        MessageRecord rejectedRecord = new MessageRecord();
+        IllegalStateException rejection = new IllegalStateException("attachment too large");
+        // both records wait for each other, the batch is full with two records
+        writer = new MessageRecordWriter(2, TimeUnit.SECONDS.toMicros(5), records -> {
+            assertEquals(2, records.size());
+            Map<MessageRecord, Exception> rejected = new IdentityHashMap<>();
+            rejected.put(rejectedRecord, rejection);
+            return rejected;
+        });
+
+        CompletableFuture<Void> accepted = writer.write(new MessageRecord());
+        CompletableFuture<Void> rejectedFuture = writer.write(rejectedRecord);
+
+        accepted.get(5, TimeUnit.SECONDS);
+        try {
+            rejectedFuture.get(5, TimeUnit.SECONDS);
+            fail("Expected the rejected record to fail");
+        } catch (ExecutionException e) {
+            assertSame(rejection, e.getCause());
+        }
+    }
+
+    /**
+     * A failed transaction fails every record written in it.
+     *
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void failedTransactionFailsAllRecords() throws Exception {
+        writer = new MessageRecordWriter(2, TimeUnit.SECONDS.toMicros(5), records -> {
+            throw new IllegalStateException("database unavailable");
+        });
+
+        List<CompletableFuture<Void>> futures = List.of(
+                writer.write(new MessageRecord()), writer.write(new MessageRecord()));
+
+        for (CompletableFuture<Void> future : futures) {
+            try {
+                future.get(5, TimeUnit.SECONDS);
+                fail("Expected the record to fail");
+            } catch (ExecutionException e) {
+                assertEquals("database unavailable", e.getCause().getMessage());
+            }
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
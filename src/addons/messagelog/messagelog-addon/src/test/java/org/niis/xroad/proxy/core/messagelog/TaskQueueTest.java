@@ -0,0 +1,175 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.niis.xroad.proxy.core.messagelog;
+
+import ee.ria.xroad.common.messagelog.MessageLogProperties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.niis.xroad.proxy.core.messagelog.Timestamper.TimestampFailed;
+import org.niis.xroad.proxy.core.messagelog.Timestamper.TimestampSucceeded;
+import org.niis.xroad.proxy.core.messagelog.Timestamper.TimestampTask;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.niis.xroad.proxy.core.messagelog.MessageLogDatabaseCtx.doInTransaction;
+import static org.niis.xroad.proxy.core.messagelog.TestUtil.cleanUpDatabase;
+import static org.niis.xroad.proxy.core.messagelog.TestUtil.initForTest;
+
+/**
+ * Tests draining the time-stamping task queue in rounds of concurrent batches.
+ */
+public class TaskQueueTest {
+
+    private static final int RECORDS_LIMIT = 3;
+    private static final int BATCHES_IN_FLIGHT = 2;
+    private static final int ROUND_SIZE = RECORDS_LIMIT * BATCHES_IN_FLIGHT;
+    // more than three full rounds, the last round is not full
+    private static final int RECORDS = 3 * ROUND_SIZE + 2;
+
+    private final Timestamper timestamper = mock(Timestamper.class);
+    private final LogManager logManager = mock(LogManager.class);
+    private final List<Long[]> requested = Collections.synchronizedList(new ArrayList<>());
+    private final List<Long[]> saved = new ArrayList<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    private TaskQueue taskQueue;
+
+    @Before
+    public void setUp() {
+        System.setProperty(MessageLogProperties.TIMESTAMP_RECORDS_LIMIT, String.valueOf(RECORDS_LIMIT));
+        System.setProperty(MessageLogProperties.TIMESTAMPER_BATCHES_IN_FLIGHT, String.valueOf(BATCHES_IN_FLIGHT));
+        initForTest();
+        cleanUpDatabase();
+
+        for (long id = 1; id <= RECORDS; id++) {
+            insertMessageRecord(id);
+        }
+
+        taskQueue = new TaskQueue(timestamper, logManager) {
+            @Override
+            protected void saveTimestampRecord(TimestampSucceeded message) {
+                // the records are not marked time-stamped, the queue must still advance past them
+                saved.add(message.getMessageRecords());
+            }
+        };
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty(MessageLogProperties.TIMESTAMP_RECORDS_LIMIT);
+        System.clearProperty(MessageLogProperties.TIMESTAMPER_BATCHES_IN_FLIGHT);
+        cleanUpDatabase();
+    }
+
+    /**
+     * Every record of a backlog larger than one round is time-stamped exactly once, in batches of at most
+     * the records limit and with at most the permitted number of batches in flight.
+     */
+    @Test
+    public void timestampsEveryRecordOnce() {
+        when(timestamper.handleTimestampTask(any())).thenAnswer(invocation -> timestamp(invocation.getArgument(0), id -> false));
+
+        taskQueue.handleStartTimestamping();
+
+        assertEquals(LongStream.rangeClosed(1, RECORDS).boxed().toList(), flatten(saved));
+        assertEquals(RECORDS, flatten(requested).size());
+        assertTrue(requested.stream().allMatch(batch -> batch.length <= RECORDS_LIMIT));
+        assertTrue(maxInFlight.get() <= BATCHES_IN_FLIGHT);
+    }
+
+    /**
+     * A failed batch stops draining the queue once the batches of its round are done. The round is reported as
+     * failed even though a later batch of it succeeded.
+     */
+    @Test
+    public void failedBatchStopsDrain() {
+        // the first batch of the second round fails, the second batch of the round succeeds
+        long failingRecord = ROUND_SIZE + 1;
+        when(timestamper.handleTimestampTask(any())).thenAnswer(invocation ->
+                timestamp(invocation.getArgument(0), id -> id == failingRecord));
+
+        taskQueue.handleStartTimestamping();
+
+        // the first two rounds were sent, the second one containing the failed batch
+        List<Long> sent = flatten(requested);
+        Collections.sort(sent);
+        assertEquals(LongStream.rangeClosed(1, 2L * ROUND_SIZE).boxed().toList(), sent);
+        assertEquals(ROUND_SIZE + RECORDS_LIMIT, flatten(saved).size());
+        verify(logManager).putStatusMapFailures(any());
+
+        ArgumentCaptor<SetTimestampingStatusMessage> statuses = ArgumentCaptor.forClass(SetTimestampingStatusMessage.class);
+        verify(logManager, times(2)).setTimestampingStatus(statuses.capture());
+        assertEquals(SetTimestampingStatusMessage.Status.FAILURE, statuses.getValue().getStatus());
+    }
+
+    private Timestamper.TimestampResult timestamp(TimestampTask task, Predicate<Long> failing) throws Exception {
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            requested.add(task.getMessageRecords());
+            // keeps the batches of a round in flight at the same time
+            Thread.sleep(10);
+            if (Arrays.stream(task.getMessageRecords()).anyMatch(failing)) {
+                return new TimestampFailed(task.getMessageRecords(), new IllegalStateException("time-stamping failed"));
+            }
+            return new TimestampSucceeded(task.getMessageRecords(), new byte[0], "result", new String[0], "url");
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private static List<Long> flatten(List<Long[]> batches) {
+        synchronized (batches) {
+            return new ArrayList<>(batches.stream().flatMap(Arrays::stream).toList());
+        }
+    }
+
+    private static void insertMessageRecord(long id) {
+        doInTransaction(session -> session.createNativeMutationQuery(
+                        "INSERT INTO logrecord (id, discriminator, time, archived, signaturehash) "
+                                + "VALUES (:id, 'm', :time, false, :hash)")
+                .setParameter("id", id)
+                .setParameter("time", System.currentTimeMillis())
+                .setParameter("hash", "hash" + id)
+                .executeUpdate());
+    }
+}
@@ -109,24 +109,24 @@ class TestTaskQueue extends TaskQueue {
     }
 
     @Override
-    protected void handleTimestampSucceeded(TimestampSucceeded timestampSucceededResult) {
+    protected TimestampFailed handleTimestampSucceeded(TimestampSucceeded timestampSucceededResult) {
         log.trace("handleTimestampSucceeded()");
 
         try {
             lastTimestampResult = timestampSucceededResult;
-            super.handleTimestampSucceeded(timestampSucceededResult);
+            return super.handleTimestampSucceeded(timestampSucceededResult);
         } finally {
             gate.countDown();
         }
     }
 
     @Override
-    protected void handleTimestampFailed(TimestampFailed timestampFailedResult) {
+    protected TimestampFailed handleTimestampFailed(TimestampFailed timestampFailedResult) {
         log.info("handleTimestampFailed");
 
         try {
             lastTimestampResult = timestampFailedResult;
-            super.handleTimestampFailed(timestampFailedResult);
+            return super.handleTimestampFailed(timestampFailedResult);
         } finally {
             gate.countDown();
         }
@@ -40,7 +40,7 @@ class TestTimestamper extends Timestamper {
 
     @Override
     protected TimestamperWorker getWorkerImpl() {
-        return new TestTimestamperWorker(globalConfProvider, serverConfProvider.getTspUrls());
+        return new TestTimestamperWorker(globalConfProvider, serverConfProvider.getTspUrls(), tspHealth);
     }
 
 }
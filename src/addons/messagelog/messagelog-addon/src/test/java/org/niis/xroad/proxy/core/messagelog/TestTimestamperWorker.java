@@ -44,8 +44,8 @@ class TestTimestamperWorker extends TimestamperWorker {
     private final GlobalConfProvider globalConfProvider;
     private static volatile boolean shouldFail;
 
-    TestTimestamperWorker(GlobalConfProvider globalConfProvider, List<String> tspUrls) {
-        super(globalConfProvider, tspUrls);
+    TestTimestamperWorker(GlobalConfProvider globalConfProvider, List<String> tspUrls, TspHealth tspHealth) {
+        super(globalConfProvider, tspUrls, tspHealth);
         this.globalConfProvider = globalConfProvider;
     }
 
@@ -59,7 +59,7 @@ class TestTimestamperWorker extends TimestamperWorker {
 
     @Override
     protected AbstractTimestampRequest createSingleTimestampRequest(Long logRecord) {
-        return new SingleTimestampRequest(globalConfProvider, logRecord) {
+        return new SingleTimestampRequest(globalConfProvider, logRecord, tspHealth) {
             @Override
             @SneakyThrows
             protected Timestamper.TimestampResult makeTsRequest(TimeStampRequest tsRequest, List<String> tspUrls) {
@@ -93,7 +93,7 @@ class TestTimestamperWorker extends TimestamperWorker {
 
     @Override
     protected AbstractTimestampRequest createBatchTimestampRequest(Long[] logRecords, String[] signatureHashes) {
-        return new BatchTimestampRequest(globalConfProvider, logRecords, signatureHashes) {
+        return new BatchTimestampRequest(globalConfProvider, logRecords, signatureHashes, tspHealth) {
             @Override
             @SneakyThrows
             protected Timestamper.TimestampResult makeTsRequest(TimeStampRequest tsRequest, List<String> tspUrls) {
@@ -132,6 +132,10 @@ final class TestUtil {
     }
 
     static SoapMessageImpl createMessage(String queryId) throws Exception {
+        return createMessage(queryId, "consumer");
+    }
+
+    static SoapMessageImpl createMessage(String queryId, String clientMemberCode) throws Exception {
         if (message == null) {
             try (InputStream in = new FileInputStream("src/test/resources/simple.query")) {
                 message = IOUtils.toString(in, StandardCharsets.UTF_8);
@@ -140,6 +144,8 @@ final class TestUtil {
 
         String soap = message.replaceAll("<xroad:id>1234567890</xroad:id>",
                 "<xroad:id>" + queryId + "</xroad:id>");
+        soap = soap.replace("<id:memberCode>consumer</id:memberCode>",
+                "<id:memberCode>" + clientMemberCode + "</id:memberCode>");
         return (SoapMessageImpl) new SoapParserImpl().parse(
                 MimeTypes.TEXT_XML_UTF8,
                 new ByteArrayInputStream(soap.getBytes(StandardCharsets.UTF_8)));
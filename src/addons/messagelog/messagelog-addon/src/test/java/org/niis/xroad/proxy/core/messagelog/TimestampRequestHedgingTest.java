@@ -0,0 +1,167 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.niis.xroad.proxy.core.messagelog;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.bouncycastle.tsp.TimeStampRequest;
+import org.bouncycastle.tsp.TimeStampResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests sending time-stamp requests to several time-stamping providers.
+ */
+public class TimestampRequestHedgingTest {
+
+    private static final long FAST_RESPONSE_MILLIS = 20;
+    private static final long SLOW_RESPONSE_MILLIS = 500;
+
+    private final TspHealth tspHealth = new TspHealth();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private ExecutorService serverExecutor;
+    private HttpServer server;
+    private byte[] tspResponse;
+
+    @Before
+    public void setUp() throws IOException {
+        tspResponse = Files.readAllBytes(Paths.get(DummyTSP.URL));
+
+        serverExecutor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(serverExecutor);
+        server.createContext("/fast", exchange -> respond(exchange, 200));
+        server.createContext("/failing", exchange -> respond(exchange, 500));
+        server.createContext("/slow", exchange -> {
+            sleep(SLOW_RESPONSE_MILLIS);
+            respond(exchange, 200);
+        });
+        server.createContext("/hanging", exchange -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, 200);
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    public void nextProviderIsTriedWhenFirstFails() throws Exception {
+        Timestamper.TimestampResult result = request().execute(List.of(url("/failing"), url("/fast")));
+
+        assertEquals(url("/fast"), ((Timestamper.TimestampSucceeded) result).getUrl());
+        assertTrue(result.getErrorsByUrl().containsKey(url("/failing")));
+        assertEquals(List.of(url("/fast"), url("/failing")), tspHealth.prefer(List.of(url("/failing"), url("/fast"))));
+    }
+
+    @Test
+    public void slowProviderIsNotHedgedWithoutResponseTimes() throws Exception {
+        Timestamper.TimestampResult result = request().execute(List.of(url("/slow"), url("/fast")));
+
+        assertEquals(url("/slow"), ((Timestamper.TimestampSucceeded) result).getUrl());
+    }
+
+    @Test
+    public void requestIsSentToNextProviderWhenFirstIsSlowerThanUsual() throws Exception {
+        for (int i = 0; i < TspHealth.MIN_SAMPLES_FOR_HEDGING; i++) {
+            tspHealth.success(url("/hanging"), FAST_RESPONSE_MILLIS);
+        }
+
+        long start = System.currentTimeMillis();
+        Timestamper.TimestampResult result = request().execute(List.of(url("/hanging"), url("/fast")));
+
+        assertEquals(url("/fast"), ((Timestamper.TimestampSucceeded) result).getUrl());
+        assertTrue(System.currentTimeMillis() - start < SLOW_RESPONSE_MILLIS);
+        assertTrue(result.getErrorsByUrl().isEmpty());
+    }
+
+    @Test
+    public void fasterProviderIsPreferred() {
+        tspHealth.success(url("/slow"), SLOW_RESPONSE_MILLIS);
+        tspHealth.success(url("/fast"), FAST_RESPONSE_MILLIS);
+
+        assertEquals(List.of(url("/fast"), url("/slow")), tspHealth.prefer(List.of(url("/slow"), url("/fast"))));
+        assertEquals(-1, tspHealth.hedgeDelay(url("/fast")));
+    }
+
+    private AbstractTimestampRequest request() throws IOException {
+        return new BatchTimestampRequest(null, new Long[]{1L, 2L},
+                new String[]{LogManager.signatureHash("first"), LogManager.signatureHash("second")}, tspHealth) {
+            @Override
+            protected void verify(TimeStampRequest request, TimeStampResponse response) {
+                // the dummy response is not for this request
+            }
+
+            @Override
+            Timestamper.TimestampResult result(TimeStampResponse tsResponse, String url) throws IOException {
+                return new Timestamper.TimestampSucceeded(logRecords, tsResponse.getTimeStampToken().getEncoded(), null, null, url);
+            }
+        };
+    }
+
+    private String url(String path) {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + path;
+    }
+
+    private void respond(HttpExchange exchange, int status) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        exchange.sendResponseHeaders(status, tspResponse.length);
+        exchange.getResponseBody().write(tspResponse);
+        exchange.close();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.messagelog.database;
+
+import org.hibernate.Session;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Maintains the time range partitions of a partitioned logrecord table (PostgreSQL only).
+ * <p>
+ * A partition is marked archived once its time range has passed and all of its records are archived.
+ * Archived partitions are removed as a whole instead of deleting the records one by one.
+ */
+public final class LogRecordPartitions {
+
+    private LogRecordPartitions() {
+    }
+
+    /**
+     * Partition of the logrecord table, covering records with time in [rangeStart, rangeEnd).
+     *
+     * @param name       partition table name
+     * @param rangeStart start of the time range (inclusive)
+     * @param rangeEnd   end of the time range (exclusive)
+     */
+    public record Partition(String name, long rangeStart, long rangeEnd) {
+    }
+
+    /**
+     * @param session the session
+     * @return true if the logrecord table has been converted to a partitioned table.
+     */
+    public static boolean isPartitioned(Session session) {
+        return session.createNativeQuery("SELECT logrecord_is_partitioned()", Boolean.class).getSingleResult();
+    }
+
+    /**
+     * Creates consecutive partitions after the last existing partition until the given time is covered.
+     *
+     * @param session  the session
+     * @param interval time range of a new partition
+     * @param until    time that the partitions must cover
+     * @return the number of partitions created
+     */
+    public static int createPartitions(Session session, Duration interval, Instant until) {
+        return session.createNativeQuery("SELECT logrecord_create_partitions(:interval, :until)", Integer.class)
+                .setParameter("interval", interval.toMillis())
+                .setParameter("until", until.toEpochMilli())
+                .getSingleResult();
+    }
+
+    /**
+     * Marks partitions whose time range has passed and which contain no non-archived records as archived.
+     *
+     * @param session the session
+     * @param now     current time
+     * @return the number of partitions marked archived
+     */
+    public static int markArchivedPartitions(Session session, Instant now) {
+        return session.createNativeMutationQuery("""
+                        UPDATE logrecord_partition p SET archived = true \
+                        WHERE p.archived = false AND p.range_end <= :now \
+                        AND NOT EXISTS (SELECT 1 FROM logrecord l \
+                        WHERE l.time >= p.range_start AND l.time < p.range_end AND l.archived IS NOT TRUE)""")
+                .setParameter("now", now.toEpochMilli())
+                .executeUpdate();
+    }
+
+    /**
+     * @param session the session
+     * @param time    records older than this time (epoch millis) may be removed
+     * @return archived partitions whose whole time range is older than the given time, oldest first
+     */
+    public static List<Partition> getRemovablePartitions(Session session, long time) {
+        return session.createNativeQuery("""
+                        SELECT name, range_start, range_end FROM logrecord_partition \
+                        WHERE archived = true AND range_end <= :time ORDER BY range_start""", Object[].class)
+                .setParameter("time", time)
+                .getResultList()
+                .stream()
+                .map(row -> new Partition((String) row[0], ((Number) row[1]).longValue(), ((Number) row[2]).longValue()))
+                .toList();
+    }
+
+    /**
+     * Removes an archived partition. The attachments of its records are deleted first, since the attachment
+     * large objects are not removed when the partition table is dropped.
+     *
+     * @param session   the session
+     * @param partition partition to remove
+     */
+    public static void dropPartition(Session session, Partition partition) {
+        session.createNativeMutationQuery("""
+                        DELETE FROM message_attachment a USING logrecord l \
+                        WHERE a.logrecord_id = l.id AND l.time >= :start AND l.time < :end""")
+                .setParameter("start", partition.rangeStart())
+                .setParameter("end", partition.rangeEnd())
+                .executeUpdate();
+        session.createNativeQuery("SELECT logrecord_drop_partition(:name)", Boolean.class)
+                .setParameter("name", partition.name())
+                .getSingleResult();
+    }
+
+    /**
+     * @param session the session
+     * @return start of the time range of the oldest partition that still may contain non-archived records,
+     * null if there is none
+     */
+    public static Long getNonArchivedRangeStart(Session session) {
+        return session.createNativeQuery("SELECT min(range_start) FROM logrecord_partition WHERE archived = false",
+                        Long.class)
+                .getSingleResult();
+    }
+}
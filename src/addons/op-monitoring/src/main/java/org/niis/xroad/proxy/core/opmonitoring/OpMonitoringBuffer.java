@@ -41,17 +41,25 @@ import java.security.UnrecoverableKeyException;
 import java.security.cert.CertificateException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.BlockingDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Operational monitoring buffer. This buffer is used for gathering
  * operational data and for periodically sending the data to the operational
  * monitoring daemon (using OpMonitoringDaemonSender).
+ * <p>
+ * Records are added to a bounded lock-free ring buffer by the request threads, the oldest records are discarded
+ * if the buffer is full. A single sending thread takes the records from the buffer and hands them to the sender
+ * as long as the sender accepts more concurrent requests. Sending is triggered immediately when a record is stored
+ * or a request completes, so under light load the records are sent one by one, while under heavy load they
+ * accumulate in the buffer and are sent in batches of up to max-records-in-message records.
  */
 @Slf4j
 public class OpMonitoringBuffer extends AbstractOpMonitoringBuffer {
@@ -64,7 +72,12 @@ public class OpMonitoringBuffer extends AbstractOpMonitoringBuffer {
     private final OpMonitoringDaemonSender sender;
     private final SavedServiceEndpoint savedServiceEndpoint;
 
-    final BlockingDeque<OpMonitoringData> buffer = new LinkedBlockingDeque<>();
+    final RingBuffer<OpMonitoringData> buffer;
+    // batches that failed to send, at most one per concurrent request
+    private final Queue<List<OpMonitoringData>> failedBatches = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean sendScheduled = new AtomicBoolean();
+    private long reportedOverflowCount;
 
     /**
      * Constructor.
@@ -78,12 +91,14 @@ public class OpMonitoringBuffer extends AbstractOpMonitoringBuffer {
         if (ignoreOpMonitoringData()) {
             log.info("Operational monitoring buffer is switched off, no operational monitoring data is stored");
 
+            buffer = null;
             sender = null;
             executorService = null;
             taskScheduler = null;
             opMonitoringDataProcessor = null;
             savedServiceEndpoint = null;
         } else {
+            buffer = new RingBuffer<>(maxBufferSize);
             sender = createSender(serverConfProvider);
             executorService = Executors.newSingleThreadExecutor();
             taskScheduler = Executors.newSingleThreadScheduledExecutor();
@@ -107,55 +122,66 @@ public class OpMonitoringBuffer extends AbstractOpMonitoringBuffer {
         if (ignoreOpMonitoringData()) {
             return;
         }
-        executorService.execute(() -> {
-            try {
-                data.setSecurityServerInternalIp(opMonitoringDataProcessor.getIpAddress());
-                data.setRestPath(savedServiceEndpoint.getPathIfExists(data));
-
-                buffer.addLast(data);
-                if (buffer.size() > maxBufferSize) {
-                    synchronized (buffer) {
-                        if (buffer.size() > maxBufferSize) {
-                            buffer.removeFirst();
-                            log.warn("Operational monitoring buffer overflow (limit: {}), removing oldest record. Current size: {}",
-                                    maxBufferSize, buffer.size());
-                        }
-                    }
-                }
-                sendInternal();
-            } catch (Exception e) {
-                log.error("Failed to process OpMonitoringData..", e);
-            }
-        });
+
+        buffer.put(data);
+        send();
     }
 
+    // Coalesces send requests, at most one sending task is waiting in the executor at any time.
     private void send() {
-        executorService.execute(() -> {
-            try {
-                this.sendInternal();
-            } catch (Exception e) {
-                log.error("Failed to send message", e);
-            }
-        });
+        if (!sendScheduled.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            executorService.execute(() -> {
+                try {
+                    this.sendInternal();
+                } catch (Exception e) {
+                    log.error("Failed to send message", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.trace("Operational monitoring buffer is shut down", e);
+        }
     }
 
     private void sendInternal() {
-        if (!canSend()) {
-            return;
-        }
+        // reset before checking the buffer, so records stored from now on schedule a new sending task
+        sendScheduled.set(false);
+
+        while (canSend()) {
+            List<OpMonitoringData> dataToProcess = failedBatches.poll();
 
-        final List<OpMonitoringData> dataToProcess = new ArrayList<>();
+            if (dataToProcess == null) {
+                dataToProcess = new ArrayList<>(Math.min(buffer.size(), maxRecordsInMessage));
+                buffer.drainTo(dataToProcess, maxRecordsInMessage);
+                if (dataToProcess.isEmpty()) {
+                    return;
+                }
+
+                dataToProcess.forEach(this::processData);
+            }
 
-        buffer.drainTo(dataToProcess, maxRecordsInMessage);
-        if (log.isDebugEnabled()) {
-            log.debug("Op monitoring remaining buffer records count {}", buffer.size());
+            if (log.isDebugEnabled()) {
+                log.debug("Op monitoring remaining buffer records count {}", buffer.size());
+            }
+
+            sender.sendMessage(dataToProcess);
         }
+    }
 
-        sender.sendMessage(dataToProcess);
+    private void processData(OpMonitoringData data) {
+        try {
+            data.setSecurityServerInternalIp(opMonitoringDataProcessor.getIpAddress());
+            data.setRestPath(savedServiceEndpoint.getPathIfExists(data));
+        } catch (Exception e) {
+            log.error("Failed to process OpMonitoringData..", e);
+        }
     }
 
     private boolean canSend() {
-        return !buffer.isEmpty() && sender.isReady();
+        return (!failedBatches.isEmpty() || !buffer.isEmpty()) && sender.isReady();
     }
 
     void sendingSuccess(int count) {
@@ -167,10 +193,21 @@ public class OpMonitoringBuffer extends AbstractOpMonitoringBuffer {
     }
 
     void sendingFailure(List<OpMonitoringData> failedData) {
-        failedData.forEach(buffer::addFirst);
+        failedBatches.add(failedData);
         // Do not worry, scheduled sending retries.
     }
 
+    private void scheduledSend() {
+        long overflowCount = buffer.getOverflowCount();
+        if (overflowCount > reportedOverflowCount) {
+            log.warn("Operational monitoring buffer overflow (limit: {}), {} oldest records removed. Current size: {}",
+                    maxBufferSize, overflowCount - reportedOverflowCount, buffer.size());
+            reportedOverflowCount = overflowCount;
+        }
+
+        send();
+    }
+
     @PostConstruct
     public void init() {
         if (ignoreOpMonitoringData()) {
@@ -178,7 +215,7 @@ public class OpMonitoringBuffer extends AbstractOpMonitoringBuffer {
         }
 
         var sendingIntervalSeconds = OpMonitoringSystemProperties.getOpMonitorBufferSendingIntervalSeconds();
-        taskScheduler.scheduleWithFixedDelay(this::send, sendingIntervalSeconds, sendingIntervalSeconds, TimeUnit.SECONDS);
+        taskScheduler.scheduleWithFixedDelay(this::scheduledSend, sendingIntervalSeconds, sendingIntervalSeconds, TimeUnit.SECONDS);
 
     }
 
@@ -201,7 +238,11 @@ public class OpMonitoringBuffer extends AbstractOpMonitoringBuffer {
     }
 
     int getCurrentBufferSize() {
-        return buffer.size();
+        return buffer.size() + failedBatches.stream().mapToInt(List::size).sum();
+    }
+
+    long getOverflowCount() {
+        return buffer.getOverflowCount();
     }
 
 }
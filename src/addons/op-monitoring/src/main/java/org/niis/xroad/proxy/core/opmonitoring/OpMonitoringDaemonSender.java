@@ -35,6 +35,8 @@ import com.fasterxml.jackson.databind.ObjectReader;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.niis.xroad.common.core.annotation.ArchUnitSuppressed;
 import org.niis.xroad.opmonitor.api.OpMonitoringDaemonEndpoints;
@@ -47,6 +49,7 @@ import org.niis.xroad.serverconf.ServerConfProvider;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.security.KeyManagementException;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
@@ -55,7 +58,8 @@ import java.security.cert.CertificateException;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.niis.xroad.opmonitor.api.StoreOpMonitoringDataResponse.STATUS_ERROR;
 import static org.niis.xroad.opmonitor.api.StoreOpMonitoringDataResponse.STATUS_OK;
@@ -63,12 +67,19 @@ import static org.niis.xroad.opmonitor.api.StoreOpMonitoringDataResponse.STATUS_
 /**
  * Actor for sending operational data to the operational monitoring daemon. This actor is used by the
  * OpMonitoringBuffer class for periodically forwarding operational data gathered in the buffer.
+ * <p>
+ * Up to {@link OpMonitoringSystemProperties#getOpMonitorBufferMaxConcurrentRequests()} store requests are sent
+ * concurrently. The messages are prepared by the calling thread, only one thread may call
+ * {@link #sendMessage(List)} at a time.
  */
 @Slf4j
 public class OpMonitoringDaemonSender {
 
     private static final ObjectReader OBJECT_READER = JsonUtils.getObjectReader();
 
+    private static final ContentType JSON_CONTENT_TYPE = ContentType.create(MimeTypes.JSON, StandardCharsets.UTF_8);
+    private static final String GZIP_ENCODING = "gzip";
+
     private static final int CONNECTION_TIMEOUT_MILLISECONDS = TimeUtils.secondsToMillis(
             OpMonitoringSystemProperties.getOpMonitorBufferConnectionTimeoutSeconds());
 
@@ -78,10 +89,12 @@ public class OpMonitoringDaemonSender {
     private final OpMonitoringDataProcessor opMonitoringDataProcessor = new OpMonitoringDataProcessor();
     private final ServerConfProvider serverConfProvider;
     private final OpMonitoringBuffer opMonitoringBuffer;
+    private final int maxConcurrentRequests = OpMonitoringSystemProperties.getOpMonitorBufferMaxConcurrentRequests();
+    private final boolean compressionEnabled = OpMonitoringSystemProperties.isOpMonitorBufferCompressionEnabled();
     private final CloseableHttpClient httpClient;
-    private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+    private final ExecutorService executorService = Executors.newFixedThreadPool(maxConcurrentRequests);
 
-    private final AtomicBoolean processing = new AtomicBoolean(false);
+    private final AtomicInteger requestsInFlight = new AtomicInteger();
 
     OpMonitoringDaemonSender(ServerConfProvider serverConfProvider, OpMonitoringBuffer opMonitoringBuffer)
             throws UnrecoverableKeyException, CertificateException, KeyStoreException, IOException,
@@ -92,35 +105,59 @@ public class OpMonitoringDaemonSender {
     }
 
     void sendMessage(final List<OpMonitoringData> dataToProcess) {
-        executorService.execute(() -> {
-            try {
-                processing.set(true);
-                var json = opMonitoringDataProcessor.prepareMonitoringMessage(dataToProcess);
-                log.trace("onReceive: {}", json);
-
-                send(json);
+        requestsInFlight.incrementAndGet();
 
-                processing.set(false);
-                opMonitoringBuffer.sendingSuccess(dataToProcess.size());
-            } catch (Exception e) {
-                log.error("Sending operational monitoring data failed", e);
-                processing.set(false);
-                opMonitoringBuffer.sendingFailure(dataToProcess);
+        final byte[] message;
+        try {
+            message = opMonitoringDataProcessor.prepareMonitoringMessage(dataToProcess, compressionEnabled);
+            if (log.isTraceEnabled() && !compressionEnabled) {
+                log.trace("onReceive: {}", new String(message, StandardCharsets.UTF_8));
             }
-        });
+        } catch (Exception e) {
+            // serialization would fail again, so the records are not returned to the buffer
+            log.error("Preparing operational monitoring data failed, {} records discarded", dataToProcess.size(), e);
+            requestsInFlight.decrementAndGet();
+            return;
+        }
+
+        try {
+            executorService.execute(() -> {
+                try {
+                    send(message);
+
+                    requestsInFlight.decrementAndGet();
+                    opMonitoringBuffer.sendingSuccess(dataToProcess.size());
+                } catch (Exception e) {
+                    log.error("Sending operational monitoring data failed", e);
+                    requestsInFlight.decrementAndGet();
+                    opMonitoringBuffer.sendingFailure(dataToProcess);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("Operational monitoring sender is shut down, {} records not sent", dataToProcess.size());
+            requestsInFlight.decrementAndGet();
+        }
     }
 
+    /**
+     * @return true if another store request can be sent without exceeding the maximum number of concurrent requests
+     */
     public boolean isReady() {
-        return Boolean.FALSE.equals(processing.get());
+        return requestsInFlight.get() < maxConcurrentRequests;
     }
 
     @ArchUnitSuppressed("NoVanillaExceptions")
-    private void send(String json) throws Exception {
+    private void send(byte[] message) throws Exception {
         try (HttpSender sender = new HttpSender(httpClient)) {
             sender.setConnectionTimeout(CONNECTION_TIMEOUT_MILLISECONDS);
             sender.setSocketTimeout(SOCKET_TIMEOUT_MILLISECONDS);
 
-            sender.doPost(getAddress(), json, MimeTypes.JSON);
+            ByteArrayEntity entity = new ByteArrayEntity(message, JSON_CONTENT_TYPE);
+            if (compressionEnabled) {
+                entity.setContentEncoding(GZIP_ENCODING);
+            }
+
+            sender.doPost(getAddress(), entity);
 
             String responseJson = IOUtils.toString(sender.getResponseContent(), MimeUtils.UTF8);
             StoreOpMonitoringDataResponse response;
@@ -156,7 +193,7 @@ public class OpMonitoringDaemonSender {
             throws UnrecoverableKeyException, CertificateException, KeyStoreException, IOException,
             NoSuchAlgorithmException, KeyManagementException {
         return OpMonitoringDaemonHttpClient.createHttpClient(serverConfProvider.getSSLKey(),
-                1, 1,
+                maxConcurrentRequests, maxConcurrentRequests,
                 TimeUtils.secondsToMillis(OpMonitoringSystemProperties.getOpMonitorBufferConnectionTimeoutSeconds()),
                 TimeUtils.secondsToMillis(OpMonitoringSystemProperties.getOpMonitorBufferSocketTimeoutSeconds()));
     }
@@ -27,13 +27,15 @@ package org.niis.xroad.proxy.core.opmonitoring;
 
 import ee.ria.xroad.common.util.JsonUtils;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import lombok.extern.slf4j.Slf4j;
 import org.niis.xroad.common.core.exception.XrdRuntimeException;
 import org.niis.xroad.opmonitor.api.OpMonitoringData;
 import org.niis.xroad.opmonitor.api.StoreOpMonitoringDataRequest;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.net.Inet6Address;
 import java.net.InetAddress;
 import java.net.NetworkInterface;
@@ -41,6 +43,7 @@ import java.net.SocketException;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 import static java.net.NetworkInterface.networkInterfaces;
 
@@ -50,18 +53,62 @@ public class OpMonitoringDataProcessor {
 
     private static final ObjectWriter OBJECT_WRITER = JsonUtils.getObjectWriter();
     private static final Duration IP_RESOLUTION_CACHE_DURATION = Duration.ofMinutes(10);
+    private static final int INITIAL_PAYLOAD_BUFFER_SIZE = 64 * 1024;
 
     private String ipAddress;
     private Instant ipAddressLastResolutionAt;
 
-    String prepareMonitoringMessage(List<OpMonitoringData> dataToProcess) throws JsonProcessingException {
+    // The generator and its output buffers are reused between messages, so a processor instance
+    // must not be used for preparing messages concurrently.
+    private final ByteArrayOutputStream payload = new ByteArrayOutputStream(INITIAL_PAYLOAD_BUFFER_SIZE);
+    private final ByteArrayOutputStream compressedPayload = new ByteArrayOutputStream(INITIAL_PAYLOAD_BUFFER_SIZE);
+    private JsonGenerator generator;
+
+    /**
+     * Serializes the records into a store request.
+     *
+     * @param dataToProcess records to send
+     * @param compress if true, the request is gzip compressed
+     * @return JSON store request
+     * @throws IOException if serialization fails
+     */
+    byte[] prepareMonitoringMessage(List<OpMonitoringData> dataToProcess, boolean compress) throws IOException {
         StoreOpMonitoringDataRequest request = new StoreOpMonitoringDataRequest();
 
         for (OpMonitoringData data : dataToProcess) {
             request.addRecord(data.getData());
         }
 
-        return OBJECT_WRITER.writeValueAsString(request);
+        payload.reset();
+        try {
+            OBJECT_WRITER.writeValue(getGenerator(), request);
+            generator.flush();
+        } catch (IOException | RuntimeException e) {
+            // the generator state is unknown after a failure, start over with a new one
+            generator = null;
+            throw e;
+        }
+
+        if (!compress) {
+            return payload.toByteArray();
+        }
+
+        compressedPayload.reset();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressedPayload)) {
+            payload.writeTo(gzip);
+        }
+
+        return compressedPayload.toByteArray();
+    }
+
+    private JsonGenerator getGenerator() throws IOException {
+        if (generator == null) {
+            generator = OBJECT_WRITER.createGenerator(payload);
+            // messages are written one after another as root level values, without separators
+            generator.setRootValueSeparator(null);
+        }
+
+        return generator;
     }
 
     String getIpAddress() {
@@ -0,0 +1,194 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.niis.xroad.proxy.core.opmonitoring;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free ring buffer. Any number of threads may add elements, the elements are
+ * normally taken by a single consumer. When the buffer is full, the oldest element is evicted to make room
+ * for the new one and the overflow counter is incremented.
+ * <p>
+ * Every slot carries a sequence number which tells whether the slot is free for the producer of a given
+ * position or holds an element for the consumer of a given position, so producers and consumers only
+ * contend on the head and tail counters.
+ *
+ * @param <E> element type
+ */
+final class RingBuffer<E> {
+    private final int capacity;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong overflowCount = new AtomicLong();
+
+    RingBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+
+        this.capacity = capacity;
+        this.elements = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Adds the element to the buffer, evicting the oldest elements if the buffer is full.
+     *
+     * @param element element to add
+     */
+    void put(E element) {
+        Objects.requireNonNull(element);
+
+        while (!offer(element)) {
+            if (poll() != null) {
+                overflowCount.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Adds the element to the buffer if there is room for it.
+     *
+     * @param element element to add
+     * @return false if the buffer is full
+     */
+    boolean offer(E element) {
+        Objects.requireNonNull(element);
+
+        while (true) {
+            long position = tail.get();
+            int index = index(position);
+            long difference = sequences.get(index) - position;
+
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.set(index, element);
+                    sequences.set(index, position + 1);
+
+                    return true;
+                }
+            } else if (difference < 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * @return the oldest element in the buffer or null if the buffer is empty
+     */
+    E poll() {
+        while (true) {
+            long position = head.get();
+            int index = index(position);
+            long difference = sequences.get(index) - (position + 1);
+
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    E element = elements.getAndSet(index, null);
+                    sequences.set(index, position + capacity);
+
+                    return element;
+                }
+            } else if (difference < 0) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Moves up to the given number of oldest elements from the buffer to the given collection.
+     *
+     * @param target collection to add the elements to
+     * @param maxElements maximum number of elements to move
+     * @return number of moved elements
+     */
+    int drainTo(Collection<? super E> target, int maxElements) {
+        int count = 0;
+
+        while (count < maxElements) {
+            E element = poll();
+            if (element == null) {
+                break;
+            }
+
+            target.add(element);
+            count++;
+        }
+
+        return count;
+    }
+
+    boolean contains(Object o) {
+        long end = tail.get();
+
+        for (long position = head.get(); position < end; position++) {
+            if (Objects.equals(o, elements.get(index(position)))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @return the number of elements in the buffer, may be inaccurate while elements are added or removed
+     */
+    int size() {
+        long size = tail.get() - head.get();
+
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of elements evicted because the buffer was full
+     */
+    long getOverflowCount() {
+        return overflowCount.get();
+    }
+
+    private int index(long position) {
+        return (int) (position % capacity);
+    }
+}
@@ -112,6 +112,8 @@ class OpMonitoringBufferTest {
     @AfterEach
     void cleanUp() {
         System.clearProperty("xroad.op-monitor-buffer.size");
+        System.clearProperty("xroad.op-monitor-buffer.max-records-in-message");
+        System.clearProperty("xroad.op-monitor-buffer.max-concurrent-requests");
     }
 
     @Test
@@ -196,11 +198,50 @@ class OpMonitoringBufferTest {
                     assertFalse(opMonitoringBuffer.buffer.contains(opMonitoringData1));
                     assertTrue(opMonitoringBuffer.buffer.contains(opMonitoringData2));
                     assertTrue(opMonitoringBuffer.buffer.contains(opMonitoringData3));
+                    assertEquals(1, opMonitoringBuffer.getOverflowCount());
                 });
 
 //
     }
 
+    @Test
+    void sendsConcurrentRequests() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        AtomicInteger sentRequests = new AtomicInteger();
+
+        when(httpClient.execute(any(HttpRequestBase.class), any(HttpContext.class))).thenAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            doSleep(100, 101);
+            inFlight.decrementAndGet();
+            sentRequests.incrementAndGet();
+
+            CloseableHttpResponse response = mock(CloseableHttpResponse.class, RETURNS_DEEP_STUBS);
+            when(response.getStatusLine().getStatusCode()).thenReturn(200);
+            when(response.getAllHeaders()).thenReturn(new Header[0]);
+
+            when(response.getEntity().getContent())
+                    .thenReturn(IOUtils.toInputStream(objectMapper.writeValueAsString(new StoreOpMonitoringDataResponse()), UTF_8));
+            return response;
+        });
+        System.setProperty("xroad.op-monitor-buffer.max-records-in-message", "1");
+        System.setProperty("xroad.op-monitor-buffer.max-concurrent-requests", "3");
+
+        final TestOpMonitoringBuffer opMonitoringBuffer = new TestOpMonitoringBuffer();
+        IntStream.range(0, 12).forEach(index -> opMonitoringBuffer.store(
+                new OpMonitoringData(OpMonitoringData.SecurityServerType.CLIENT, index)));
+
+        Awaitility.await()
+                .atMost(Duration.ofSeconds(20))
+                .untilAsserted(() -> {
+                    assertEquals(12, sentRequests.get());
+                    assertEquals(0, opMonitoringBuffer.getCurrentBufferSize());
+                });
+        assertEquals(3, maxInFlight.get());
+
+        opMonitoringBuffer.destroy();
+    }
+
     @Test
     void noOpMonitoringDataIsStored() throws Exception {
         System.setProperty("xroad.op-monitor-buffer.size", "0");
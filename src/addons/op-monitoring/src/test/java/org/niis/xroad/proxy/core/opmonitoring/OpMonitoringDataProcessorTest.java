@@ -25,9 +25,21 @@
  */
 package org.niis.xroad.proxy.core.opmonitoring;
 
+import ee.ria.xroad.common.util.JsonUtils;
+
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.IOUtils;
 import org.junit.Test;
+import org.niis.xroad.opmonitor.api.OpMonitoringData;
+import org.niis.xroad.opmonitor.api.StoreOpMonitoringDataRequest;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.stream.LongStream;
+import java.util.zip.GZIPInputStream;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
 @Slf4j
@@ -40,4 +52,45 @@ public class OpMonitoringDataProcessorTest {
 
         assertNotNull(ip);
     }
+
+    @Test
+    public void messagesArePreparedWithReusedGenerator() throws Exception {
+        OpMonitoringDataProcessor proc = new OpMonitoringDataProcessor();
+
+        for (int i = 1; i <= 3; i++) {
+            List<OpMonitoringData> records = createRecords(i);
+
+            String message = new String(proc.prepareMonitoringMessage(records, false), UTF_8);
+
+            assertEquals(JsonUtils.getObjectWriter().writeValueAsString(createRequest(records)), message);
+        }
+    }
+
+    @Test
+    public void compressedMessage() throws Exception {
+        OpMonitoringDataProcessor proc = new OpMonitoringDataProcessor();
+        List<OpMonitoringData> records = createRecords(5);
+
+        byte[] message = proc.prepareMonitoringMessage(records, true);
+
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(message))) {
+            assertEquals(JsonUtils.getObjectWriter().writeValueAsString(createRequest(records)), IOUtils.toString(in, UTF_8));
+        }
+    }
+
+    private static List<OpMonitoringData> createRecords(int count) {
+        return LongStream.rangeClosed(1, count)
+                .mapToObj(ts -> {
+                    var data = new OpMonitoringData(OpMonitoringData.SecurityServerType.CLIENT, ts);
+                    data.setSecurityServerInternalIp("127.0.0." + ts);
+                    return data;
+                })
+                .toList();
+    }
+
+    private static StoreOpMonitoringDataRequest createRequest(List<OpMonitoringData> records) {
+        StoreOpMonitoringDataRequest request = new StoreOpMonitoringDataRequest();
+        records.forEach(data -> request.addRecord(data.getData()));
+        return request;
+    }
 }
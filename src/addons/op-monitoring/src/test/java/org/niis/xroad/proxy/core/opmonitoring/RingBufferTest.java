@@ -0,0 +1,119 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.niis.xroad.proxy.core.opmonitoring;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the bounded ring buffer used by the operational monitoring buffer.
+ */
+class RingBufferTest {
+
+    @Test
+    void elementsAreTakenInInsertionOrder() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(3);
+
+        for (int round = 0; round < 5; round++) {
+            assertTrue(buffer.offer(1));
+            assertTrue(buffer.offer(2));
+            assertTrue(buffer.offer(3));
+            assertFalse(buffer.offer(4));
+            assertEquals(3, buffer.size());
+
+            List<Integer> drained = new ArrayList<>();
+            assertEquals(2, buffer.drainTo(drained, 2));
+            assertEquals(List.of(1, 2), drained);
+            assertEquals(3, buffer.poll());
+            assertNull(buffer.poll());
+            assertTrue(buffer.isEmpty());
+        }
+    }
+
+    @Test
+    void putEvictsOldestElements() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(2);
+
+        buffer.put(1);
+        buffer.put(2);
+        buffer.put(3);
+        buffer.put(4);
+
+        assertEquals(2, buffer.size());
+        assertEquals(2, buffer.getOverflowCount());
+        assertFalse(buffer.contains(2));
+        assertTrue(buffer.contains(3));
+        assertTrue(buffer.contains(4));
+    }
+
+    @Test
+    void concurrentProducersDoNotLoseElements() throws Exception {
+        int producers = 8;
+        int perProducer = 50_000;
+        RingBuffer<Integer> buffer = new RingBuffer<>(1024);
+        Set<Integer> consumed = new HashSet<>();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(producers)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                int base = p * perProducer;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perProducer; i++) {
+                        while (!buffer.offer(base + i)) {
+                            Thread.onSpinWait();
+                        }
+                    }
+                }));
+            }
+
+            while (consumed.size() < producers * perProducer) {
+                Integer element = buffer.poll();
+                if (element != null) {
+                    assertTrue(consumed.add(element), "Duplicate element " + element);
+                }
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        assertTrue(buffer.isEmpty());
+        assertEquals(0, buffer.getOverflowCount());
+    }
+}
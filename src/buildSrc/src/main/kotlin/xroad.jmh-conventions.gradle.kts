@@ -0,0 +1,19 @@
+plugins {
+  java
+}
+
+val libs = project.extensions.getByType<VersionCatalogsExtension>().named("libs")
+
+dependencies {
+  testImplementation(libs.findLibrary("jmh-core").get())
+  testAnnotationProcessor(libs.findLibrary("jmh-generatorAnnprocess").get())
+}
+
+tasks.register<JavaExec>("jmh") {
+  description = "Runs the JMH benchmarks of the test sources"
+  group = "verification"
+
+  classpath = sourceSets.test.get().runtimeClasspath
+  mainClass.set("org.openjdk.jmh.Main")
+  args(project.findProperty("jmhIncludes")?.toString() ?: ".*Benchmark.*")
+}
@@ -276,6 +276,9 @@ public final class SystemProperties {
     public static final String SERVER_CONF_CACHE_PERIOD =
             PROXY_PREFIX + "server-conf-cache-period";
 
+    /** Property name of the interval in seconds at which server conf changes are checked, 0 disables the check */
+    public static final String SERVER_CONF_CHANGE_CHECK_INTERVAL = PROXY_PREFIX + "server-conf-change-check-interval";
+
     public static final String SERVER_CONF_CLIENT_CACHE_SIZE = PROXY_PREFIX + "server-conf-client-cache-size";
 
     public static final String SERVER_CONF_SERVICE_CACHE_SIZE = PROXY_PREFIX + "server-conf-service-cache-size";
@@ -306,6 +309,24 @@ public final class SystemProperties {
     private static final String SERVERPROXY_SUPPORT_CLIENTS_POOLED_CONNECTIONS =
             PROXY_PREFIX + "server-support-clients-pooled-connections";
 
+    /** Property name of the switch that enables HTTP/2 (negotiated with ALPN) on the server proxy connector */
+    private static final String SERVERPROXY_HTTP2_ENABLED = PROXY_PREFIX + "server-proxy-http2-enabled";
+
+    /** Property name of the maximum number of concurrent HTTP/2 streams per connection to the server proxy */
+    private static final String SERVERPROXY_HTTP2_MAX_CONCURRENT_STREAMS = PROXY_PREFIX + "server-proxy-http2-max-concurrent-streams";
+
+    /** Property name of the switch that enables HTTP/2 multiplexing on client proxy connections to server proxies */
+    private static final String CLIENTPROXY_HTTP2_ENABLED = PROXY_PREFIX + "client-proxy-http2-enabled";
+
+    /** Property name of the initial HTTP/2 flow control window size between the client proxy and server proxy, in bytes */
+    private static final String PROXY_HTTP2_INITIAL_WINDOW_SIZE = PROXY_PREFIX + "http2-initial-window-size";
+
+    /** Property name of the switch that makes the client and server proxy invoke request handlers on virtual threads */
+    private static final String PROXY_VIRTUAL_THREADS_ENABLED = PROXY_PREFIX + "virtual-threads-enabled";
+
+    /** Property name of the maximum number of requests a proxy handles concurrently on virtual threads */
+    private static final String PROXY_VIRTUAL_THREADS_MAX_CONCURRENT_REQUESTS = PROXY_PREFIX + "virtual-threads-max-concurrent-requests";
+
     /**
      * Property name of the idle time that connections to the clientproxy connector are initially allowed,
      * in milliseconds
@@ -372,6 +393,10 @@ public final class SystemProperties {
 
     private static final String HSM_HEALTH_CHECK_ENABLED = PROXY_PREFIX + "hsm-health-check-enabled";
     private static final String PROXY_MESSAGE_SIGN_DIGEST_NAME = PROXY_PREFIX + "message-sign-digest-name";
+    private static final String PROXY_BATCH_SIGNING_MAX_BATCH_SIZE = PROXY_PREFIX + "batch-signing-max-batch-size";
+    private static final String PROXY_BATCH_SIGNING_MAX_LINGER_MICROS = PROXY_PREFIX + "batch-signing-max-linger-micros";
+    private static final String PROXY_BATCH_SIGNING_MAX_IN_FLIGHT = PROXY_PREFIX + "batch-signing-max-in-flight";
+    private static final String PROXY_ATTACHMENT_MEMORY_THRESHOLD = PROXY_PREFIX + "attachment-memory-threshold";
     public static final String PROXY_MEMORY_USAGE_THRESHOLD = PROXY_PREFIX + "memory-usage-threshold";
 
     public static final String MESSAGE_LOG_TIMESTAMPING_PRIORITIZATION_STRATEGY =
@@ -402,6 +427,12 @@ public final class SystemProperties {
 
     private static final String DEFAULT_SERVERPROXY_CONNECTOR_SO_LINGER = "-1";
 
+    private static final String DEFAULT_SERVERPROXY_HTTP2_MAX_CONCURRENT_STREAMS = "128";
+
+    private static final String DEFAULT_PROXY_HTTP2_INITIAL_WINDOW_SIZE = "1048576";
+
+    private static final String DEFAULT_PROXY_VIRTUAL_THREADS_MAX_CONCURRENT_REQUESTS = "5000";
+
     private static final String DEFAULT_SERVERPROXY_SUPPORT_CLIENTS_POOLED_CONNECTIONS = FALSE;
 
     private static final String DEFAULT_CLIENTPROXY_CONNECTOR_MAX_IDLE_TIME = "0";
@@ -487,11 +518,20 @@ public final class SystemProperties {
 
     private static final String DEFAULT_SIGNER_OCSP_RETRY_DELAY = "60";
 
+    public static final String SIGNER_OCSP_RESPONDER_MAX_CONCURRENCY = SIGNER_PREFIX + "ocsp-responder-max-concurrency";
+
+    public static final String SIGNER_OCSP_HEDGE_DELAY = SIGNER_PREFIX + "ocsp-hedge-delay";
+
     public static final String SIGNER_MODULE_MANAGER_UPDATE_INTERVAL = SIGNER_PREFIX + "module-manager-update-interval";
     public static final String SOFT_TOKEN_RSA_SIGN_MECHANISM = SIGNER_PREFIX + "soft-token-rsa-sign-mechanism";
     public static final String SOFT_TOKEN_EC_SIGN_MECHANISM = SIGNER_PREFIX + "soft-token-ec-sign-mechanism";
     public static final String SOFT_TOKEN_PIN_KEYSTORE_ALGORITHM = SIGNER_PREFIX + "soft-token-pin-keystore-algorithm";
     public static final String SIGNER_SELF_SIGNED_CERT_DIGEST_ALGORITHM = SIGNER_PREFIX + "selfsigned-cert-digest-algorithm";
+    public static final String SOFT_TOKEN_CONCURRENT_SIGNING_ENABLED = SIGNER_PREFIX + "soft-token-concurrent-signing-enabled";
+
+    public static final String SIGNER_TOKEN_SESSION_ACQUIRE_TIMEOUT = SIGNER_PREFIX + "token-session-acquire-timeout";
+
+    public static final String DEFAULT_SIGNER_TOKEN_SESSION_ACQUIRE_TIMEOUT = "10000";
 
     public static final String DEFAULT_SIGNER_MODULE_MANAGER_UPDATE_INTERVAL = "60";
     public static final KeyAlgorithm DEFAULT_SIGNER_DEFAULT_KEY_ALGORITHM = KeyAlgorithm.RSA;
@@ -523,6 +563,10 @@ public final class SystemProperties {
     public static final String ANTIDOS_MAX_HEAP_USAGE =
             PREFIX + "anti-dos.max-heap-usage";
 
+    /** Property name of the interval of sampling system resource usage, in milliseconds */
+    public static final String ANTIDOS_RESOURCE_SAMPLE_INTERVAL =
+            PREFIX + "anti-dos.resource-sample-interval";
+
     // Configuration client ---------------------------------------------------
 
     public static final String CONFIGURATION_CLIENT_PORT =
@@ -669,9 +713,9 @@ public final class SystemProperties {
 
     // Configuration proxy ------------------------------------------------- //
 
-    /** Property name of the confproxy download script path. */
-    public static final String CONFIGURATION_PROXY_DOWNLOAD_SCRIPT =
-            PREFIX + "configuration-proxy.download-script";
+    /** Property name of the number of threads confproxy uses for downloading global configurations. */
+    public static final String CONFIGURATION_PROXY_DOWNLOAD_THREADS =
+            PREFIX + "configuration-proxy.download-threads";
 
     /** Property name of the confproxy configuration path. */
     public static final String CONFIGURATION_PROXY_CONF_PATH =
@@ -1208,6 +1252,21 @@ public final class SystemProperties {
                 DEFAULT_SIGNER_OCSP_RETRY_DELAY));
     }
 
+    /**
+     * @return the maximum number of concurrent requests the signer sends to a single OCSP responder, 4 by default
+     */
+    public static int getOcspResponderMaxConcurrency() {
+        return Integer.parseInt(System.getProperty(SIGNER_OCSP_RESPONDER_MAX_CONCURRENCY, "4"));
+    }
+
+    /**
+     * @return the time in milliseconds after which the signer sends a hedged OCSP request to the next responder
+     * if the previous one has not answered, 0 (no hedged requests) if not positive, 2000 by default
+     */
+    public static int getOcspHedgeDelay() {
+        return Integer.parseInt(System.getProperty(SIGNER_OCSP_HEDGE_DELAY, "2000"));
+    }
+
     /**
      * @return the module manager update interval in seconds that should be set for signer, 60 by default
      */
@@ -1243,6 +1302,22 @@ public final class SystemProperties {
                 .orElse(DEFAULT_SOFT_TOKEN_PIN_KEYSTORE_ALGORITHM);
     }
 
+    /**
+     * @return whether software token signing operations may run concurrently, false by default
+     */
+    public static boolean isSoftTokenConcurrentSigningEnabled() {
+        return Boolean.parseBoolean(System.getProperty(SOFT_TOKEN_CONCURRENT_SIGNING_ENABLED, FALSE));
+    }
+
+    /**
+     * @return time in milliseconds to wait for a free signing session of a hardware token session pool,
+     * 10000 by default
+     */
+    public static long getSignerTokenSessionAcquireTimeout() {
+        return Long.parseLong(System.getProperty(SIGNER_TOKEN_SESSION_ACQUIRE_TIMEOUT,
+                DEFAULT_SIGNER_TOKEN_SESSION_ACQUIRE_TIMEOUT));
+    }
+
     /**
      * @return software token keystore PIN file algorithm, RSA by default
      */
@@ -1506,12 +1581,11 @@ public final class SystemProperties {
     }
 
     /**
-     * @return path to the global configuration download script,
-     * '/usr/share/xroad/scripts/download_instance_configuration.sh' by default.
+     * @return maximum number of global configurations the configuration proxy downloads
+     * in parallel, '4' by default.
      */
-    public static String getConfigurationProxyDownloadScript() {
-        return System.getProperty(CONFIGURATION_PROXY_DOWNLOAD_SCRIPT,
-                "/usr/share/xroad/scripts/download_instance_configuration.sh");
+    public static int getConfigurationProxyDownloadThreads() {
+        return Integer.parseInt(System.getProperty(CONFIGURATION_PROXY_DOWNLOAD_THREADS, "4"));
     }
 
     /**
@@ -1673,6 +1747,14 @@ public final class SystemProperties {
         return Double.parseDouble(System.getProperty(ANTIDOS_MAX_HEAP_USAGE, "1.1"));
     }
 
+    /**
+     * @return the interval in milliseconds during which Anti-Dos reuses the last sampled
+     * system resource usage (free file handles, cpu load, heap usage), '100' by default.
+     */
+    public static int getAntiDosResourceSampleInterval() {
+        return Integer.parseInt(System.getProperty(ANTIDOS_RESOURCE_SAMPLE_INTERVAL, "100"));
+    }
+
     /**
      * @return whether Anti-Dos should be used, 'true' by default.
      */
@@ -1737,6 +1819,14 @@ public final class SystemProperties {
         return Integer.parseInt(System.getProperty(SERVER_CONF_CACHE_PERIOD, "60"));
     }
 
+    /**
+     * @return the interval in seconds at which the cached server conf is checked for changes made by the
+     * admin service, '5' by default, 0 disables the check
+     */
+    public static int getServerConfChangeCheckInterval() {
+        return Integer.parseInt(System.getProperty(SERVER_CONF_CHANGE_CHECK_INTERVAL, "5"));
+    }
+
     /**
      * @return the interval in seconds at which verifier caches results.
      * Max value is 180 seconds and cannot be exceeded in configuration.
@@ -1779,6 +1869,52 @@ public final class SystemProperties {
         return System.getProperty(SERVERPROXY_MIN_SUPPORTED_CLIENT_VERSION);
     }
 
+    /**
+     * @return whether the server proxy connector offers HTTP/2 to client proxies, false by default
+     */
+    public static boolean isServerProxyHttp2Enabled() {
+        return Boolean.parseBoolean(System.getProperty(SERVERPROXY_HTTP2_ENABLED, FALSE));
+    }
+
+    /**
+     * @return the maximum number of concurrent HTTP/2 streams per client proxy connection, 128 by default
+     */
+    public static int getServerProxyHttp2MaxConcurrentStreams() {
+        return Integer.parseInt(System.getProperty(SERVERPROXY_HTTP2_MAX_CONCURRENT_STREAMS,
+                DEFAULT_SERVERPROXY_HTTP2_MAX_CONCURRENT_STREAMS));
+    }
+
+    /**
+     * @return whether the client proxy multiplexes requests to server proxies over HTTP/2 connections, false by default
+     */
+    public static boolean isClientProxyHttp2Enabled() {
+        return Boolean.parseBoolean(System.getProperty(CLIENTPROXY_HTTP2_ENABLED, FALSE));
+    }
+
+    /**
+     * @return the initial HTTP/2 stream flow control window size in bytes, 1 MiB by default
+     */
+    public static int getProxyHttp2InitialWindowSize() {
+        return Integer.parseInt(System.getProperty(PROXY_HTTP2_INITIAL_WINDOW_SIZE, DEFAULT_PROXY_HTTP2_INITIAL_WINDOW_SIZE));
+    }
+
+    /**
+     * @return whether the client proxy, server proxy and health check port invoke request handlers on virtual threads
+     * instead of the pooled Jetty threads, false by default
+     */
+    public static boolean isProxyVirtualThreadsEnabled() {
+        return Boolean.parseBoolean(System.getProperty(PROXY_VIRTUAL_THREADS_ENABLED, FALSE));
+    }
+
+    /**
+     * @return the maximum number of requests that the client proxy and the server proxy each handle concurrently
+     * when virtual threads are enabled, 5000 by default
+     */
+    public static int getProxyVirtualThreadsMaxConcurrentRequests() {
+        return Integer.parseInt(System.getProperty(PROXY_VIRTUAL_THREADS_MAX_CONCURRENT_REQUESTS,
+                DEFAULT_PROXY_VIRTUAL_THREADS_MAX_CONCURRENT_REQUESTS));
+    }
+
     /**
      * @return the connection maximum idle time that should be set for client proxy apache HttpClient
      */
@@ -2022,6 +2158,36 @@ public final class SystemProperties {
                 .orElse(DigestAlgorithm.SHA512);
     }
 
+    /**
+     * @return Maximum number of signing requests combined into one batch signature, '0' (no limit) by default
+     */
+    public static int getBatchSigningMaxBatchSize() {
+        return Integer.parseInt(System.getProperty(PROXY_BATCH_SIGNING_MAX_BATCH_SIZE, "0"));
+    }
+
+    /**
+     * @return Maximum time in microseconds a batch waits for more signing requests while other batches of the same
+     * key are in flight, '0' (no waiting) by default
+     */
+    public static long getBatchSigningMaxLingerMicros() {
+        return Long.parseLong(System.getProperty(PROXY_BATCH_SIGNING_MAX_LINGER_MICROS, "0"));
+    }
+
+    /**
+     * @return Maximum number of batch signatures of the same key that may be in flight at once, '1' by default
+     */
+    public static int getBatchSigningMaxInFlight() {
+        return Integer.parseInt(System.getProperty(PROXY_BATCH_SIGNING_MAX_IN_FLIGHT, "1"));
+    }
+
+    /**
+     * @return Maximum size in bytes of a message attachment or REST body that is cached in memory. Larger contents
+     * are spilled to a memory-mapped temporary file, '262144' by default
+     */
+    public static int getAttachmentMemoryThreshold() {
+        return Integer.parseInt(System.getProperty(PROXY_ATTACHMENT_MEMORY_THRESHOLD, "262144"));
+    }
+
     public static Long getProxyMemoryUsageThreshold() {
         return Optional.ofNullable(System.getProperty(PROXY_MEMORY_USAGE_THRESHOLD))
                 .map(Long::parseLong)
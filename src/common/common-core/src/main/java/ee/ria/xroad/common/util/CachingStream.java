@@ -26,88 +26,177 @@
 package ee.ria.xroad.common.util;
 
 import ee.ria.xroad.common.DefaultFilepaths;
-import ee.ria.xroad.common.ErrorCodes;
+import ee.ria.xroad.common.SystemProperties;
 
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
 
-import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
-import java.nio.channels.SeekableByteChannel;
-import java.nio.file.Files;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 
 /**
- * Caches stuff in a temporary file.
+ * Caches stuff in memory up to a threshold. Contents exceeding the threshold are spilled to a temporary file,
+ * which is read with positional reads so that the cached contents can be read (e.g. for hashing, message logging
+ * and forwarding) any number of times without copying the file. The file is deleted on {@link #consume()}.
  */
 @Slf4j
-public class CachingStream extends FilterOutputStream {
-    private SeekableByteChannel channel;
+public class CachingStream extends OutputStream {
+    private final int memoryThreshold;
+
+    private UnsynchronizedByteArrayOutputStream memory = UnsynchronizedByteArrayOutputStream.builder().get();
+    private FileChannel channel;
     private Path tempFile;
+    private long size;
+    private boolean consumed;
 
     /**
-     * Constructs a new caching stream that caches data in a temporary file.
-     *
-     * @throws IOException if I/O errors occurred
+     * Constructs a new caching stream that caches data in memory up to
+     * {@link SystemProperties#getAttachmentMemoryThreshold()} bytes and in a temporary file above it.
      */
-    public CachingStream() throws IOException {
-        // Construct the parent class with null stream and replace it later.
-        super(null);
-
-        tempFile = DefaultFilepaths.createTempFile("tmpattach", null);
-        channel = Files.newByteChannel(tempFile, StandardOpenOption.CREATE,
-                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING,
-                StandardOpenOption.READ, StandardOpenOption.DELETE_ON_CLOSE);
+    public CachingStream() {
+        this(SystemProperties.getAttachmentMemoryThreshold());
+    }
 
-        // Now that we are set up, we can set the output stream in the
-        // parent class.
-        out = Channels.newOutputStream(channel);
+    /**
+     * Constructs a new caching stream that caches data in memory up to the given threshold
+     * and in a temporary file above it.
+     *
+     * @param memoryThreshold maximum number of bytes cached in memory
+     */
+    public CachingStream(int memoryThreshold) {
+        this.memoryThreshold = memoryThreshold;
     }
 
     @Override
     public void close() throws IOException {
-        // we must not close the channel before reading it
+        // we must not release the cache before reading it
         flush();
     }
 
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
     @Override
     public void write(byte[] b, int off, int len) throws IOException {
-        // prevent FilterOutputStream from writing inefficiently
-        out.write(b, off, len);
+        if (channel == null && size + len > memoryThreshold) {
+            spill();
+        }
+
+        if (channel == null) {
+            memory.write(b, off, len);
+        } else {
+            ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        size += len;
     }
 
     /**
      * @return input stream that contains the encoded attachment contents.
      * The returned stream does not support mark, and closing the stream has no effect.
+     * @throws IllegalStateException if the cache has been consumed
      * @see #consume() to free resources used by the cache.
      */
     public CacheInputStream getCachedContents() {
-        try {
-            return new CacheInputStream(channel);
-        } catch (IOException ex) { // the position shouldn't really throw
-            throw ErrorCodes.translateException(ex);
+        if (consumed) {
+            throw new IllegalStateException("Cached contents have been consumed");
+        }
+
+        if (channel == null) {
+            return new CacheInputStream(memory.toInputStream(), size);
         }
+
+        return new CacheInputStream(new ChannelInputStream(channel, size), size);
     }
 
     /**
      * Finalize caching stream. Use to avoid file handle leaks.
      */
     public void consume() {
-        try {
-            channel.close();
-        } catch (IOException e) {
-            log.warn("Error closing channel of the temporary file '{}'", tempFile.toString(), e);
+        consumed = true;
+        memory = null;
+
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Error closing channel of the temporary file '{}'", tempFile.toString(), e);
+            }
         }
     }
 
     public long size() {
-        try {
-            return channel.size();
-        } catch (IOException ex) {
-            throw ErrorCodes.translateException(ex);
-        }
+        return size;
+    }
+
+    private void spill() throws IOException {
+        tempFile = DefaultFilepaths.createTempFile("tmpattach", null);
+        channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.DELETE_ON_CLOSE);
+
+        log.trace("Spilling {} cached bytes to temporary file '{}'", size, tempFile);
+
+        // the channel output stream is not closed, it would close the channel
+        memory.writeTo(Channels.newOutputStream(channel));
+        memory = null;
     }
 
+    // Reads the contents written before the stream was created, the channel position is not used by reads.
+    private static final class ChannelInputStream extends InputStream {
+        private final FileChannel channel;
+        private final long end;
+        private long position;
+
+        ChannelInputStream(FileChannel channel, long end) {
+            this.channel = channel;
+            this.end = end;
+        }
 
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : Byte.toUnsignedInt(b[0]);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (position >= end) {
+                return -1;
+            }
+
+            ByteBuffer buffer = ByteBuffer.wrap(b, off, (int) Math.min(len, end - position));
+            int count = channel.read(buffer, position);
+            if (count == -1) {
+                return -1;
+            }
+            position += count;
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = Math.max(0, Math.min(n, end - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(end - position, Integer.MAX_VALUE);
+        }
+    }
 }
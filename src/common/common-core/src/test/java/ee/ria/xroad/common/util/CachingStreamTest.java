@@ -0,0 +1,169 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.util;
+
+import ee.ria.xroad.common.SystemProperties;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+/**
+ * Unit tests for {@link CachingStream}
+ */
+public class CachingStreamTest {
+    private static final Path TEMP_DIR = Paths.get("build/tmp/cachingstreamtest");
+    private static final int THRESHOLD = 1024;
+
+    private String originalTempFilesPath;
+
+    @Before
+    public void setUp() {
+        originalTempFilesPath = System.setProperty(SystemProperties.TEMP_FILES_PATH, TEMP_DIR.toString());
+    }
+
+    @After
+    public void tearDown() {
+        if (originalTempFilesPath == null) {
+            System.clearProperty(SystemProperties.TEMP_FILES_PATH);
+        } else {
+            System.setProperty(SystemProperties.TEMP_FILES_PATH, originalTempFilesPath);
+        }
+    }
+
+    @Test
+    public void cachesSmallContentsInMemory() throws Exception {
+        byte[] data = randomBytes(THRESHOLD);
+        CachingStream cache = new CachingStream(THRESHOLD);
+        try {
+            cache.write(data);
+            cache.close();
+
+            assertEquals(data.length, cache.size());
+            assertContents(data, cache.getCachedContents());
+            assertContents(data, cache.getCachedContents());
+        } finally {
+            cache.consume();
+        }
+    }
+
+    @Test
+    public void spillsLargeContentsToTemporaryFile() throws Exception {
+        byte[] data = randomBytes(THRESHOLD * 10 + 7);
+        CachingStream cache = new CachingStream(THRESHOLD);
+        try {
+            cache.write(data, 0, THRESHOLD - 1);
+            cache.write(data[THRESHOLD - 1]);
+
+            cache.write(data, THRESHOLD, data.length - THRESHOLD);
+            cache.close();
+
+            assertEquals(data.length, cache.size());
+            assertContents(data, cache.getCachedContents());
+            assertContents(data, cache.getCachedContents());
+        } finally {
+            cache.consume();
+        }
+    }
+
+    @Test
+    public void readsContentsWrittenAfterPreviousRead() throws Exception {
+        byte[] data = randomBytes(THRESHOLD * 3);
+        CachingStream cache = new CachingStream(THRESHOLD);
+        try {
+            cache.write(data, 0, THRESHOLD * 2);
+            InputStream first = cache.getCachedContents();
+
+            cache.write(data, THRESHOLD * 2, THRESHOLD);
+
+            assertEquals(THRESHOLD * 2, IOUtils.toByteArray(first).length);
+            assertContents(data, cache.getCachedContents());
+        } finally {
+            cache.consume();
+        }
+    }
+
+    @Test
+    public void rejectsReadingConsumedContents() throws Exception {
+        CachingStream memoryCache = new CachingStream(THRESHOLD);
+        memoryCache.write(randomBytes(THRESHOLD));
+        memoryCache.close();
+        memoryCache.consume();
+
+        assertThrows(IllegalStateException.class, memoryCache::getCachedContents);
+
+        CachingStream fileCache = new CachingStream(THRESHOLD);
+        fileCache.write(randomBytes(THRESHOLD + 1));
+        fileCache.close();
+        fileCache.consume();
+
+        assertThrows(IllegalStateException.class, fileCache::getCachedContents);
+    }
+
+    @Test
+    public void deletesTemporaryFileOnConsume() throws Exception {
+        CachingStream cache = new CachingStream(THRESHOLD);
+        cache.write(randomBytes(THRESHOLD * 4));
+        cache.close();
+        InputStream contents = cache.getCachedContents();
+
+        assertEquals(1, countTemporaryFiles());
+        cache.consume();
+
+        assertEquals(0, countTemporaryFiles());
+        assertThrows(IOException.class, () -> IOUtils.toByteArray(contents));
+    }
+
+    private static long countTemporaryFiles() throws IOException {
+        try (Stream<Path> files = Files.list(TEMP_DIR)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("tmpattach")).count();
+        }
+    }
+
+    private static void assertContents(byte[] expected, CacheInputStream contents) throws IOException {
+        assertEquals(expected.length, contents.size());
+        assertArrayEquals(expected, IOUtils.toByteArray(contents));
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+}
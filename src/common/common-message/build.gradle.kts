@@ -1,5 +1,6 @@
 plugins {
   id("xroad.java-conventions")
+  id("xroad.jmh-conventions")
 }
 
 val xjc by configurations.creating
@@ -28,6 +28,7 @@ package ee.ria.xroad.common.message;
 import ee.ria.xroad.common.util.MimeTypes;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CloseShieldOutputStream;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -93,13 +94,28 @@ public class MultipartSoapMessageEncoder implements SoapMessageEncoder {
     @Override
     public void attachment(String contentType, InputStream content,
                            Map<String, String> additionalHeaders) throws IOException {
+        IOUtils.copy(content, attachment(contentType, additionalHeaders));
+    }
+
+    /**
+     * Starts a new attachment part and returns a stream for writing its
+     * content directly to the underlying output. The part ends when the next
+     * part is started or the encoder is closed; closing the returned stream
+     * does not close the encoder.
+     * @param contentType content type of the attachment
+     * @param additionalHeaders additional MIME headers of the attachment
+     * @return output stream for the attachment content
+     * @throws IOException if writing the part headers fails
+     */
+    public OutputStream attachment(String contentType,
+                                   Map<String, String> additionalHeaders) throws IOException {
         String[] headers = {};
         if (additionalHeaders != null && !additionalHeaders.isEmpty()) {
             headers = convertHeaders(additionalHeaders);
         }
 
         multipart.startPart(contentType, headers);
-        IOUtils.copy(content, multipart);
+        return CloseShieldOutputStream.wrap(multipart);
     }
 
     private static String[] convertHeaders(Map<String, String> headers) {
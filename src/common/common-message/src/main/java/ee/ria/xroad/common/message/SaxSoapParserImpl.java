@@ -42,10 +42,12 @@ import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.input.BOMInputStream;
 import org.apache.commons.io.input.TeeInputStream;
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.text.StringEscapeUtils;
 import org.niis.xroad.common.core.exception.XrdRuntimeException;
 import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
 import org.xml.sax.XMLReader;
@@ -53,13 +55,13 @@ import org.xml.sax.ext.DefaultHandler2;
 
 import javax.xml.namespace.QName;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 
 import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.util.Arrays;
@@ -68,6 +70,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Stack;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.function.Consumer;
 
 import static ee.ria.xroad.common.ErrorCodes.X_DUPLICATE_HEADER_FIELD;
@@ -172,6 +176,37 @@ public class SaxSoapParserImpl implements SoapParser {
 
     private static final SAXParserFactory PARSER_FACTORY = createSaxParserFactory();
 
+    // Parser contexts (XML reader and raw XML buffer) are reused across messages.
+    private static final int PARSER_POOL_SIZE = 2 * Runtime.getRuntime().availableProcessors();
+    private static final BlockingQueue<ParserContext> PARSER_POOL = new ArrayBlockingQueue<>(PARSER_POOL_SIZE);
+
+    private static final int RAW_XML_INITIAL_BUFFER_SIZE = 8 * 1024;
+    // Raw XML buffers that have grown larger are not kept in the pool.
+    private static final int RAW_XML_MAX_POOLED_SIZE = 1024 * 1024;
+
+    // Handler set to pooled XML readers so that they do not retain the handler of the last message.
+    private static final DefaultHandler2 DETACHED_HANDLER = new DefaultHandler2();
+
+    private final boolean pooled;
+
+    /**
+     * Creates a parser that reuses pooled XML readers and raw XML buffers.
+     */
+    public SaxSoapParserImpl() {
+        this(true);
+    }
+
+    /**
+     * Creates a parser.
+     *
+     * @param pooled if true, XML readers and raw XML buffers are reused
+     *               across messages, otherwise they are created for each
+     *               message
+     */
+    protected SaxSoapParserImpl(boolean pooled) {
+        this.pooled = pooled;
+    }
+
     @Override
     @WithSpan
     public Soap parse(String contentType, InputStream is) {
@@ -197,41 +232,83 @@ public class SaxSoapParserImpl implements SoapParser {
             throws IOException, SOAPException, ParserConfigurationException {
         log.trace("parseMessage({}, {})", mimeType, charset);
 
-        ByteArrayOutputStream rawXml = new ByteArrayOutputStream();
-        ByteArrayOutputStream processedXml = new ByteArrayOutputStream();
+        ParserContext context = acquireParserContext();
+        boolean reusable = false;
+        try {
+            UnsynchronizedByteArrayOutputStream rawXml = context.getRawXml();
+            // The processed XML is written only if it is going to be used.
+            ByteArrayOutputStream processedXml = isProcessedXmlRequired() ? new ByteArrayOutputStream() : null;
 
-        InputStream proxyStream = excludeUtf8Bom(contentType, new TeeInputStream(is, rawXml));
-        Writer outputWriter = new OutputStreamWriter(processedXml, charset);
-        XRoadSoapHandler handler = handleSoap(outputWriter, proxyStream);
+            InputStream proxyStream = excludeUtf8Bom(contentType, new TeeInputStream(is, rawXml));
+            XRoadSoapHandler handler = handleSoap(context.getXmlReader(), processedXml, charset, proxyStream);
+            reusable = true;
 
-        CodedException fault = handler.getFault();
-        if (fault != null) {
-            return createSoapFault(charset, rawXml, fault);
-        }
+            CodedException fault = handler.getFault();
+            if (fault != null) {
+                return createSoapFault(charset, rawXml, fault);
+            }
 
-        byte[] xmlBytes = isProcessedXmlRequired() ? processedXml.toByteArray() : rawXml.toByteArray();
+            byte[] xmlBytes = processedXml != null ? processedXml.toByteArray() : rawXml.toByteArray();
 
-        return createSoapMessage(contentType, charset, handler, xmlBytes);
+            return createSoapMessage(contentType, charset, handler, xmlBytes);
+        } finally {
+            releaseParserContext(context, reusable);
+        }
     }
 
-    private XRoadSoapHandler handleSoap(Writer writer, InputStream inputStream)
-            throws SOAPException, IOException, ParserConfigurationException {
-        try (BufferedWriter out = new BufferedWriter(writer)) {
+    private XRoadSoapHandler handleSoap(XMLReader xmlReader, OutputStream processedXml, String charset,
+                                        InputStream inputStream) throws SOAPException, IOException {
+        try (BufferedWriter out = processedXml != null
+                ? new BufferedWriter(new OutputStreamWriter(processedXml, charset)) : null) {
             XRoadSoapHandler handler = new XRoadSoapHandler(out);
-            SAXParser saxParser = PARSER_FACTORY.newSAXParser();
-            XMLReader xmlReader = saxParser.getXMLReader();
-            xmlReader.setProperty(LEXICAL_HANDLER_PROPERTY, handler);
-            // ensure both builtin entities and character entities are reported to the parser
-            xmlReader.setFeature("http://apache.org/xml/features/scanner/notify-char-refs", true);
-            xmlReader.setFeature("http://apache.org/xml/features/scanner/notify-builtin-refs", true);
-
-            saxParser.parse(inputStream, handler);
+            setHandler(xmlReader, handler);
+            try {
+                xmlReader.parse(new InputSource(inputStream));
+            } finally {
+                setHandler(xmlReader, DETACHED_HANDLER);
+            }
             return handler;
         } catch (SAXException ex) {
             throw new SOAPException(ex);
         }
     }
 
+    private static void setHandler(XMLReader xmlReader, DefaultHandler2 handler) throws SAXException {
+        xmlReader.setContentHandler(handler);
+        xmlReader.setErrorHandler(handler);
+        xmlReader.setEntityResolver(handler);
+        xmlReader.setDTDHandler(handler);
+        xmlReader.setProperty(LEXICAL_HANDLER_PROPERTY, handler);
+    }
+
+    private ParserContext acquireParserContext() throws ParserConfigurationException {
+        ParserContext context = pooled ? PARSER_POOL.poll() : null;
+        if (context == null) {
+            try {
+                context = new ParserContext(createXmlReader());
+            } catch (SAXException e) {
+                throw new ParserConfigurationException(e.getMessage());
+            }
+        }
+        return context;
+    }
+
+    private void releaseParserContext(ParserContext context, boolean reusable) {
+        // A reader that failed to parse a message may be left in an inconsistent state, it is not reused.
+        if (pooled && reusable) {
+            context.resetRawXml();
+            PARSER_POOL.offer(context);
+        }
+    }
+
+    private static XMLReader createXmlReader() throws ParserConfigurationException, SAXException {
+        XMLReader xmlReader = PARSER_FACTORY.newSAXParser().getXMLReader();
+        // ensure both builtin entities and character entities are reported to the parser
+        xmlReader.setFeature("http://apache.org/xml/features/scanner/notify-char-refs", true);
+        xmlReader.setFeature("http://apache.org/xml/features/scanner/notify-builtin-refs", true);
+        return xmlReader;
+    }
+
     private static Soap createSoapMessage(String contentType, String charset,
                                           XRoadSoapHandler handler, byte[] xmlBytes) {
         return new SoapMessageImpl(xmlBytes, charset, handler.getHeader(),
@@ -239,7 +316,7 @@ public class SaxSoapParserImpl implements SoapParser {
     }
 
     private static Soap createSoapFault(String charset,
-                                        ByteArrayOutputStream rawXml, CodedException fault) {
+                                        UnsynchronizedByteArrayOutputStream rawXml, CodedException fault) {
         return new SoapFault(fault.getFaultCode(), fault.getFaultString(),
                 fault.getFaultActor(), fault.getFaultDetail(),
                 rawXml.toByteArray(), charset);
@@ -303,6 +380,35 @@ public class SaxSoapParserImpl implements SoapParser {
         return new SoapHeaderHandler(header);
     }
 
+    /**
+     * XML reader and raw XML buffer used for parsing one message at a time.
+     */
+    private static final class ParserContext {
+        @Getter
+        private final XMLReader xmlReader;
+
+        @Getter
+        private UnsynchronizedByteArrayOutputStream rawXml = createRawXmlBuffer();
+
+        ParserContext(XMLReader xmlReader) {
+            this.xmlReader = xmlReader;
+        }
+
+        void resetRawXml() {
+            if (rawXml.size() > RAW_XML_MAX_POOLED_SIZE) {
+                rawXml = createRawXmlBuffer();
+            } else {
+                rawXml.reset();
+            }
+        }
+
+        private static UnsynchronizedByteArrayOutputStream createRawXmlBuffer() {
+            return UnsynchronizedByteArrayOutputStream.builder()
+                    .setBufferSize(RAW_XML_INITIAL_BUFFER_SIZE)
+                    .get();
+        }
+    }
+
     @RequiredArgsConstructor
     private final class XRoadSoapHandler extends DefaultHandler2 {
         private static final String NAMESPACE_PREFIX_SEPARATOR = ":";
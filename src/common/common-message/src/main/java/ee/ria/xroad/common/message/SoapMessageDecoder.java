@@ -29,11 +29,10 @@ import ee.ria.xroad.common.CodedException;
 
 import lombok.extern.slf4j.Slf4j;
 import org.apache.james.mime4j.MimeException;
-import org.apache.james.mime4j.parser.AbstractContentHandler;
-import org.apache.james.mime4j.parser.MimeStreamParser;
-import org.apache.james.mime4j.stream.BodyDescriptor;
+import org.apache.james.mime4j.stream.EntityState;
 import org.apache.james.mime4j.stream.Field;
 import org.apache.james.mime4j.stream.MimeConfig;
+import org.apache.james.mime4j.stream.MimeTokenStream;
 import org.niis.xroad.common.core.annotation.ArchUnitSuppressed;
 
 import java.io.Closeable;
@@ -64,6 +63,9 @@ public class SoapMessageDecoder {
     private final String baseContentType;
     private final SoapParser parser;
 
+    private MimeTokenStream multipart;
+    private MultipartHandler multipartHandler;
+
     /**
      * Callback interface for handling the outcome of the decoding process.
      */
@@ -132,6 +134,45 @@ public class SoapMessageDecoder {
      */
     @ArchUnitSuppressed("NoVanillaExceptions")
     public void parse(InputStream soapStream) throws Exception {
+        decode(soapStream, false);
+
+        callback.onCompleted();
+    }
+
+    /**
+     * Decodes the SOAP message from the given input stream, but stops reading
+     * a multipart message after the SOAP part. This allows handling the SOAP
+     * message before the attachments are read from the stream with
+     * {@link #parseAttachments()}.
+     *
+     * @param soapStream input stream with the SOAP message data
+     * @throws Exception if any errors occur
+     */
+    @ArchUnitSuppressed("NoVanillaExceptions")
+    public void parseSoap(InputStream soapStream) throws Exception {
+        decode(soapStream, true);
+    }
+
+    /**
+     * Decodes the rest of the message after {@link #parseSoap(InputStream)}.
+     *
+     * @throws Exception if any errors occur
+     */
+    @ArchUnitSuppressed("NoVanillaExceptions")
+    public void parseAttachments() throws Exception {
+        try {
+            if (multipart != null) {
+                readParts(multipart.next(), false);
+            }
+        } catch (Exception e) {
+            callback.onError(e);
+        }
+
+        callback.onCompleted();
+    }
+
+    @ArchUnitSuppressed("NoVanillaExceptions")
+    private void decode(InputStream soapStream, boolean soapOnly) throws Exception {
         if (baseContentType == null) {
             throw new CodedException(X_INVALID_REQUEST,
                     "Could not get content type from request");
@@ -144,7 +185,7 @@ public class SoapMessageDecoder {
                     readSoapMessage(soapStream);
                     break;
                 case MULTIPART_RELATED:
-                    readMultipart(soapStream);
+                    readMultipart(soapStream, soapOnly);
                     break;
                 default:
                     throw new CodedException(X_INVALID_CONTENT_TYPE,
@@ -153,8 +194,6 @@ public class SoapMessageDecoder {
         } catch (Exception e) {
             callback.onError(e);
         }
-
-        callback.onCompleted();
     }
 
     @ArchUnitSuppressed("NoVanillaExceptions")
@@ -178,16 +217,38 @@ public class SoapMessageDecoder {
         callback.soap((SoapMessage) soap, new HashMap<>());
     }
 
-    private void readMultipart(InputStream is) throws IOException {
+    private void readMultipart(InputStream is, boolean soapOnly) throws IOException {
         log.trace("readMultipart");
 
         MimeConfig config = new MimeConfig.Builder().setHeadlessParsing(contentType).build();
 
-        MimeStreamParser mimeStreamParser = new MimeStreamParser(config);
-        mimeStreamParser.setContentHandler(new MultipartHandler());
+        multipart = new MimeTokenStream(config);
+        multipartHandler = new MultipartHandler();
         // Parse the request.
+        multipart.parseHeadless(is, contentType);
+
+        readParts(multipart.getState(), soapOnly);
+    }
+
+    private void readParts(EntityState firstState, boolean soapOnly) throws IOException {
         try {
-            mimeStreamParser.parse(is);
+            for (EntityState state = firstState; state != EntityState.T_END_OF_STREAM; state = multipart.next()) {
+                switch (state) {
+                    case T_START_HEADER -> multipartHandler.startHeader();
+                    case T_FIELD -> multipartHandler.field(multipart.getField());
+                    case T_BODY -> multipartHandler.body(multipart.getInputStream());
+                    default -> {
+                        // other parts of the MIME structure are not needed
+                    }
+                }
+
+                if (soapOnly && state == EntityState.T_BODY && multipartHandler.soapBody != null) {
+                    // the attachments are read by parseAttachments()
+                    return;
+                }
+            }
+
+            multipart = null;
         } catch (MimeException ex) {
             // We catch the mime parsing separately because this indicates
             // invalid request from client and we want to report it as that.
@@ -195,19 +256,17 @@ public class SoapMessageDecoder {
         }
     }
 
-    private final class MultipartHandler extends AbstractContentHandler {
+    private final class MultipartHandler {
         private Map<String, String> headers;
         private String partContentType;
         private Soap soapBody;
 
-        @Override
-        public void startHeader() {
+        void startHeader() {
             headers = new HashMap<>();
             partContentType = null;
         }
 
-        @Override
-        public void field(Field field) {
+        void field(Field field) {
             if (HEADER_CONTENT_TYPE.equalsIgnoreCase(field.getName())) {
                 partContentType = field.getBody();
             } else {
@@ -215,8 +274,7 @@ public class SoapMessageDecoder {
             }
         }
 
-        @Override
-        public void body(BodyDescriptor bd, InputStream is) {
+        void body(InputStream is) {
             if (!headers.isEmpty()) {
                 log.trace("headers: {}", headers);
             }
@@ -0,0 +1,126 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.message;
+
+import ee.ria.xroad.common.util.MimeTypes;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing SOAP envelopes of different sizes with the SAX SOAP
+ * parser, with pooled XML readers and raw XML buffers and without them
+ * (a new XML reader and buffer for each message). The processed XML variant
+ * re-serializes the message as done when the request hash is added to a
+ * response.
+ * Run with {@code gradle :common:common-message:jmh}, add
+ * {@code -prof gc} to the arguments to see the allocation rates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SaxSoapParserBenchmark {
+
+    private static final String ENVELOPE_START = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+            + "<SOAP-ENV:Envelope xmlns:SOAP-ENV=\"http://schemas.xmlsoap.org/soap/envelope/\"\n"
+            + "        xmlns:xroad=\"http://x-road.eu/xsd/xroad.xsd\"\n"
+            + "        xmlns:id=\"http://x-road.eu/xsd/identifiers\">\n"
+            + "    <SOAP-ENV:Header>\n"
+            + "        <xroad:client id:objectType=\"MEMBER\">\n"
+            + "            <id:xRoadInstance>EE</id:xRoadInstance>\n"
+            + "            <id:memberClass>BUSINESS</id:memberClass>\n"
+            + "            <id:memberCode>consumer</id:memberCode>\n"
+            + "        </xroad:client>\n"
+            + "        <xroad:service id:objectType=\"SERVICE\">\n"
+            + "            <id:xRoadInstance>EE</id:xRoadInstance>\n"
+            + "            <id:memberClass>BUSINESS</id:memberClass>\n"
+            + "            <id:memberCode>producer</id:memberCode>\n"
+            + "            <id:serviceCode>testQuery</id:serviceCode>\n"
+            + "        </xroad:service>\n"
+            + "        <xroad:id>1234567890</xroad:id>\n"
+            + "        <xroad:protocolVersion>4.0</xroad:protocolVersion>\n"
+            + "    </SOAP-ENV:Header>\n"
+            + "    <SOAP-ENV:Body>\n"
+            + "        <ns1:testQuery xmlns:ns1=\"http://consumer.ee.xroad.net\">\n";
+    private static final String ENVELOPE_END = "        </ns1:testQuery>\n"
+            + "    </SOAP-ENV:Body>\n"
+            + "</SOAP-ENV:Envelope>\n";
+    private static final String ITEM = "            <item type=\"entry\"><name>foo &amp; bar</name><age>35</age></item>\n";
+
+    @Param({"1024", "102400", "10485760"})
+    public int envelopeSize;
+
+    @Param({"true", "false"})
+    public boolean pooled;
+
+    private byte[] envelope;
+    private SoapParser parser;
+    private SoapParser processedXmlParser;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        StringBuilder xml = new StringBuilder(envelopeSize + ITEM.length()).append(ENVELOPE_START);
+        while (xml.length() + ENVELOPE_END.length() < envelopeSize) {
+            xml.append(ITEM);
+        }
+        envelope = xml.append(ENVELOPE_END).toString().getBytes(StandardCharsets.UTF_8);
+
+        parser = new SaxSoapParserImpl(pooled);
+        processedXmlParser = new SaxSoapParserImpl(pooled) {
+            @Override
+            protected boolean isProcessedXmlRequired() {
+                return true;
+            }
+        };
+    }
+
+    @Benchmark
+    public Soap parse() {
+        return parser.parse(MimeTypes.TEXT_XML_UTF8, new ByteArrayInputStream(envelope));
+    }
+
+    @Benchmark
+    public Soap parseWithProcessedXml() {
+        return processedXmlParser.parse(MimeTypes.TEXT_XML_UTF8, new ByteArrayInputStream(envelope));
+    }
+}
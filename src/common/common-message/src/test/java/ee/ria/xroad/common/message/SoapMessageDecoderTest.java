@@ -0,0 +1,124 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.message;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static ee.ria.xroad.common.message.SoapMessageTestUtil.fileToBytes;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SoapMessageDecoderTest {
+    private static final String BOUNDARY = "testBoundary";
+    private static final String MULTIPART_CONTENT_TYPE = "multipart/related; type=\"text/xml\"; charset=UTF-8; boundary="
+            + BOUNDARY;
+    private static final String TEXT_XML_CONTENT_TYPE = "text/xml; charset=UTF-8";
+
+    @Test
+    void parseReadsWholeMultipartMessage() throws Exception {
+        List<String> events = new ArrayList<>();
+
+        new SoapMessageDecoder(MULTIPART_CONTENT_TYPE, new RecordingCallback(events)).parse(multipartMessage());
+
+        assertEquals(List.of("soap", "attachment application/octet-stream: first", "attachment text/plain: second",
+                "completed"), events);
+    }
+
+    @Test
+    void parseSoapStopsBeforeAttachments() throws Exception {
+        List<String> events = new ArrayList<>();
+        SoapMessageDecoder decoder = new SoapMessageDecoder(MULTIPART_CONTENT_TYPE, new RecordingCallback(events));
+
+        decoder.parseSoap(multipartMessage());
+
+        assertEquals(List.of("soap"), events);
+
+        decoder.parseAttachments();
+
+        assertEquals(List.of("soap", "attachment application/octet-stream: first", "attachment text/plain: second",
+                "completed"), events);
+    }
+
+    @Test
+    void parseAttachmentsCompletesSoapMessage() throws Exception {
+        List<String> events = new ArrayList<>();
+        SoapMessageDecoder decoder = new SoapMessageDecoder(TEXT_XML_CONTENT_TYPE, new RecordingCallback(events));
+
+        decoder.parseSoap(new ByteArrayInputStream(fileToBytes("simple.query")));
+        decoder.parseAttachments();
+
+        assertEquals(List.of("soap", "completed"), events);
+    }
+
+    private static InputStream multipartMessage() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(("--" + BOUNDARY + "\r\nContent-Type: " + TEXT_XML_CONTENT_TYPE + "\r\n\r\n")
+                .getBytes(StandardCharsets.UTF_8));
+        out.write(fileToBytes("simple.query"));
+        out.write(("\r\n--" + BOUNDARY + "\r\nContent-Type: application/octet-stream\r\n\r\nfirst"
+                + "\r\n--" + BOUNDARY + "\r\nContent-Type: text/plain\r\n\r\nsecond"
+                + "\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+
+    private record RecordingCallback(List<String> events) implements SoapMessageDecoder.Callback {
+
+        @Override
+        public void soap(SoapMessage message, Map<String, String> additionalHeaders) {
+            events.add("soap");
+        }
+
+        @Override
+        public void attachment(String contentType, InputStream content, Map<String, String> additionalHeaders)
+                throws IOException {
+            events.add("attachment " + contentType + ": " + IOUtils.toString(content, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void fault(SoapFault fault) {
+            events.add("fault");
+        }
+
+        @Override
+        public void onCompleted() {
+            events.add("completed");
+        }
+
+        @Override
+        public void onError(Exception t) throws Exception {
+            throw t;
+        }
+    }
+}
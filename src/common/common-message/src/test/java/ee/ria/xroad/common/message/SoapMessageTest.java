@@ -25,6 +25,7 @@
  */
 package ee.ria.xroad.common.message;
 
+import ee.ria.xroad.common.CodedException;
 import ee.ria.xroad.common.ExpectedCodedException;
 import ee.ria.xroad.common.identifier.ClientId;
 import ee.ria.xroad.common.identifier.ServiceId;
@@ -60,6 +61,7 @@ import static ee.ria.xroad.common.message.SoapMessageTestUtil.fileToBytes;
 import static ee.ria.xroad.common.message.SoapMessageTestUtil.messageToBytes;
 import static ee.ria.xroad.common.message.SoapUtils.getChildElements;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -236,6 +238,32 @@ public class SoapMessageTest {
         }
     }
 
+    /**
+     * Tests that the pooled parser contexts are reused correctly, also after
+     * a message that failed to parse.
+     *
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void parseMessagesWithPooledParserContexts() throws Exception {
+        SoapParser parser = new SaxSoapParserImpl();
+
+        for (String query : List.of("simple.query", "no-header.query", "simple-rpc.query", "simple.query")) {
+            byte[] xml = fileToBytes(query);
+            try {
+                Soap message = parser.parse(MimeTypes.TEXT_XML_UTF8, new ByteArrayInputStream(xml));
+
+                assertTrue(message instanceof SoapMessageImpl);
+                assertTrue(Arrays.areEqual(xml, ((SoapMessageImpl) message).getBytes()));
+                assertEquals("1234567890", ((SoapMessageImpl) message).getQueryId());
+                assertNotEquals("no-header.query", query);
+            } catch (CodedException e) {
+                assertEquals("no-header.query", query);
+                assertEquals(X_MISSING_HEADER, e.getFaultCode());
+            }
+        }
+    }
+
     /**
      * Tests that SoapMessage class understands fault messages.
      *
@@ -1,5 +1,6 @@
 plugins {
   id("xroad.java-conventions")
+  id("xroad.jmh-conventions")
 }
 
 dependencies {
@@ -8,9 +9,9 @@ dependencies {
   implementation(project(":lib:globalconf-core"))
   implementation(project(":lib:serverconf-core"))
   implementation(project(":lib:asic-core"))
+  implementation(libs.bouncyCastle.bcpg)
 
   testImplementation(project(":common:common-test"))
-  testImplementation(libs.bouncyCastle.bcpg)
 }
 
 tasks.register<Copy>("copyGpg") {
@@ -24,3 +25,7 @@ tasks.register<Copy>("copyGpg") {
 tasks.test {
   dependsOn("copyGpg")
 }
+
+tasks.named("jmh") {
+  dependsOn("copyGpg")
+}
@@ -52,15 +52,29 @@ public final class MessageLogProperties {
 
     private static final int DEFAULT_TIMESTAMP_RECORDS_LIMIT = 10000;
 
+    private static final int DEFAULT_WRITE_BATCH_MAX_RECORDS = 1;
+
+    private static final int DEFAULT_WRITE_BATCH_MAX_DELAY_MICROS = 0;
+
+    private static final int DEFAULT_TIMESTAMP_IMMEDIATELY_BATCH_MAX_RECORDS = 1;
+
+    private static final int DEFAULT_TIMESTAMP_IMMEDIATELY_BATCH_MAX_DELAY_MICROS = 0;
+
     private static final int DEFAULT_TIMESTAMPER_CLIENT_CONNECT_TIMEOUT = 20000;
 
     private static final int DEFAULT_TIMESTAMPER_CLIENT_READ_TIMEOUT = 60000;
 
     private static final int DEFAULT_TIMESTAMP_RETRY_DELAY = 60;
 
+    private static final int DEFAULT_TIMESTAMPER_BATCHES_IN_FLIGHT = 4;
+
+    private static final int DEFAULT_TIMESTAMPER_HEDGE_PERCENTILE = 95;
+
     private static final int DEFAULT_ARCHIVE_TRANSACTION_BATCH_SIZE = 10000;
     private static final int DEFAULT_CLEAN_TRANSACTION_BATCH_SIZE = 10000;
 
+    private static final int DEFAULT_MAX_ARCHIVE_PARALLELISM = 4;
+
     private static final long DEFAULT_MAX_LOGGABLE_MESSAGE_BODY_SIZE = 10 * 1024 * 1024;
     private static final long MAX_LOGGABLE_MESSAGE_BODY_SIZE_LIMIT = 1024 * 1024 * 1024;
 
@@ -80,11 +94,43 @@ public final class MessageLogProperties {
 
     public static final String TIMESTAMP_RECORDS_LIMIT = PREFIX + "timestamp-records-limit";
 
+    /**
+     * Property name of the maximum number of immediately time-stamped message records sent in one time-stamp request.
+     */
+    public static final String TIMESTAMP_IMMEDIATELY_BATCH_MAX_RECORDS = PREFIX + "timestamp-immediately-batch-max-records";
+
+    /**
+     * Property name of the maximum time (microseconds) an immediately time-stamped message record waits for other
+     * records to be time-stamped with.
+     */
+    public static final String TIMESTAMP_IMMEDIATELY_BATCH_MAX_DELAY = PREFIX + "timestamp-immediately-batch-max-delay";
+
+    /**
+     * Property name of the maximum number of message records written to the database in one transaction.
+     */
+    public static final String WRITE_BATCH_MAX_RECORDS = PREFIX + "write-batch-max-records";
+
+    /**
+     * Property name of the maximum time (microseconds) a message record waits for other records to be written with.
+     */
+    public static final String WRITE_BATCH_MAX_DELAY = PREFIX + "write-batch-max-delay";
+
     /**
      * Property name of the timestamp retry delay (seconds).
      */
     public static final String TIMESTAMP_RETRY_DELAY = PREFIX + "timestamp-retry-delay";
 
+    /**
+     * Property name of the maximum number of batches that are time-stamped concurrently.
+     */
+    public static final String TIMESTAMPER_BATCHES_IN_FLIGHT = PREFIX + "timestamper-batches-in-flight";
+
+    /**
+     * Property name of the latency percentile of a time-stamping provider after which the request is also sent to
+     * the next provider.
+     */
+    public static final String TIMESTAMPER_HEDGE_PERCENTILE = PREFIX + "timestamper-hedge-percentile";
+
     public static final String ACCEPTABLE_TIMESTAMP_FAILURE_PERIOD = PREFIX + "acceptable-timestamp-failure-period";
 
     public static final String KEEP_RECORDS_FOR = PREFIX + "keep-records-for";
@@ -97,6 +143,8 @@ public final class MessageLogProperties {
 
     public static final String ARCHIVE_TRANSACTION_BATCH = PREFIX + "archive-transaction-batch";
 
+    public static final String ARCHIVE_PARALLELISM = PREFIX + "archive-parallelism";
+
     public static final String CLEAN_INTERVAL = PREFIX + "clean-interval";
 
     private static final String CLEAN_TRANSACTION_BATCH = "clean-transaction-batch";
@@ -111,6 +159,12 @@ public final class MessageLogProperties {
      **/
     public static final String ARCHIVE_GROUPING = PREFIX + "archive-grouping";
 
+    /**
+     * Time range of logrecord table partitions, one of
+     * none, daily, weekly
+     **/
+    public static final String PARTITION_INTERVAL = PREFIX + "partition-interval";
+
     /**
      * Property name for toggling SOAP body logging on/off
      *
@@ -156,6 +210,8 @@ public final class MessageLogProperties {
 
     public static final String ARCHIVE_ENCRYPTION_ENABLED = PREFIX + "archive-encryption-enabled";
 
+    public static final String ARCHIVE_ENCRYPTION_GPG_PROCESS = PREFIX + "archive-encryption-gpg-process";
+
     public static final String ARCHIVE_GPG_HOME_DIRECTORY = PREFIX + "archive-gpg-home-directory";
 
     public static final String ARCHIVE_ENCRYPTION_KEYS_CONFIG = PREFIX + "archive-encryption-keys-config";
@@ -207,6 +263,23 @@ public final class MessageLogProperties {
                 DEFAULT_TIMESTAMP_RETRY_DELAY);
     }
 
+    /**
+     * @return the maximum number of batches that the periodic time-stamping sends to time-stamping providers
+     * concurrently, '4' by default.
+     */
+    public static int getTimestamperBatchesInFlight() {
+        return Math.max(1, getInt(System.getProperty(TIMESTAMPER_BATCHES_IN_FLIGHT), DEFAULT_TIMESTAMPER_BATCHES_IN_FLIGHT));
+    }
+
+    /**
+     * @return the latency percentile of a time-stamping provider after which the time-stamp request is also sent to
+     * the next provider, '95' by default. Zero disables hedging, the next provider is then only tried when the
+     * previous one fails.
+     */
+    public static int getTimestamperHedgePercentile() {
+        return getInt(System.getProperty(TIMESTAMPER_HEDGE_PERCENTILE), DEFAULT_TIMESTAMPER_HEDGE_PERCENTILE);
+    }
+
     /**
      * @return true if the time-stamp is created synchronously for each request message. This is a security policy to
      * guarantee the time-stamp at the time of logging the message.
@@ -222,6 +295,22 @@ public final class MessageLogProperties {
         return getInt(System.getProperty(TIMESTAMP_RECORDS_LIMIT), DEFAULT_TIMESTAMP_RECORDS_LIMIT);
     }
 
+    /**
+     * @return the maximum number of immediately time-stamped message records sent in one time-stamp request,
+     * 1 (the default) disables grouping of concurrently logged records.
+     */
+    public static int getTimestampImmediatelyBatchMaxRecords() {
+        return getInt(System.getProperty(TIMESTAMP_IMMEDIATELY_BATCH_MAX_RECORDS), DEFAULT_TIMESTAMP_IMMEDIATELY_BATCH_MAX_RECORDS);
+    }
+
+    /**
+     * @return the maximum time in microseconds an immediately time-stamped message record waits for other records
+     * to be time-stamped in the same request.
+     */
+    public static int getTimestampImmediatelyBatchMaxDelay() {
+        return getInt(System.getProperty(TIMESTAMP_IMMEDIATELY_BATCH_MAX_DELAY), DEFAULT_TIMESTAMP_IMMEDIATELY_BATCH_MAX_DELAY_MICROS);
+    }
+
     /**
      * @return the time period in seconds, how long is time-stamping allowed to be failed before message log stops
      * accepting any more messages.
@@ -238,6 +327,22 @@ public final class MessageLogProperties {
         return System.getProperty(ARCHIVE_INTERVAL, "0 0 0/6 1/1 * ? *");
     }
 
+    /**
+     * @return the maximum number of message records written to the database in one transaction,
+     * 1 (the default) disables grouping of concurrently logged records.
+     */
+    public static int getWriteBatchMaxRecords() {
+        return getInt(System.getProperty(WRITE_BATCH_MAX_RECORDS), DEFAULT_WRITE_BATCH_MAX_RECORDS);
+    }
+
+    /**
+     * @return the maximum time in microseconds a message record waits for other records to be written
+     * in the same transaction.
+     */
+    public static int getWriteBatchMaxDelay() {
+        return getInt(System.getProperty(WRITE_BATCH_MAX_DELAY), DEFAULT_WRITE_BATCH_MAX_DELAY_MICROS);
+    }
+
     /**
      * @return number of archived item in one transaction.
      */
@@ -245,6 +350,15 @@ public final class MessageLogProperties {
         return getInt(System.getProperty(ARCHIVE_TRANSACTION_BATCH), DEFAULT_ARCHIVE_TRANSACTION_BATCH_SIZE);
     }
 
+    /**
+     * @return the maximum number of archive groups archived in parallel when archive grouping is used,
+     * by default the number of processors but at most 4.
+     */
+    public static int getArchiveParallelism() {
+        return getInt(System.getProperty(ARCHIVE_PARALLELISM),
+                Math.min(Runtime.getRuntime().availableProcessors(), DEFAULT_MAX_ARCHIVE_PARALLELISM));
+    }
+
     /**
      * @return the time interval as Cron expression for cleaning archived records from online database.
      */
@@ -294,6 +408,15 @@ public final class MessageLogProperties {
                 System.getProperty(ARCHIVE_GROUPING, GroupingStrategy.NONE.name()).toUpperCase());
     }
 
+    /**
+     * @return the time range of logrecord table partitions created by the archiver, {@link PartitionInterval#NONE}
+     * if the table is not partitioned and archived records are deleted row by row.
+     */
+    public static PartitionInterval getPartitionInterval() {
+        return PartitionInterval.valueOf(
+                System.getProperty(PARTITION_INTERVAL, PartitionInterval.NONE.name()).toUpperCase());
+    }
+
     private static int getInt(String value, int defaultValue) {
         try {
             return Integer.parseInt(value);
@@ -358,6 +481,13 @@ public final class MessageLogProperties {
         return Boolean.getBoolean(ARCHIVE_ENCRYPTION_ENABLED);
     }
 
+    /**
+     * @return true if archives are encrypted by an external gpg process instead of in-process, false by default.
+     */
+    public static boolean isArchiveEncryptionGpgProcess() {
+        return Boolean.getBoolean(ARCHIVE_ENCRYPTION_GPG_PROCESS);
+    }
+
     public static Path getArchiveGPGHome() {
         return Paths.get(System.getProperty(ARCHIVE_GPG_HOME_DIRECTORY, "/etc/xroad/gpghome"));
     }
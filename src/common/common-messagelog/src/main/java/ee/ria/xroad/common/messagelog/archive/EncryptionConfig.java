@@ -26,10 +26,14 @@
  */
 package ee.ria.xroad.common.messagelog.archive;
 
+import ee.ria.xroad.common.messagelog.MessageLogProperties;
+
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Path;
 import java.util.Collections;
 import java.util.List;
@@ -46,4 +50,17 @@ public class EncryptionConfig {
 
     static final EncryptionConfig DISABLED = new EncryptionConfig(false, null,
             Collections.emptySet(), Collections.emptyList());
+
+    /**
+     * Opens a stream that signs and encrypts data to the output file with the keys of this configuration.
+     * @param output Path to the output file, overwritten if present.
+     * @return in-process OpenPGP stream, or a stream piping to a gpg process if configured
+     * @throws IOException if setting up the encryption fails
+     */
+    public OutputStream createEncryptionStream(Path output) throws IOException {
+        if (MessageLogProperties.isArchiveEncryptionGpgProcess()) {
+            return new GPGOutputStream(gpgHomeDir, output, encryptionKeys);
+        }
+        return new OpenPGPOutputStream(gpgHomeDir, output, encryptionKeys);
+    }
 }
@@ -0,0 +1,293 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.messagelog.archive;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.bcpg.sig.KeyFlags;
+import org.bouncycastle.gpg.SExprParser;
+import org.bouncycastle.gpg.keybox.KeyBlob;
+import org.bouncycastle.gpg.keybox.PublicKeyRingBlob;
+import org.bouncycastle.gpg.keybox.bc.BcKeyBox;
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPPrivateKey;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.openpgp.PGPPublicKeyRing;
+import org.bouncycastle.openpgp.PGPPublicKeyRingCollection;
+import org.bouncycastle.openpgp.PGPSecretKey;
+import org.bouncycastle.openpgp.PGPSignature;
+import org.bouncycastle.openpgp.operator.bc.BcKeyFingerprintCalculator;
+import org.bouncycastle.openpgp.operator.bc.BcPGPDigestCalculatorProvider;
+import org.bouncycastle.util.encoders.Hex;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.StreamSupport;
+
+/**
+ * Read-only view of a GnuPG home directory: public keys from the keybox (pubring.kbx) or the legacy
+ * keyring (pubring.gpg) and unprotected secret keys from private-keys-v1.d.
+ * <p>
+ * Key selection follows gpg: the first key with a secret key is the default (signing) key, and the newest
+ * usable subkey is preferred over the primary key.
+ */
+@Slf4j
+final class GPGKeyRing {
+
+    private static final Map<Path, GPGKeyRing> CACHE = new ConcurrentHashMap<>();
+    private static final int ENCRYPTION_FLAGS = KeyFlags.ENCRYPT_COMMS | KeyFlags.ENCRYPT_STORAGE;
+    private static final int MIN_KEY_ID_LENGTH = 8;
+
+    private final List<FileTime> modified;
+    private final List<PGPPublicKeyRing> publicKeyRings;
+    // secret keys by public key material, secret key files do not contain the key creation time and id
+    private final Map<ByteBuffer, PGPSecretKey> secretKeys;
+    private volatile SigningKey signingKey;
+
+    record SigningKey(PGPPublicKey publicKey, PGPPrivateKey privateKey) {
+    }
+
+    private GPGKeyRing(List<FileTime> modified, List<PGPPublicKeyRing> publicKeyRings,
+                       Map<ByteBuffer, PGPSecretKey> secretKeys) {
+        this.modified = modified;
+        this.publicKeyRings = publicKeyRings;
+        this.secretKeys = secretKeys;
+    }
+
+    /**
+     * Returns the keys in the GnuPG home directory, the keys are read again if the keyring files have changed.
+     */
+    static GPGKeyRing get(Path gpgHome) throws IOException {
+        final List<FileTime> current = getModified(gpgHome);
+        try {
+            return CACHE.compute(gpgHome.toAbsolutePath(), (home, cached) -> {
+                if (cached != null && cached.modified.equals(current)) {
+                    return cached;
+                }
+                try {
+                    return load(home, current);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Returns the signing key of the default key, the first key with a secret key.
+     */
+    SigningKey getSigningKey() throws IOException {
+        if (signingKey == null) {
+            signingKey = findSigningKey();
+        }
+        return signingKey;
+    }
+
+    private SigningKey findSigningKey() throws IOException {
+        for (PGPPublicKeyRing ring : publicKeyRings) {
+            if (!secretKeys.containsKey(keyMaterial(ring.getPublicKey()))) {
+                continue;
+            }
+            Optional<PGPPublicKey> key = selectKey(ring, KeyFlags.SIGN_DATA, true);
+            if (key.isPresent()) {
+                return new SigningKey(key.get(), extractPrivateKey(key.get()));
+            }
+        }
+        throw new IOException("No usable secret key for signing");
+    }
+
+    /**
+     * Returns the encryption key of the default key (gpg --default-recipient-self).
+     */
+    PGPPublicKey getDefaultEncryptionKey() throws IOException {
+        final long defaultKeyId = getSigningKey().publicKey().getKeyID();
+        for (PGPPublicKeyRing ring : publicKeyRings) {
+            if (ring.getPublicKey(defaultKeyId) != null) {
+                return selectKey(ring, ENCRYPTION_FLAGS, false)
+                        .orElseThrow(() -> new IOException("No usable encryption key for the default key"));
+            }
+        }
+        throw new IOException("No usable encryption key for the default key");
+    }
+
+    /**
+     * Returns the encryption key for a recipient given as a key id or fingerprint (hex) or as a user id,
+     * "=user id" for an exact match or otherwise a case-insensitive substring of the user id.
+     */
+    PGPPublicKey getEncryptionKey(String recipient) throws IOException {
+        for (PGPPublicKeyRing ring : publicKeyRings) {
+            if (matches(ring, recipient.trim())) {
+                Optional<PGPPublicKey> key = selectKey(ring, ENCRYPTION_FLAGS, false);
+                if (key.isPresent()) {
+                    return key.get();
+                }
+            }
+        }
+        throw new IOException("No usable public key for recipient " + recipient);
+    }
+
+    private PGPPrivateKey extractPrivateKey(PGPPublicKey publicKey) throws IOException {
+        try {
+            final PGPPrivateKey parsed = secretKeys.get(keyMaterial(publicKey)).extractPrivateKey(null);
+            // the parsed key has no key id, use the id of the public key so that signatures refer to it
+            return new PGPPrivateKey(publicKey.getKeyID(), publicKey.getPublicKeyPacket(),
+                    parsed.getPrivateKeyDataPacket());
+        } catch (PGPException e) {
+            throw new IOException("Failed to read secret key " + Long.toHexString(publicKey.getKeyID()), e);
+        }
+    }
+
+    private Optional<PGPPublicKey> selectKey(PGPPublicKeyRing ring, int usage, boolean secretRequired) {
+        if (!isValid(ring.getPublicKey())) {
+            return Optional.empty();
+        }
+        return StreamSupport.stream(ring.spliterator(), false)
+                .filter(key -> isUsable(key, usage))
+                .filter(key -> !secretRequired || secretKeys.containsKey(keyMaterial(key)))
+                .max(Comparator.comparing((PGPPublicKey key) -> !key.isMasterKey())
+                        .thenComparing(PGPPublicKey::getCreationTime));
+    }
+
+    private static boolean isUsable(PGPPublicKey key, int usage) {
+        if (!isValid(key)) {
+            return false;
+        }
+        final int flags = getKeyFlags(key);
+        if (flags < 0) {
+            return usage == KeyFlags.SIGN_DATA ? key.isMasterKey() : key.isEncryptionKey();
+        }
+        return (flags & usage) != 0;
+    }
+
+    private static boolean isValid(PGPPublicKey key) {
+        final long validSeconds = key.getValidSeconds();
+        return !key.hasRevocation() && (validSeconds <= 0
+                || key.getCreationTime().toInstant().plusSeconds(validSeconds).isAfter(Instant.now()));
+    }
+
+    /**
+     * Returns the key flags of the newest self-signature or subkey binding signature, -1 if not present.
+     */
+    private static int getKeyFlags(PGPPublicKey key) {
+        int flags = -1;
+        Instant newest = Instant.MIN;
+        for (Iterator<PGPSignature> it = key.getSignatures(); it.hasNext(); ) {
+            final PGPSignature signature = it.next();
+            if (signature.getHashedSubPackets() != null && signature.getHashedSubPackets().getKeyFlags() != 0
+                    && signature.getCreationTime().toInstant().isAfter(newest)) {
+                flags = signature.getHashedSubPackets().getKeyFlags();
+                newest = signature.getCreationTime().toInstant();
+            }
+        }
+        return flags;
+    }
+
+    private static boolean matches(PGPPublicKeyRing ring, String recipient) {
+        final String hex = recipient.startsWith("0x") ? recipient.substring(2) : recipient;
+        if (hex.length() >= MIN_KEY_ID_LENGTH && hex.chars().allMatch(HexFormat::isHexDigit)) {
+            return StreamSupport.stream(ring.spliterator(), false)
+                    .anyMatch(key -> Hex.toHexString(key.getFingerprint()).endsWith(hex.toLowerCase(Locale.ROOT)));
+        }
+        for (Iterator<String> it = ring.getPublicKey().getUserIDs(); it.hasNext(); ) {
+            final String userId = it.next();
+            if (recipient.startsWith("=") ? userId.equals(recipient.substring(1))
+                    : userId.toLowerCase(Locale.ROOT).contains(recipient.toLowerCase(Locale.ROOT))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static ByteBuffer keyMaterial(PGPPublicKey key) {
+        return ByteBuffer.wrap(key.getPublicKeyPacket().getKey().getEncoded());
+    }
+
+    private static List<FileTime> getModified(Path gpgHome) throws IOException {
+        final List<FileTime> modified = new ArrayList<>();
+        for (String name : new String[]{"pubring.kbx", "pubring.gpg", "private-keys-v1.d"}) {
+            final Path path = gpgHome.resolve(name);
+            modified.add(Files.exists(path) ? Files.getLastModifiedTime(path) : FileTime.fromMillis(0));
+        }
+        return modified;
+    }
+
+    private static GPGKeyRing load(Path gpgHome, List<FileTime> modified) throws IOException {
+        final List<PGPPublicKeyRing> publicKeyRings = new ArrayList<>();
+        final Path keyBox = gpgHome.resolve("pubring.kbx");
+        if (Files.exists(keyBox)) {
+            try (InputStream in = Files.newInputStream(keyBox)) {
+                for (KeyBlob blob : new BcKeyBox(in).getKeyBlobs()) {
+                    if (blob instanceof PublicKeyRingBlob publicKeyRingBlob) {
+                        publicKeyRings.add(publicKeyRingBlob.getPGPPublicKeyRing());
+                    }
+                }
+            }
+        } else {
+            try (InputStream in = Files.newInputStream(gpgHome.resolve("pubring.gpg"))) {
+                new PGPPublicKeyRingCollection(in, new BcKeyFingerprintCalculator()).forEach(publicKeyRings::add);
+            } catch (PGPException e) {
+                throw new IOException("Failed to read public keyring in " + gpgHome, e);
+            }
+        }
+
+        final Map<ByteBuffer, PGPSecretKey> secretKeys = new HashMap<>();
+        final Path privateKeys = gpgHome.resolve("private-keys-v1.d");
+        if (Files.isDirectory(privateKeys)) {
+            final SExprParser parser = new SExprParser(new BcPGPDigestCalculatorProvider());
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(privateKeys, "*.key")) {
+                for (Path file : files) {
+                    try (InputStream in = Files.newInputStream(file)) {
+                        final PGPSecretKey secretKey = parser.parseSecretKey(in, null, new BcKeyFingerprintCalculator());
+                        secretKeys.put(keyMaterial(secretKey.getPublicKey()), secretKey);
+                    } catch (PGPException | IOException | RuntimeException e) {
+                        // e.g. passphrase protected keys
+                        log.warn("Skipping unreadable secret key {}: {}", file.getFileName(), e.getMessage());
+                    }
+                }
+            }
+        }
+        log.debug("Loaded {} public keys and {} secret keys from {}", publicKeyRings.size(), secretKeys.size(), gpgHome);
+        return new GPGKeyRing(modified, List.copyOf(publicKeyRings), secretKeys);
+    }
+}
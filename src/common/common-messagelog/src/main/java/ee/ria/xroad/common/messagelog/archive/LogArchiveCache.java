@@ -219,8 +219,7 @@ class LogArchiveCache implements Closeable {
         deleteArchiveArtifacts(null);
         archiveTmpFile = Files.createTempFile(workingDir, "tmp-mlog-", ".tmp");
         if (encryptionConfig.isEnabled()) {
-            outputStream = new GPGOutputStream(encryptionConfig.getGpgHomeDir(), archiveTmpFile,
-                    encryptionConfig.getEncryptionKeys());
+            outputStream = encryptionConfig.createEncryptionStream(archiveTmpFile);
         } else {
             outputStream = Files.newOutputStream(archiveTmpFile);
         }
@@ -0,0 +1,149 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.messagelog.archive;
+
+import org.bouncycastle.bcpg.HashAlgorithmTags;
+import org.bouncycastle.bcpg.SymmetricKeyAlgorithmTags;
+import org.bouncycastle.openpgp.PGPEncryptedDataGenerator;
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPLiteralData;
+import org.bouncycastle.openpgp.PGPLiteralDataGenerator;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.openpgp.PGPSignature;
+import org.bouncycastle.openpgp.PGPSignatureGenerator;
+import org.bouncycastle.openpgp.PGPSignatureSubpacketGenerator;
+import org.bouncycastle.openpgp.operator.jcajce.JcaPGPContentSignerBuilder;
+import org.bouncycastle.openpgp.operator.jcajce.JcePGPDataEncryptorBuilder;
+import org.bouncycastle.openpgp.operator.jcajce.JcePublicKeyKeyEncryptionMethodGenerator;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Outputstream that signs and encrypts output in-process using keys from a GnuPG home directory.
+ * The output is equivalent to the one of {@link GPGOutputStream} (AES-256 with integrity protection, SHA-256
+ * signature, no compression) and can be decrypted and verified with gpg.
+ */
+public class OpenPGPOutputStream extends FilterOutputStream {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final OutputStream fileOut;
+    private final OutputStream encryptedOut;
+    private final PGPSignatureGenerator signatureGenerator;
+
+    private boolean closed = false;
+
+    /**
+     * Constructs a stream that signs and encrypts data to the output file.
+     * @param gpgHome GnuPG home directory containing the secret key for signing.
+     * @param output Path to the output file, overwritten if present.
+     * @param encryptionKeys Zero or more encryption (recipient) key identifiers, the signing key is used if none
+     * @throws IOException if a key is not found or setting up the encryption fails
+     */
+    public OpenPGPOutputStream(Path gpgHome, Path output, Set<String> encryptionKeys) throws IOException {
+        super(null);
+        final GPGKeyRing keyRing = GPGKeyRing.get(gpgHome);
+        final GPGKeyRing.SigningKey signingKey = keyRing.getSigningKey();
+
+        final List<PGPPublicKey> recipients = new ArrayList<>();
+        if (encryptionKeys == null || encryptionKeys.isEmpty()) {
+            recipients.add(keyRing.getDefaultEncryptionKey());
+        } else {
+            for (String key : encryptionKeys) {
+                recipients.add(keyRing.getEncryptionKey(key));
+            }
+        }
+
+        final PGPEncryptedDataGenerator encryptedDataGenerator = new PGPEncryptedDataGenerator(
+                new JcePGPDataEncryptorBuilder(SymmetricKeyAlgorithmTags.AES_256)
+                        .setWithIntegrityPacket(true)
+                        .setSecureRandom(RANDOM));
+        recipients.forEach(key -> encryptedDataGenerator.addMethod(
+                new JcePublicKeyKeyEncryptionMethodGenerator(key).setSecureRandom(RANDOM)));
+
+        fileOut = new BufferedOutputStream(Files.newOutputStream(output), BUFFER_SIZE);
+        try {
+            encryptedOut = encryptedDataGenerator.open(fileOut, new byte[BUFFER_SIZE]);
+
+            signatureGenerator = new PGPSignatureGenerator(new JcaPGPContentSignerBuilder(
+                    signingKey.publicKey().getAlgorithm(), HashAlgorithmTags.SHA256), signingKey.publicKey());
+            signatureGenerator.init(PGPSignature.BINARY_DOCUMENT, signingKey.privateKey());
+            final PGPSignatureSubpacketGenerator hashed = new PGPSignatureSubpacketGenerator();
+            hashed.setSignatureCreationTime(false, new Date());
+            hashed.setIssuerFingerprint(false, signingKey.publicKey());
+            signatureGenerator.setHashedSubpackets(hashed.generate());
+            signatureGenerator.generateOnePassVersion(false).encode(encryptedOut);
+
+            out = new PGPLiteralDataGenerator().open(encryptedOut, PGPLiteralData.BINARY, "", new Date(),
+                    new byte[BUFFER_SIZE]);
+        } catch (PGPException | IOException e) {
+            fileOut.close();
+            throw new IOException("Setting up encryption failed", e);
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        signatureGenerator.update((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        signatureGenerator.update(b, off, len);
+    }
+
+    /**
+     * Finishes the literal data, writes the signature and closes the output file.
+     * @throws IOException if writing the signature or closing the file fails
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try (OutputStream file = fileOut) {
+            out.close();
+            signatureGenerator.generate().encode(encryptedOut);
+            encryptedOut.close();
+        } catch (PGPException e) {
+            throw new IOException("Signing failed", e);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.messagelog.archive;
+
+import org.bouncycastle.bcpg.BCPGInputStream;
+import org.bouncycastle.bcpg.PacketTags;
+import org.bouncycastle.bcpg.PublicKeyEncSessionPacket;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class OpenPGPOutputStreamTest {
+    private static final Path GPG_HOME = Paths.get("build/gpg");
+    private static final Set<String> KEYS = Collections.singleton("AAAA");
+    // fingerprint of the public key without a secret key
+    private static final Set<String> RECIPIENT = Collections.singleton("B23B8E993AC4632A896D39A27BE94D3451C16D33");
+
+    @Test(expected = IOException.class)
+    public void shouldFailIfInvalidRecipient() throws IOException {
+        final Path path = Files.createTempFile(null, null);
+        try (OpenPGPOutputStream pgpStream = new OpenPGPOutputStream(GPG_HOME, path, KEYS)) {
+            pgpStream.write(42);
+        }
+    }
+
+    @Test
+    public void shouldEncryptForRecipient() throws IOException {
+        final Path path = Files.createTempFile(null, null);
+        try (OpenPGPOutputStream pgpStream = new OpenPGPOutputStream(GPG_HOME, path, RECIPIENT)) {
+            pgpStream.write(42);
+        }
+
+        try (BCPGInputStream is = new BCPGInputStream(Files.newInputStream(path))) {
+            assertEquals(PacketTags.PUBLIC_KEY_ENC_SESSION, is.nextPacketTag());
+            final PublicKeyEncSessionPacket packet = (PublicKeyEncSessionPacket) is.readPacket();
+            assertEquals(0xcb2bb7fde39390e1L, packet.getKeyID());
+            assertEquals(PacketTags.SYM_ENC_INTEGRITY_PRO, is.nextPacketTag());
+        }
+    }
+
+    @Test
+    public void shouldBeDecryptedAndVerifiedByGpg() throws IOException {
+        Assume.assumeTrue(Files.isExecutable(Paths.get("/usr/bin/gpg")));
+
+        final byte[] data = new byte[200_000];
+        new Random(42).nextBytes(data);
+        final Path path = Files.createTempFile(null, null);
+        try (OpenPGPOutputStream pgpStream = new OpenPGPOutputStream(GPG_HOME, path, null /* self as recipient */)) {
+            pgpStream.write(data, 0, 1000);
+            pgpStream.write(data[1000]);
+            pgpStream.write(data, 1001, data.length - 1001);
+        }
+
+        final GPGInputStream is = new GPGInputStream(GPG_HOME, path);
+        try (is) {
+            assertArrayEquals(data, is.readAllBytes());
+        }
+        assertNotNull(is.getStatus());
+        assertTrue(is.getStatus().toString(), is.getStatus().stream().anyMatch(s -> s.startsWith("[GNUPG:] GOODSIG")));
+    }
+}
@@ -140,18 +140,37 @@ public final class RpcClient<C extends RpcClient.ExecutionContext> {
         try {
             return grpcCall.exec(executionContext);
         } catch (StatusRuntimeException error) {
-            if (error.getStatus().getCode() == Status.Code.DEADLINE_EXCEEDED) {
-                throw XrdRuntimeException.systemException(NETWORK_ERROR)
-                        .origin(ErrorOrigin.SIGNER)
-                        .details("gRPC client timed out. Deadline: %s ms".formatted(rpcDeadlineMillis))
-                        .build();
-            }
-            com.google.rpc.Status status = io.grpc.protobuf.StatusProto.fromThrowable(error);
-            if (status != null) {
+            throw translateError(error);
+        }
+    }
+
+    /**
+     * Translates an error received from a gRPC call into the same exception {@link #execute(RpcExecution)} would throw.
+     * Intended for asynchronous calls, where the error is delivered to a stream observer instead of being thrown.
+     *
+     * @param error error received from the gRPC call
+     * @return translated exception
+     */
+    public RuntimeException translateError(Throwable error) {
+        if (!(error instanceof StatusRuntimeException statusError)) {
+            return error instanceof RuntimeException runtimeException
+                    ? runtimeException : XrdRuntimeException.systemException(error);
+        }
+        if (statusError.getStatus().getCode() == Status.Code.DEADLINE_EXCEEDED) {
+            return XrdRuntimeException.systemException(NETWORK_ERROR)
+                    .origin(ErrorOrigin.SIGNER)
+                    .details("gRPC client timed out. Deadline: %s ms".formatted(rpcDeadlineMillis))
+                    .build();
+        }
+        com.google.rpc.Status status = io.grpc.protobuf.StatusProto.fromThrowable(statusError);
+        if (status != null) {
+            try {
                 handleGenericStatusRuntimeException(status);
+            } catch (XrdRuntimeException translated) {
+                return translated;
             }
-            throw error;
         }
+        return statusError;
     }
 
     private void handleGenericStatusRuntimeException(com.google.rpc.Status status) {
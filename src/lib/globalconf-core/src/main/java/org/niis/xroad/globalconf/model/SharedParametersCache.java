@@ -30,6 +30,8 @@ import ee.ria.xroad.common.identifier.ClientId;
 import ee.ria.xroad.common.identifier.SecurityServerId;
 import ee.ria.xroad.common.util.CryptoUtils;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import lombok.Getter;
 import lombok.NonNull;
 import org.apache.commons.lang3.StringUtils;
@@ -37,6 +39,7 @@ import org.bouncycastle.asn1.x500.X500Name;
 import org.bouncycastle.cert.X509CertificateHolder;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
@@ -51,6 +54,9 @@ import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 @Getter
 public class SharedParametersCache {
+    // CA certificates are shared between configuration versions and instances, they are released when not referenced
+    private static final Cache<ByteBuffer, X509Certificate> CA_CERTS = CacheBuilder.newBuilder().weakValues().build();
+
     private final SharedParameters sharedParameters;
 
     // Utility maps of existing data to speed up searches, filled at conf initialization
@@ -82,8 +88,6 @@ public class SharedParametersCache {
 
 
     private void cacheCaCerts() throws CertificateEncodingException, IOException {
-        List<X509Certificate> allCaCerts = new ArrayList<>();
-
         for (SharedParameters.ApprovedCA ca : sharedParameters.getApprovedCAs()) {
             List<SharedParameters.CaInfo> topCAs = List.of(ca.getTopCA());
             List<SharedParameters.CaInfo> intermediateCAs = ca.getIntermediateCas();
@@ -105,9 +109,8 @@ public class SharedParametersCache {
                 caCertsAndCertProfiles.put(pkiCaCert, ca.getCertificateProfileInfo());
                 caCertsAndApprovedCAData.put(pkiCaCert, ca);
             }
-            allCaCerts.addAll(pkiCaCerts);
 
-            for (X509Certificate cert : allCaCerts) {
+            for (X509Certificate cert : pkiCaCerts) {
                 X509CertificateHolder certHolder =
                         new X509CertificateHolder(cert.getEncoded());
                 subjectsAndCaCerts.put(certHolder.getSubject(), cert);
@@ -117,7 +120,7 @@ public class SharedParametersCache {
 
     private void cacheOcspData(List<SharedParameters.CaInfo> typesUnderCA) {
         for (SharedParameters.CaInfo caInfo : typesUnderCA) {
-            X509Certificate cert = CryptoUtils.readCertificate(caInfo.getCert());
+            X509Certificate cert = readCaCertificate(caInfo.getCert());
             List<SharedParameters.OcspInfo> caOcspTypes = caInfo.getOcsp();
             caCertsAndOcspData.put(cert, caOcspTypes);
         }
@@ -125,10 +128,17 @@ public class SharedParametersCache {
 
     private static List<X509Certificate> getTopOrIntermediateCaCerts(List<SharedParameters.CaInfo> typesUnderCA) {
         return typesUnderCA.stream()
-                .map(c -> CryptoUtils.readCertificate(c.getCert()))
+                .map(c -> readCaCertificate(c.getCert()))
                 .toList();
     }
 
+    /**
+     * Returns the decoded certificate, reusing the already decoded instance if the same certificate is in use.
+     */
+    private static X509Certificate readCaCertificate(byte[] certBytes) {
+        return CA_CERTS.asMap().computeIfAbsent(ByteBuffer.wrap(certBytes), k -> CryptoUtils.readCertificate(certBytes));
+    }
+
     private void cacheKnownAddresses() {
         sharedParameters.getSecurityServers().stream().map(SharedParameters.SecurityServer::getAddress)
                 .filter(StringUtils::isNotBlank)
@@ -76,7 +76,7 @@ public class SharedParametersV2 extends AbstractXmlConf<SharedParametersTypeV2>
     private SharedParametersV2(SharedParametersV2 original, OffsetDateTime newExpiresOn) {
         super(original);
         expiresOn = newExpiresOn;
-        sharedParameters = converter.convert(confType);
+        sharedParameters = original.getSharedParameters();
         initCompleted = true;
     }
 
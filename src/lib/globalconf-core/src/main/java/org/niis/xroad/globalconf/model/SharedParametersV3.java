@@ -73,7 +73,7 @@ public class SharedParametersV3 extends AbstractXmlConf<SharedParametersTypeV3>
     private SharedParametersV3(SharedParametersV3 original, OffsetDateTime newExpiresOn) {
         super(original);
         expiresOn = newExpiresOn;
-        sharedParameters = converter.convert(confType);
+        sharedParameters = original.getSharedParameters();
         initCompleted = true;
     }
 
@@ -73,7 +73,7 @@ public class SharedParametersV4 extends AbstractXmlConf<SharedParametersTypeV4>
     private SharedParametersV4(SharedParametersV4 original, OffsetDateTime newExpiresOn) {
         super(original);
         expiresOn = newExpiresOn;
-        sharedParameters = converter.convert(confType);
+        sharedParameters = original.getSharedParameters();
         initCompleted = true;
     }
 
@@ -73,7 +73,7 @@ public class SharedParametersV5 extends AbstractXmlConf<SharedParametersTypeV5>
     private SharedParametersV5(SharedParametersV5 original, OffsetDateTime newExpiresOn) {
         super(original);
         expiresOn = newExpiresOn;
-        sharedParameters = converter.convert(confType);
+        sharedParameters = original.getSharedParameters();
         initCompleted = true;
     }
 
@@ -74,7 +74,7 @@ public class SharedParametersV6 extends AbstractXmlConf<SharedParametersTypeV6>
     private SharedParametersV6(SharedParametersV6 original, OffsetDateTime newExpiresOn) {
         super(original);
         expiresOn = newExpiresOn;
-        sharedParameters = converter.convert(confType);
+        sharedParameters = original.getSharedParameters();
         initCompleted = true;
     }
 
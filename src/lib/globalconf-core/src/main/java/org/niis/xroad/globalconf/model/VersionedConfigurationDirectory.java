@@ -109,6 +109,23 @@ public class VersionedConfigurationDirectory implements ConfigurationDirectory {
 
         privateParameters = Map.copyOf(loadPrivateParameters(base.privateParameters));
         sharedParameters = Map.copyOf(loadSharedParameters(base.sharedParameters));
+
+        reuseSharedParametersCaches(base);
+    }
+
+    /**
+     * Reuses the caches of the base directory for shared parameters that have not changed. The refreshed parameter
+     * providers keep the parsed parameters, so an unchanged part is recognized by the parameters instance.
+     */
+    private void reuseSharedParametersCaches(VersionedConfigurationDirectory base) {
+        base.sharedParametersCacheMap.forEach((instanceId, cache) -> {
+            boolean unchanged = sharedParameters.values().stream()
+                    .anyMatch(p -> p.getSharedParameters() == cache.getSharedParameters());
+            if (unchanged) {
+                sharedParametersCacheMap.put(instanceId, cache);
+            }
+        });
+        log.trace("Reused {} of {} SharedParametersCaches", sharedParametersCacheMap.size(), base.sharedParametersCacheMap.size());
     }
 
     /**
@@ -25,13 +25,21 @@
  */
 package org.niis.xroad.globalconf.model;
 
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.File;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -39,6 +47,9 @@ import static org.junit.Assert.assertTrue;
  */
 public class VersionedConfigurationDirectoryTest {
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     /**
      * Test to ensure a correct configuration directory is read properly.
      *
@@ -382,6 +393,35 @@ public class VersionedConfigurationDirectoryTest {
         assertTrue(dir.findShared("foo").isEmpty());
     }
 
+    /**
+     * Test to ensure that reloading reuses the parsed parameters and caches of unchanged configuration parts.
+     *
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void reloadReusesUnchangedParts() throws Exception {
+        File rootDir = temporaryFolder.newFolder();
+        FileUtils.copyDirectory(new File("src/test/resources/globalconf_good_v6"), rootDir);
+        VersionedConfigurationDirectory dir = new VersionedConfigurationDirectory(rootDir.getPath());
+        SharedParametersCache cache = dir.findSharedParametersCache("EE").orElseThrow();
+
+        VersionedConfigurationDirectory reloaded = new VersionedConfigurationDirectory(rootDir.getPath(), dir);
+
+        assertSame(dir.findShared("EE").orElseThrow(), reloaded.findShared("EE").orElseThrow());
+        assertSame(cache, reloaded.findSharedParametersCache("EE").orElseThrow());
+
+        Files.writeString(rootDir.toPath().resolve("EE/shared-params.xml"), "\n", StandardOpenOption.APPEND);
+        VersionedConfigurationDirectory changed = new VersionedConfigurationDirectory(rootDir.getPath(), reloaded);
+        SharedParametersCache changedCache = changed.findSharedParametersCache("EE").orElseThrow();
+
+        assertNotSame(cache, changedCache);
+        assertFalse(cache.getVerificationCaCerts().isEmpty());
+        assertEquals(cache.getVerificationCaCerts().size(), changedCache.getVerificationCaCerts().size());
+        for (int i = 0; i < cache.getVerificationCaCerts().size(); i++) {
+            assertSame(cache.getVerificationCaCerts().get(i), changedCache.getVerificationCaCerts().get(i));
+        }
+    }
+
     private boolean pathExists(List<Path> paths, String path) {
         return null != paths.stream()
                 .filter(p -> (p.getParent() + "/" + p.getFileName()).equals(path))
@@ -51,6 +51,7 @@ import org.niis.xroad.globalconf.GlobalConfSource;
 import org.niis.xroad.globalconf.cert.CertChain;
 import org.niis.xroad.globalconf.extension.GlobalConfExtensions;
 import org.niis.xroad.globalconf.impl.cert.CertChainFactory;
+import org.niis.xroad.globalconf.impl.cert.CertPathCache;
 import org.niis.xroad.globalconf.impl.extension.GlobalConfExtensionFactoryImpl;
 import org.niis.xroad.globalconf.model.ApprovedCAInfo;
 import org.niis.xroad.globalconf.model.GlobalConfInitException;
@@ -106,7 +107,31 @@ public class GlobalConfImpl implements GlobalConfProvider {
 
     @Override
     public void reload() {
+        List<SharedParametersCache> before = loadedSharedParametersCaches();
         globalConfSource.reload();
+        if (before == null || sharedParametersChanged(before, loadedSharedParametersCaches())) {
+            CertPathCache.invalidate();
+        }
+    }
+
+    private List<SharedParametersCache> loadedSharedParametersCaches() {
+        try {
+            return globalConfSource.getSharedParametersCaches();
+        } catch (Exception e) {
+            log.debug("Shared parameters are not loaded", e);
+            return null;
+        }
+    }
+
+    /**
+     * The configuration source reuses the cache of shared parameters that did not change on reload, so a changed
+     * part of the configuration is recognized by a new cache instance.
+     */
+    private static boolean sharedParametersChanged(List<SharedParametersCache> before, List<SharedParametersCache> after) {
+        if (after == null || before.size() != after.size()) {
+            return true;
+        }
+        return !after.stream().allMatch(cache -> before.stream().anyMatch(previous -> previous == cache));
     }
 
     // ------------------------------------------------------------------------
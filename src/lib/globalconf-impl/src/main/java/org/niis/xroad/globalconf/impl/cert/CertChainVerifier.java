@@ -78,9 +78,9 @@ public class CertChainVerifier {
     private final GlobalConfProvider globalConfProvider;
 
     /**
-     * Holds the PKIX algorithm parameters.
+     * Holds the PKIX algorithm parameters, created when the certificate path is not cached.
      */
-    private final PKIXBuilderParameters pkixParams;
+    private PKIXBuilderParameters pkixParams;
 
     /**
      * Holds the constructed certificate path.
@@ -95,6 +95,8 @@ public class CertChainVerifier {
     /**
      * Builds the certificate path for the target certificate using a list
      * of trust anchors and a list of intermediate certificates.
+     * Certificate paths that have been validated before are taken from
+     * the {@link CertPathCache}.
      *
      * @param globalConfProvider the global configuration provider
      * @param certChain          the certificate chain object
@@ -102,28 +104,6 @@ public class CertChainVerifier {
     public CertChainVerifier(GlobalConfProvider globalConfProvider, CertChain certChain) {
         this.globalConfProvider = globalConfProvider;
         this.certChain = certChain;
-
-        Set<TrustAnchor> trustAnchors =
-                createTrustAnchorSet(
-                        Arrays.asList(certChain.getTrustedRootCert()));
-
-        X509CertSelector certSelector = new X509CertSelector();
-        certSelector.setCertificate(certChain.getEndEntityCert());
-
-        try {
-            pkixParams = new PKIXBuilderParameters(trustAnchors, certSelector);
-            pkixParams.setRevocationEnabled(false);
-
-            if (!certChain.getAdditionalCerts().isEmpty()) {
-                CertStore intermediateCertStore =
-                        CertStore.getInstance("Collection",
-                                new CollectionCertStoreParameters(
-                                        certChain.getAdditionalCerts()), BOUNCY_CASTLE);
-                pkixParams.addCertStore(intermediateCertStore);
-            }
-        } catch (Exception e) {
-            throw translateWithPrefix(X_CANNOT_CREATE_CERT_PATH, e);
-        }
     }
 
     /**
@@ -169,11 +149,17 @@ public class CertChainVerifier {
     }
 
     private void verifyImpl(List<OCSPResp> ocspResponses, Date atDate) {
-        pkixParams.setDate(atDate);
+        CertPathCache.Key cacheKey = createCacheKey();
+        certPath = CertPathCache.get(cacheKey, atDate).orElse(null);
+        PKIXBuilderParameters params = certPath == null ? getPkixParams() : null;
         try {
-            certPath = buildCertPath(pkixParams);
+            if (certPath == null) {
+                params.setDate(atDate);
+                certPath = buildCertPath(params);
 
-            verifyCertPath(certPath, pkixParams);
+                verifyCertPath(certPath, params);
+                CertPathCache.put(cacheKey, certPath);
+            }
 
             if (ocspResponses != null) {
                 verifyOcspResponses(getCerts(), ocspResponses, atDate);
@@ -187,9 +173,13 @@ public class CertChainVerifier {
 
     public void verifyOcspResponses(List<OCSPResp> ocspResponses,
                                      Date atDate) {
-        pkixParams.setDate(atDate);
+        certPath = CertPathCache.get(createCacheKey(), atDate).orElse(null);
+        PKIXBuilderParameters params = certPath == null ? getPkixParams() : null;
         try {
-            certPath = buildCertPath(pkixParams);
+            if (certPath == null) {
+                params.setDate(atDate);
+                certPath = buildCertPath(params);
+            }
             verifyOcspResponses(getCerts(), ocspResponses, atDate);
         } catch (CertPathBuilderException ex) {
             throw translateWithPrefix(X_CANNOT_CREATE_CERT_PATH, ex);
@@ -216,6 +206,42 @@ public class CertChainVerifier {
         }
     }
 
+    private CertPathCache.Key createCacheKey() {
+        try {
+            return CertPathCache.key(certChain);
+        } catch (Exception e) {
+            throw translateWithPrefix(X_INVALID_CERT_PATH_X, e);
+        }
+    }
+
+    private PKIXBuilderParameters getPkixParams() {
+        if (pkixParams == null) {
+            Set<TrustAnchor> trustAnchors =
+                    createTrustAnchorSet(
+                            Arrays.asList(certChain.getTrustedRootCert()));
+
+            X509CertSelector certSelector = new X509CertSelector();
+            certSelector.setCertificate(certChain.getEndEntityCert());
+
+            try {
+                PKIXBuilderParameters params = new PKIXBuilderParameters(trustAnchors, certSelector);
+                params.setRevocationEnabled(false);
+
+                if (!certChain.getAdditionalCerts().isEmpty()) {
+                    CertStore intermediateCertStore =
+                            CertStore.getInstance("Collection",
+                                    new CollectionCertStoreParameters(
+                                            certChain.getAdditionalCerts()), BOUNCY_CASTLE);
+                    params.addCertStore(intermediateCertStore);
+                }
+                pkixParams = params;
+            } catch (Exception e) {
+                throw translateWithPrefix(X_CANNOT_CREATE_CERT_PATH, e);
+            }
+        }
+        return pkixParams;
+    }
+
     private static CertPath buildCertPath(PKIXBuilderParameters pkixParams)
             throws NoSuchAlgorithmException, InvalidAlgorithmParameterException, CertPathBuilderException {
         CertPathBuilder certPathBuilder =
@@ -0,0 +1,118 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.niis.xroad.globalconf.impl.cert;
+
+import ee.ria.xroad.common.util.CryptoUtils;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.niis.xroad.globalconf.cert.CertChain;
+
+import java.io.IOException;
+import java.security.cert.CertPath;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of certificate paths that {@link CertChainVerifier} has built and validated.
+ * <p>
+ * A cached path is keyed by the end entity certificate, the intermediate certificates and the trust anchor
+ * of the chain, and the global configuration generation. It is reused for verification dates that fall
+ * within the validity period of all certificates in the path. Reloading a changed global configuration
+ * invalidates all cached paths.
+ */
+public final class CertPathCache {
+
+    private static final int MAX_SIZE = 1000;
+
+    private static final AtomicLong GENERATION = new AtomicLong();
+
+    private static final Cache<Key, VerifiedCertPath> CACHE = CacheBuilder.newBuilder()
+            .maximumSize(MAX_SIZE)
+            .build();
+
+    private CertPathCache() {
+    }
+
+    /**
+     * Invalidates all cached certificate paths. Called when a reload changes the global configuration.
+     */
+    public static void invalidate() {
+        GENERATION.incrementAndGet();
+        CACHE.invalidateAll();
+    }
+
+    static Key key(CertChain certChain) throws CertificateEncodingException, IOException {
+        List<String> additionalCertHashes = new ArrayList<>(certChain.getAdditionalCerts().size());
+        for (X509Certificate cert : certChain.getAdditionalCerts()) {
+            additionalCertHashes.add(CryptoUtils.calculateCertHexHash(cert));
+        }
+
+        return new Key(CryptoUtils.calculateCertHexHash(certChain.getEndEntityCert()), additionalCertHashes,
+                CryptoUtils.calculateCertHexHash(certChain.getTrustedRootCert()), GENERATION.get());
+    }
+
+    static Optional<CertPath> get(Key key, Date atDate) {
+        // the PKIX algorithm validates the path at the current time if no date is given
+        Date date = atDate != null ? atDate : new Date();
+        return Optional.ofNullable(CACHE.getIfPresent(key))
+                .filter(verified -> verified.isValidAt(date))
+                .map(VerifiedCertPath::certPath);
+    }
+
+    static void put(Key key, CertPath certPath) {
+        Date notBefore = null;
+        Date notAfter = null;
+        for (Certificate cert : certPath.getCertificates()) {
+            X509Certificate x509Cert = (X509Certificate) cert;
+            if (notBefore == null || x509Cert.getNotBefore().after(notBefore)) {
+                notBefore = x509Cert.getNotBefore();
+            }
+            if (notAfter == null || x509Cert.getNotAfter().before(notAfter)) {
+                notAfter = x509Cert.getNotAfter();
+            }
+        }
+
+        if (notBefore != null && key.generation() == GENERATION.get()) {
+            CACHE.put(key, new VerifiedCertPath(certPath, notBefore, notAfter));
+        }
+    }
+
+    record Key(String endEntityCertHash, List<String> additionalCertHashes, String trustAnchorHash, long generation) {
+    }
+
+    private record VerifiedCertPath(CertPath certPath, Date notBefore, Date notAfter) {
+        boolean isValidAt(Date date) {
+            return !date.before(notBefore) && !date.after(notAfter);
+        }
+    }
+}
@@ -37,6 +37,8 @@ import org.bouncycastle.cert.ocsp.RevokedStatus;
 import org.junit.Test;
 import org.niis.xroad.globalconf.GlobalConfProvider;
 import org.niis.xroad.globalconf.cert.CertChain;
+import org.niis.xroad.globalconf.impl.FileSystemGlobalConfSource;
+import org.niis.xroad.globalconf.impl.GlobalConfImpl;
 import org.niis.xroad.test.globalconf.EmptyGlobalConf;
 
 import java.security.cert.CertPathBuilderException;
@@ -47,6 +49,7 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -237,6 +240,54 @@ public class CertChainTest {
         }
     }
 
+    /**
+     * Tests that a cached certificate path is not used for dates outside
+     * the validity period of the certificates in the path.
+     */
+    @Test
+    public void cachedChainExpired() {
+        X509Certificate rootCa = TestCertUtil.getCertChainCert("root_ca.p12");
+        X509Certificate interCa1 = TestCertUtil.getCertChainCert("ca_1.p12");
+        X509Certificate userCert = TestCertUtil.getCertChainCert("user_1.p12");
+
+        CertChain chain = new CertChain("EE", userCert, rootCa,
+                Arrays.asList(interCa1));
+        verifyChainOnly(chain, makeDate(userCert.getNotBefore(), 1));
+        verifyChainOnly(chain, makeDate(userCert.getNotBefore(), 2));
+
+        try {
+            verifyChainOnly(chain, makeDate(userCert.getNotAfter(), 1));
+            fail("Path creation should fail");
+        } catch (CodedException e) {
+            assertTrue(e.getCause() instanceof CertPathBuilderException);
+        }
+
+        CertPathCache.invalidate();
+        verifyChainOnly(chain, makeDate(userCert.getNotBefore(), 1));
+    }
+
+    /**
+     * Tests that reloading an unchanged global configuration keeps the cached certificate paths.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void cachedChainKeptOnUnchangedReload() throws Exception {
+        X509Certificate rootCa = TestCertUtil.getCertChainCert("root_ca.p12");
+        X509Certificate interCa1 = TestCertUtil.getCertChainCert("ca_1.p12");
+        X509Certificate userCert = TestCertUtil.getCertChainCert("user_1.p12");
+
+        CertChain chain = new CertChain("EE", userCert, rootCa,
+                Arrays.asList(interCa1));
+        GlobalConfProvider globalConf = new GlobalConfImpl(
+                new FileSystemGlobalConfSource("../globalconf-core/src/test/resources/globalconf_good_v2"));
+        globalConf.reload();
+
+        long generation = CertPathCache.key(chain).generation();
+        globalConf.reload();
+        assertEquals(generation, CertPathCache.key(chain).generation());
+    }
+
     // -- Utility methods
 
     private static void verify(CertChain chain, List<OCSPResp> ocspResponses,
@@ -0,0 +1,246 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.niis.xroad.serverconf;
+
+import org.niis.xroad.serverconf.model.BaseEndpoint;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Access rights matcher compiled from a list of endpoints.
+ * <p>
+ * The endpoint paths are arranged into a trie of path segments per HTTP method, so that deciding whether a request
+ * matches any of the endpoints does not need to evaluate every path glob. Literal segments are looked up from a hash
+ * map, segments with a '*' wildcard are matched one segment at a time and the rest of a path glob starting from a
+ * segment with a '**' wildcard is matched against the rest of the request path. The result is the same as calling
+ * {@link BaseEndpoint#matches(String, String)} for each endpoint.
+ *
+ * @param <T> endpoint type
+ */
+public final class EndpointMatcher<T extends BaseEndpoint> {
+    private static final char SEPARATOR = '/';
+    private static final char ESCAPE = '\\';
+    private static final char WILDCARD = '*';
+
+    private final List<T> endpoints;
+    private final Map<String, Node> methods;
+    private final Node anyMethod;
+
+    private EndpointMatcher(List<T> endpoints, Map<String, Node> methods, Node anyMethod) {
+        this.endpoints = endpoints;
+        this.methods = methods;
+        this.anyMethod = anyMethod;
+    }
+
+    /**
+     * Compiles a matcher for the given endpoints.
+     * @param endpoints endpoints, the method and path of an endpoint can not be null
+     * @param <T> endpoint type
+     * @return compiled matcher
+     */
+    public static <T extends BaseEndpoint> EndpointMatcher<T> compile(List<T> endpoints) {
+        final Map<String, Node> methods = new HashMap<>();
+        final Node anyMethod = new Node(null);
+        for (T endpoint : endpoints) {
+            final Node root = BaseEndpoint.ANY_METHOD.equals(endpoint.getMethod())
+                    ? anyMethod
+                    : methods.computeIfAbsent(endpoint.getMethod().toUpperCase(Locale.ROOT), k -> new Node(null));
+            root.add(endpoint.getPath());
+        }
+        return new EndpointMatcher<>(List.copyOf(endpoints), methods, anyMethod);
+    }
+
+    /**
+     * @return the endpoints this matcher was compiled from
+     */
+    public List<T> getEndpoints() {
+        return endpoints;
+    }
+
+    public boolean isEmpty() {
+        return endpoints.isEmpty();
+    }
+
+    /**
+     * Checks whether any of the endpoints matches the given method and path.
+     * @param method request method, null matches only endpoints with any method
+     * @param path request path, null matches only endpoints with any path
+     * @return true if there is a matching endpoint
+     */
+    public boolean matches(String method, String path) {
+        final Node root = method == null ? null : methods.get(method.toUpperCase(Locale.ROOT));
+        if (path == null) {
+            return anyMethod.anyTail || (root != null && root.anyTail);
+        }
+        if (root == null && anyMethod.isEmpty()) {
+            return false;
+        }
+
+        final int[] starts = segmentStarts(path);
+        return (root != null && root.matches(path, starts, 0)) || anyMethod.matches(path, starts, 0);
+    }
+
+    /**
+     * Returns the start offsets of the path segments, followed by the end offset of the path plus one.
+     */
+    private static int[] segmentStarts(String path) {
+        int count = 1;
+        for (int i = path.indexOf(SEPARATOR); i >= 0; i = path.indexOf(SEPARATOR, i + 1)) {
+            count++;
+        }
+        final int[] starts = new int[count + 1];
+        int segment = 1;
+        for (int i = path.indexOf(SEPARATOR); i >= 0; i = path.indexOf(SEPARATOR, i + 1)) {
+            starts[segment++] = i + 1;
+        }
+        starts[count] = path.length() + 1;
+        return starts;
+    }
+
+    private enum SegmentType {
+        LITERAL, ONE_SEGMENT, ANY_SEGMENTS
+    }
+
+    /**
+     * Classifies a glob segment the same way {@link PathGlob} interprets the wildcards and escapes.
+     */
+    private static SegmentType segmentType(String segment) {
+        SegmentType type = SegmentType.LITERAL;
+        for (int i = 0; i < segment.length(); i++) {
+            final char ch = segment.charAt(i);
+            if (ch == ESCAPE) {
+                if (isEscapable(segment, i + 1)) {
+                    i++;
+                }
+            } else if (ch == WILDCARD) {
+                if (i + 1 < segment.length() && segment.charAt(i + 1) == WILDCARD) {
+                    return SegmentType.ANY_SEGMENTS;
+                }
+                type = SegmentType.ONE_SEGMENT;
+            }
+        }
+        return type;
+    }
+
+    private static String unescape(String segment) {
+        if (segment.indexOf(ESCAPE) < 0) {
+            return segment;
+        }
+        final StringBuilder b = new StringBuilder(segment.length());
+        for (int i = 0; i < segment.length(); i++) {
+            if (segment.charAt(i) == ESCAPE && isEscapable(segment, i + 1)) {
+                i++;
+            }
+            b.append(segment.charAt(i));
+        }
+        return b.toString();
+    }
+
+    private static boolean isEscapable(String segment, int index) {
+        return index < segment.length() && (segment.charAt(index) == WILDCARD || segment.charAt(index) == ESCAPE);
+    }
+
+    private static final class Node {
+        private final Pattern pattern;
+        private final Map<String, Node> literals = new HashMap<>();
+        private final Map<String, Node> wildcards = new LinkedHashMap<>();
+        private final Map<String, Pattern> tails = new LinkedHashMap<>();
+        private boolean anyTail;
+        private boolean terminal;
+
+        Node(Pattern pattern) {
+            this.pattern = pattern;
+        }
+
+        boolean isEmpty() {
+            return !terminal && !anyTail && literals.isEmpty() && wildcards.isEmpty() && tails.isEmpty();
+        }
+
+        void add(String glob) {
+            Node node = this;
+            int start = 0;
+            while (true) {
+                final int end = glob.indexOf(SEPARATOR, start);
+                final String segment = end < 0 ? glob.substring(start) : glob.substring(start, end);
+                switch (segmentType(segment)) {
+                    case ANY_SEGMENTS -> {
+                        final String tail = glob.substring(start);
+                        if (BaseEndpoint.ANY_PATH.equals(tail)) {
+                            node.anyTail = true;
+                        } else {
+                            node.tails.computeIfAbsent(tail, PathGlob::compile);
+                        }
+                        return;
+                    }
+                    case ONE_SEGMENT -> node = node.wildcards.computeIfAbsent(segment, s -> new Node(PathGlob.compile(s)));
+                    default -> node = node.literals.computeIfAbsent(unescape(segment), s -> new Node(null));
+                }
+                if (end < 0) {
+                    node.terminal = true;
+                    return;
+                }
+                start = end + 1;
+            }
+        }
+
+        /**
+         * Matches the path starting from the given segment.
+         */
+        boolean matches(String path, int[] starts, int segment) {
+            final int count = starts.length - 1;
+            if (segment == count) {
+                return terminal;
+            }
+            final int start = starts[segment];
+            final int end = starts[segment + 1] - 1;
+            if (anyTail) {
+                return true;
+            }
+            for (Pattern tail : tails.values()) {
+                if (tail.matcher(path).region(start, path.length()).matches()) {
+                    return true;
+                }
+            }
+            if (!literals.isEmpty()) {
+                final Node child = literals.get(path.substring(start, end));
+                if (child != null && child.matches(path, starts, segment + 1)) {
+                    return true;
+                }
+            }
+            for (Node child : wildcards.values()) {
+                if (child.pattern.matcher(path).region(start, end).matches() && child.matches(path, starts, segment + 1)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
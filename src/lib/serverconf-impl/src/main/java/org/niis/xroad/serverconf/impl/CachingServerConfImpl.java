@@ -33,12 +33,15 @@ import ee.ria.xroad.common.identifier.ClientId;
 import ee.ria.xroad.common.identifier.SecurityServerId;
 import ee.ria.xroad.common.identifier.ServiceId;
 
-import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.ObjectUtils;
 import org.hibernate.Session;
 import org.niis.xroad.globalconf.GlobalConfProvider;
+import org.niis.xroad.serverconf.EndpointMatcher;
 import org.niis.xroad.serverconf.IsAuthentication;
 import org.niis.xroad.serverconf.model.Client;
 import org.niis.xroad.serverconf.model.DescriptionType;
@@ -47,78 +50,176 @@ import org.niis.xroad.serverconf.model.Service;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static ee.ria.xroad.common.ErrorCodes.X_UNKNOWN_SERVICE;
 
 /**
  * Caching implementation for ServerConf
- * The long lasting and frequently used operations are cached
+ * The long lasting and frequently used operations are cached. Cached entries are reloaded in the background once
+ * they are older than the cache period, the old value is served until the reload completes. Entries not used within
+ * twice the cache period are dropped. Changes made by the admin service are detected from the server conf history
+ * table, which is updated by database triggers on the server conf tables, and invalidate the cached entries.
  */
 @Slf4j
 public class CachingServerConfImpl extends ServerConfImpl {
 
     public static final String TSP_URL = "tsp_url";
 
+    private static final int REFRESH_THREADS = 2;
+    private static final String LAST_CHANGE_QUERY = "select max(id) from history";
+
     private volatile SecurityServerId.Conf serverId;
-    private final Cache<Object, List<String>> tspCache;
-    private final Cache<ServiceId, Optional<Service>> serviceCache;
-    private final Cache<AclCacheKey, List<Endpoint>> aclCache;
-    private final Cache<ServiceId, List<ee.ria.xroad.common.metadata.Endpoint>> serviceEndpointsCache;
-    private final Cache<ClientId, Optional<Client>> clientCache;
-    private final Cache<String, InternalSSLKey> internalKeyCache;
+    private final ReentrantLock serverIdLock = new ReentrantLock();
+    private final ScheduledExecutorService refreshExecutor = Executors.newScheduledThreadPool(REFRESH_THREADS,
+            Thread.ofPlatform().name("serverconf-refresh-", 0).daemon().factory());
+    private final LoadingCache<Object, List<String>> tspCache;
+    private final LoadingCache<ServiceId, Optional<Service>> serviceCache;
+    private final LoadingCache<AclCacheKey, EndpointMatcher<Endpoint>> aclCache;
+    private final LoadingCache<ServiceId, List<ee.ria.xroad.common.metadata.Endpoint>> serviceEndpointsCache;
+    private final LoadingCache<ClientId, Optional<Client>> clientCache;
+    private final LoadingCache<String, InternalSSLKey> internalKeyCache;
+
+    // incremented on invalidation, loads that overlap an invalidation are repeated
+    private final AtomicLong generation = new AtomicLong();
+
+    private Long lastChangeId;
+    private boolean changeCheckFailing;
 
     /**
-     * Constructor, creates time based object cache with expireSeconds (or internalKeyExpireSeconds
-     * with internal key cache)
+     * Constructor, creates time based object cache refreshed after expireSeconds
      */
     @SuppressWarnings("checkstyle:MagicNumber")
     public CachingServerConfImpl(GlobalConfProvider globalConfProvider, int expireSeconds) {
         super(globalConfProvider);
 
-        internalKeyCache = CacheBuilder.newBuilder()
+        internalKeyCache = newCacheBuilder(expireSeconds)
                 .maximumSize(1)
-                .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
-                .build();
+                .build(reloadingInBackground(key -> super.getSSLKey()));
 
-        tspCache = CacheBuilder.newBuilder()
+        tspCache = newCacheBuilder(expireSeconds)
                 .maximumSize(1)
-                .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
-                .build();
+                .build(reloadingInBackground(key -> super.getTspUrls()));
 
-        clientCache = CacheBuilder.newBuilder()
+        clientCache = newCacheBuilder(expireSeconds)
                 .maximumSize(SystemProperties.getServerConfClientCacheSize())
-                .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
                 .recordStats()
-                .build();
+                .build(reloadingInBackground(clientId -> tx(session -> Optional.ofNullable(super.getClient(session, clientId)))));
 
-        serviceCache = CacheBuilder.newBuilder()
+        serviceCache = newCacheBuilder(expireSeconds)
                 .maximumSize(SystemProperties.getServerConfServiceCacheSize())
-                .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
                 .recordStats()
-                .build();
-
-        aclCache = CacheBuilder.newBuilder()
-                .weigher((AclCacheKey k, List<Endpoint> v) -> v.size() + 1)
+                .build(reloadingInBackground(serviceId -> tx(session -> Optional.ofNullable(super.getService(session, serviceId)))));
+
+        /*
+         * Implementation note. The loader function is executed in the calling thread on a cache miss, in which case
+         * the transaction simply joins the current one. Background reloads start a transaction of their own.
+         */
+        aclCache = newCacheBuilder(expireSeconds)
+                .weigher((AclCacheKey k, EndpointMatcher<Endpoint> v) -> v.getEndpoints().size() + 1)
                 .maximumWeight(SystemProperties.getServerConfAclCacheSize())
-                .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
                 .recordStats()
-                .build();
+                .build(reloadingInBackground(key -> tx(session ->
+                        EndpointMatcher.compile(super.getAclEndpoints(session, key.clientId(), key.serviceId())))));
 
-        serviceEndpointsCache = CacheBuilder.newBuilder()
+        serviceEndpointsCache = newCacheBuilder(expireSeconds)
                 .weigher((ServiceId k, List<ee.ria.xroad.common.metadata.Endpoint> v) -> v.size() + 1)
                 .maximumWeight(SystemProperties.getServerConfServiceEndpointsCacheSize())
-                .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
                 .recordStats()
-                .build();
+                .build(reloadingInBackground(super::getServiceEndpoints));
+
+        int changeCheckInterval = SystemProperties.getServerConfChangeCheckInterval();
+        if (changeCheckInterval > 0) {
+            refreshExecutor.scheduleWithFixedDelay(this::checkForChanges, 0, changeCheckInterval, TimeUnit.SECONDS);
+        }
+    }
+
+    private static CacheBuilder<Object, Object> newCacheBuilder(int expireSeconds) {
+        return CacheBuilder.newBuilder()
+                .refreshAfterWrite(expireSeconds, TimeUnit.SECONDS)
+                .expireAfterWrite(2L * expireSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Invalidating the cache does not cancel a background reload in progress, which would store the value it read
+     * before the change. A load is therefore repeated until no invalidation has happened while it was running.
+     */
+    <K, V> CacheLoader<K, V> reloadingInBackground(Loader<K, V> loader) {
+        return CacheLoader.asyncReloading(new CacheLoader<>() {
+            @Override
+            public V load(K key) throws Exception {
+                long loadGeneration;
+                V value;
+                do {
+                    loadGeneration = generation.get();
+                    value = loader.load(key);
+                } while (loadGeneration != generation.get());
+                return value;
+            }
+        }, refreshExecutor);
+    }
+
+    /**
+     * Invalidates the cached entries when the server conf history table shows changes since the previous check.
+     * The history rows are written by triggers in the same transaction as the change itself.
+     */
+    private void checkForChanges() {
+        try {
+            Long changeId = tx(session -> session.createNativeQuery(LAST_CHANGE_QUERY, Long.class).getSingleResult());
+            if (lastChangeId != null && !Objects.equals(lastChangeId, changeId)) {
+                log.debug("Server conf changed, invalidating cached entries");
+                invalidateServerConf();
+            }
+            lastChangeId = changeId;
+            if (changeCheckFailing) {
+                log.info("Server conf change check succeeded again");
+                changeCheckFailing = false;
+            }
+        } catch (Exception e) {
+            // the cached entries are still refreshed periodically, warn once until the check succeeds again
+            if (!changeCheckFailing) {
+                log.warn("Failed to check server conf for changes, cached entries are refreshed only periodically", e);
+                changeCheckFailing = true;
+            } else {
+                log.debug("Failed to check server conf for changes", e);
+            }
+        }
+    }
+
+    /**
+     * Stops the background refresh and change check.
+     */
+    @PreDestroy
+    public void destroy() {
+        refreshExecutor.shutdownNow();
+    }
+
+    void invalidateServerConf() {
+        generation.incrementAndGet();
+        serverIdLock.lock();
+        try {
+            serverId = null;
+        } finally {
+            serverIdLock.unlock();
+        }
+        tspCache.invalidateAll();
+        clientCache.invalidateAll();
+        serviceCache.invalidateAll();
+        aclCache.invalidateAll();
+        serviceEndpointsCache.invalidateAll();
     }
 
     @Override
     public InternalSSLKey getSSLKey() {
         try {
-            return internalKeyCache.get(InternalSSLKey.KEY_ALIAS, super::getSSLKey);
+            return internalKeyCache.get(InternalSSLKey.KEY_ALIAS);
         } catch (ExecutionException e) {
             if (e.getCause() instanceof CodedException) {
                 throw (CodedException) e.getCause();
@@ -144,18 +245,24 @@ public class CachingServerConfImpl extends ServerConfImpl {
     }
 
     @SuppressWarnings("checkstyle:innerassignment")
-    private synchronized SecurityServerId.Conf getAndCacheServerId(final SecurityServerId current) {
-        SecurityServerId.Conf id = serverId;
-        if (id == current) { //intentional reference equality test (for double-checked locking)
-            serverId = id = super.getIdentifier();
+    private SecurityServerId.Conf getAndCacheServerId(final SecurityServerId current) {
+        // not a monitor, the database query would pin the carrier of a virtual thread
+        serverIdLock.lock();
+        try {
+            SecurityServerId.Conf id = serverId;
+            if (id == current) { //intentional reference equality test (for double-checked locking)
+                serverId = id = super.getIdentifier();
+            }
+            return id;
+        } finally {
+            serverIdLock.unlock();
         }
-        return id;
     }
 
     @Override
     public List<String> getTspUrls() {
         try {
-            return tspCache.get(TSP_URL, super::getTspUrls);
+            return tspCache.get(TSP_URL);
         } catch (ExecutionException e) {
             if (e.getCause() instanceof CodedException) {
                 throw (CodedException) e.getCause();
@@ -173,7 +280,7 @@ public class CachingServerConfImpl extends ServerConfImpl {
     @Override
     public List<ee.ria.xroad.common.metadata.Endpoint> getServiceEndpoints(ServiceId serviceId) {
         try {
-            return serviceEndpointsCache.get(serviceId, () -> super.getServiceEndpoints(serviceId));
+            return serviceEndpointsCache.get(serviceId);
         } catch (ExecutionException e) {
             if (e.getCause() instanceof CodedException codedException) {
                 throw codedException;
@@ -233,27 +340,26 @@ public class CachingServerConfImpl extends ServerConfImpl {
 
     @Override
     protected List<Endpoint> getAclEndpoints(Session session, ClientId clientId, ServiceId serviceId) {
+        return getAclMatcher(session, clientId, serviceId).getEndpoints();
+    }
+
+    @Override
+    protected EndpointMatcher<Endpoint> getAclMatcher(Session session, ClientId clientId, ServiceId serviceId) {
         final AclCacheKey key = new AclCacheKey(clientId, serviceId);
         try {
-            /*
-             * Implementation note. It seems that the loader function is executed in the same thread, in which case the
-             * transaction simply joins the current one. However, this is not explicitly promised by the API,
-             * so we start a transaction if necessary.
-             */
-            return aclCache.get(key, () -> tx(s -> super.getAclEndpoints(s, clientId, serviceId)));
+            return aclCache.get(key);
         } catch (ExecutionException e) {
             if (e.getCause() instanceof CodedException) {
                 throw (CodedException) e.getCause();
             }
             log.debug("Failed get list of endpoints", e);
-            return Collections.emptyList();
+            return EndpointMatcher.compile(Collections.emptyList());
         }
     }
 
     private Optional<Service> getService(ServiceId serviceId) {
         try {
-            return serviceCache
-                    .get(serviceId, () -> tx(session -> Optional.ofNullable(super.getService(session, serviceId))));
+            return serviceCache.get(serviceId);
         } catch (ExecutionException e) {
             if (e.getCause() instanceof CodedException) {
                 throw (CodedException) e.getCause();
@@ -265,8 +371,7 @@ public class CachingServerConfImpl extends ServerConfImpl {
 
     private Optional<Client> getClient(ClientId clientId) {
         try {
-            return clientCache.get(clientId,
-                    () -> tx(session -> Optional.ofNullable(super.getClient(session, clientId))));
+            return clientCache.get(clientId);
         } catch (ExecutionException e) {
             if (e.getCause() instanceof CodedException) {
                 throw (CodedException) e.getCause();
@@ -296,6 +401,11 @@ public class CachingServerConfImpl extends ServerConfImpl {
         internalKeyCache.invalidateAll();
     }
 
+    @FunctionalInterface
+    interface Loader<K, V> {
+        V load(K key) throws Exception;
+    }
+
     private record AclCacheKey(ClientId clientId, ServiceId serviceId) {
     }
 }
@@ -57,6 +57,7 @@ import org.hibernate.SharedSessionContract;
 import org.niis.xroad.common.CostType;
 import org.niis.xroad.common.CostTypePrioritizer;
 import org.niis.xroad.globalconf.GlobalConfProvider;
+import org.niis.xroad.serverconf.EndpointMatcher;
 import org.niis.xroad.serverconf.IsAuthentication;
 import org.niis.xroad.serverconf.ServerConfProvider;
 import org.niis.xroad.serverconf.impl.dao.CertificateDAOImpl;
@@ -185,12 +186,12 @@ public class ServerConfImpl implements ServerConfProvider {
             serviceDao.getServicesByDescriptionType(session, serviceProviderId, DescriptionType.OPENAPI3,
                             DescriptionType.REST)
                     .forEach(serviceId -> {
-                        final List<Endpoint> acl = getAclEndpoints(session, clientId, serviceId);
+                        final EndpointMatcher<Endpoint> acl = getAclMatcher(session, clientId, serviceId);
                         if (!acl.isEmpty()) {
                             final List<ee.ria.xroad.common.metadata.Endpoint> endpoints = getServiceEndpoints(serviceId);
                             XRoadRestServiceDetailsType serviceDetails = createRestServiceDetails(serviceId);
                             for (ee.ria.xroad.common.metadata.Endpoint e : endpoints) {
-                                if (acl.stream().anyMatch(it -> it.matches(e.getMethod(), e.getPath()))) {
+                                if (acl.matches(e.getMethod(), e.getPath())) {
                                     serviceDetails.getEndpointList().add(e);
                                 }
                             }
@@ -484,8 +485,14 @@ public class ServerConfImpl implements ServerConfProvider {
                 return false;
             }
         }
-        return getAclEndpoints(session, clientId, serviceId).stream()
-                .anyMatch(ep -> ep.matches(method, normalizedPath));
+        return getAclMatcher(session, clientId, serviceId).matches(method, normalizedPath);
+    }
+
+    /**
+     * Returns a matcher compiled from the endpoints the client has access to.
+     */
+    protected EndpointMatcher<Endpoint> getAclMatcher(Session session, ClientId clientId, ServiceId serviceId) {
+        return EndpointMatcher.compile(getAclEndpoints(session, clientId, serviceId));
     }
 
     /**
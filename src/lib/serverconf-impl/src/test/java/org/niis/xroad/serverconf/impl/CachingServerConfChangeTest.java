@@ -0,0 +1,151 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.niis.xroad.serverconf.impl;
+
+import ee.ria.xroad.common.SystemProperties;
+import ee.ria.xroad.common.identifier.ServiceId;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.LoadingCache;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.niis.xroad.test.globalconf.EmptyGlobalConf;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.niis.xroad.serverconf.impl.ServerConfDatabaseCtx.doInTransaction;
+import static org.niis.xroad.serverconf.impl.TestUtil.SERVICE_URL;
+import static org.niis.xroad.serverconf.impl.TestUtil.SERVICE_VERSION;
+import static org.niis.xroad.serverconf.impl.TestUtil.client;
+import static org.niis.xroad.serverconf.impl.TestUtil.createTestServiceId;
+import static org.niis.xroad.serverconf.impl.TestUtil.prepareDB;
+import static org.niis.xroad.serverconf.impl.TestUtil.service;
+
+/**
+ * Tests invalidation of the cached server conf on changes made by the admin service.
+ */
+public class CachingServerConfChangeTest {
+
+    private static final String CHANGED_URL = "changedServiceUrl";
+
+    private static CachingServerConfImpl serverConfProvider;
+
+    /**
+     * Creates test database with the history table that is maintained by triggers in the real database.
+     *
+     * @throws Exception if an error occurs
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        prepareDB();
+        executeUpdate("create table history (id bigint primary key)");
+        executeUpdate("insert into history (id) values (1)");
+
+        System.setProperty(SystemProperties.SERVER_CONF_CHANGE_CHECK_INTERVAL, "1");
+        serverConfProvider = new CachingServerConfImpl(new EmptyGlobalConf(), SystemProperties.getServerConfCachePeriod());
+    }
+
+    @AfterClass
+    public static void tearDownAfterClass() throws Exception {
+        serverConfProvider.destroy();
+        System.clearProperty(SystemProperties.SERVER_CONF_CHANGE_CHECK_INTERVAL);
+        executeUpdate("drop table history");
+        prepareDB();
+    }
+
+    /**
+     * Tests that a cached service is reloaded once the history table shows a change.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void reloadsServiceAfterServerConfChange() throws Exception {
+        ServiceId service = createTestServiceId(client(1), service(1, 1), SERVICE_VERSION);
+        // wait until the first change check has seen the initial history
+        TimeUnit.SECONDS.sleep(2);
+        assertEquals(SERVICE_URL + 1, serverConfProvider.getServiceAddress(service));
+
+        executeUpdate("update service set url = '" + CHANGED_URL + "' where servicecode = '" + service(1, 1) + "'");
+        assertEquals(SERVICE_URL + 1, serverConfProvider.getServiceAddress(service));
+
+        executeUpdate("insert into history (id) values (2)");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!CHANGED_URL.equals(serverConfProvider.getServiceAddress(service)) && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+        assertEquals(CHANGED_URL, serverConfProvider.getServiceAddress(service));
+    }
+
+    /**
+     * Tests that a background reload that read the old value before an invalidation does not store it afterwards.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void reloadOverlappingInvalidationDoesNotStoreOldValue() throws Exception {
+        AtomicInteger version = new AtomicInteger(1);
+        AtomicBoolean blockReload = new AtomicBoolean();
+        CountDownLatch reloadStarted = new CountDownLatch(1);
+        CountDownLatch releaseReload = new CountDownLatch(1);
+
+        LoadingCache<String, Integer> cache = CacheBuilder.newBuilder()
+                .build(serverConfProvider.reloadingInBackground(key -> {
+                    int value = version.get();
+                    if (blockReload.getAndSet(false)) {
+                        reloadStarted.countDown();
+                        releaseReload.await(10, TimeUnit.SECONDS);
+                    }
+                    return value;
+                }));
+        assertEquals(1, (int) cache.get("key"));
+
+        blockReload.set(true);
+        cache.refresh("key");
+        assertTrue(reloadStarted.await(10, TimeUnit.SECONDS));
+
+        // the change is made and detected while the reload holds the old value
+        version.set(2);
+        serverConfProvider.invalidateServerConf();
+        cache.invalidateAll();
+        releaseReload.countDown();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (cache.getIfPresent("key") == null && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        assertEquals(Integer.valueOf(2), cache.getIfPresent("key"));
+    }
+
+    private static void executeUpdate(String sql) throws Exception {
+        doInTransaction(session -> session.createNativeMutationQuery(sql).executeUpdate());
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.niis.xroad.serverconf.impl;
+
+import org.niis.xroad.serverconf.EndpointMatcher;
+import org.niis.xroad.serverconf.model.Endpoint;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares access rights checks with a compiled endpoint matcher and with matching each endpoint separately.
+ * The endpoints are a mix of literal paths, single segment wildcards and '**' wildcards typical to REST services.
+ * Run with {@code gradle :lib:serverconf-impl:jmh}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+@SuppressWarnings("checkstyle:MagicNumber")
+public class EndpointMatcherBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    private int endpointCount;
+
+    private List<Endpoint> endpoints;
+    private EndpointMatcher<Endpoint> matcher;
+    private String allowedPath;
+    private String deniedPath;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        endpoints = new ArrayList<>(endpointCount);
+        for (int i = 0; i < endpointCount; i++) {
+            switch (i % 4) {
+                case 0 -> endpoints.add(new Endpoint("service", "GET", "/api/v1/resource" + i, false));
+                case 1 -> endpoints.add(new Endpoint("service", "GET", "/api/v1/resource" + i + "/*", false));
+                case 2 -> endpoints.add(new Endpoint("service", "POST", "/api/v1/resource" + i + "/*/items", false));
+                default -> endpoints.add(new Endpoint("service", "*", "/api/v2/resource" + i + "/**", false));
+            }
+        }
+        matcher = EndpointMatcher.compile(endpoints);
+        // the last POST endpoint, matching it goes through the most endpoints
+        allowedPath = "/api/v1/resource" + (endpointCount - 1 - (endpointCount + 1) % 4) + "/12345/items";
+        deniedPath = "/api/v1/unknown/12345/items";
+    }
+
+    @Benchmark
+    public boolean compiledAllowed() {
+        return matcher.matches("POST", allowedPath);
+    }
+
+    @Benchmark
+    public boolean compiledDenied() {
+        return matcher.matches("POST", deniedPath);
+    }
+
+    @Benchmark
+    public boolean linearAllowed() {
+        return endpoints.stream().anyMatch(ep -> ep.matches("POST", allowedPath));
+    }
+
+    @Benchmark
+    public boolean linearDenied() {
+        return endpoints.stream().anyMatch(ep -> ep.matches("POST", deniedPath));
+    }
+}
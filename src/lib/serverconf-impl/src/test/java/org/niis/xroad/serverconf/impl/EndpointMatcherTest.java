@@ -0,0 +1,144 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.niis.xroad.serverconf.impl;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.niis.xroad.serverconf.EndpointMatcher;
+import org.niis.xroad.serverconf.model.Endpoint;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * EndpointMatcher Unit Tests, the results are compared to matching each endpoint separately
+ */
+@RunWith(Parameterized.class)
+public class EndpointMatcherTest {
+
+    private static final List<String> GLOBS = List.of("**", "***", "/*/", "", ".^$+{[]|()", "**/bar/**", "**\\*",
+            "simple", "**/*/**", "\\A", "\\*", "\\\\", "aa\\", "/foo/*/bar", "/foo/**/bar", "/foo/bar", "/foo/*",
+            "/foo/*.json", "/foo/x*/baz", "/foo/\\*/baz", "/a/b/c/**", "/a/*/c/*", "/a/*/**/d", "/a\\/b", "*/**");
+
+    private static final List<Endpoint> ENDPOINTS = GLOBS.stream()
+            .map(glob -> new Endpoint("test", "GET", glob, false))
+            .toList();
+
+    /**
+     * test data
+     * method, path
+     */
+    @Parameterized.Parameters(name = "{index}: {0} <{1}>")
+    public static List<Object[]> params() {
+        return Arrays.asList(new Object[][]{
+                {"GET", ""},
+                {"GET", " "},
+                {"GET", "/"},
+                {"GET", "//"},
+                {"GET", "/a/"},
+                {"GET", "/a/b/"},
+                {"GET", "match/anything/*"},
+                {"GET", ".^$+{[]|()"},
+                {"GET", "a/b/c/bar/e/f"},
+                {"GET", "a/b/c/foo/e/f"},
+                {"GET", "/what/ever*"},
+                {"GET", "/what/ever!"},
+                {"GET", "simple"},
+                {"GET", "prefix.simple.suffix"},
+                {"GET", "something/bar/something/else"},
+                {"GET", "/bar/"},
+                {"GET", "something/else"},
+                {"GET", "\\A"},
+                {"GET", "*"},
+                {"GET", "\\*"},
+                {"GET", "\\"},
+                {"GET", "aa\\"},
+                {"GET", "/foo/zyggy/bar"},
+                {"GET", "/foo/zyggy/quux/bar"},
+                {"GET", "/foo/whatever//bar"},
+                {"GET", "/foo/zyggybar"},
+                {"GET", "/foo/bar"},
+                {"GET", "/foo/bar/"},
+                {"GET", "/foo/x.json"},
+                {"GET", "/foo/xyz/baz"},
+                {"GET", "/foo/*/baz"},
+                {"GET", "/a/b/c"},
+                {"GET", "/a/b/c/"},
+                {"GET", "/a/b/c/d/e"},
+                {"GET", "/a/x/c/y"},
+                {"GET", "/a/x/c/y/z"},
+                {"GET", "/a/x/d"},
+                {"GET", "/a/x/y/z/d"},
+                {"GET", "/a\\/b"},
+                {"get", "/foo/bar"},
+                {"POST", "/foo/bar"},
+                {null, "/foo/bar"},
+        });
+    }
+
+    @Parameterized.Parameter(0)
+    public String method;
+
+    @Parameterized.Parameter(1)
+    public String path;
+
+    @Test
+    public void shouldMatchLikeEachEndpointSeparately() {
+        for (Endpoint endpoint : ENDPOINTS) {
+            assertEquals(endpoint.getPath(), endpoint.matches(method, path),
+                    EndpointMatcher.compile(List.of(endpoint)).matches(method, path));
+        }
+    }
+
+    @Test
+    public void shouldMatchLikeAnyEndpoint() {
+        for (int i = 0; i < ENDPOINTS.size(); i++) {
+            final List<Endpoint> endpoints = ENDPOINTS.subList(i, ENDPOINTS.size());
+            assertEquals(endpoints.getFirst().getPath(), endpoints.stream().anyMatch(ep -> ep.matches(method, path)),
+                    EndpointMatcher.compile(endpoints).matches(method, path));
+        }
+    }
+
+    @Test
+    public void shouldMatchMethods() {
+        final EndpointMatcher<Endpoint> matcher = EndpointMatcher.compile(List.of(
+                new Endpoint("test", "POST", "/foo/**", false),
+                new Endpoint("test", "*", "/bar", false)));
+
+        assertTrue(matcher.matches("post", "/foo/bar"));
+        assertFalse(matcher.matches("GET", "/foo/bar"));
+        assertFalse(matcher.matches(null, "/foo/bar"));
+        assertTrue(matcher.matches(method, "/bar"));
+        assertFalse(matcher.matches(method, null));
+        assertTrue(EndpointMatcher.compile(List.of(new Endpoint("test", "*", "**", false))).matches(method, null));
+        assertFalse(EndpointMatcher.compile(List.<Endpoint>of()).matches(method, path));
+    }
+}
@@ -65,23 +65,40 @@ public class ConfigurationClient {
 
     private final ConfigurationDownloader downloader;
 
+    private final String configurationAnchorFile;
+
     private ConfigurationSource configurationAnchor;
 
     @Getter
     private String lastSuccessfulLocationUrl = "";
 
     public ConfigurationClient(String globalConfigurationDir, int configurationVersion) {
+        this(globalConfigurationDir, null, configurationVersion);
+    }
+
+    /**
+     * Creates a client that downloads the given configuration version using the anchor read from the given file
+     * instead of the system wide configuration anchor file. Clients with different anchors can run concurrently.
+     *
+     * @param globalConfigurationDir  directory where the configuration is downloaded to
+     * @param configurationAnchorFile path to the configuration anchor file
+     * @param configurationVersion    global configuration version to download
+     */
+    public ConfigurationClient(String globalConfigurationDir, String configurationAnchorFile, int configurationVersion) {
         this.globalConfigurationDir = globalConfigurationDir;
+        this.configurationAnchorFile = configurationAnchorFile;
         downloader = new ConfigurationDownloader(globalConfigurationDir, configurationVersion);
     }
 
     public ConfigurationClient(String globalConfigurationDir) {
         this.globalConfigurationDir = globalConfigurationDir;
+        this.configurationAnchorFile = null;
         downloader = new ConfigurationDownloader(globalConfigurationDir);
     }
 
     ConfigurationClient(String globalConfigurationDir, ConfigurationDownloader downloader, ConfigurationSource configurationAnchor) {
         this.globalConfigurationDir = globalConfigurationDir;
+        this.configurationAnchorFile = null;
         this.downloader = downloader;
         this.configurationAnchor = configurationAnchor;
     }
@@ -116,7 +133,9 @@ public class ConfigurationClient {
     private void initConfigurationAnchor() {
         log.trace("initConfigurationAnchor()");
 
-        String anchorFileName = SystemProperties.getConfigurationAnchorFile();
+        String anchorFileName = configurationAnchorFile != null
+                ? configurationAnchorFile
+                : SystemProperties.getConfigurationAnchorFile();
         if (!Files.exists(Paths.get(anchorFileName))) {
             log.warn("Cannot download configuration, anchor file {} does not exist", anchorFileName);
 
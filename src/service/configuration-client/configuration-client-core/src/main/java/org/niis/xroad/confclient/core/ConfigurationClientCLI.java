@@ -31,6 +31,7 @@ import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.lang3.StringUtils;
+import org.niis.xroad.common.core.annotation.ArchUnitSuppressed;
 import org.niis.xroad.globalconf.model.ConfigurationAnchor;
 import org.niis.xroad.globalconf.model.ConfigurationSource;
 import org.niis.xroad.globalconf.util.FederationConfigurationSourceFilter;
@@ -54,14 +55,31 @@ public final class ConfigurationClientCLI {
     public static final String OPTION_VERIFY_ANCHOR_FOR_EXTERNAL_SOURCE = "verifyAnchorForExternalSource";
 
     public static int download(String configurationAnchorFile, String configurationPath, int configurationVersion) {
+        try {
+            downloadVersion(configurationAnchorFile, configurationPath, configurationVersion);
+
+            return RETURN_SUCCESS;
+        } catch (Exception e) {
+            log.error("Error when downloading conf", e);
+
+            return ConfigurationClientUtils.getErrorCode(e);
+        }
+    }
+
+    /**
+     * Downloads the given version of the global configuration using the given anchor file, without deleting
+     * other configuration directories from the configuration path.
+     * @throws Exception if the download fails, {@link ConfigurationClientUtils#getErrorCode} gives its exit code
+     */
+    @ArchUnitSuppressed("NoVanillaExceptions")
+    public static void downloadVersion(String configurationAnchorFile, String configurationPath,
+                                       int configurationVersion) throws Exception {
         log.debug("Downloading configuration using anchor {} path = {} version {}",
                 configurationAnchorFile,
                 configurationPath,
                 configurationVersion);
 
-        System.setProperty(SystemProperties.CONFIGURATION_ANCHOR_FILE, configurationAnchorFile);
-
-        var client = new ConfigurationClient(configurationPath, configurationVersion) {
+        var client = new ConfigurationClient(configurationPath, configurationAnchorFile, configurationVersion) {
             @Override
             protected void deleteExtraConfigurationDirectories(
                     List<? extends ConfigurationSource> configurationSources,
@@ -70,7 +88,7 @@ public final class ConfigurationClientCLI {
             }
         };
 
-        return execute(client);
+        client.execute();
     }
 
     public static int download(String configurationAnchorFile, String configurationPath) {
@@ -92,8 +110,22 @@ public final class ConfigurationClientCLI {
     }
 
     public static int validate(String configurationAnchorFile, final CommandLine cmd) {
+        return validate(configurationAnchorFile, getParamsValidator(cmd));
+    }
+
+    /**
+     * Downloads the configuration using the given anchor without persisting it, checking that the configuration
+     * is available and valid.
+     *
+     * @param configurationAnchorFile path to the configuration anchor file
+     * @return {@link ee.ria.xroad.common.ReturnCodes#RETURN_SUCCESS} or the error code of the failure
+     */
+    public static int validate(String configurationAnchorFile) {
+        return validate(configurationAnchorFile, new ParamsValidator(null, 0));
+    }
+
+    private static int validate(String configurationAnchorFile, ParamsValidator paramsValidator) {
         log.trace("Downloading configuration using anchor {}", configurationAnchorFile);
-        var paramsValidator = getParamsValidator(cmd);
         // Create configuration that does not persist files to disk.
         final String configurationPath = SystemProperties.getConfigurationPath();
 
@@ -34,6 +34,7 @@ import org.apache.commons.io.IOUtils;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import org.niis.xroad.common.core.exception.ErrorCode;
+import org.niis.xroad.common.core.exception.XrdRuntimeException;
 import org.niis.xroad.globalconf.model.ConfigurationAnchor;
 import org.niis.xroad.globalconf.model.ConfigurationDirectory;
 import org.niis.xroad.globalconf.model.ConfigurationLocation;
@@ -49,6 +50,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.Mockito.mock;
@@ -132,6 +134,20 @@ class ConfigurationClientTest {
         }
     }
 
+    /**
+     * Test to ensure the anchor file given to the client is used instead of the system wide anchor file.
+     */
+    @Test
+    void downloadFailsWhenGivenAnchorFileIsMissing() {
+        String anchorFile = new File(tempDir, "missing-anchor.xml").getPath();
+
+        ConfigurationClient client = new ConfigurationClient(tempDir.getPath(), anchorFile, 3);
+
+        XrdRuntimeException exception = assertThrows(XrdRuntimeException.class, client::execute);
+        assertEquals(ErrorCode.ANCHOR_FILE_NOT_FOUND.code(), exception.getCode());
+        assertTrue(exception.getDetails().contains(anchorFile));
+    }
+
     // ------------------------------------------------------------------------
 
     private static ConfigurationAnchor getConfigurationAnchor(final String fileName) {
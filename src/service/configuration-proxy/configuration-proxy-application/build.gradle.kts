@@ -8,6 +8,7 @@ dependencies {
   implementation(project(":lib:globalconf-core"))
   implementation(project(":common:common-jetty"))
   implementation(project(":service:signer:signer-client"))
+  implementation(project(":service:configuration-client:configuration-client-core"))
 
   implementation(libs.commons.cli)
   implementation(libs.logback.classic)
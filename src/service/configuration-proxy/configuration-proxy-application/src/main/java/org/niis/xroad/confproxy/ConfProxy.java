@@ -37,6 +37,11 @@ import org.niis.xroad.signer.client.SignerRpcClient;
 
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * Defines a configuration proxy instance and carries out it's main operations.
@@ -45,16 +50,20 @@ import java.nio.file.Paths;
 @ArchUnitSuppressed("NoVanillaExceptions")
 public class ConfProxy {
     private final SignerRpcClient signerRpcClient;
+    private final ExecutorService downloadExecutor;
     protected ConfProxyProperties conf;
 
     /**
      * Initializes a new configuration proxy instance.
      *
-     * @param instance name of this proxy instance
+     * @param instance         name of this proxy instance
+     * @param downloadExecutor executor used for downloading the global configuration versions
      * @throws Exception if loading instance configuration fails
      */
-    ConfProxy(final SignerRpcClient signerRpcClient, final String instance) throws Exception {
+    ConfProxy(final SignerRpcClient signerRpcClient, final String instance, final ExecutorService downloadExecutor)
+            throws Exception {
         this.signerRpcClient = signerRpcClient;
+        this.downloadExecutor = downloadExecutor;
         this.conf = new ConfProxyProperties(instance);
         log.debug("Starting configuration-proxy '{}'...", instance);
     }
@@ -62,6 +71,8 @@ public class ConfProxy {
     /**
      * Launch the configuration proxy instance. Downloads signed directory,
      * signs its content and moves it to the public distribution directory.
+     * All versions are downloaded in parallel, the downloaded directories are
+     * signed and moved one version at a time.
      *
      * @throws Exception in case of any errors
      */
@@ -69,15 +80,19 @@ public class ConfProxy {
         log.debug("Purge outdated generations");
         ConfProxyHelper.purgeOutdatedGenerations(conf);
 
-        var result = new ConfProxyExecutionResult();
+        Map<Integer, Future<VersionedConfigurationDirectory>> downloads = new LinkedHashMap<>();
         for (int version = SystemProperties.CURRENT_GLOBAL_CONFIGURATION_VERSION;
                 version >= SystemProperties.getMinimumConfigurationProxyGlobalConfigurationVersion();
                 version--) {
-            log.debug("Download global configuration version {}. Minimum version {}",
-                    version, SystemProperties.getMinimumConfigurationProxyGlobalConfigurationVersion());
+            final int downloadVersion = version;
+            downloads.put(version, downloadExecutor.submit(() -> download(downloadVersion)));
+        }
 
+        var result = new ConfProxyExecutionResult();
+        for (Map.Entry<Integer, Future<VersionedConfigurationDirectory>> download : downloads.entrySet()) {
+            int version = download.getKey();
             try {
-                VersionedConfigurationDirectory confDir = download(version);
+                VersionedConfigurationDirectory confDir = awaitDownload(download.getValue());
                 log.debug("Create output builder");
                 try (OutputBuilder output = new OutputBuilder(signerRpcClient, confDir, conf, version)) {
                     log.debug("Build signed directory");
@@ -103,9 +118,11 @@ public class ConfProxy {
      * according to the instance configuration.
      *
      * @return downloaded configuration directory
-     * @throws Exception if configuration client script encounters errors
+     * @throws Exception if the configuration client encounters errors
      */
     private VersionedConfigurationDirectory download(int version) throws Exception {
+        log.debug("Download global configuration version {}. Minimum version {}",
+                version, SystemProperties.getMinimumConfigurationProxyGlobalConfigurationVersion());
         log.debug("Create directories");
         Files.createDirectories(Paths.get(conf.getConfigurationDownloadPath(version)));
         return ConfProxyHelper.downloadConfiguration(
@@ -113,4 +130,16 @@ public class ConfProxy {
                 conf.getProxyAnchorPath(),
                 version);
     }
+
+    private static VersionedConfigurationDirectory awaitDownload(Future<VersionedConfigurationDirectory> download)
+            throws Exception {
+        try {
+            return download.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
 }
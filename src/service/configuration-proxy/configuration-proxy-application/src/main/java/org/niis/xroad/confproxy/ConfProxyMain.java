@@ -25,6 +25,7 @@
  */
 package org.niis.xroad.confproxy;
 
+import ee.ria.xroad.common.SystemProperties;
 import ee.ria.xroad.common.SystemPropertiesLoader;
 import ee.ria.xroad.common.Version;
 
@@ -35,6 +36,8 @@ import org.niis.xroad.signer.client.SignerRpcClient;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static ee.ria.xroad.common.SystemProperties.CONF_FILE_CONFPROXY;
 
@@ -46,6 +49,8 @@ import static ee.ria.xroad.common.SystemProperties.CONF_FILE_CONFPROXY;
 public final class ConfProxyMain {
 
     private static final String APP_NAME = "xroad-confproxy";
+    private static final String REMOVED_DOWNLOAD_SCRIPT_PROPERTY =
+            SystemProperties.PREFIX + "configuration-proxy.download-script";
     private static SignerRpcClient signerRpcClient;
 
     static {
@@ -88,12 +93,18 @@ public final class ConfProxyMain {
 
         Version.outputVersionInfo(APP_NAME);
 
+        if (System.getProperty(REMOVED_DOWNLOAD_SCRIPT_PROPERTY) != null) {
+            log.warn("Property 'download-script' in {} is no longer used, global configurations are downloaded "
+                    + "in-process. Remove the property and use 'download-threads' to limit parallel downloads.",
+                    CONF_FILE_CONFPROXY);
+        }
+
         signerRpcClient = new SignerRpcClient();
         signerRpcClient.init();
     }
 
     /**
-     * Executes all configuration proxy instances in sequence.
+     * Executes all configuration proxy instances in parallel.
      *
      * @param args program arguments
      * @throws Exception if not able to get list of available instances
@@ -109,18 +120,26 @@ public final class ConfProxyMain {
             log.debug("Instances from available instances: {}", instances);
         }
 
-        for (String instance : instances) {
-            try {
-                ConfProxy proxy = new ConfProxy(signerRpcClient, instance);
-                log.info("ConfProxy executing for instance {}", instance);
-                proxy.execute();
-            } catch (Exception ex) {
-                log.error("Error when executing configuration-proxy '{}'",
-                        instance, ex);
+        ExecutorService downloadExecutor = Executors.newFixedThreadPool(SystemProperties.getConfigurationProxyDownloadThreads());
+        // the instance executor is closed first, waiting for the instances that still submit downloads
+        try (downloadExecutor; ExecutorService instanceExecutor = Executors.newCachedThreadPool()) {
+            for (String instance : instances) {
+                instanceExecutor.execute(() -> execute(instance, downloadExecutor));
             }
         }
     }
 
+    private static void execute(final String instance, final ExecutorService downloadExecutor) {
+        try {
+            ConfProxy proxy = new ConfProxy(signerRpcClient, instance, downloadExecutor);
+            log.info("ConfProxy executing for instance {}", instance);
+            proxy.execute();
+        } catch (Exception ex) {
+            log.error("Error when executing configuration-proxy '{}'",
+                    instance, ex);
+        }
+    }
+
     /**
      * Shutdown configuration proxy components.
      */
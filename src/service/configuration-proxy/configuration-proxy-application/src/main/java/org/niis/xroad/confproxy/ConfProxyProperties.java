@@ -107,16 +107,6 @@ public class ConfProxyProperties {
         }
     }
 
-    /**
-     * Gets the location of the configuration client script, which downloads
-     * the global configuration.
-     *
-     * @return path to the configuration client script
-     */
-    public static String getDownloadScriptPath() {
-        return SystemProperties.getConfigurationProxyDownloadScript();
-    }
-
     /**
      * Gets the path to the directory which should hold the downloaded global
      * configuration files for this configuration proxy instance.
@@ -30,6 +30,8 @@ import ee.ria.xroad.common.SystemProperties;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FileUtils;
 import org.niis.xroad.common.core.annotation.ArchUnitSuppressed;
+import org.niis.xroad.confclient.core.ConfigurationClientCLI;
+import org.niis.xroad.confclient.core.ConfigurationClientUtils;
 import org.niis.xroad.confproxy.ConfProxyProperties;
 import org.niis.xroad.globalconf.model.VersionedConfigurationDirectory;
 
@@ -64,89 +66,62 @@ public final class ConfProxyHelper {
     }
 
     /**
-     * Invoke the configuration client script to download the global
-     * configuration from the source defined in the provided source anchor.
+     * Download the global configuration from the source defined in the provided source anchor.
+     * The download runs in-process and only fetches the files whose hash differs from the already
+     * downloaded ones, so several instances and versions can be downloaded concurrently.
      *
      * @param path         where the downloaded files should be placed
      * @param sourceAnchor path to the source anchor xml file
+     * @param version      global configuration version to download
      * @return downloaded configuration directory
      * @throws Exception if an configuration client error occurs
      */
     public static VersionedConfigurationDirectory downloadConfiguration(
             final String path, final String sourceAnchor, final int version) throws Exception {
-        ProcessBuilder pb = new ProcessBuilder(
-                ConfProxyProperties.getDownloadScriptPath(),
-                sourceAnchor, path, String.format("%d", version));
-        pb.redirectErrorStream(true);
-        pb.redirectOutput(ProcessBuilder.Redirect.INHERIT);
-        log.info("Running '{} {} {} {}' ...", ConfProxyProperties.getDownloadScriptPath(), sourceAnchor, path,
-                version);
-        runConfClient(pb);
+        log.info("Downloading global configuration version {} to '{}' using anchor '{}' ...", version, path, sourceAnchor);
+        try {
+            ConfigurationClientCLI.downloadVersion(sourceAnchor, path, version);
+        } catch (Exception e) {
+            throw configurationClientError(ConfigurationClientUtils.getErrorCode(e), e);
+        }
         return new VersionedConfigurationDirectory(path);
     }
 
     /**
-     * Invoke the configuration client script to check whether the downloaded
-     * global configuration is valid according to the provided source anchor.
+     * Check whether the global configuration is valid according to the provided source anchor.
      *
      * @param sourceAnchor path to the source anchor xml file
      * @throws Exception if an configuration client error occurs
      */
     public static void validateConfiguration(final String sourceAnchor)
             throws Exception {
-        ProcessBuilder pb = new ProcessBuilder(
-                ConfProxyProperties.getDownloadScriptPath(),
-                sourceAnchor);
-        pb.redirectErrorStream(true);
-        pb.redirectOutput(ProcessBuilder.Redirect.INHERIT);
-        log.info("Running '{} {}' ...",
-                ConfProxyProperties.getDownloadScriptPath(),
-                sourceAnchor);
-        runConfClient(pb);
+        log.info("Validating global configuration using anchor '{}' ...", sourceAnchor);
+        int exitCode = ConfigurationClientCLI.validate(sourceAnchor);
+        if (exitCode != SUCCESS) {
+            throw configurationClientError(exitCode, null);
+        }
     }
 
     /**
-     * Helper method for running the configuration client script.
+     * Helper method for translating configuration client error codes to exceptions.
      *
-     * @param pb the configuration client script process builder
-     * @throws Exception if errors occur when running the configuration client
+     * @param exitCode the configuration client error code
+     * @param cause    the configuration client failure, if known
+     * @return exception describing the error
      */
-    private static void runConfClient(final ProcessBuilder pb)
-            throws Exception {
-        int exitCode = -1;
-        try {
-            Process process = pb.start();
-            exitCode = process.waitFor();
-
-        } catch (IOException e) {
-            log.error("IOException", e);
-            exitCode = 2;
-            throw e;
-        } catch (Exception e) {
-            log.error("Undetermined ConfigurationClient exitCode", e);
-            //undetermined ConfigurationClient exitCode, fail in 'finally'
-            throw e;
-        }
-        switch (exitCode) {
-            case SUCCESS:
-                break;
-            case ERROR_CODE_CANNOT_DOWNLOAD_CONF:
-                throw new Exception(String.format(CONFIGURATION_CLIENT_ERROR, exitCode)
-                        + ", download failed");
-            case ERROR_CODE_EXPIRED_CONF:
-                throw new Exception(String.format(CONFIGURATION_CLIENT_ERROR, exitCode)
-                        + ", configuration is outdated");
-            case ERROR_CODE_INVALID_SIGNATURE_VALUE:
-                throw new Exception(String.format(CONFIGURATION_CLIENT_ERROR, exitCode)
-                        + ", configuration is incorrect");
-            case ERROR_CODE_INTERNAL:
-                throw new Exception(String.format(CONFIGURATION_CLIENT_ERROR, exitCode));
-            default:
-                throw new Exception("Failed to download GlobalConf ["
-                        + String.format(CONFIGURATION_CLIENT_ERROR, exitCode)
-                        + "], make sure configuration-client is"
-                        + "installed correctly");
-        }
+    private static Exception configurationClientError(final int exitCode, final Exception cause) {
+        String message = switch (exitCode) {
+            case ERROR_CODE_CANNOT_DOWNLOAD_CONF -> String.format(CONFIGURATION_CLIENT_ERROR, exitCode)
+                    + ", download failed";
+            case ERROR_CODE_EXPIRED_CONF -> String.format(CONFIGURATION_CLIENT_ERROR, exitCode)
+                    + ", configuration is outdated";
+            case ERROR_CODE_INVALID_SIGNATURE_VALUE -> String.format(CONFIGURATION_CLIENT_ERROR, exitCode)
+                    + ", configuration is incorrect";
+            case ERROR_CODE_INTERNAL -> String.format(CONFIGURATION_CLIENT_ERROR, exitCode);
+            default -> "Failed to download GlobalConf ["
+                    + String.format(CONFIGURATION_CLIENT_ERROR, exitCode) + "]";
+        };
+        return new Exception(message, cause);
     }
 
     /**
@@ -43,7 +43,9 @@ import static ee.ria.xroad.common.SystemProperties.CONFIGURATION_PROXY_CONF_PATH
 import static ee.ria.xroad.common.SystemProperties.CONFIGURATION_PROXY_GENERATED_CONF_PATH;
 import static ee.ria.xroad.common.SystemProperties.TEMP_FILES_PATH;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -81,4 +83,12 @@ public class ConfProxyTest {
         assertEquals(0, Files.list(Paths.get("build/tmp/test/PROXY1")).count());
     }
 
+    @Test
+    public void downloadFailureIsReportedAsConfigurationClientError() {
+        Exception exception = assertThrows(Exception.class, () -> ConfProxyHelper.downloadConfiguration(
+                "build/tmp/test/download", "build/tmp/test/missing-anchor.xml", 2));
+        assertTrue(exception.getMessage().contains("configuration-client error"));
+        assertNotNull(exception.getCause());
+    }
+
 }
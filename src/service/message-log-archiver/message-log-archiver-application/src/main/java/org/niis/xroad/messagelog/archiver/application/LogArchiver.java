@@ -27,22 +27,29 @@ package org.niis.xroad.messagelog.archiver.application;
 
 import ee.ria.xroad.common.CodedException;
 import ee.ria.xroad.common.ErrorCodes;
+import ee.ria.xroad.common.identifier.ClientId;
 import ee.ria.xroad.common.messagelog.LogRecord;
 import ee.ria.xroad.common.messagelog.MessageLogProperties;
 import ee.ria.xroad.common.messagelog.MessageRecord;
+import ee.ria.xroad.common.messagelog.PartitionInterval;
 import ee.ria.xroad.common.messagelog.archive.DigestEntry;
+import ee.ria.xroad.common.messagelog.archive.GroupingStrategy;
 import ee.ria.xroad.common.messagelog.archive.LogArchiveBase;
 import ee.ria.xroad.common.messagelog.archive.LogArchiveWriter;
+import ee.ria.xroad.messagelog.database.LogRecordPartitions;
 import ee.ria.xroad.messagelog.database.MessageRecordEncryption;
 import ee.ria.xroad.messagelog.database.entity.ArchiveDigestEntity;
 import ee.ria.xroad.messagelog.database.entity.MessageRecordEntity;
 import ee.ria.xroad.messagelog.database.mapper.ArchiveDigestMapper;
 import ee.ria.xroad.messagelog.database.mapper.MessageRecordMapper;
 
+import jakarta.persistence.Tuple;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
 import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.IOUtils;
 import org.hibernate.Session;
@@ -58,8 +65,14 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Stream;
 
 import static ee.ria.xroad.common.messagelog.MessageLogProperties.getArchiveTransactionBatchSize;
@@ -69,17 +82,23 @@ import static org.apache.commons.lang3.StringUtils.isBlank;
 
 /**
  * Reads all non-archived time-stamped records from the database, writes them
- * to archive file and marks the records as archived.
+ * to archive file and marks the records as archived. With archive grouping,
+ * the groups are archived in parallel.
  */
 @Slf4j
 public class LogArchiver implements Job {
 
     private static final String PROPERTY_NAME_ARCHIVED = "archived";
+    private static final String MEMBER_CLASS = "memberClass";
+    private static final String MEMBER_CODE = "memberCode";
+    private static final String SUBSYSTEM_CODE = "subsystemCode";
 
     public static final int FETCH_SIZE = 10;
 
     private final GlobalConfProvider globalConfProvider;
     private final Path archivePath = Paths.get(MessageLogProperties.getArchivePath());
+    private final GroupingStrategy groupingStrategy = MessageLogProperties.getArchiveGrouping();
+    private final int archiveParallelism = MessageLogProperties.getArchiveParallelism();
 
     public LogArchiver(GlobalConfProvider globalConfProvider) {
         this.globalConfProvider = globalConfProvider;
@@ -90,8 +109,13 @@ public class LogArchiver implements Job {
         try {
             Long maxRecordId = doInTransaction(this::getMaxRecordId);
             if (maxRecordId != null) {
-                while (handleArchive(maxRecordId)) {
-                    // body intentionally empty
+                Long minTime = doInTransaction(this::getMinRecordTime);
+                if (groupingStrategy == GroupingStrategy.NONE || archiveParallelism <= 1) {
+                    while (handleArchive(maxRecordId, minTime, null)) {
+                        // body intentionally empty
+                    }
+                } else {
+                    archiveGroupsInParallel(maxRecordId, minTime);
                 }
             }
             onArchivingDone();
@@ -106,7 +130,49 @@ public class LogArchiver implements Job {
                 .executeUpdate();
     }
 
-    private boolean handleArchive(long maxRecordId) {
+    /**
+     * Archives each archive group in its own worker, with its own database cursor and archive writer, so that the
+     * linking info chain of a group is built by a single worker.
+     */
+    private void archiveGroupsInParallel(long maxRecordId, Long minTime) {
+        final List<ClientId> groups = doInTransaction(session -> getNonArchivedGroups(session, maxRecordId, minTime));
+        log.info("Archiving log records of {} groups using {} workers", groups.size(), archiveParallelism);
+
+        final Map<ClientId, Future<?>> results = new LinkedHashMap<>();
+        try (ExecutorService workers = Executors.newFixedThreadPool(archiveParallelism)) {
+            for (ClientId group : groups) {
+                results.put(group, workers.submit(() -> {
+                    while (handleArchive(maxRecordId, minTime, group)) {
+                        // body intentionally empty
+                    }
+                }));
+            }
+        }
+
+        boolean archived = false;
+        for (Map.Entry<ClientId, Future<?>> result : results.entrySet()) {
+            try {
+                result.getValue().get();
+                archived = true;
+            } catch (ExecutionException e) {
+                log.error("Failed to archive log records of group {}", result.getKey(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        if (archived) {
+            // timestamps are shared by the groups, so they are marked once all the groups are done
+            doInTransaction(this::markTimestampRecordsArchived);
+            runTransferCommand(getArchiveTransferCommand());
+        }
+    }
+
+    /**
+     * Archives one batch of records, of the given archive group only if the group is not null.
+     * Time-stamp records are marked archived and archives transferred by the caller when archiving by group.
+     */
+    private boolean handleArchive(long maxRecordId, Long minTime, ClientId group) {
         return doInTransaction(session -> {
             final int limit = getArchiveTransactionBatchSize();
             final String archiveTransferCommand = getArchiveTransferCommand();
@@ -118,15 +184,15 @@ public class LogArchiver implements Job {
 
             try (LogArchiveWriter archiveWriter = createLogArchiveWriter(session)) {
                 List<Long> recordIds = new ArrayList<>(100);
-                try (Stream<MessageRecordEntity> records = getNonArchivedMessageRecords(session, maxRecordId, limit)) {
+                try (Stream<MessageRecordEntity> records =
+                             getNonArchivedMessageRecords(session, maxRecordId, minTime, group, limit)) {
                     for (Iterator<MessageRecordEntity> it = records.iterator(); it.hasNext(); ) {
                         MessageRecordEntity entity = it.next();
                         MessageRecord messageRecord = MessageRecordMapper.get().toDTO(entity);
                         recordIds.add(messageRecord.getId());
                         messageRecordEncryption.prepareDecryption(messageRecord);
-                        if (archiveWriter.write(messageRecord)) {
-                            runTransferCommand(archiveTransferCommand);
-                        }
+                        // archives completed in this batch are transferred once when the batch is done
+                        archiveWriter.write(messageRecord);
                         //evict record from persistence context to avoid running out of memory
                         session.detach(entity);
                         recordsArchived++;
@@ -142,14 +208,18 @@ public class LogArchiver implements Job {
                         markArchived(session, recordIds);
                         recordIds.clear();
                     }
-                    markTimestampRecordsArchived(session);
+                    if (group == null) {
+                        markTimestampRecordsArchived(session);
+                    }
                 }
                 session.flush();
             } catch (Exception e) {
                 throw new CodedException(ErrorCodes.X_INTERNAL_ERROR, e);
             } finally {
                 if (recordsArchived > 0) {
-                    runTransferCommand(archiveTransferCommand);
+                    if (group == null) {
+                        runTransferCommand(archiveTransferCommand);
+                    }
                     log.info("Archived {} log records in {} ms", recordsArchived, System.currentTimeMillis() - start);
                 }
             }
@@ -199,21 +269,53 @@ public class LogArchiver implements Job {
         return session.createQuery(query).uniqueResult();
     }
 
-    protected Stream<MessageRecordEntity> getNonArchivedMessageRecords(Session session, Long maxId, int limit) {
+    /**
+     * Returns the lower bound for the time of non-archived records when the logrecord table is partitioned,
+     * allowing the database to skip fully archived partitions.
+     */
+    protected Long getMinRecordTime(Session session) {
+        if (MessageLogProperties.getPartitionInterval() == PartitionInterval.NONE
+                || !LogRecordPartitions.isPartitioned(session)) {
+            return null;
+        }
+        return LogRecordPartitions.getNonArchivedRangeStart(session);
+    }
+
+    protected List<ClientId> getNonArchivedGroups(Session session, Long maxId, Long minTime) {
+        final CriteriaBuilder cb = session.getCriteriaBuilder();
+        final CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        final Root<MessageRecordEntity> m = query.from(MessageRecordEntity.class);
+
+        final List<Selection<?>> selections = new ArrayList<>(List.of(m.get(MEMBER_CLASS), m.get(MEMBER_CODE)));
+        if (groupingStrategy == GroupingStrategy.SUBSYSTEM) {
+            selections.add(m.get(SUBSYSTEM_CODE));
+        }
+        query.select(cb.tuple(selections.toArray(new Selection<?>[0])))
+                .distinct(true)
+                .where(getNonArchivedPredicates(cb, m, maxId, minTime, null).toArray(new Predicate[0]));
+
+        final String instance = globalConfProvider.getInstanceIdentifier();
+        return session.createQuery(query).getResultList().stream()
+                .<ClientId>map(t -> ClientId.Conf.create(instance, t.get(0, String.class), t.get(1, String.class),
+                        selections.size() > 2 ? t.get(2, String.class) : null))
+                .toList();
+    }
+
+    protected Stream<MessageRecordEntity> getNonArchivedMessageRecords(Session session, Long maxId, Long minTime,
+                                                                       ClientId group, int limit) {
         final CriteriaBuilder cb = session.getCriteriaBuilder();
         final CriteriaQuery<MessageRecordEntity> query = cb.createQuery(MessageRecordEntity.class);
         final Root<MessageRecordEntity> m = query.from(MessageRecordEntity.class);
 
+        final List<Predicate> predicates = getNonArchivedPredicates(cb, m, maxId, minTime, group);
+
         query.select(m)
-                .where(cb.and(
-                        cb.isNotNull(m.get("timestampRecord")),
-                        cb.isFalse(m.get(PROPERTY_NAME_ARCHIVED)),
-                        cb.lessThanOrEqualTo(m.get("id"), maxId)))
+                .where(predicates.toArray(new Predicate[0]))
                 .orderBy(
                         // order is important for archive grouping
-                        cb.asc(m.get("memberClass")),
-                        cb.asc(m.get("memberCode")),
-                        cb.asc(m.get("subsystemCode")),
+                        cb.asc(m.get(MEMBER_CLASS)),
+                        cb.asc(m.get(MEMBER_CODE)),
+                        cb.asc(m.get(SUBSYSTEM_CODE)),
                         cb.asc(m.get("id")));
 
         return session
@@ -226,6 +328,29 @@ public class LogArchiver implements Job {
                 .getResultStream();
     }
 
+    private List<Predicate> getNonArchivedPredicates(CriteriaBuilder cb, Root<MessageRecordEntity> m, Long maxId,
+                                                     Long minTime, ClientId group) {
+        final List<Predicate> predicates = new ArrayList<>(List.of(
+                cb.isNotNull(m.get("timestampRecord")),
+                cb.isFalse(m.get(PROPERTY_NAME_ARCHIVED)),
+                cb.lessThanOrEqualTo(m.get("id"), maxId)));
+        if (minTime != null) {
+            predicates.add(cb.greaterThanOrEqualTo(m.get("time"), minTime));
+        }
+        if (group != null) {
+            predicates.add(equalOrNull(cb, m.<String>get(MEMBER_CLASS), group.getMemberClass()));
+            predicates.add(equalOrNull(cb, m.<String>get(MEMBER_CODE), group.getMemberCode()));
+            if (groupingStrategy == GroupingStrategy.SUBSYSTEM) {
+                predicates.add(equalOrNull(cb, m.<String>get(SUBSYSTEM_CODE), group.getSubsystemCode()));
+            }
+        }
+        return predicates;
+    }
+
+    private static Predicate equalOrNull(CriteriaBuilder cb, Expression<String> path, String value) {
+        return value == null ? cb.isNull(path) : cb.equal(path, value);
+    }
+
     protected void onArchivingDone() {
         //hook for testing
     }
@@ -26,7 +26,9 @@
 package org.niis.xroad.messagelog.archiver.application;
 
 import ee.ria.xroad.common.messagelog.MessageLogProperties;
+import ee.ria.xroad.common.messagelog.PartitionInterval;
 import ee.ria.xroad.common.util.TimeUtils;
+import ee.ria.xroad.messagelog.database.LogRecordPartitions;
 import ee.ria.xroad.messagelog.database.MessageLogDatabaseCtx;
 
 import lombok.extern.slf4j.Slf4j;
@@ -34,16 +36,25 @@ import org.hibernate.query.MutationQuery;
 import org.quartz.Job;
 import org.quartz.JobExecutionContext;
 
+import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.List;
 
 /**
  * Deletes all archived log records from the database.
+ * <p>
+ * If the logrecord table is partitioned, upcoming partitions are created and fully archived partitions
+ * are dropped as a whole instead of deleting the records.
  */
 @Slf4j
 public class LogCleaner implements Job {
 
     public static final int CLEAN_BATCH_LIMIT = MessageLogProperties.getCleanTransactionBatchSize();
 
+    private static final int PARTITIONS_AHEAD = 7;
+
+    private final PartitionInterval partitionInterval = MessageLogProperties.getPartitionInterval();
+
     @Override
     public void execute(JobExecutionContext context) {
         try {
@@ -51,18 +62,28 @@ public class LogCleaner implements Job {
             final long removed = handleClean();
             if (removed == 0) {
                 log.info("No archived records to remove from database");
-            } else {
+            } else if (partitionInterval == PartitionInterval.NONE) {
                 log.info("Removed {} archived records from database", removed);
+            } else {
+                log.info("Removed {} archived records or record partitions from database", removed);
             }
         } catch (Exception e) {
             log.error("Error when cleaning archived records from database", e);
         }
     }
 
+    /**
+     * @return the number of removed records, or the number of dropped partitions if the table is partitioned
+     */
     protected long handleClean() {
 
         final Long time =
                 TimeUtils.now().minus(MessageLogProperties.getKeepRecordsForDays(), ChronoUnit.DAYS).toEpochMilli();
+        if (partitionInterval != PartitionInterval.NONE
+                && MessageLogDatabaseCtx.doInTransaction(LogRecordPartitions::isPartitioned)) {
+            return handlePartitionedClean(time);
+        }
+
         long count = 0;
         int removed;
         do {
@@ -77,4 +98,27 @@ public class LogCleaner implements Job {
         } while (removed > 0);
         return count;
     }
+
+    private long handlePartitionedClean(long time) {
+        final Instant now = TimeUtils.now();
+        final List<LogRecordPartitions.Partition> partitions = MessageLogDatabaseCtx.doInTransaction(session -> {
+            int created = LogRecordPartitions.createPartitions(session, partitionInterval.getDuration(),
+                    now.plus(partitionInterval.getDuration().multipliedBy(PARTITIONS_AHEAD)));
+            log.debug("Created {} log record partitions", created);
+            LogRecordPartitions.markArchivedPartitions(session, now);
+            return LogRecordPartitions.getRemovablePartitions(session, time);
+        });
+
+        long count = 0;
+        for (LogRecordPartitions.Partition partition : partitions) {
+            // one partition per transaction, detaching locks the whole logrecord table until commit
+            MessageLogDatabaseCtx.doInTransaction(session -> {
+                LogRecordPartitions.dropPartition(session, partition);
+                return null;
+            });
+            log.info("Dropped archived log record partition {}", partition.name());
+            count++;
+        }
+        return count;
+    }
 }
@@ -61,6 +61,19 @@ public final class OpMonitoringSystemProperties {
     private static final String OP_MONITOR_BUFFER_SENDING_INTERVAL_SECONDS =
             PREFIX + "op-monitor-buffer.sending-interval-seconds";
 
+    /**
+     * Property name of the maximum number of concurrent store requests sent by the operational monitoring buffer to
+     * the operational monitoring daemon.
+     */
+    private static final String OP_MONITOR_BUFFER_MAX_CONCURRENT_REQUESTS =
+            PREFIX + "op-monitor-buffer.max-concurrent-requests";
+
+    /**
+     * Property name of the flag for gzip compressing the store requests sent by the operational monitoring buffer.
+     */
+    private static final String OP_MONITOR_BUFFER_COMPRESSION_ENABLED =
+            PREFIX + "op-monitor-buffer.compression-enabled";
+
 
     /**
      * Property name of the operational monitoring buffer HTTP client SO_TIMEOUT seconds.
@@ -188,6 +201,22 @@ public final class OpMonitoringSystemProperties {
         return Long.parseLong(System.getProperty(OP_MONITOR_BUFFER_SENDING_INTERVAL_SECONDS, "5"));
     }
 
+    /**
+     * @return the maximum number of concurrent store requests sent to the operational monitoring daemon, '4' by
+     * default. Values less than 1 are treated as 1.
+     */
+    public static int getOpMonitorBufferMaxConcurrentRequests() {
+        return Math.max(1, Integer.parseInt(System.getProperty(OP_MONITOR_BUFFER_MAX_CONCURRENT_REQUESTS, "4")));
+    }
+
+    /**
+     * @return true if the store requests sent to the operational monitoring daemon are gzip compressed, 'false' by
+     * default.
+     */
+    public static boolean isOpMonitorBufferCompressionEnabled() {
+        return Boolean.parseBoolean(System.getProperty(OP_MONITOR_BUFFER_COMPRESSION_ENABLED, "false"));
+    }
+
     /**
      * @return the operational monitoring buffer HTTP client SO_TIMEOUT in seconds, '60' by default.
      */
@@ -123,8 +123,14 @@ class OpMonitorDaemonRequestHandler extends HandlerBase {
         } catch (Throwable t) { // We want to catch serious errors as well
             log.error("Error while handling query request", t);
 
-            sendErrorResponse(request, response, callback, translateWithPrefix(
-                    SERVER_SERVER_PROXY_OPMONITOR_X, t));
+            if (response.isCommitted()) {
+                // A fault can not be sent after a part of the response has
+                // been sent, the response is aborted instead.
+                callback.failed(t);
+            } else {
+                sendErrorResponse(request, response, callback, translateWithPrefix(
+                        SERVER_SERVER_PROXY_OPMONITOR_X, t));
+            }
         }
     }
 
@@ -25,6 +25,7 @@
  */
 package org.niis.xroad.opmonitor.core;
 
+import ee.ria.xroad.common.db.DatabaseCtx;
 import ee.ria.xroad.common.db.HibernateUtil;
 import ee.ria.xroad.common.identifier.ClientId;
 import ee.ria.xroad.common.identifier.ServiceId;
@@ -32,6 +33,7 @@ import ee.ria.xroad.common.identifier.ServiceId;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.function.FailableConsumer;
 import org.hibernate.Session;
 import org.hibernate.query.Query;
 import org.niis.xroad.opmonitor.api.OpMonitoringData;
@@ -39,10 +41,14 @@ import org.niis.xroad.opmonitor.api.OpMonitoringSystemProperties;
 import org.niis.xroad.opmonitor.core.entity.OperationalDataRecordEntity;
 import org.niis.xroad.opmonitor.core.mapper.OperationalDataRecordMapper;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import static org.niis.xroad.opmonitor.core.OpMonitorDaemonDatabaseCtx.doInTransaction;
 import static org.niis.xroad.opmonitor.core.OperationalDataOutputSpecFields.MONITORING_DATA_TS;
@@ -55,6 +61,7 @@ import static org.niis.xroad.opmonitor.core.OperationalDataOutputSpecFields.MONI
 final class OperationalDataRecordManager {
 
     private static final int DEFAULT_BATCH_SIZE = 50;
+    private static final int QUERY_FETCH_SIZE = 500;
 
     @Setter
     private static int maxRecordsInPayload = OpMonitoringSystemProperties.getOpMonitorMaxRecordsInPayload();
@@ -83,14 +90,96 @@ final class OperationalDataRecordManager {
     static OperationalDataRecords queryRecords(long recordsFrom, long recordsTo, ClientId clientFilter,
                                                ClientId serviceProviderFilter,
                                                Set<String> outputFields) {
-        OperationalDataRecords records = doInTransaction(session -> queryOperationalDataInTransaction(session,
-                recordsFrom, recordsTo, clientFilter, serviceProviderFilter, outputFields));
+        OperationalDataRecords records = new OperationalDataRecords(new ArrayList<>());
 
-        removeMonitoringDataTsIfNotSpecified(records, outputFields);
+        Long nextRecordsFrom = doInTransaction(session -> {
+            OperationalDataRecordsRange range = queryRecordsRangeInTransaction(session, recordsFrom, recordsTo,
+                    clientFilter, serviceProviderFilter);
+            scrollRecordsInTransaction(session, range, clientFilter, serviceProviderFilter, outputFields,
+                    records.getRecords()::add);
+
+            return range.nextRecordsFrom();
+        });
+
+        records.setNextRecordsFrom(nextRecordsFrom);
 
         return records;
     }
 
+    /**
+     * Determines the range of records to be returned for the given search criteria without reading the records.
+     * @see #queryRecordsRangeInTransaction
+     */
+    static OperationalDataRecordsRange queryRecordsRange(long recordsFrom, long recordsTo, ClientId clientFilter,
+                                                         ClientId serviceProviderFilter) {
+        return doInTransaction(session -> queryRecordsRangeInTransaction(session, recordsFrom, recordsTo,
+                clientFilter, serviceProviderFilter));
+    }
+
+    /**
+     * Reads the records of the given range one by one and passes them to the consumer. The records are never
+     * held in memory all at once.
+     * @param range                 range of records returned by {@link #queryRecordsRange}
+     * @param clientFilter          filter records by client (if not null)
+     * @param serviceProviderFilter filter records by service provider (if not null)
+     * @param outputFields          list of the requested operational data fields
+     * @param consumer              consumer of the records
+     */
+    static void streamRecords(OperationalDataRecordsRange range, ClientId clientFilter,
+                              ClientId serviceProviderFilter, Set<String> outputFields,
+                              FailableConsumer<OperationalDataRecord, IOException> consumer) {
+        if (range.recordsCount() == 0) {
+            return;
+        }
+
+        doInTransaction(session -> {
+            scrollRecordsInTransaction(session, range, clientFilter, serviceProviderFilter, outputFields, record -> {
+                try {
+                    consumer.accept(record);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            return null;
+        });
+    }
+
+    /**
+     * Starts a read-only transaction with repeatable read isolation. The queries of the current thread join this
+     * transaction until it is committed or closed, so that the records range and the streamed records of a
+     * response are read from the same snapshot of the database. Closing a transaction that has not been
+     * committed rolls it back.
+     */
+    static ReadOnlyTransaction beginReadOnlyTransaction() {
+        DatabaseCtx ctx = OpMonitorDaemonDatabaseCtx.get();
+        try {
+            ctx.beginTransaction()
+                    .createNativeMutationQuery("SET TRANSACTION ISOLATION LEVEL REPEATABLE READ, READ ONLY")
+                    .executeUpdate();
+        } catch (RuntimeException e) {
+            ctx.rollbackTransaction();
+            throw e;
+        }
+
+        return new ReadOnlyTransaction() {
+            private boolean committed = false;
+
+            @Override
+            public void commit() {
+                ctx.commitTransaction();
+                committed = true;
+            }
+
+            @Override
+            public void close() {
+                if (!committed) {
+                    ctx.rollbackTransaction();
+                }
+            }
+        };
+    }
+
     static List<OperationalDataInTimeInterval> queryRequestMetricsDividedInIntervals(long startTime,
                                                                                      long endTime,
                                                                                      int intervalInMinutes,
@@ -149,56 +238,75 @@ final class OperationalDataRecordManager {
     }
 
     /**
-     * Queries operational data records from the database using search criteria parameters. The number of returned
-     * records is limited by the configured value maxRecordsInPayload plus overflow records with the same
-     * monitorindDataTs timestamp as the last included record.
+     * Determines the range of operational data records matching the search criteria parameters. The number of
+     * records in the range is limited by the configured value maxRecordsInPayload plus overflow records with the
+     * same monitoringDataTs timestamp as the last included record. Since the records are ordered by monitoringDataTs,
+     * the range always covers all the matching records between recordsFrom and its (possibly lowered) recordsTo.
      * @param session               database session
      * @param recordsFrom           records from timestamp seconds
      * @param recordsTo             records to timestamp seconds
      * @param clientFilter          filter records by client (if not null)
      * @param serviceProviderFilter filter records by service provider (if not null)
-     * @param outputFields          list of the requested operational data field
-     * @return operational data records.
+     * @return operational data records range.
      */
-    private static OperationalDataRecords queryOperationalDataInTransaction(Session session, long recordsFrom,
-                                                                            long recordsTo, ClientId clientFilter,
-                                                                            ClientId serviceProviderFilter,
-                                                                            Set<String> outputFields) {
-
-        final OperationalDataRecordQuery
-                query = new OperationalDataRecordQuery(session, clientFilter, serviceProviderFilter, outputFields);
-        query.between(recordsFrom, recordsTo);
-        query.orderByAsc(MONITORING_DATA_TS);
-        query.setMaxRecords(maxRecordsInPayload);
-        OperationalDataRecords records = new OperationalDataRecords(query.list());
+    private static OperationalDataRecordsRange queryRecordsRangeInTransaction(Session session, long recordsFrom,
+                                                                              long recordsTo, ClientId clientFilter,
+                                                                              ClientId serviceProviderFilter) {
+        long rangeTo = recordsTo;
+        Long nextRecordsFrom = null;
+
+        final OperationalDataRecordQuery last = new OperationalDataRecordQuery(session, clientFilter,
+                serviceProviderFilter, Collections.singleton(MONITORING_DATA_TS));
+        last.between(recordsFrom, recordsTo);
+        last.orderByAsc(MONITORING_DATA_TS);
+        last.setFirstRecord(maxRecordsInPayload - 1);
+        last.setMaxRecords(1);
+        List<OperationalDataRecord> lastRecord = last.list();
 
         // Check overflow.
-        if (records.size() == maxRecordsInPayload) {
+        if (!lastRecord.isEmpty()) {
             log.trace("Check possible records overflow");
 
-            long lastMonitoringDataTs = records.getLastMonitoringDataTs();
-            final OperationalDataRecordQuery overflow =
-                    new OperationalDataRecordQuery(session, clientFilter, serviceProviderFilter, outputFields);
-            overflow.addOverflowCriteria(lastMonitoringDataTs);
-            OperationalDataRecords overflowRecords = new OperationalDataRecords(overflow.list());
-
-            records.removeRecordsByMonitoringDataTs(lastMonitoringDataTs);
-            records.append(overflowRecords);
+            long lastMonitoringDataTs = lastRecord.getFirst().getMonitoringDataTs();
+            rangeTo = lastMonitoringDataTs;
 
             if (recordsOverflow(session, lastMonitoringDataTs, recordsTo, clientFilter, serviceProviderFilter)) {
                 log.debug("Records overflow, set nextRecordsFrom to {}", lastMonitoringDataTs + 1);
 
-                records.setNextRecordsFrom(lastMonitoringDataTs + 1);
+                nextRecordsFrom = lastMonitoringDataTs + 1;
             }
         }
 
-        return records;
+        final OperationalDataRecordQuery count = new OperationalDataRecordQuery(session, clientFilter,
+                serviceProviderFilter, Collections.singleton(MONITORING_DATA_TS));
+        count.between(recordsFrom, rangeTo);
+
+        return new OperationalDataRecordsRange(recordsFrom, rangeTo, Math.toIntExact(count.count()), nextRecordsFrom);
     }
 
-    private static void removeMonitoringDataTsIfNotSpecified(OperationalDataRecords records, Set<String> outputFields) {
-        if (!outputFields.isEmpty() && !outputFields.contains(MONITORING_DATA_TS)) {
-            records.getRecords().forEach(i -> i.setMonitoringDataTs(null));
+    private static void scrollRecordsInTransaction(Session session, OperationalDataRecordsRange range,
+                                                   ClientId clientFilter, ClientId serviceProviderFilter,
+                                                   Set<String> outputFields,
+                                                   Consumer<OperationalDataRecord> consumer) {
+        if (range.recordsCount() == 0) {
+            return;
         }
+
+        final OperationalDataRecordQuery query =
+                new OperationalDataRecordQuery(session, clientFilter, serviceProviderFilter, outputFields);
+        query.between(range.recordsFrom(), range.recordsTo());
+        query.orderByAsc(MONITORING_DATA_TS);
+        // Never return more records than announced in the response, even if records were added meanwhile.
+        query.setMaxRecords(range.recordsCount());
+
+        boolean removeMonitoringDataTs = !outputFields.isEmpty() && !outputFields.contains(MONITORING_DATA_TS);
+
+        query.scroll(QUERY_FETCH_SIZE, record -> {
+            if (removeMonitoringDataTs) {
+                record.setMonitoringDataTs(null);
+            }
+            consumer.accept(record);
+        });
     }
 
     private static boolean recordsOverflow(Session session, long lastMonitoringDataTs, long recordsTo,
@@ -224,6 +332,16 @@ final class OperationalDataRecordManager {
         return !query.list().isEmpty();
     }
 
+    /**
+     * Transaction started by {@link #beginReadOnlyTransaction()}.
+     */
+    interface ReadOnlyTransaction extends AutoCloseable {
+        void commit();
+
+        @Override
+        void close();
+    }
+
     @RequiredArgsConstructor
     private static final class SessionFlusher {
         private final Session session;
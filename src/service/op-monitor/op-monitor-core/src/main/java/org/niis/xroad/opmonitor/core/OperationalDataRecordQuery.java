@@ -36,6 +36,9 @@ import jakarta.persistence.criteria.Root;
 import jakarta.persistence.criteria.Selection;
 import lombok.Setter;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.function.FailableConsumer;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.niis.xroad.opmonitor.core.entity.OperationalDataRecordEntity;
 
@@ -73,6 +76,9 @@ final class OperationalDataRecordQuery {
     @Setter
     private int maxRecords = Integer.MAX_VALUE;
 
+    @Setter
+    private int firstRecord = 0;
+
     private Predicate pred;
     private List<Selection<?>> projection = new ArrayList<>();
     private jakarta.persistence.criteria.Order order = null;
@@ -162,10 +168,41 @@ final class OperationalDataRecordQuery {
         }
         return transform(session.createQuery(query)
                 .setReadOnly(true)
+                .setFirstResult(firstRecord)
                 .setMaxResults(maxRecords)
                 .getResultList());
     }
 
+    long count() {
+        query.multiselect(cb.count(from)).where(pred);
+        return session.createQuery(query)
+                .setReadOnly(true)
+                .getSingleResult()
+                .get(0, Long.class);
+    }
+
+    /**
+     * Reads the matching records one by one using a forward-only cursor, so that
+     * the whole result set is never held in memory.
+     * @param fetchSize number of rows fetched from the database at a time
+     * @param consumer  consumer of the records
+     */
+    <E extends Exception> void scroll(int fetchSize, FailableConsumer<OperationalDataRecord, E> consumer) throws E {
+        query.multiselect(projection).where(pred);
+        if (order != null) {
+            query.orderBy(order);
+        }
+        try (ScrollableResults<Tuple> results = session.createQuery(query)
+                .setReadOnly(true)
+                .setFetchSize(fetchSize)
+                .setMaxResults(maxRecords)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                consumer.accept(transform(results.get()));
+            }
+        }
+    }
+
     void between(long fromTs, long toTs) {
         pred = cb.and(pred, cb.between(from.get(MONITORING_DATA_TS), fromTs, toTs));
     }
@@ -187,20 +224,24 @@ final class OperationalDataRecordQuery {
         List<OperationalDataRecord> tmp = new ArrayList<>(result.size());
 
         for (Tuple t : result) {
-            final OperationalDataRecord record = new OperationalDataRecord();
-            for (TupleElement<?> te : t.getElements()) {
-                final Method method = SETTERS.get(te.getAlias());
-                if (method != null) {
-                    try {
-                        method.invoke(record, t.get(te));
-                    } catch (InvocationTargetException | IllegalAccessException e) {
-                        throw new IllegalArgumentException("Unable to transform", e);
-                    }
+            tmp.add(transform(t));
+        }
+        return tmp;
+    }
+
+    private static OperationalDataRecord transform(Tuple t) {
+        final OperationalDataRecord record = new OperationalDataRecord();
+        for (TupleElement<?> te : t.getElements()) {
+            final Method method = SETTERS.get(te.getAlias());
+            if (method != null) {
+                try {
+                    method.invoke(record, t.get(te));
+                } catch (InvocationTargetException | IllegalAccessException e) {
+                    throw new IllegalArgumentException("Unable to transform", e);
                 }
             }
-            tmp.add(record);
         }
-        return tmp;
+        return record;
     }
 
     /*
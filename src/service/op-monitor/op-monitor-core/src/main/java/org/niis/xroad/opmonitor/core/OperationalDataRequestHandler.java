@@ -29,7 +29,6 @@ import ee.ria.xroad.common.CodedException;
 import ee.ria.xroad.common.identifier.ClientId;
 import ee.ria.xroad.common.identifier.SecurityServerId;
 import ee.ria.xroad.common.message.MultipartSoapMessageEncoder;
-import ee.ria.xroad.common.message.SoapMessageEncoder;
 import ee.ria.xroad.common.message.SoapMessageImpl;
 import ee.ria.xroad.common.util.MimeTypes;
 import ee.ria.xroad.common.util.TimeUtils;
@@ -37,12 +36,14 @@ import ee.ria.xroad.opmonitordaemon.message.GetSecurityServerOperationalDataResp
 import ee.ria.xroad.opmonitordaemon.message.GetSecurityServerOperationalDataType;
 import ee.ria.xroad.opmonitordaemon.message.SearchCriteriaType;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import jakarta.xml.bind.JAXBElement;
 import jakarta.xml.bind.JAXBException;
 import jakarta.xml.bind.Marshaller;
 import jakarta.xml.soap.SOAPException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.function.FailableConsumer;
 import org.niis.xroad.globalconf.GlobalConfProvider;
 import org.niis.xroad.opmonitor.api.OpMonitoringSystemProperties;
 
@@ -52,6 +53,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
 
 import static ee.ria.xroad.common.ErrorCodes.CLIENT_X;
 import static ee.ria.xroad.common.ErrorCodes.X_INTERNAL_ERROR;
@@ -103,13 +105,16 @@ class OperationalDataRequestHandler extends QueryRequestHandler {
                 clientId, recordsFrom, recordsTo, serviceProviderId,
                 outputFields);
 
-        GetSecurityServerOperationalDataResponseType opDataResponse =
-                buildOperationalDataResponse(
-                        getClientForFilter(clientId, serverId), recordsFrom,
-                        recordsTo, serviceProviderId, outputFields,
-                        recordsAvailableBefore);
+        // The records range in the SOAP body and the records streamed into
+        // the attachment must be read from the same database snapshot.
+        try (OperationalDataRecordManager.ReadOnlyTransaction transaction = beginReadOnlyTransaction()) {
+            GetSecurityServerOperationalDataResponseType opDataResponse =
+                    buildOperationalDataResponse(
+                            getClientForFilter(clientId, serverId), recordsFrom,
+                            recordsTo, serviceProviderId, outputFields,
+                            recordsAvailableBefore);
 
-        try (SoapMessageEncoder responseEncoder = new MultipartSoapMessageEncoder(out)) {
+            MultipartSoapMessageEncoder responseEncoder = new MultipartSoapMessageEncoder(out);
             contentTypeCallback.accept(responseEncoder.getContentType());
 
             SoapEncoderAttachmentMarshaller attachmentMarshaller =
@@ -121,6 +126,13 @@ class OperationalDataRequestHandler extends QueryRequestHandler {
             responseEncoder.soap(response, new HashMap<>());
 
             attachmentMarshaller.encodeAttachments();
+
+            // The closing boundary is written only if all the records were
+            // written, so that a response broken by an error while streaming
+            // the records can not be taken for a complete one.
+            responseEncoder.close();
+
+            transaction.commit();
         }
     }
 
@@ -167,8 +179,7 @@ class OperationalDataRequestHandler extends QueryRequestHandler {
             long recordsTo,
             ClientId filterByServiceProvider,
             Set<String> outputFields,
-            long recordsAvailableBefore) throws IOException {
-        OperationalDataRecords responseRecords;
+            long recordsAvailableBefore) {
         GetSecurityServerOperationalDataResponseType opDataResponse =
                 OBJECT_FACTORY
                         .createGetSecurityServerOperationalDataResponseType();
@@ -183,40 +194,61 @@ class OperationalDataRequestHandler extends QueryRequestHandler {
             opDataResponse.setNextRecordsFrom(recordsAvailableBefore);
         }
 
-        responseRecords = getOperationalDataRecords(filterByClient,
-                recordsFrom, recordsTo, filterByServiceProvider, outputFields);
+        OperationalDataRecordsRange range = getOperationalDataRecordsRange(
+                filterByClient, recordsFrom, recordsTo, filterByServiceProvider);
 
-        opDataResponse.setRecordsCount(responseRecords.size());
-        String payload = responseRecords.getPayload(OBJECT_WRITER);
+        opDataResponse.setRecordsCount(range.recordsCount());
 
-        // Optimize memory usage: release records memory before compressing
-        // operation.
-        responseRecords.getRecords().clear();
+        // The records are read from the database and compressed only when the
+        // attachment is written, so the memory usage does not depend on the
+        // number of records.
+        opDataResponse.setRecords(createStreamingAttachment(CID,
+                MimeTypes.GZIP, os -> writePayload(os, range, filterByClient,
+                        filterByServiceProvider, outputFields)));
 
-        opDataResponse.setRecords(createAttachmentDataSource(compress(payload),
-                CID, MimeTypes.GZIP));
-
-        if (responseRecords.getNextRecordsFrom() != null) {
-            opDataResponse.setNextRecordsFrom(
-                    responseRecords.getNextRecordsFrom());
+        if (range.nextRecordsFrom() != null) {
+            opDataResponse.setNextRecordsFrom(range.nextRecordsFrom());
         }
 
         return opDataResponse;
     }
 
+    /**
+     * Writes the gzip compressed JSON payload {"records":[...]} of the given
+     * records range. If writing the records fails, the payload is left
+     * unfinished (without the closing brackets and the gzip trailer).
+     */
+    private void writePayload(OutputStream out,
+                              OperationalDataRecordsRange range,
+                              ClientId filterByClient,
+                              ClientId filterByServiceProvider,
+                              Set<String> outputFields) throws IOException {
+        JsonGenerator generator = OBJECT_WRITER.createGenerator(
+                new GZIPOutputStream(out));
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("records");
+
+        streamOperationalDataRecords(range, filterByClient,
+                filterByServiceProvider, outputFields,
+                record -> OBJECT_WRITER.writeValue(generator, record));
+
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.close();
+    }
+
     private static JAXBElement<?> createResponseElement(
             GetSecurityServerOperationalDataResponseType opDataResponse) {
         return OBJECT_FACTORY.createGetSecurityServerOperationalDataResponse(
                 opDataResponse);
     }
 
-    protected OperationalDataRecords getOperationalDataRecords(
+    protected OperationalDataRecordsRange getOperationalDataRecordsRange(
             ClientId filterByClient, long recordsFrom, long recordsTo,
-            ClientId filterByServiceProvider, Set<String> outputFields) {
+            ClientId filterByServiceProvider) {
         try {
-            return OperationalDataRecordManager.queryRecords(recordsFrom,
-                    recordsTo, filterByClient, filterByServiceProvider,
-                    outputFields);
+            return OperationalDataRecordManager.queryRecordsRange(recordsFrom,
+                    recordsTo, filterByClient, filterByServiceProvider);
         } catch (Exception e) {
             log.error("Failed to get records for response", e);
 
@@ -225,6 +257,32 @@ class OperationalDataRequestHandler extends QueryRequestHandler {
         }
     }
 
+    protected OperationalDataRecordManager.ReadOnlyTransaction beginReadOnlyTransaction() {
+        try {
+            return OperationalDataRecordManager.beginReadOnlyTransaction();
+        } catch (Exception e) {
+            log.error("Failed to start transaction for response", e);
+
+            throw new CodedException(X_INTERNAL_ERROR,
+                    "Failed to start transaction for response: " + e.getMessage());
+        }
+    }
+
+    protected void streamOperationalDataRecords(
+            OperationalDataRecordsRange range, ClientId filterByClient,
+            ClientId filterByServiceProvider, Set<String> outputFields,
+            FailableConsumer<OperationalDataRecord, IOException> consumer) {
+        try {
+            OperationalDataRecordManager.streamRecords(range, filterByClient,
+                    filterByServiceProvider, outputFields, consumer);
+        } catch (Exception e) {
+            log.error("Failed to write records to response", e);
+
+            throw new CodedException(X_INTERNAL_ERROR,
+                    "Failed to write records to response: " + e.getMessage());
+        }
+    }
+
     protected ClientId getClientForFilter(ClientId clientId,
                                           SecurityServerId serverId) {
         return !isMonitoringClient(clientId)
@@ -27,7 +27,7 @@ package org.niis.xroad.opmonitor.core;
 
 import ee.ria.xroad.common.CodedException;
 import ee.ria.xroad.common.message.JaxbUtils;
-import ee.ria.xroad.common.message.SoapMessageEncoder;
+import ee.ria.xroad.common.message.MultipartSoapMessageEncoder;
 import ee.ria.xroad.common.message.SoapMessageImpl;
 import ee.ria.xroad.common.message.SoapUtils;
 import ee.ria.xroad.common.util.JsonUtils;
@@ -35,7 +35,7 @@ import ee.ria.xroad.common.util.ResourceUtils;
 import ee.ria.xroad.opmonitordaemon.message.ObjectFactory;
 
 import com.fasterxml.jackson.databind.ObjectWriter;
-import com.sun.istack.ByteArrayDataSource;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import jakarta.activation.DataHandler;
 import jakarta.xml.bind.JAXBContext;
 import jakarta.xml.bind.JAXBElement;
@@ -48,8 +48,8 @@ import jakarta.xml.bind.attachment.AttachmentMarshaller;
 import jakarta.xml.soap.SOAPException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.io.output.ByteArrayOutputStream;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.function.FailableConsumer;
 import org.glassfish.jaxb.runtime.api.AccessorException;
 import org.niis.xroad.common.core.annotation.ArchUnitSuppressed;
 import org.niis.xroad.common.core.exception.XrdRuntimeException;
@@ -61,12 +61,10 @@ import javax.xml.validation.SchemaFactory;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
 import java.util.function.Consumer;
-import java.util.zip.GZIPOutputStream;
 
 import static ee.ria.xroad.common.ErrorCodes.CLIENT_X;
 import static ee.ria.xroad.common.ErrorCodes.X_INTERNAL_ERROR;
@@ -81,7 +79,9 @@ import static ee.ria.xroad.common.util.MimeUtils.HEADER_CONTENT_TRANSFER_ENCODIN
 abstract class QueryRequestHandler {
 
     static final ObjectFactory OBJECT_FACTORY = new ObjectFactory();
-    static final ObjectWriter OBJECT_WRITER = JsonUtils.getObjectWriter();
+    // Values are written one by one to a streamed payload, flushing after each one would defeat compression.
+    static final ObjectWriter OBJECT_WRITER = JsonUtils.getObjectWriter()
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
 
     private static final JAXBContext JAXB_CTX = initJaxbCtx();
     private static final Schema OP_MONITORING_SCHEMA = createSchema();
@@ -183,27 +183,28 @@ abstract class QueryRequestHandler {
         return marshaller;
     }
 
-    static DataHandler createAttachmentDataSource(
-            byte[] payload, String cid, String contentType) {
-        return new DataHandler(new ByteArrayDataSource(payload, contentType)) {
+    /**
+     * Creates an attachment whose content is written directly to the response
+     * when the attachments are encoded, instead of being buffered in memory.
+     *
+     * @param cid           content ID of the attachment
+     * @param contentType   content type of the attachment
+     * @param contentWriter writes the attachment content to the given stream
+     * @return the attachment data handler
+     */
+    static DataHandler createStreamingAttachment(String cid, String contentType,
+                                                 FailableConsumer<OutputStream, IOException> contentWriter) {
+        return new DataHandler(cid, contentType) {
             @Override
             public String getName() {
                 return cid;
             }
-        };
-    }
-
-    static byte[] compress(String data) throws IOException {
-        byte[] dataBytes = data.getBytes(StandardCharsets.UTF_8);
 
-        try (ByteArrayOutputStream bos = new ByteArrayOutputStream(
-                dataBytes.length)) {
-            GZIPOutputStream gzip = new GZIPOutputStream(bos);
-            gzip.write(dataBytes);
-            gzip.close();
-
-            return bos.toByteArray();
-        }
+            @Override
+            public void writeTo(OutputStream os) throws IOException {
+                contentWriter.accept(os);
+            }
+        };
     }
 
     private static Map<String, String> getAdditionalAttachmentHeaders(
@@ -221,15 +222,17 @@ abstract class QueryRequestHandler {
             extends AttachmentMarshaller {
         private static final String CID_PREFIX = "cid:";
 
-        private final SoapMessageEncoder responseEncoder;
+        private final MultipartSoapMessageEncoder responseEncoder;
 
         private final Map<String, DataHandler> attachments = new HashMap<>();
 
         void encodeAttachments() throws IOException {
             for (Map.Entry<String, DataHandler> attach : attachments.entrySet()) {
-                responseEncoder.attachment(attach.getValue().getContentType(),
-                        attach.getValue().getInputStream(),
-                        getAdditionalAttachmentHeaders(attach.getKey()));
+                try (OutputStream content = responseEncoder.attachment(
+                        attach.getValue().getContentType(),
+                        getAdditionalAttachmentHeaders(attach.getKey()))) {
+                    attach.getValue().writeTo(content);
+                }
             }
         }
 
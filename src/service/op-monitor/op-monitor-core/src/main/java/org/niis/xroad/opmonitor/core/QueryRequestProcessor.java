@@ -109,23 +109,26 @@ class QueryRequestProcessor {
 
             response.putHeader("Connection", "close");
 
-            try (var responseOut = response.getOutputStream()) {
-                switch (requestSoap.getService().getServiceCode()) {
-                    case GET_SECURITY_SERVER_OPERATIONAL_DATA:
-                        operationalDataHandler.handle(requestSoap,
-                                responseOut,
-                                responseContentTypeAssigner());
-                        break;
-                    case GET_SECURITY_SERVER_HEALTH_DATA:
-                        healthDataHandler.handle(requestSoap,
-                                responseOut,
-                                responseContentTypeAssigner());
-                        break;
-                    default:
-                        throw new CodedException(ErrorCodes.X_INTERNAL_ERROR,
-                                "Unknown service: '%s'", requestSoap.getService());
-                }
+            // The response is completed only on success, an error while
+            // writing it must abort the response instead.
+            var responseOut = response.getOutputStream();
+            switch (requestSoap.getService().getServiceCode()) {
+                case GET_SECURITY_SERVER_OPERATIONAL_DATA:
+                    operationalDataHandler.handle(requestSoap,
+                            responseOut,
+                            responseContentTypeAssigner());
+                    break;
+                case GET_SECURITY_SERVER_HEALTH_DATA:
+                    healthDataHandler.handle(requestSoap,
+                            responseOut,
+                            responseContentTypeAssigner());
+                    break;
+                default:
+                    throw new CodedException(ErrorCodes.X_INTERNAL_ERROR,
+                            "Unknown service: '%s'", requestSoap.getService());
             }
+
+            responseOut.close();
         }
 
         @Override
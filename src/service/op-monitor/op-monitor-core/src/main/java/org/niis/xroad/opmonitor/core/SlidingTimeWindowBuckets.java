@@ -0,0 +1,91 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.niis.xroad.opmonitor.core;
+
+import com.codahale.metrics.Clock;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * A fixed size ring of time buckets that covers a sliding window of time.
+ * The window slides in steps of one bucket, i.e. 1/{@link #NUMBER_OF_BUCKETS}
+ * of its length. The metrics using the ring keep their per-bucket state in
+ * arrays indexed by the slot numbers returned by {@link #advance()}, so their
+ * memory usage does not depend on the number of updates.
+ * This class is not thread safe, the users must synchronize access to it.
+ */
+final class SlidingTimeWindowBuckets {
+
+    static final int NUMBER_OF_BUCKETS = 100;
+
+    private final Clock clock;
+    private final long bucketNanos;
+    private final IntConsumer clearBucket;
+
+    // The absolute number of the newest bucket in the ring.
+    private long currentBucket;
+
+    /**
+     * Creates a ring of buckets covering the given window of time.
+     *
+     * @param window      the window of time
+     * @param windowUnit  the unit of {@code window}
+     * @param clock       the clock to use for the current time
+     * @param clearBucket called with the slot number of each bucket that
+     *                    drops out of the window
+     */
+    SlidingTimeWindowBuckets(long window, TimeUnit windowUnit, Clock clock, IntConsumer clearBucket) {
+        this.clock = clock;
+        this.bucketNanos = Math.max(1, windowUnit.toNanos(window) / NUMBER_OF_BUCKETS);
+        this.clearBucket = clearBucket;
+        this.currentBucket = Math.floorDiv(clock.getTick(), bucketNanos);
+    }
+
+    /**
+     * Moves the window to the current time, clearing the buckets that
+     * dropped out of it. At most {@link #NUMBER_OF_BUCKETS} buckets are
+     * cleared, regardless of how long the window has been idle.
+     *
+     * @return the slot number of the current bucket
+     */
+    int advance() {
+        long bucket = Math.floorDiv(clock.getTick(), bucketNanos);
+        long expired = Math.min(bucket - currentBucket, NUMBER_OF_BUCKETS);
+
+        for (long i = expired - 1; i >= 0; i--) {
+            clearBucket.accept(slot(bucket - i));
+        }
+
+        currentBucket = Math.max(bucket, currentBucket);
+
+        return slot(currentBucket);
+    }
+
+    private static int slot(long bucket) {
+        return (int) Math.floorMod(bucket, (long) NUMBER_OF_BUCKETS);
+    }
+}
@@ -25,16 +25,21 @@
  */
 package org.niis.xroad.opmonitor.core;
 
+import com.codahale.metrics.Clock;
 import com.codahale.metrics.Counter;
-import com.codahale.metrics.Reservoir;
-import com.codahale.metrics.SlidingTimeWindowReservoir;
 import org.niis.xroad.common.core.exception.XrdRuntimeException;
 
 import java.util.concurrent.TimeUnit;
 
+import static org.niis.xroad.opmonitor.core.SlidingTimeWindowBuckets.NUMBER_OF_BUCKETS;
+
 /**
- * A counter metric that uses the sliding time window reservoir internally to
- * support periodic and configurable resetting.
+ * A counter metric that counts the increments made within a sliding window
+ * of time, supporting periodic and configurable resetting.
+ * The increments are summed up in a fixed number of time buckets, so the
+ * memory usage is constant and both the updates and the reads take constant
+ * time regardless of the number of increments. The window slides in steps of
+ * one bucket (see {@link SlidingTimeWindowBuckets}).
  * This counter does not support manually decrementing the count (the dec()
  * methods raise a runtime exception).
  * We extend Counter instead of implementing the Metric and Counting
@@ -43,7 +48,10 @@ import java.util.concurrent.TimeUnit;
  */
 class SlidingTimeWindowCounter extends Counter {
 
-    private final Reservoir reservoir;
+    private final long[] counts = new long[NUMBER_OF_BUCKETS];
+    private final SlidingTimeWindowBuckets buckets;
+
+    private long count;
 
     /**
      * Creates a counter with the given window of time.
@@ -52,27 +60,32 @@ class SlidingTimeWindowCounter extends Counter {
      * @param windowUnit the unit of {@code window}
      */
     SlidingTimeWindowCounter(long window, TimeUnit windowUnit) {
-        reservoir = new SlidingTimeWindowReservoir(window, windowUnit);
+        this(window, windowUnit, Clock.defaultClock());
+    }
+
+    SlidingTimeWindowCounter(long window, TimeUnit windowUnit, Clock clock) {
+        buckets = new SlidingTimeWindowBuckets(window, windowUnit, clock, this::clearBucket);
     }
 
     /**
-     * @return the snapshot size of the sliding time window reservoir.
+     * @return the number of increments within the window of time.
      */
     @Override
-    public long getCount() {
-        return reservoir.getSnapshot().size();
+    public synchronized long getCount() {
+        buckets.advance();
+
+        return count;
     }
 
     @Override
     public void inc() {
-        reservoir.update(1L);
+        inc(1L);
     }
 
     @Override
-    public void inc(long n) {
-        for (int i = 0; i < n; ++i) {
-            inc();
-        }
+    public synchronized void inc(long n) {
+        counts[buckets.advance()] += n;
+        count += n;
     }
 
     @Override
@@ -85,4 +98,8 @@ class SlidingTimeWindowCounter extends Counter {
         throw XrdRuntimeException.systemInternalError("This counter can be incremented only");
     }
 
+    private void clearBucket(int slot) {
+        count -= counts[slot];
+        counts[slot] = 0;
+    }
 }
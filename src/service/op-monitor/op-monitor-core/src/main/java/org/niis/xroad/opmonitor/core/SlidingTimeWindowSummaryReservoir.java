@@ -0,0 +1,225 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.niis.xroad.opmonitor.core;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.WeightedSnapshot;
+import com.codahale.metrics.WeightedSnapshot.WeightedSample;
+import lombok.RequiredArgsConstructor;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.niis.xroad.opmonitor.core.SlidingTimeWindowBuckets.NUMBER_OF_BUCKETS;
+
+/**
+ * A reservoir that summarizes the values measured within a sliding window of
+ * time, for use with a {@link com.codahale.metrics.Histogram}.
+ * Instead of storing every value like
+ * {@link com.codahale.metrics.SlidingTimeWindowReservoir}, the count, mean,
+ * sum of squared deviations, minimum and maximum of the values are kept in a
+ * fixed number of time buckets (see {@link SlidingTimeWindowBuckets}). The
+ * memory usage is therefore constant, updates take constant time and
+ * snapshots are merged from the fixed number of buckets.
+ * The snapshots provide the exact size, minimum, maximum, mean and standard
+ * deviation of the values. Quantiles and the snapshot values are estimated
+ * from a uniform random sample of at most {@link #SAMPLE_SIZE} values per
+ * bucket, weighted by the number of values in the bucket.
+ */
+class SlidingTimeWindowSummaryReservoir implements Reservoir {
+
+    static final int SAMPLE_SIZE = 16;
+
+    private final long[] counts = new long[NUMBER_OF_BUCKETS];
+    private final double[] means = new double[NUMBER_OF_BUCKETS];
+    private final double[] squaredDeviations = new double[NUMBER_OF_BUCKETS];
+    private final long[] mins = new long[NUMBER_OF_BUCKETS];
+    private final long[] maxes = new long[NUMBER_OF_BUCKETS];
+    private final long[] samples = new long[NUMBER_OF_BUCKETS * SAMPLE_SIZE];
+
+    private final SlidingTimeWindowBuckets buckets;
+
+    /**
+     * Creates a reservoir with the given window of time.
+     *
+     * @param window     the window of time
+     * @param windowUnit the unit of {@code window}
+     */
+    SlidingTimeWindowSummaryReservoir(long window, TimeUnit windowUnit) {
+        this(window, windowUnit, Clock.defaultClock());
+    }
+
+    SlidingTimeWindowSummaryReservoir(long window, TimeUnit windowUnit, Clock clock) {
+        buckets = new SlidingTimeWindowBuckets(window, windowUnit, clock, this::clearBucket);
+    }
+
+    @Override
+    public synchronized int size() {
+        buckets.advance();
+
+        long size = 0;
+        for (long count : counts) {
+            size += count;
+        }
+
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public synchronized void update(long value) {
+        int slot = buckets.advance();
+        long count = ++counts[slot];
+
+        if (count == 1) {
+            mins[slot] = value;
+            maxes[slot] = value;
+        } else {
+            mins[slot] = Math.min(mins[slot], value);
+            maxes[slot] = Math.max(maxes[slot], value);
+        }
+
+        // Reservoir sampling (Vitter's algorithm R)
+        if (count <= SAMPLE_SIZE) {
+            samples[slot * SAMPLE_SIZE + (int) count - 1] = value;
+        } else {
+            long index = ThreadLocalRandom.current().nextLong(count);
+            if (index < SAMPLE_SIZE) {
+                samples[slot * SAMPLE_SIZE + (int) index] = value;
+            }
+        }
+
+        // Welford's online algorithm
+        double delta = value - means[slot];
+        means[slot] += delta / count;
+        squaredDeviations[slot] += delta * (value - means[slot]);
+    }
+
+    @Override
+    public synchronized Snapshot getSnapshot() {
+        buckets.advance();
+
+        long count = 0;
+        double mean = 0;
+        double squaredDeviation = 0;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        List<WeightedSample> weightedSamples = new ArrayList<>();
+
+        for (int slot = 0; slot < NUMBER_OF_BUCKETS; slot++) {
+            long bucketCount = counts[slot];
+            if (bucketCount == 0) {
+                continue;
+            }
+
+            // Merge the bucket statistics (Chan et al. parallel algorithm)
+            long total = count + bucketCount;
+            double delta = means[slot] - mean;
+            mean += delta * bucketCount / total;
+            squaredDeviation += squaredDeviations[slot] + delta * delta * count * bucketCount / total;
+            count = total;
+
+            min = Math.min(min, mins[slot]);
+            max = Math.max(max, maxes[slot]);
+
+            int sampled = (int) Math.min(bucketCount, SAMPLE_SIZE);
+            double weight = (double) bucketCount / sampled;
+            for (int i = 0; i < sampled; i++) {
+                weightedSamples.add(new WeightedSample(samples[slot * SAMPLE_SIZE + i], weight));
+            }
+        }
+
+        if (count == 0) {
+            return new SummarySnapshot(new WeightedSnapshot(weightedSamples), 0, 0, 0, 0, 0);
+        }
+
+        // Sample standard deviation, as in the snapshots of the other reservoirs.
+        double stdDev = count > 1 ? Math.sqrt(squaredDeviation / (count - 1)) : 0;
+
+        return new SummarySnapshot(new WeightedSnapshot(weightedSamples),
+                (int) Math.min(count, Integer.MAX_VALUE), min, max, mean, stdDev);
+    }
+
+    private void clearBucket(int slot) {
+        counts[slot] = 0;
+        means[slot] = 0;
+        squaredDeviations[slot] = 0;
+    }
+
+    @RequiredArgsConstructor
+    private static final class SummarySnapshot extends Snapshot {
+        private final Snapshot sample;
+        private final int size;
+        private final long min;
+        private final long max;
+        private final double mean;
+        private final double stdDev;
+
+        @Override
+        public double getValue(double quantile) {
+            return sample.getValue(quantile);
+        }
+
+        @Override
+        public long[] getValues() {
+            return sample.getValues();
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public long getMax() {
+            return max;
+        }
+
+        @Override
+        public double getMean() {
+            return mean;
+        }
+
+        @Override
+        public long getMin() {
+            return min;
+        }
+
+        @Override
+        public double getStdDev() {
+            return stdDev;
+        }
+
+        @Override
+        public void dump(OutputStream output) {
+            sample.dump(output);
+        }
+    }
+}
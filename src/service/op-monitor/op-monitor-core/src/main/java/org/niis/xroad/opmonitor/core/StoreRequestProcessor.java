@@ -33,10 +33,14 @@ import com.fasterxml.jackson.databind.ObjectReader;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.eclipse.jetty.http.HttpHeader;
 import org.niis.xroad.common.core.annotation.ArchUnitSuppressed;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 import static ee.ria.xroad.common.util.TimeUtils.getEpochSecond;
 
@@ -49,6 +53,8 @@ class StoreRequestProcessor {
 
     private static final ObjectReader OBJECT_READER = JsonUtils.getObjectReader();
 
+    private static final String GZIP_ENCODING = "gzip";
+
     /**
      * The servlet request.
      */
@@ -72,7 +78,7 @@ class StoreRequestProcessor {
      * @throws Exception in case of any errors
      */
     void process() throws Exception {
-        String rawJson = IOUtils.toString(request.getInputStream(),
+        String rawJson = IOUtils.toString(getRequestContent(),
                 StandardCharsets.UTF_8);
 
         log.trace("Incoming JSON: {}", rawJson);
@@ -87,6 +93,15 @@ class StoreRequestProcessor {
         HealthDataMetrics.processRecords(healthMetricRegistry, records);
     }
 
+    // The security server operational monitoring buffer may send gzip compressed requests.
+    private InputStream getRequestContent() throws IOException {
+        if (request.getHeaders().contains(HttpHeader.CONTENT_ENCODING, GZIP_ENCODING)) {
+            return new GZIPInputStream(request.getInputStream());
+        }
+
+        return request.getInputStream();
+    }
+
     // Get usable operational data to be stored. If no such data is found,
     // send an error message right away.
     private static List<OperationalDataRecord> prepareRawStoreData(
@@ -36,8 +36,10 @@ import org.niis.xroad.opmonitor.core.mapper.OperationalDataRecordMapper;
 
 import java.lang.reflect.Field;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
@@ -188,6 +190,52 @@ public class OperationalDataRecordManagerTest extends BaseTestUsingDB {
         assertEquals(1474968982L, result.getNextRecordsFrom().longValue());
     }
 
+    @Test
+    public void queryRangeAndStreamRecords() throws Exception {
+        storeFullOperationalDataRecords(8, 1474968980L);
+        storeFullOperationalDataRecords(17, 1474968981L);
+        storeFullOperationalDataRecords(1, 1474968985L);
+
+        OperationalDataRecordManager.setMaxRecordsInPayload(10);
+        OperationalDataRecordsRange range = OperationalDataRecordManager.queryRecordsRange(
+                1474968960L, 1474968990L, null, null);
+        assertEquals(1474968960L, range.recordsFrom());
+        assertEquals(1474968981L, range.recordsTo());
+        assertEquals(25, range.recordsCount());
+        assertEquals(1474968982L, range.nextRecordsFrom().longValue());
+
+        List<OperationalDataRecord> streamed = new ArrayList<>();
+        OperationalDataRecordManager.streamRecords(range, null, null,
+                Collections.singleton("messageId"), streamed::add);
+        assertEquals(25, streamed.size());
+        for (OperationalDataRecord rec : streamed) {
+            assertNotNull(rec.getMessageId());
+            assertNull(rec.getMonitoringDataTs());
+            assertNull(rec.getServiceCode());
+        }
+    }
+
+    @Test
+    public void queryRangeAndStreamRecordsInReadOnlyTransaction() throws Exception {
+        storeFullOperationalDataRecords(8, 1474968980L);
+
+        try (OperationalDataRecordManager.ReadOnlyTransaction transaction =
+                     OperationalDataRecordManager.beginReadOnlyTransaction()) {
+            OperationalDataRecordsRange range = OperationalDataRecordManager.queryRecordsRange(
+                    1474968960L, 1474968990L, null, null);
+            assertEquals(8, range.recordsCount());
+
+            List<OperationalDataRecord> streamed = new ArrayList<>();
+            OperationalDataRecordManager.streamRecords(range, null, null,
+                    Collections.singleton("messageId"), streamed::add);
+            assertEquals(8, streamed.size());
+
+            transaction.commit();
+        }
+
+        assertEquals(8, queryAllRecords().size());
+    }
+
     @Test
     public void storeAndQueryDataFilteringByOutputFields() throws Exception {
         ClientId client = ClientId.Conf.create(
@@ -25,6 +25,7 @@
  */
 package org.niis.xroad.opmonitor.core;
 
+import ee.ria.xroad.common.CodedException;
 import ee.ria.xroad.common.identifier.ClientId;
 import ee.ria.xroad.common.identifier.SecurityServerId;
 import ee.ria.xroad.common.identifier.ServiceId;
@@ -43,24 +44,35 @@ import ee.ria.xroad.opmonitordaemon.message.GetSecurityServerHealthDataResponseT
 import com.codahale.metrics.MetricRegistry;
 import lombok.SneakyThrows;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.function.FailableConsumer;
 import org.junit.Test;
 import org.niis.xroad.globalconf.GlobalConfProvider;
 import org.niis.xroad.opmonitor.api.OpMonitoringData;
 import org.w3c.dom.Element;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
 
+import static ee.ria.xroad.common.ErrorCodes.X_INTERNAL_ERROR;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.niis.xroad.opmonitor.core.OperationalDataTestUtil.OBJECT_READER;
 import static org.niis.xroad.opmonitor.core.OperationalDataTestUtil.formatFullOperationalDataAsJson;
 
@@ -100,11 +112,27 @@ public class QueryRequestHandlerTest {
 
         QueryRequestHandler handler = new OperationalDataRequestHandler(mock(GlobalConfProvider.class)) {
             @Override
-            protected OperationalDataRecords getOperationalDataRecords(
+            protected OperationalDataRecordManager.ReadOnlyTransaction beginReadOnlyTransaction() {
+                return mock(OperationalDataRecordManager.ReadOnlyTransaction.class);
+            }
+
+            @Override
+            protected OperationalDataRecordsRange getOperationalDataRecordsRange(
                     ClientId filterByClient, long recordsFrom, long recordsTo,
-                    ClientId filterByServiceProvider,
-                    Set<String> outputFields) {
-                return new OperationalDataRecords(Collections.emptyList());
+                    ClientId filterByServiceProvider) {
+                return new OperationalDataRecordsRange(recordsFrom, recordsTo, 2, null);
+            }
+
+            @Override
+            @SneakyThrows
+            protected void streamOperationalDataRecords(
+                    OperationalDataRecordsRange range, ClientId filterByClient,
+                    ClientId filterByServiceProvider, Set<String> outputFields,
+                    FailableConsumer<OperationalDataRecord, IOException> consumer) {
+                for (int i = 0; i < range.recordsCount(); i++) {
+                    consumer.accept(OBJECT_READER.readValue(formatFullOperationalDataAsJson(),
+                            OperationalDataRecord.class));
+                }
             }
 
             @Override
@@ -113,7 +141,7 @@ public class QueryRequestHandlerTest {
             }
         };
 
-        OutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
 
         handler.handle(request, out, ct -> testContentType = ct);
 
@@ -132,10 +160,16 @@ public class QueryRequestHandlerTest {
 
                     @Override
                     public void attachment(String contentType, InputStream content,
-                                           Map<String, String> additionalHeaders) {
+                                           Map<String, String> additionalHeaders) throws IOException {
                         String expectedCid = "<" + OperationalDataRequestHandler.CID
                                 + ">";
                         assertEquals(expectedCid, additionalHeaders.get("content-id"));
+                        assertEquals(MimeTypes.GZIP, contentType);
+
+                        OperationalDataRecords records = OBJECT_READER.readValue(
+                                new GZIPInputStream(content), OperationalDataRecords.class);
+                        assertEquals(2, records.size());
+                        assertEquals("xroadGetRandom", records.getRecords().get(0).getServiceCode());
                     }
 
                     @Override
@@ -154,7 +188,65 @@ public class QueryRequestHandlerTest {
                     }
                 });
 
-        decoder.parse(IOUtils.toInputStream(out.toString()));
+        decoder.parse(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    /**
+     * Ensure that an error while streaming the records fails the request and
+     * the response is left without the closing multipart boundary, so that
+     * it can not be taken for a complete one.
+     */
+    @Test
+    public void failureWhileStreamingRecordsLeavesResponseUnfinished() throws Exception {
+        InputStream is = new FileInputStream(OPERATIONAL_DATA_REQUEST);
+        SoapParser parser = new SoapParserImpl();
+        SoapMessageImpl request = (SoapMessageImpl) parser.parse(
+                MimeTypes.TEXT_XML_UTF8, is);
+
+        OperationalDataRecordManager.ReadOnlyTransaction transaction =
+                mock(OperationalDataRecordManager.ReadOnlyTransaction.class);
+
+        QueryRequestHandler handler = new OperationalDataRequestHandler(mock(GlobalConfProvider.class)) {
+            @Override
+            protected OperationalDataRecordManager.ReadOnlyTransaction beginReadOnlyTransaction() {
+                return transaction;
+            }
+
+            @Override
+            protected OperationalDataRecordsRange getOperationalDataRecordsRange(
+                    ClientId filterByClient, long recordsFrom, long recordsTo,
+                    ClientId filterByServiceProvider) {
+                return new OperationalDataRecordsRange(recordsFrom, recordsTo, 2, null);
+            }
+
+            @Override
+            @SneakyThrows
+            protected void streamOperationalDataRecords(
+                    OperationalDataRecordsRange range, ClientId filterByClient,
+                    ClientId filterByServiceProvider, Set<String> outputFields,
+                    FailableConsumer<OperationalDataRecord, IOException> consumer) {
+                consumer.accept(OBJECT_READER.readValue(formatFullOperationalDataAsJson(),
+                        OperationalDataRecord.class));
+
+                throw new CodedException(X_INTERNAL_ERROR, "Failed to write records to response");
+            }
+
+            @Override
+            protected ClientId getClientForFilter(ClientId clientId, SecurityServerId serverId) {
+                return null;
+            }
+        };
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertThrows(CodedException.class, () -> handler.handle(request, out, ct -> testContentType = ct));
+
+        Matcher boundary = Pattern.compile("boundary=\"?([^\";]+)").matcher(testContentType);
+        assertTrue(boundary.find());
+        assertFalse(out.toString(StandardCharsets.UTF_8).contains("--" + boundary.group(1) + "--"));
+
+        verify(transaction, never()).commit();
+        verify(transaction).close();
     }
 
     @SneakyThrows
@@ -0,0 +1,128 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.niis.xroad.opmonitor.core;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.SlidingTimeWindowReservoir;
+import com.codahale.metrics.Snapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the bucketed sliding time window counter and histogram reservoir
+ * used for health data metrics with the SlidingTimeWindowReservoir based
+ * implementations they replaced, with the given number of values already
+ * within the window.
+ * Run with {@code gradle :service:op-monitor:op-monitor-core:jmh}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SlidingTimeWindowMetricsBenchmark {
+
+    private static final long WINDOW_SECONDS = 600;
+
+    @Param({"reservoir", "buckets"})
+    public String implementation;
+
+    @Param({"10000", "1000000"})
+    public int valuesInWindow;
+
+    private Counter counter;
+    private Histogram histogram;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if ("reservoir".equals(implementation)) {
+            counter = new ReservoirCounter();
+            histogram = new Histogram(new SlidingTimeWindowReservoir(WINDOW_SECONDS, TimeUnit.SECONDS));
+        } else {
+            counter = new SlidingTimeWindowCounter(WINDOW_SECONDS, TimeUnit.SECONDS);
+            histogram = new Histogram(new SlidingTimeWindowSummaryReservoir(WINDOW_SECONDS, TimeUnit.SECONDS));
+        }
+
+        for (int i = 0; i < valuesInWindow; i++) {
+            counter.inc();
+            histogram.update(i);
+        }
+    }
+
+    @Benchmark
+    public void counterInc() {
+        counter.inc();
+    }
+
+    @Benchmark
+    public long counterGetCount() {
+        return counter.getCount();
+    }
+
+    @Benchmark
+    public void histogramUpdate() {
+        histogram.update(valuesInWindow);
+    }
+
+    @Benchmark
+    public double histogramSnapshot() {
+        // The statistics reported in the health data.
+        Snapshot snapshot = histogram.getSnapshot();
+        return snapshot.getMin() + snapshot.getMean() + snapshot.getMax() + snapshot.getStdDev();
+    }
+
+    /**
+     * The previous SlidingTimeWindowCounter implementation.
+     */
+    private static final class ReservoirCounter extends Counter {
+        private final Reservoir reservoir = new SlidingTimeWindowReservoir(WINDOW_SECONDS, TimeUnit.SECONDS);
+
+        @Override
+        public long getCount() {
+            return reservoir.getSnapshot().size();
+        }
+
+        @Override
+        public void inc() {
+            reservoir.update(1L);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.niis.xroad.opmonitor.core;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Snapshot;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the bucketed sliding time window counter and histogram reservoir.
+ */
+public class SlidingTimeWindowMetricsTest {
+
+    private static final double DELTA = 1e-9;
+
+    private final TestClock clock = new TestClock();
+
+    @Test
+    public void counterCountsIncrementsWithinWindow() {
+        SlidingTimeWindowCounter counter = new SlidingTimeWindowCounter(100, TimeUnit.SECONDS, clock);
+
+        counter.inc();
+        counter.inc(1_000_000L);
+        assertEquals(1_000_001L, counter.getCount());
+
+        clock.advanceSeconds(50);
+        counter.inc(5);
+        assertEquals(1_000_006L, counter.getCount());
+
+        // The first increments drop out of the window.
+        clock.advanceSeconds(55);
+        assertEquals(5, counter.getCount());
+
+        clock.advanceSeconds(50);
+        assertEquals(0, counter.getCount());
+    }
+
+    @Test
+    public void counterIsClearedAfterLongIdlePeriod() {
+        SlidingTimeWindowCounter counter = new SlidingTimeWindowCounter(10, TimeUnit.SECONDS, clock);
+
+        counter.inc(3);
+        clock.advanceSeconds(TimeUnit.DAYS.toSeconds(1));
+        assertEquals(0, counter.getCount());
+
+        counter.inc();
+        assertEquals(1, counter.getCount());
+    }
+
+    @Test
+    public void reservoirSummarizesValuesWithinWindow() {
+        SlidingTimeWindowSummaryReservoir reservoir =
+                new SlidingTimeWindowSummaryReservoir(100, TimeUnit.SECONDS, clock);
+
+        Snapshot snapshot = reservoir.getSnapshot();
+        assertEquals(0, snapshot.size());
+        assertEquals(0, snapshot.getMin());
+        assertEquals(0, snapshot.getMax());
+        assertEquals(0, snapshot.getMean(), DELTA);
+        assertEquals(0, snapshot.getStdDev(), DELTA);
+
+        reservoir.update(2);
+        reservoir.update(4);
+        clock.advanceSeconds(30);
+        reservoir.update(4);
+        reservoir.update(4);
+        clock.advanceSeconds(30);
+        reservoir.update(5);
+        reservoir.update(5);
+        reservoir.update(7);
+        reservoir.update(9);
+
+        snapshot = reservoir.getSnapshot();
+        assertEquals(8, reservoir.size());
+        assertEquals(8, snapshot.size());
+        assertEquals(2, snapshot.getMin());
+        assertEquals(9, snapshot.getMax());
+        assertEquals(5, snapshot.getMean(), DELTA);
+        // Sample standard deviation of 2, 4, 4, 4, 5, 5, 7, 9.
+        assertEquals(Math.sqrt(32.0 / 7), snapshot.getStdDev(), DELTA);
+        assertEquals(5, snapshot.getMedian(), DELTA);
+        assertEquals(8, snapshot.getValues().length);
+
+        // The values of the first bucket drop out of the window.
+        clock.advanceSeconds(45);
+        snapshot = reservoir.getSnapshot();
+        assertEquals(6, snapshot.size());
+        assertEquals(4, snapshot.getMin());
+        assertEquals(9, snapshot.getMax());
+        assertEquals(34.0 / 6, snapshot.getMean(), DELTA);
+
+        clock.advanceSeconds(100);
+        assertEquals(0, reservoir.getSnapshot().size());
+    }
+
+    @Test
+    public void reservoirWeighsSampledQuantilesByBucketSize() {
+        SlidingTimeWindowSummaryReservoir reservoir =
+                new SlidingTimeWindowSummaryReservoir(100, TimeUnit.SECONDS, clock);
+
+        for (int i = 0; i < 1_000; i++) {
+            reservoir.update(1);
+        }
+        clock.advanceSeconds(30);
+        for (int i = 0; i < 20; i++) {
+            reservoir.update(100);
+        }
+
+        Snapshot snapshot = reservoir.getSnapshot();
+        assertEquals(1_020, snapshot.size());
+        assertEquals(2 * SlidingTimeWindowSummaryReservoir.SAMPLE_SIZE, snapshot.getValues().length);
+        // Both buckets have the same number of samples, but the first one holds most of the values.
+        assertEquals(1, snapshot.getMedian(), DELTA);
+        assertEquals(1, snapshot.get95thPercentile(), DELTA);
+        assertEquals(100, snapshot.get99thPercentile(), DELTA);
+    }
+
+    private static final class TestClock extends Clock {
+        private long tick = TimeUnit.SECONDS.toNanos(1_000);
+
+        void advanceSeconds(long seconds) {
+            tick += TimeUnit.SECONDS.toNanos(seconds);
+        }
+
+        @Override
+        public long getTick() {
+            return tick;
+        }
+    }
+}
@@ -20,6 +20,8 @@ dependencies {
   implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-yaml")
   api("org.springframework:spring-context-support")
   implementation(libs.jetty.xml)
+  implementation(libs.jetty.http2.server)
+  implementation(libs.jetty.alpn.java.server)
   implementation(libs.xerces.impl)
   implementation(libs.semver4j)
 
@@ -59,4 +59,12 @@ class AntiDosConfiguration {
     double getMaxHeapUsage() {
         return SystemProperties.getAntiDosMaxHeapUsage();
     }
+
+    /**
+     * @return the interval in milliseconds during which the last sampled
+     * resource usage is reused instead of querying the system again
+     */
+    int getResourceSampleInterval() {
+        return SystemProperties.getAntiDosResourceSampleInterval();
+    }
 }
@@ -37,9 +37,15 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Manages the incoming connections and prevents system resource exhaustion.
+ * <p>
+ * Every partner has its own connection queue guarded by the partner's own lock,
+ * so that accepting connections from different partners does not serialize.
+ * The partner index is only rebuilt when the set of known addresses in global
+ * configuration changes (see {@link #syncDatabase()}).
  */
 @Slf4j
 class AntiDosConnectionManager<T extends SocketChannelWrapper> {
@@ -47,6 +53,14 @@ class AntiDosConnectionManager<T extends SocketChannelWrapper> {
     // Tiny wrapper class for active connections of a partner
     final class HostData {
         final Deque<T> connections = new LinkedBlockingDeque<>();
+
+        // Whether this partner is currently in the active partners buffer,
+        // guarded by the HostData instance lock
+        boolean active;
+    }
+
+    // Sampled system resource usage
+    private record ResourceUsage(long freeFileDescriptorCount, double cpuLoad, double heapUsage, long sampledAt) {
     }
 
     // The IP used for unknown members
@@ -57,8 +71,8 @@ class AntiDosConnectionManager<T extends SocketChannelWrapper> {
     // Holds the configuration
     protected final AntiDosConfiguration configuration;
 
-    // IP to HostData mapping
-    protected Map<String, HostData> database = new HashMap<>();
+    // IP to HostData mapping, replaced as a whole when known addresses change
+    protected volatile Map<String, HostData> database = new HashMap<>();
 
     // Buffer of partners with waiting connections
     protected LinkedBlockingQueue<HostData> activePartners =
@@ -69,7 +83,9 @@ class AntiDosConnectionManager<T extends SocketChannelWrapper> {
     private Set<String> previousKnownOrganizations = new HashSet<>();
 
     // Fallback cpu load value in cases where OS fails to properly respond.
-    private double previousCpuLoad = 0d;
+    private volatile double previousCpuLoad = 0d;
+
+    private volatile ResourceUsage resourceUsage;
 
     AntiDosConnectionManager(GlobalConfProvider globalConfProvider, AntiDosConfiguration configuration) {
         this.globalConfProvider = globalConfProvider;
@@ -92,7 +108,7 @@ class AntiDosConnectionManager<T extends SocketChannelWrapper> {
      * we have at least one free file handle.
      */
     boolean canAccept() {
-        long freeFileHandles = getFreeFileDescriptorCount();
+        long freeFileHandles = getResourceUsage().freeFileDescriptorCount();
         log.trace("canAccept({})", freeFileHandles);
         return freeFileHandles > 0;
     }
@@ -100,18 +116,21 @@ class AntiDosConnectionManager<T extends SocketChannelWrapper> {
     /**
      * Adds the connection into the partner's connection queue.
      */
-    synchronized void accept(T connection) {
-        // We need to synchronize the database with the existing members.
-        syncDatabase();
-
+    void accept(T connection) {
         // Find the host data for the incoming connection and register
         // the new connection to this host data
         HostData currentPartner = getHostData(connection.getHostAddress());
-        currentPartner.connections.addFirst(connection);
+
+        boolean activated;
+        synchronized (currentPartner) {
+            currentPartner.connections.addFirst(connection);
+            activated = !currentPartner.active;
+            currentPartner.active = true;
+        }
 
         // If the host data is not for an active partner,
         // add it to the connection buffer as the newest partner.
-        if (!activePartners.contains(currentPartner)) {
+        if (activated) {
             activePartners.add(currentPartner);
         }
     }
@@ -120,12 +139,13 @@ class AntiDosConnectionManager<T extends SocketChannelWrapper> {
      * Returns the next connection or blocks until next connection is available.
      */
     T takeNextConnection() throws InterruptedException {
-        while (true) {
-            T next = getNextConnection();
-            if (next != null) {
-                return next;
-            }
-        }
+        T next;
+        do {
+            // Blocks on the active partners buffer, returns null only
+            // if the connection was closed due to insufficient resources.
+            next = getNextConnection();
+        } while (next == null);
+        return next;
     }
 
     void closeConnection(T sock) throws IOException {
@@ -142,17 +162,24 @@ class AntiDosConnectionManager<T extends SocketChannelWrapper> {
         HostData oldestPartner = activePartners.take();
 
         // Take the oldest connection.
-        T sock = oldestPartner.connections.pollLast();
-        if (sock == null) {
-            return null;
+        T sock;
+        boolean hasMoreConnections;
+        synchronized (oldestPartner) {
+            sock = oldestPartner.connections.pollLast();
+            hasMoreConnections = !oldestPartner.connections.isEmpty();
+            oldestPartner.active = hasMoreConnections;
         }
 
         // If there are more connections left for this partner, add the partner
-        // back to the buffer as the first partner.
-        if (!oldestPartner.connections.isEmpty()) {
+        // back to the buffer as the newest partner.
+        if (hasMoreConnections) {
             activePartners.add(oldestPartner);
         }
 
+        if (sock == null) {
+            return null;
+        }
+
         // Processing a connection consumes file handles and other resources
         if (hasSufficientResources()) {
             return sock;
@@ -192,12 +219,11 @@ class AntiDosConnectionManager<T extends SocketChannelWrapper> {
         return SystemMetrics.getHeapUsage();
     }
 
-    private HostData getHostData(String ip) {
-        return database.containsKey(ip)
-                ? database.get(ip) : database.get(UNKNOWN_ORG_IP);
-    }
-
-    private void syncDatabase() {
+    /**
+     * Synchronizes the partner index with the known addresses in global configuration.
+     * The index is only rebuilt if the known addresses have changed.
+     */
+    synchronized void syncDatabase() {
         Set<String> knownAddresses = getAllAddresses();
 
         if (previousKnownOrganizations.equals(knownAddresses)) {
@@ -205,17 +231,18 @@ class AntiDosConnectionManager<T extends SocketChannelWrapper> {
             return;
         }
 
+        Map<String, HostData> currentDatabase = database;
         Map<String, HostData> newDatabase = new HashMap<>();
 
         // Retain existing members connections
-        database.keySet().stream()
+        currentDatabase.keySet().stream()
                 .filter(knownAddresses::contains)
                 .forEach(existingAddress -> newDatabase.put(
-                        existingAddress, database.get(existingAddress)));
+                        existingAddress, currentDatabase.get(existingAddress)));
 
         // Add new members
         knownAddresses.stream()
-                .filter(knownAddress -> !database.containsKey(knownAddress))
+                .filter(knownAddress -> !currentDatabase.containsKey(knownAddress))
                 .forEach(knownAddress ->
                         registerHostData(newDatabase, knownAddress));
 
@@ -223,18 +250,40 @@ class AntiDosConnectionManager<T extends SocketChannelWrapper> {
         database = newDatabase;
     }
 
+    private HostData getHostData(String ip) {
+        Map<String, HostData> currentDatabase = database;
+        HostData hostData = currentDatabase.get(ip);
+        return hostData != null ? hostData : currentDatabase.get(UNKNOWN_ORG_IP);
+    }
+
     private void registerHostData(
             Map<String, HostData> newDatabase, String knownAddress) {
         log.trace("Registering HostData for " + knownAddress);
         newDatabase.put(knownAddress, new HostData());
     }
 
+    /**
+     * Returns the system resource usage, sampling it again only if the
+     * previous sample is older than the configured sample interval.
+     */
+    private ResourceUsage getResourceUsage() {
+        ResourceUsage current = resourceUsage;
+        long now = System.nanoTime();
+        if (current == null
+                || now - current.sampledAt() >= TimeUnit.MILLISECONDS.toNanos(configuration.getResourceSampleInterval())) {
+            current = new ResourceUsage(getFreeFileDescriptorCount(), getCpuLoad(), getHeapUsage(), now);
+            resourceUsage = current;
+        }
+        return current;
+    }
+
     private boolean hasSufficientResources() {
-        long freeFileDescriptorCount = getFreeFileDescriptorCount();
+        ResourceUsage usage = getResourceUsage();
+        long freeFileDescriptorCount = usage.freeFileDescriptorCount();
         int minFreeFileHandles = configuration.getMinFreeFileHandles();
-        double cpuLoad = getCpuLoad();
+        double cpuLoad = usage.cpuLoad();
         double maxCpuLoad = configuration.getMaxCpuLoad();
-        double heapUsage = getHeapUsage();
+        double heapUsage = usage.heapUsage();
         double maxHeapUsage = configuration.getMaxHeapUsage();
 
         log.trace("Resource usage when considering connection:\n"
@@ -25,6 +25,8 @@
  */
 package org.niis.xroad.proxy.core.antidos;
 
+import ee.ria.xroad.common.SystemProperties;
+
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.jetty.io.EndPoint;
 import org.eclipse.jetty.io.SelectorManager;
@@ -41,6 +43,7 @@ import java.nio.channels.SelectableChannel;
 import java.nio.channels.SocketChannel;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class implements a connector that prevents DoS attacks.
@@ -58,6 +61,9 @@ import java.util.concurrent.Semaphore;
  */
 @Slf4j
 public class AntiDosConnector extends ServerConnector {
+    private static final long PARTNER_INDEX_SYNC_INTERVAL_SECONDS =
+            Long.parseLong(SystemProperties.getGlobalConfRefreshRateSeconds());
+
     private final AntiDosConfiguration configuration = new AntiDosConfiguration();
 
     private final Semaphore semaphore = new Semaphore(configuration.getMaxParallelConnections());
@@ -112,10 +118,30 @@ public class AntiDosConnector extends ServerConnector {
         super.doStart();
 
         manager.init();
+        schedulePartnerIndexSync();
 
         getExecutor().execute(new QueueManager());
     }
 
+    /**
+     * Known addresses can only change when global configuration is reloaded, so the
+     * partner index is synchronized on the global configuration refresh schedule
+     * instead of on every accepted connection.
+     */
+    private void schedulePartnerIndexSync() {
+        getScheduler().schedule(() -> {
+            if (!isRunning()) {
+                return;
+            }
+            try {
+                manager.syncDatabase();
+            } catch (Exception e) {
+                log.error("Failed to synchronize anti-dos partner index", e);
+            }
+            schedulePartnerIndexSync();
+        }, PARTNER_INDEX_SYNC_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
     @Override
     public void accept(int acceptorID) throws IOException {
         if (manager.canAccept()) {
@@ -40,12 +40,10 @@ import ee.ria.xroad.common.util.MimeUtils;
 import ee.ria.xroad.common.util.RequestWrapper;
 import ee.ria.xroad.common.util.ResponseWrapper;
 
-import io.opentelemetry.api.GlobalOpenTelemetry;
-import io.opentelemetry.api.OpenTelemetry;
-import io.opentelemetry.context.Context;
 import io.opentelemetry.instrumentation.annotations.WithSpan;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.http.client.HttpClient;
+import org.apache.http.entity.AbstractHttpEntity;
 import org.bouncycastle.cert.ocsp.OCSPResp;
 import org.bouncycastle.util.Arrays;
 import org.niis.xroad.common.core.annotation.ArchUnitSuppressed;
@@ -60,22 +58,14 @@ import org.niis.xroad.serverconf.impl.IsAuthenticationData;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
+import java.io.OutputStream;
 import java.net.URI;
 import java.security.cert.CertificateEncodingException;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.TimeUnit;
 
 import static ee.ria.xroad.common.ErrorCodes.X_INCONSISTENT_RESPONSE;
-import static ee.ria.xroad.common.ErrorCodes.X_INTERNAL_ERROR;
 import static ee.ria.xroad.common.ErrorCodes.X_MISSING_SIGNATURE;
 import static ee.ria.xroad.common.ErrorCodes.X_MISSING_SOAP;
 import static ee.ria.xroad.common.ErrorCodes.X_SERVICE_FAILED_X;
@@ -84,9 +74,12 @@ import static ee.ria.xroad.common.SystemProperties.isSslEnabled;
 import static ee.ria.xroad.common.util.AbstractHttpSender.CHUNKED_LENGTH;
 import static ee.ria.xroad.common.util.EncoderUtils.decodeBase64;
 import static ee.ria.xroad.common.util.EncoderUtils.encodeBase64;
+import static ee.ria.xroad.common.util.HeaderValueUtils.getBoundary;
 import static ee.ria.xroad.common.util.MimeUtils.HEADER_ORIGINAL_CONTENT_TYPE;
 import static ee.ria.xroad.common.util.MimeUtils.HEADER_ORIGINAL_SOAP_ACTION;
 import static ee.ria.xroad.common.util.MimeUtils.HEADER_REQUEST_ID;
+import static ee.ria.xroad.common.util.MimeUtils.mpMixedContentType;
+import static ee.ria.xroad.common.util.MimeUtils.randomBoundary;
 import static ee.ria.xroad.common.util.TimeUtils.getEpochMillisecond;
 import static org.eclipse.jetty.http.HttpStatus.OK_200;
 
@@ -94,50 +87,29 @@ import static org.eclipse.jetty.http.HttpStatus.OK_200;
 @ArchUnitSuppressed("NoVanillaExceptions")
 class ClientMessageProcessor extends AbstractClientMessageProcessor {
 
-    /**
-     * Timeout for waiting for the SOAP message to be read from the request.
-     */
-    private static final int WAIT_FOR_SOAP_TIMEOUT = 30; // seconds
-
-    /**
-     * By using a count down latch we can make the main thread wait for the
-     * request handler thread to read the SOAP request, since we cannot open
-     * connection to server proxy before we haven't read the receiver name from
-     * request SOAP.
-     */
-    private final CountDownLatch requestHandlerGate = new CountDownLatch(1);
-
-    /**
-     * By using a count down latch we can make the main thread wait for the
-     * HTTP sender to finish sending the entire request to the piped output
-     * stream, so we can check for errors in the handler thread before
-     * receiving the response.
-     */
-    private final CountDownLatch httpSenderGate = new CountDownLatch(1);
-
     /**
      * Holds the incoming request SOAP message.
      */
-    private volatile String originalSoapAction;
-    private volatile SoapMessageImpl requestSoap;
-    private volatile ServiceId requestServiceId;
+    private String originalSoapAction;
+    private SoapMessageImpl requestSoap;
+    private Map<String, String> requestSoapHeaders;
+    private ServiceId requestServiceId;
 
     /**
-     * If the request failed, will contain SOAP fault.
+     * Decodes the incoming request. The attachments are decoded while the
+     * request is written to the server proxy.
      */
-    private volatile CodedException executionException;
+    private SoapMessageDecoder soapMessageDecoder;
 
     /**
-     * Holds the proxy message output stream and associated info.
+     * If encoding the request failed, will contain SOAP fault.
      */
-    private PipedInputStream reqIns;
-    private volatile PipedOutputStream reqOuts;
-    private volatile String outputContentType;
+    private volatile CodedException executionException;
 
     /**
      * Holds the request to the server proxy.
      */
-    private ProxyMessageEncoder request;
+    private volatile ProxyMessageEncoder request;
     private String xRequestId;
 
     /**
@@ -145,28 +117,11 @@ class ClientMessageProcessor extends AbstractClientMessageProcessor {
      */
     private ProxyMessage response;
 
-    private static final ExecutorService SOAP_HANDLER_EXECUTOR = createSoapHandlerExecutor();
-
-    private static ExecutorService createSoapHandlerExecutor() {
-        ThreadFactory factory = Thread.ofVirtual().name("soap-handler-executor", 0L).factory();
-
-        var executor = Executors.newThreadPerTaskExecutor(factory);
-        if (OpenTelemetry.noop().equals(GlobalOpenTelemetry.get())) {
-            return executor;
-        }
-
-        log.info("OpenTelemetry is enabled, wrapping executor with OpenTelemetry context propagation");
-        return Context.taskWrapping(executor);
-    }
-
     ClientMessageProcessor(CommonBeanProxy commonBeanProxy,
                            RequestWrapper request, ResponseWrapper response,
-                           HttpClient httpClient, IsAuthenticationData clientCert, OpMonitoringData opMonitoringData)
-            throws IOException {
+                           HttpClient httpClient, IsAuthenticationData clientCert, OpMonitoringData opMonitoringData) {
         super(commonBeanProxy, request, response, httpClient, clientCert,
                 opMonitoringData);
-        this.reqIns = new PipedInputStream();
-        this.reqOuts = new PipedOutputStream(reqIns);
         this.xRequestId = UUID.randomUUID().toString();
     }
 
@@ -178,14 +133,10 @@ class ClientMessageProcessor extends AbstractClientMessageProcessor {
         opMonitoringData.setXRequestId(xRequestId);
         updateOpMonitoringClientSecurityServerAddress();
 
-        Future<?> soapHandler = SOAP_HANDLER_EXECUTOR.submit(this::handleSoap);
-
         try {
-            // Wait for the request SOAP message to be parsed before we can start sending stuff.
-            waitForSoapMessage();
-
-            // If the handler thread excepted, do not continue.
-            checkError();
+            // Read the request SOAP message, we cannot open connection to server proxy before
+            // we have read the receiver name from it.
+            readSoapMessage();
 
             // Check that incoming identifiers do not contain illegal characters
             checkRequestIdentifiers();
@@ -202,15 +153,6 @@ class ClientMessageProcessor extends AbstractClientMessageProcessor {
             if (response != null) {
                 sendResponse();
             }
-        } catch (Exception e) {
-            if (reqIns != null) {
-                reqIns.close();
-            }
-
-            // Let's interrupt the handler thread so that it won't block forever waiting for us to do something.
-            soapHandler.cancel(true);
-
-            throw e;
         } finally {
             if (response != null) {
                 response.consume();
@@ -218,6 +160,23 @@ class ClientMessageProcessor extends AbstractClientMessageProcessor {
         }
     }
 
+    private void readSoapMessage() {
+        log.trace("readSoapMessage()");
+
+        soapMessageDecoder = new SoapMessageDecoder(jRequest.getContentType(),
+                new SoapMessageHandler(), new SaxSoapParserImpl());
+        try {
+            originalSoapAction = validateSoapActionHeader(jRequest.getHeaders().get("SOAPAction"));
+            soapMessageDecoder.parseSoap(jRequest.getInputStream());
+        } catch (Exception ex) {
+            throw new ClientException(translateException(ex));
+        }
+
+        if (requestSoap == null) {
+            throw new ClientException(X_MISSING_SOAP, "Request does not contain SOAP message");
+        }
+    }
+
     private void checkRequestIdentifiers() {
         checkIdentifier(requestSoap.getClient());
         checkIdentifier(requestSoap.getService());
@@ -244,8 +203,7 @@ class ClientMessageProcessor extends AbstractClientMessageProcessor {
         try (HttpSender httpSender = createHttpSender()) {
             sendRequest(httpSender);
 
-            // Check for any errors from the handler thread once more.
-            waitForRequestSent();
+            // Check for any errors from encoding the request once more.
             checkError();
 
             parseResponse(httpSender);
@@ -259,23 +217,23 @@ class ClientMessageProcessor extends AbstractClientMessageProcessor {
     private void sendRequest(HttpSender httpSender) throws Exception {
         log.trace("sendRequest()");
 
-        try {
-            URI[] addresses = prepareRequest(httpSender, requestServiceId, requestSoap.getSecurityServer());
-            // Preserve the original SOAPAction header
-            httpSender.addHeader(HEADER_ORIGINAL_SOAP_ACTION, originalSoapAction);
+        URI[] addresses = prepareRequest(httpSender, requestServiceId, requestSoap.getSecurityServer());
+        // Preserve the original SOAPAction header
+        httpSender.addHeader(HEADER_ORIGINAL_SOAP_ACTION, originalSoapAction);
 
-            // Add unique id to distinguish request/response pairs
-            httpSender.addHeader(HEADER_REQUEST_ID, xRequestId);
+        // Add unique id to distinguish request/response pairs
+        httpSender.addHeader(HEADER_REQUEST_ID, xRequestId);
 
-            opMonitoringData.setRequestOutTs(getEpochMillisecond());
-            httpSender.doPost(getServiceAddress(addresses), reqIns, CHUNKED_LENGTH, outputContentType);
-            opMonitoringData.setResponseInTs(getEpochMillisecond());
+        opMonitoringData.setRequestOutTs(getEpochMillisecond());
+        try {
+            httpSender.doPost(getServiceAddress(addresses), new ProxyMessageEntity(mpMixedContentType("xtop" + randomBoundary())));
+        } catch (Exception e) {
+            // A failure to read or encode the request aborts sending it, report that failure instead.
+            checkError();
 
-        } finally {
-            if (reqIns != null) {
-                reqIns.close();
-            }
+            throw e;
         }
+        opMonitoringData.setResponseInTs(getEpochMillisecond());
     }
 
     private void parseResponse(HttpSender httpSender) throws Exception {
@@ -386,107 +344,111 @@ class ClientMessageProcessor extends AbstractClientMessageProcessor {
         }
     }
 
-    private void waitForSoapMessage() {
-        log.trace("waitForSoapMessage()");
+    private void checkError() {
+        if (executionException != null) {
+            log.trace("checkError(): ", executionException);
 
-        try {
-            if (!requestHandlerGate.await(WAIT_FOR_SOAP_TIMEOUT, TimeUnit.SECONDS)) {
-                throw new CodedException(X_INTERNAL_ERROR, "Reading SOAP from request timed out");
-            }
-        } catch (InterruptedException e) {
-            log.error("waitForSoapMessage interrupted", e);
+            throw executionException;
+        }
+    }
 
-            Thread.currentThread().interrupt();
+    private void setError(Throwable ex) {
+        log.trace("setError()");
+
+        if (executionException == null) {
+            executionException = translateException(ex);
         }
     }
 
-    private void waitForRequestSent() {
-        log.trace("waitForRequestSent()");
+    /**
+     * Encodes the request to the server proxy while it is being sent. The attachments are read from the
+     * incoming request as they are written, so the request is streamed with the pace of the connection.
+     */
+    private final class ProxyMessageEntity extends AbstractHttpEntity {
 
-        try {
-            httpSenderGate.await();
-        } catch (InterruptedException e) {
-            log.error("waitForRequestSent interrupted", e);
+        ProxyMessageEntity(String contentType) {
+            setContentType(contentType);
+        }
 
-            Thread.currentThread().interrupt();
+        @Override
+        public boolean isRepeatable() {
+            return false;
         }
-    }
 
-    private void continueProcessing() {
-        log.trace("continueProcessing()");
+        @Override
+        public long getContentLength() {
+            return CHUNKED_LENGTH;
+        }
 
-        requestHandlerGate.countDown();
-    }
+        @Override
+        public InputStream getContent() {
+            throw new UnsupportedOperationException("getContent() is not supported");
+        }
 
-    private void continueReadingResponse() {
-        log.trace("continueReadingResponse()");
+        @Override
+        @WithSpan
+        public void writeTo(OutputStream outStream) throws IOException {
+            try {
+                request = new ProxyMessageEncoder(outStream, SoapUtils.getHashAlgoId(),
+                        getBoundary(getContentType().getValue()));
 
-        httpSenderGate.countDown();
-    }
+                // In SSL mode, we need to send the OCSP response of our SSL cert.
+                if (isSslEnabled()) {
+                    writeOcspResponses();
+                }
 
-    private void checkError() {
-        if (executionException != null) {
-            log.trace("checkError(): ", executionException);
+                request.soap(requestSoap, requestSoapHeaders);
 
-            throw executionException;
+                soapMessageDecoder.parseAttachments();
+            } catch (Exception ex) {
+                setError(new ClientException(translateException(ex)));
+            } finally {
+                closeRequest();
+            }
+
+            if (executionException != null) {
+                // Abort the request, the server proxy must not receive an incomplete message.
+                throw new IOException("Failed to encode request", executionException);
+            }
         }
-    }
 
-    private void setError(Throwable ex) {
-        log.trace("setError()");
+        @Override
+        public boolean isStreaming() {
+            return true;
+        }
 
-        if (executionException == null) {
-            executionException = translateException(ex);
+        private void writeOcspResponses() throws CertificateEncodingException, IOException {
+            CertChain chain = commonBeanProxy.keyConfProvider.getAuthKey().certChain();
+            // exclude TopCA
+            List<OCSPResp> ocspResponses = commonBeanProxy.keyConfProvider.getAllOcspResponses(chain.getAllCertsWithoutTrustedRoot());
+
+            for (OCSPResp ocsp : ocspResponses) {
+                request.ocspResponse(ocsp);
+            }
         }
-    }
 
-    @WithSpan
-    public void handleSoap() {
-        try (SoapMessageHandler handler = new SoapMessageHandler()) {
-            SoapMessageDecoder soapMessageDecoder = new SoapMessageDecoder(jRequest.getContentType(),
-                    handler, new SaxSoapParserImpl());
+        private void closeRequest() {
             try {
-                originalSoapAction = validateSoapActionHeader(jRequest.getHeaders().get("SOAPAction"));
-                soapMessageDecoder.parse(jRequest.getInputStream());
-            } catch (Exception ex) {
-                throw new ClientException(translateException(ex));
+                request.close();
+            } catch (Exception e) {
+                setError(e);
             }
-        } catch (Throwable ex) {
-            setError(ex);
-        } finally {
-            continueProcessing();
-            continueReadingResponse();
         }
     }
 
     private final class SoapMessageHandler implements SoapMessageDecoder.Callback {
 
         @Override
-        public void soap(SoapMessage message, Map<String, String> headers) throws IOException, CertificateEncodingException {
+        public void soap(SoapMessage message, Map<String, String> headers) throws IOException {
             if (log.isTraceEnabled()) {
                 log.trace("soap({})", message.getXml());
             }
 
             requestSoap = (SoapMessageImpl) message;
+            requestSoapHeaders = headers;
             requestServiceId = requestSoap.getService();
 
             updateOpMonitoringDataBySoapMessage(opMonitoringData, requestSoap);
-
-            if (request == null) {
-                request = new ProxyMessageEncoder(reqOuts, SoapUtils.getHashAlgoId());
-                outputContentType = request.getContentType();
-            }
-
-            // We have the request SOAP message, we can start sending the
-            // request to server proxy.
-            continueProcessing();
-
-            // In SSL mode, we need to send the OCSP response of our SSL cert.
-            if (isSslEnabled()) {
-                writeOcspResponses();
-            }
-
-            request.soap(requestSoap, headers);
         }
 
         @Override
@@ -507,12 +469,6 @@ class ClientMessageProcessor extends AbstractClientMessageProcessor {
         public void onCompleted() {
             log.trace("onCompleted()");
 
-            if (requestSoap == null) {
-                setError(new ClientException(X_MISSING_SOAP, "Request does not contain SOAP message"));
-
-                return;
-            }
-
             updateOpMonitoringData();
 
             try {
@@ -548,26 +504,6 @@ class ClientMessageProcessor extends AbstractClientMessageProcessor {
             throw e;
         }
 
-        private void writeOcspResponses() throws CertificateEncodingException, IOException {
-            CertChain chain = commonBeanProxy.keyConfProvider.getAuthKey().certChain();
-            // exclude TopCA
-            List<OCSPResp> ocspResponses = commonBeanProxy.keyConfProvider.getAllOcspResponses(chain.getAllCertsWithoutTrustedRoot());
-
-            for (OCSPResp ocsp : ocspResponses) {
-                request.ocspResponse(ocsp);
-            }
-        }
-
-        @Override
-        public void close() {
-            if (request != null) {
-                try {
-                    request.close();
-                } catch (Exception e) {
-                    setError(e);
-                }
-            }
-        }
     }
 
 }
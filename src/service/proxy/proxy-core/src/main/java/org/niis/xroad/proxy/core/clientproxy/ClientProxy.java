@@ -60,6 +60,8 @@ import org.niis.xroad.globalconf.GlobalConfProvider;
 import org.niis.xroad.keyconf.KeyConfProvider;
 import org.niis.xroad.proxy.core.serverproxy.IdleConnectionMonitorThread;
 import org.niis.xroad.proxy.core.util.CommonBeanProxy;
+import org.niis.xroad.proxy.core.util.SSLContextUtil;
+import org.niis.xroad.proxy.core.util.VirtualThreadExecution;
 import org.niis.xroad.serverconf.ServerConfProvider;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
@@ -71,6 +73,8 @@ import javax.net.ssl.X509TrustManager;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
@@ -108,6 +112,7 @@ public class ClientProxy implements InitializingBean, DisposableBean {
     private CloseableHttpClient client;
     private IdleConnectionMonitorThread connectionMonitor;
     private ReloadingSSLSocketFactory reloadingSSLSocketFactory;
+    private Http2ProxyHttpClient http2Client;
 
     /**
      * Constructs and configures a new client proxy.
@@ -145,6 +150,10 @@ public class ClientProxy implements InitializingBean, DisposableBean {
         final var reqLog = new CustomRequestLog(writer, CustomRequestLog.EXTENDED_NCSA_FORMAT
                 + " \"%{X-Forwarded-For}i\"");
         server.setRequestLog(reqLog);
+
+        if (SystemProperties.isProxyVirtualThreadsEnabled()) {
+            VirtualThreadExecution.configure(server, "clientproxy", SystemProperties.getProxyVirtualThreadsMaxConcurrentRequests());
+        }
     }
 
     private void createClient() throws Exception {
@@ -175,6 +184,20 @@ public class ClientProxy implements InitializingBean, DisposableBean {
         cb.setRetryHandler(new DefaultHttpRequestRetryHandler(0, false));
 
         client = cb.build();
+
+        if (SystemProperties.isSslEnabled() && SystemProperties.isClientProxyHttp2Enabled()) {
+            log.info("Using HTTP/2 for connections to service provider security servers");
+            http2Client = new Http2ProxyHttpClient(client, authTrustVerifier, this::createXroadSSLContext);
+            client = http2Client;
+        }
+    }
+
+    private SSLContext createXroadSSLContext() {
+        try {
+            return SSLContextUtil.createXroadSSLContext(globalConfProvider, keyConfProvider);
+        } catch (NoSuchAlgorithmException | KeyManagementException e) {
+            throw XrdRuntimeException.systemException(e);
+        }
     }
 
     private HttpClientConnectionManager getClientConnectionManager() throws Exception {
@@ -337,6 +360,9 @@ public class ClientProxy implements InitializingBean, DisposableBean {
     public void reloadAuthKey() {
         log.trace("reloadAuthKey()");
         reloadingSSLSocketFactory.reload();
+        if (http2Client != null) {
+            http2Client.reload();
+        }
     }
 
     private static final class ClientSslTrustManager implements X509TrustManager {
@@ -0,0 +1,609 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.niis.xroad.proxy.core.clientproxy;
+
+import ee.ria.xroad.common.CodedException;
+import ee.ria.xroad.common.SystemProperties;
+import ee.ria.xroad.common.identifier.ClientId;
+import ee.ria.xroad.common.identifier.ServiceId;
+import ee.ria.xroad.common.util.CryptoUtils;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.core5.concurrent.ComplexCancellable;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.message.BasicHttpRequest;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.apache.hc.core5.http.nio.command.RequestExecutionCommand;
+import org.apache.hc.core5.http.nio.ssl.TlsStrategy;
+import org.apache.hc.core5.http.nio.support.BasicClientExchangeHandler;
+import org.apache.hc.core5.http.nio.support.BasicRequestProducer;
+import org.apache.hc.core5.http.nio.support.classic.AbstractClassicEntityProducer;
+import org.apache.hc.core5.http.nio.support.classic.ContentInputStream;
+import org.apache.hc.core5.http.nio.support.classic.SharedInputBuffer;
+import org.apache.hc.core5.http.protocol.HttpCoreContext;
+import org.apache.hc.core5.http.protocol.HttpProcessorBuilder;
+import org.apache.hc.core5.http2.config.H2Config;
+import org.apache.hc.core5.http2.impl.nio.ProtocolNegotiationException;
+import org.apache.hc.core5.http2.impl.nio.bootstrap.H2MultiplexingRequester;
+import org.apache.hc.core5.http2.impl.nio.bootstrap.H2MultiplexingRequesterBootstrap;
+import org.apache.hc.core5.http2.protocol.H2RequestConnControl;
+import org.apache.hc.core5.http2.protocol.H2RequestContent;
+import org.apache.hc.core5.http2.protocol.H2RequestTargetHost;
+import org.apache.hc.core5.http2.ssl.H2ClientTlsStrategy;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.net.NamedEndpoint;
+import org.apache.hc.core5.reactor.Command;
+import org.apache.hc.core5.reactor.IOSession;
+import org.apache.hc.core5.reactor.ssl.TlsDetails;
+import org.apache.hc.core5.reactor.ssl.TransportSecurityLayer;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.Configurable;
+import org.apache.http.client.methods.HttpExecutionAware;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.impl.EnglishReasonPhraseCatalog;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.message.BasicStatusLine;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+import org.niis.xroad.opmonitor.api.OpMonitoringData;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLParameters;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import static ee.ria.xroad.common.ErrorCodes.X_NETWORK_ERROR;
+import static ee.ria.xroad.common.ErrorCodes.X_SSL_AUTH_FAILED;
+import static org.niis.xroad.proxy.core.clientproxy.FastestConnectionSelectingSSLSocketFactory.ID_TARGETS;
+
+/**
+ * HTTP client that multiplexes requests to service provider security servers over shared HTTP/2 connections.
+ * <p>
+ * The client reads the target addresses and the service provider from the same context attributes as
+ * {@link FastestConnectionSelectingSSLSocketFactory} and verifies the authentication certificate of the service
+ * provider security server with {@link AuthTrustVerifier} before the first request of a service provider is sent over
+ * a connection. An address with an established connection is preferred over the other target addresses.
+ * <p>
+ * If a security server does not negotiate HTTP/2 during the TLS handshake, the request and later requests to the same
+ * address are sent with the pooled HTTP/1.1 client.
+ */
+@Slf4j
+class Http2ProxyHttpClient extends CloseableHttpClient {
+
+    private static final String HTTP_2 = "h2";
+    private static final HttpVersion HTTP_2_VERSION = new HttpVersion(2, 0);
+
+    private static final int BUFFER_SIZE = 65536;
+    private static final int CACHE_MAXIMUM_SIZE = 10000;
+
+    // connection specific headers are not allowed in HTTP/2 requests
+    private static final Set<String> SKIPPED_HEADERS = Set.of("connection", "keep-alive", "proxy-connection",
+            "transfer-encoding", "upgrade", "host", "content-length", "te", "expect");
+
+    private final CloseableHttpClient http1Client;
+    private final AuthTrustVerifier authTrustVerifier;
+    private final ReloadingTlsStrategy tlsStrategy;
+    private final H2MultiplexingRequester requester;
+    private final ExecutorService producerExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Cache<org.apache.hc.core5.http.HttpHost, Boolean> http1Hosts;
+    private final Cache<IOSession, Map<ClientId, Boolean>> verifiedProviders;
+
+    Http2ProxyHttpClient(CloseableHttpClient http1Client, AuthTrustVerifier authTrustVerifier,
+                         Supplier<SSLContext> sslContextSupplier) {
+        this.http1Client = http1Client;
+        this.authTrustVerifier = authTrustVerifier;
+        this.tlsStrategy = new ReloadingTlsStrategy(sslContextSupplier);
+        this.http1Hosts = CacheBuilder.newBuilder()
+                .expireAfterWrite(SystemProperties.getClientProxyFastestConnectingSslUriCachePeriod(), TimeUnit.SECONDS)
+                .maximumSize(CACHE_MAXIMUM_SIZE)
+                .build();
+        this.verifiedProviders = CacheBuilder.newBuilder()
+                .weakKeys()
+                .build();
+
+        requester = H2MultiplexingRequesterBootstrap.bootstrap()
+                .setH2Config(H2Config.custom()
+                        .setInitialWindowSize(SystemProperties.getProxyHttp2InitialWindowSize())
+                        .setPushEnabled(false)
+                        .build())
+                // Expect: 100-continue would cost a round trip per request
+                .setHttpProcessor(HttpProcessorBuilder.create()
+                        .addAll(new H2RequestContent(), new H2RequestTargetHost(), new H2RequestConnControl())
+                        .build())
+                .setTlsStrategy(tlsStrategy)
+                .setStrictALPNHandshake(true)
+                .create();
+        requester.setValidateAfterInactivity(
+                TimeValue.ofMilliseconds(SystemProperties.getClientProxyValidatePoolConnectionsAfterInactivityMs()));
+        requester.start();
+    }
+
+    /**
+     * Reloads the TLS key and closes the established connections, requests in progress are completed.
+     */
+    void reload() {
+        tlsStrategy.reload();
+        requester.closeIdle(TimeValue.ZERO_MILLISECONDS);
+    }
+
+    @Override
+    protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context)
+            throws IOException {
+        URI[] addresses = getAddressesFromContext(context);
+        if (addresses.length == 0) {
+            return http1Client.execute(target, request, context);
+        }
+
+        RequestConfig config = request instanceof Configurable configurable ? configurable.getConfig() : null;
+        int connectTimeout = config != null ? config.getConnectTimeout() : SystemProperties.getClientProxyTimeout();
+        int socketTimeout = config != null ? config.getSocketTimeout() : SystemProperties.getClientProxyHttpClientTimeout();
+
+        SelectedSession selected = selectSession(addresses, context, connectTimeout);
+        if (selected == null) {
+            return http1Client.execute(target, request, context);
+        }
+
+        log.trace("Sending request to {} over HTTP/2", selected.address());
+        updateOpMonitoringData(context, selected.address());
+        return execute(selected, request, socketTimeout);
+    }
+
+    private SelectedSession selectSession(URI[] addresses, HttpContext context, int connectTimeout) {
+        Exception deferredException = null;
+
+        for (URI address : preferEstablished(addresses)) {
+            org.apache.hc.core5.http.HttpHost host = toHost(address);
+            if (http1Hosts.getIfPresent(host) != null) {
+                continue;
+            }
+
+            try {
+                IOSession session = connect(host, connectTimeout);
+                if (session == null) {
+                    log.info("Provider {} did not negotiate HTTP/2, using HTTP/1.1", address);
+                    http1Hosts.put(host, Boolean.TRUE);
+                    return null;
+                }
+
+                verify(session, ((TransportSecurityLayer) session).getTlsDetails(), context, address);
+                return new SelectedSession(session, host, address);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Failed to connect to {}", address, e);
+                deferredException = e;
+            }
+        }
+
+        if (deferredException == null) {
+            return null;
+        }
+        log.error("Could not connect to any target host ({})", (Object) addresses);
+        if (deferredException instanceof CodedException codedException) {
+            throw codedException;
+        }
+        throw new CodedException(X_NETWORK_ERROR, deferredException, "Could not connect to any target host (%s)",
+                Arrays.toString(addresses));
+    }
+
+    private List<URI> preferEstablished(URI[] addresses) {
+        Set<org.apache.hc.core5.http.HttpHost> routes = requester.getRoutes();
+        List<URI> ordered = new ArrayList<>(addresses.length);
+        for (URI address : addresses) {
+            if (routes.contains(toHost(address))) {
+                ordered.addFirst(address);
+            } else {
+                ordered.add(address);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * @return the HTTP/2 session, or null if the security server did not negotiate HTTP/2
+     */
+    private IOSession connect(org.apache.hc.core5.http.HttpHost host, int connectTimeout) throws IOException {
+        Future<IOSession> future = requester.getConnPool().getSession(host, Timeout.ofMilliseconds(connectTimeout), null);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while connecting to " + host);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ProtocolNegotiationException) {
+                return null;
+            }
+            if (e.getCause() instanceof SSLException) {
+                throw new CodedException(X_SSL_AUTH_FAILED, e.getCause(), "TLS handshake failed");
+            }
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new CodedException(X_NETWORK_ERROR, e.getCause(), "Failed to connect to %s", host);
+        }
+    }
+
+    private void verify(IOSession session, TlsDetails tlsDetails, HttpContext context, URI address) {
+        ServiceId service = (ServiceId) context.getAttribute(AuthTrustVerifier.ID_PROVIDERNAME);
+        if (service == null) {
+            // fails with the same error as on HTTP/1.1 connections
+            authTrustVerifier.verify(context, tlsDetails.getSSLSession(), address);
+            return;
+        }
+
+        // concurrent first requests of a service provider wait for a single verification
+        verifiedProviders.asMap().computeIfAbsent(session, s -> new ConcurrentHashMap<>())
+                .computeIfAbsent(service.getClientId(), clientId -> {
+                    authTrustVerifier.verify(context, tlsDetails.getSSLSession(), address);
+                    return Boolean.TRUE;
+                });
+    }
+
+    private CloseableHttpResponse execute(SelectedSession selected, HttpRequest request, int socketTimeout)
+            throws IOException {
+        URI requestUri = URI.create(request.getRequestLine().getUri());
+        String path = requestUri.getRawPath() == null || requestUri.getRawPath().isEmpty() ? "/" : requestUri.getRawPath();
+        if (requestUri.getRawQuery() != null) {
+            path += "?" + requestUri.getRawQuery();
+        }
+
+        BasicHttpRequest http2Request = new BasicHttpRequest(request.getRequestLine().getMethod(), selected.host(), path);
+        for (Header header : request.getAllHeaders()) {
+            if (!SKIPPED_HEADERS.contains(header.getName().toLowerCase(Locale.ROOT))) {
+                http2Request.addHeader(header.getName(), header.getValue());
+            }
+        }
+
+        AsyncEntityProducer entityProducer = null;
+        if (request instanceof HttpEntityEnclosingRequest enclosingRequest && enclosingRequest.getEntity() != null) {
+            HttpEntity entity = enclosingRequest.getEntity();
+            if (entity.getContentType() != null && !http2Request.containsHeader(entity.getContentType().getName())) {
+                http2Request.addHeader(entity.getContentType().getName(), entity.getContentType().getValue());
+            }
+            if (entity.getContentEncoding() != null && !http2Request.containsHeader(entity.getContentEncoding().getName())) {
+                http2Request.addHeader(entity.getContentEncoding().getName(), entity.getContentEncoding().getValue());
+            }
+            entityProducer = new EntityProducer(entity, producerExecutor);
+        }
+
+        ComplexCancellable cancellable = new ComplexCancellable();
+        if (request instanceof HttpExecutionAware executionAware) {
+            executionAware.setCancellable(cancellable::cancel);
+        }
+
+        ResponseConsumer responseConsumer = new ResponseConsumer();
+        var exchangeHandler = new BasicClientExchangeHandler<>(
+                new BasicRequestProducer(http2Request, entityProducer), responseConsumer, null);
+        selected.session().enqueue(new RequestExecutionCommand(exchangeHandler, null, cancellable, HttpCoreContext.create()),
+                Command.Priority.NORMAL);
+
+        return responseConsumer.awaitResponse(socketTimeout, cancellable);
+    }
+
+    private static org.apache.hc.core5.http.HttpHost toHost(URI address) {
+        return new org.apache.hc.core5.http.HttpHost(address.getScheme(), address.getHost(), address.getPort());
+    }
+
+    private static URI[] getAddressesFromContext(HttpContext context) {
+        if (context != null && context.getAttribute(ID_TARGETS) instanceof URI[] targets
+                && Arrays.stream(targets).allMatch(uri -> "https".equalsIgnoreCase(uri.getScheme()))) {
+            return targets;
+        }
+        return new URI[0];
+    }
+
+    private static void updateOpMonitoringData(HttpContext context, URI address) {
+        try {
+            OpMonitoringData opMonitoringData = (OpMonitoringData) context.getAttribute(OpMonitoringData.class.getName());
+
+            if (opMonitoringData != null) {
+                opMonitoringData.setServiceSecurityServerAddress(address.getHost());
+            }
+        } catch (Exception e) {
+            log.error("Failed to assign op monitoring data field {}", OpMonitoringData.SERVICE_SECURITY_SERVER_ADDRESS, e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        requester.close(CloseMode.GRACEFUL);
+        producerExecutor.shutdownNow();
+        http1Client.close();
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public HttpParams getParams() {
+        return http1Client.getParams();
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public ClientConnectionManager getConnectionManager() {
+        return http1Client.getConnectionManager();
+    }
+
+    private record SelectedSession(IOSession session, org.apache.hc.core5.http.HttpHost host, URI address) {
+    }
+
+    private record ResponseHead(org.apache.hc.core5.http.HttpResponse response, EntityDetails entityDetails) {
+    }
+
+    /**
+     * Creates the TLS sessions with the current authentication key of the security server. HTTP/1.1 is offered next to
+     * HTTP/2 during the handshake, so that a security server can decline HTTP/2 instead of failing the handshake, e.g.
+     * when the negotiated cipher suite is not allowed for HTTP/2. Such sessions are closed by the HTTP/2 protocol
+     * handler with {@link ProtocolNegotiationException}.
+     */
+    private static final class ReloadingTlsStrategy implements TlsStrategy {
+        private static final String[] APPLICATION_PROTOCOLS = {HTTP_2, "http/1.1"};
+
+        private final Supplier<SSLContext> sslContextSupplier;
+        private volatile TlsStrategy delegate;
+
+        ReloadingTlsStrategy(Supplier<SSLContext> sslContextSupplier) {
+            this.sslContextSupplier = sslContextSupplier;
+            reload();
+        }
+
+        void reload() {
+            delegate = new H2ClientTlsStrategy(sslContextSupplier.get(), (endpoint, sslEngine) -> {
+                SSLParameters sslParameters = sslEngine.getSSLParameters();
+                // the server certificate is verified by AuthTrustVerifier
+                sslParameters.setEndpointIdentificationAlgorithm("");
+                sslParameters.setProtocols(new String[]{CryptoUtils.SSL_PROTOCOL});
+                sslParameters.setCipherSuites(SystemProperties.getXroadTLSCipherSuites());
+                sslParameters.setApplicationProtocols(APPLICATION_PROTOCOLS);
+                sslEngine.setSSLParameters(sslParameters);
+            }, null);
+        }
+
+        @Override
+        @Deprecated
+        @SuppressWarnings("deprecation")
+        public boolean upgrade(TransportSecurityLayer sessionLayer, org.apache.hc.core5.http.HttpHost host,
+                               SocketAddress localAddress, SocketAddress remoteAddress, Object attachment, Timeout handshakeTimeout) {
+            return delegate.upgrade(sessionLayer, host, localAddress, remoteAddress, attachment, handshakeTimeout);
+        }
+
+        @Override
+        public void upgrade(TransportSecurityLayer sessionLayer, NamedEndpoint endpoint, Object attachment,
+                            Timeout handshakeTimeout, FutureCallback<TransportSecurityLayer> callback) {
+            delegate.upgrade(sessionLayer, endpoint, attachment, handshakeTimeout, callback);
+        }
+    }
+
+    /**
+     * Streams the request entity from a separate thread, the entity is written by the caller of the client in the
+     * HTTP/1.1 case as well.
+     */
+    private static final class EntityProducer extends AbstractClassicEntityProducer {
+        private final HttpEntity entity;
+
+        EntityProducer(HttpEntity entity, ExecutorService executor) {
+            super(BUFFER_SIZE, null, executor);
+            this.entity = entity;
+        }
+
+        @Override
+        protected void produceData(ContentType contentType, OutputStream outputStream) throws IOException {
+            entity.writeTo(outputStream);
+        }
+    }
+
+    /**
+     * Makes the response available as a blocking {@link CloseableHttpResponse} as soon as the response head arrives,
+     * the response body is read from a buffer that is filled by the I/O reactor.
+     */
+    private static final class ResponseConsumer implements AsyncResponseConsumer<Void> {
+        private final CompletableFuture<ResponseHead> head = new CompletableFuture<>();
+        private final SharedInputBuffer buffer = new SharedInputBuffer(BUFFER_SIZE);
+        private volatile FutureCallback<Void> resultCallback;
+        private volatile Exception failure;
+        private volatile boolean completed;
+
+        @Override
+        public void consumeResponse(org.apache.hc.core5.http.HttpResponse response, EntityDetails entityDetails,
+                                    org.apache.hc.core5.http.protocol.HttpContext context, FutureCallback<Void> callback) {
+            resultCallback = callback;
+            head.complete(new ResponseHead(response, entityDetails));
+            if (entityDetails == null) {
+                complete();
+            }
+        }
+
+        @Override
+        public void informationResponse(org.apache.hc.core5.http.HttpResponse response,
+                                         org.apache.hc.core5.http.protocol.HttpContext context) {
+            // 1xx responses are not passed on
+        }
+
+        @Override
+        public void updateCapacity(CapacityChannel capacityChannel) throws IOException {
+            buffer.updateCapacity(capacityChannel);
+        }
+
+        @Override
+        public void consume(ByteBuffer src) {
+            buffer.fill(src);
+        }
+
+        @Override
+        public void streamEnd(List<? extends org.apache.hc.core5.http.Header> trailers) {
+            complete();
+        }
+
+        @Override
+        public void failed(Exception cause) {
+            failure = cause;
+            head.completeExceptionally(cause);
+            buffer.abort();
+        }
+
+        @Override
+        public void releaseResources() {
+            // the buffer is released with the response
+        }
+
+        private void complete() {
+            completed = true;
+            buffer.markEndStream();
+            if (resultCallback != null) {
+                resultCallback.completed(null);
+            }
+        }
+
+        CloseableHttpResponse awaitResponse(int socketTimeout, ComplexCancellable cancellable) throws IOException {
+            ResponseHead responseHead;
+            try {
+                responseHead = socketTimeout > 0 ? head.get(socketTimeout, TimeUnit.MILLISECONDS) : head.get();
+            } catch (TimeoutException e) {
+                cancellable.cancel();
+                throw new SocketTimeoutException("Read timed out");
+            } catch (InterruptedException e) {
+                cancellable.cancel();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for response");
+            } catch (ExecutionException e) {
+                throw toIOException(e.getCause());
+            }
+
+            int status = responseHead.response().getCode();
+            Http2Response response = new Http2Response(new BasicStatusLine(HTTP_2_VERSION, status,
+                    EnglishReasonPhraseCatalog.INSTANCE.getReason(status, Locale.ENGLISH)), cancellable);
+            for (org.apache.hc.core5.http.Header header : responseHead.response().getHeaders()) {
+                response.addHeader(header.getName(), header.getValue());
+            }
+
+            EntityDetails entityDetails = responseHead.entityDetails();
+            if (entityDetails != null) {
+                BasicHttpEntity entity = new BasicHttpEntity();
+                entity.setContent(new ResponseContent(new ContentInputStream(buffer)));
+                entity.setContentLength(entityDetails.getContentLength());
+                entity.setContentType(entityDetails.getContentType());
+                entity.setContentEncoding(entityDetails.getContentEncoding());
+                response.setEntity(entity);
+            }
+            return response;
+        }
+
+        private IOException toIOException(Throwable cause) {
+            if (cause instanceof IOException ioException) {
+                return ioException;
+            }
+            if (cause instanceof HttpException) {
+                return new ClientProtocolException(cause.getMessage(), cause);
+            }
+            return new IOException(cause);
+        }
+
+        /**
+         * Reports a failed stream as an error instead of the end of the response body.
+         */
+        private final class ResponseContent extends FilterInputStream {
+            ResponseContent(InputStream in) {
+                super(in);
+            }
+
+            @Override
+            public int read() throws IOException {
+                return checkFailure(super.read());
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return checkFailure(super.read(b, off, len));
+            }
+
+            private int checkFailure(int result) throws IOException {
+                if (result == -1 && failure != null) {
+                    throw toIOException(failure);
+                }
+                return result;
+            }
+        }
+
+        private final class Http2Response extends BasicHttpResponse implements CloseableHttpResponse {
+            private final ComplexCancellable cancellable;
+
+            Http2Response(BasicStatusLine statusLine, ComplexCancellable cancellable) {
+                super(statusLine);
+                this.cancellable = cancellable;
+            }
+
+            @Override
+            public void close() {
+                if (!completed) {
+                    cancellable.cancel();
+                    buffer.abort();
+                }
+            }
+        }
+    }
+}
@@ -46,6 +46,8 @@ import org.niis.xroad.common.core.annotation.ArchUnitSuppressed;
 import org.niis.xroad.common.core.exception.ErrorCode;
 import org.niis.xroad.proxy.core.healthcheck.HealthCheckPort;
 import org.niis.xroad.proxy.core.messagelog.MessageLog;
+import org.niis.xroad.proxy.core.signature.BatchSigner;
+import org.niis.xroad.proxy.core.signature.MessageSigner;
 import org.niis.xroad.serverconf.ServerConfProvider;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -72,7 +74,7 @@ public class ProxyAdminPortConfig {
     private final Optional<HealthCheckPort> healthCheckPort;
 
     @Bean
-    AdminPort createAdminPort(ServerConfProvider serverConfProvider) {
+    AdminPort createAdminPort(ServerConfProvider serverConfProvider, MessageSigner messageSigner) {
         AdminPort adminPort = new AdminPort(PortNumbers.ADMIN_PORT);
 
         addTimestampStatusHandler(adminPort, serverConfProvider);
@@ -89,6 +91,10 @@ public class ProxyAdminPortConfig {
 
         addMemoryUsageHandler(adminPort);
 
+        if (messageSigner instanceof BatchSigner batchSigner) {
+            addBatchSigningStatsHandler(adminPort, batchSigner);
+        }
+
         return adminPort;
     }
 
@@ -129,6 +135,15 @@ public class ProxyAdminPortConfig {
         });
     }
 
+    private void addBatchSigningStatsHandler(AdminPort adminPort, BatchSigner batchSigner) {
+        adminPort.addHandler("/batch-signing-stats", new AdminPort.SynchronousCallback() {
+            @Override
+            public void handle(RequestWrapper request, ResponseWrapper response) {
+                writeJsonResponse(batchSigner.getStats(), response);
+            }
+        });
+    }
+
     private void addClearCacheHandler(AdminPort adminPort, ServerConfProvider serverConfProvider) {
         adminPort.addHandler("/clearconfcache", new AdminPort.SynchronousCallback() {
             @Override
@@ -40,6 +40,7 @@ import org.eclipse.jetty.server.ServerConnector;
 import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.thread.QueuedThreadPool;
 import org.niis.xroad.common.core.annotation.ArchUnitSuppressed;
+import org.niis.xroad.proxy.core.util.VirtualThreadExecution;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 
@@ -87,6 +88,10 @@ public class HealthCheckPort implements InitializingBean, DisposableBean {
     }
 
     private void createHealthCheckConnector() {
+        if (SystemProperties.isProxyVirtualThreadsEnabled()) {
+            VirtualThreadExecution.configure(server, "healthcheck", THREAD_POOL_SIZE);
+        }
+
         HttpConfiguration httpConfiguration = new HttpConfiguration();
         httpConfiguration.setSendServerVersion(false);
         HttpConnectionFactory connectionFactory = new HttpConnectionFactory(httpConfiguration);
@@ -56,8 +56,8 @@ import java.util.Map;
 
 /**
  * Reads in all of the proxy message, extracts the parts and is later able
- * to convert the message to SOAP. Note: any attachments are cached in the
- * file system.
+ * to convert the message to SOAP. Note: any attachments are cached in
+ * memory, larger ones are spilled to memory-mapped temporary files.
  * <p>
  * To load the message pass this object to a proxy message producer that
  * fills in the parts. After that, you can query the message parts and
@@ -32,6 +32,8 @@ import ee.ria.xroad.common.util.TimeUtils;
 
 import lombok.extern.slf4j.Slf4j;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.eclipse.jetty.alpn.server.ALPNServerConnectionFactory;
+import org.eclipse.jetty.http2.server.HTTP2ServerConnectionFactory;
 import org.eclipse.jetty.server.CustomRequestLog;
 import org.eclipse.jetty.server.Handler;
 import org.eclipse.jetty.server.HttpConnectionFactory;
@@ -39,6 +41,7 @@ import org.eclipse.jetty.server.SecureRequestCustomizer;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.ServerConnector;
 import org.eclipse.jetty.server.Slf4jRequestLogWriter;
+import org.eclipse.jetty.server.SslConnectionFactory;
 import org.eclipse.jetty.util.resource.ResourceFactory;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
 import org.eclipse.jetty.xml.XmlConfiguration;
@@ -48,6 +51,7 @@ import org.niis.xroad.opmonitor.api.OpMonitoringSystemProperties;
 import org.niis.xroad.proxy.core.antidos.AntiDosConnector;
 import org.niis.xroad.proxy.core.util.CommonBeanProxy;
 import org.niis.xroad.proxy.core.util.SSLContextUtil;
+import org.niis.xroad.proxy.core.util.VirtualThreadExecution;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 
@@ -74,6 +78,11 @@ public class ServerProxy implements InitializingBean, DisposableBean {
     private static final int CONNECTOR_SO_LINGER_MILLIS = SystemProperties.getServerProxyConnectorSoLinger();
     private static final String CLIENT_PROXY_CONNECTOR_NAME = "ClientProxyConnector";
 
+    private static final String ALPN_HTTP_1_1 = "http/1.1";
+
+    // number of streams that can use their full flow control window at the same time on one HTTP/2 connection
+    private static final int HTTP2_SESSION_WINDOW_STREAMS = 8;
+
     private final Server server = new Server();
 
     private final CommonBeanProxy commonBeanProxy;
@@ -115,6 +124,10 @@ public class ServerProxy implements InitializingBean, DisposableBean {
         writer.setLoggerName(getClass().getPackage().getName() + ".RequestLog");
         final var reqLog = new CustomRequestLog(writer, CustomRequestLog.EXTENDED_NCSA_FORMAT);
         server.setRequestLog(reqLog);
+
+        if (SystemProperties.isProxyVirtualThreadsEnabled()) {
+            VirtualThreadExecution.configure(server, "serverproxy", SystemProperties.getProxyVirtualThreadsMaxConcurrentRequests());
+        }
     }
 
     private void createClient() throws Exception {
@@ -220,9 +233,44 @@ public class ServerProxy implements InitializingBean, DisposableBean {
         sslContextFactory.setSslContext(
                 SSLContextUtil.createXroadSSLContext(commonBeanProxy.globalConfProvider, commonBeanProxy.keyConfProvider));
 
-        return SystemProperties.isAntiDosEnabled()
+        ServerConnector connector = SystemProperties.isAntiDosEnabled()
                 ? new AntiDosConnector(commonBeanProxy.globalConfProvider, server, ACCEPTOR_COUNT, sslContextFactory)
                 : new ServerConnector(server, ACCEPTOR_COUNT, -1, sslContextFactory);
+
+        if (SystemProperties.isServerProxyHttp2Enabled()) {
+            if (SystemProperties.isAntiDosEnabled()) {
+                // the anti-DoS limits apply per connection, an HTTP/2 connection would carry any number of requests
+                log.warn("HTTP/2 is not offered on the server proxy connector because the anti-DoS protection is enabled");
+            } else {
+                enableHttp2(connector, sslContextFactory);
+            }
+        }
+        return connector;
+    }
+
+    /**
+     * Offers HTTP/2 next to HTTP/1.1 on the connector, the protocol is chosen by the client proxy during the TLS
+     * handshake (ALPN). Both protocols share the HTTP configuration, so client certificates are available to the
+     * handlers in the same way. The number of concurrent requests per connection is limited by the maximum number
+     * of concurrent streams, the connection based anti-DoS protection does not see them.
+     */
+    public static void enableHttp2(ServerConnector connector, SslContextFactory.Server sslContextFactory) {
+        HttpConnectionFactory http1 = connector.getConnectionFactory(HttpConnectionFactory.class);
+
+        HTTP2ServerConnectionFactory http2 = new HTTP2ServerConnectionFactory(http1.getHttpConfiguration());
+        http2.setMaxConcurrentStreams(SystemProperties.getServerProxyHttp2MaxConcurrentStreams());
+        http2.setInitialStreamRecvWindow(SystemProperties.getProxyHttp2InitialWindowSize());
+        http2.setInitialSessionRecvWindow(
+                SystemProperties.getProxyHttp2InitialWindowSize() * HTTP2_SESSION_WINDOW_STREAMS);
+
+        ALPNServerConnectionFactory alpn = new ALPNServerConnectionFactory(http2.getProtocol(), ALPN_HTTP_1_1);
+        alpn.setDefaultProtocol(http1.getProtocol());
+
+        connector.clearConnectionFactories();
+        connector.addConnectionFactory(new SslConnectionFactory(sslContextFactory, alpn.getProtocol()));
+        connector.addConnectionFactory(alpn);
+        connector.addConnectionFactory(http2);
+        connector.addConnectionFactory(http1);
     }
 
     public void reloadAuthKey() {
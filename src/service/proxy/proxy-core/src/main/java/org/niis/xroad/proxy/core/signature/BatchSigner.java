@@ -44,16 +44,19 @@ import javax.xml.transform.TransformerException;
 import java.io.IOException;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
 import static ee.ria.xroad.common.ErrorCodes.X_INTERNAL_ERROR;
 import static ee.ria.xroad.common.crypto.Digests.calculateDigest;
@@ -67,6 +70,10 @@ import static ee.ria.xroad.common.util.CryptoUtils.calculateCertHexHash;
  * Moreover, multiple signing requests for the same signing certificate
  * (and thus the same key id) are signed in batch and the resulting hash
  * chain is produced for each request.
+ * <p>
+ * Batches are sent to the signer asynchronously, so that a configurable number of batches per key can be in flight
+ * at once. While other batches of the same key are being signed, a new batch may wait up to the configured linger
+ * time for more requests to arrive.
  */
 @Slf4j
 @RequiredArgsConstructor
@@ -108,6 +115,17 @@ public class BatchSigner implements MessageSigner {
         }
     }
 
+    /**
+     * Returns batch signing statistics of every signing key used since startup.
+     *
+     * @return statistics per signing key
+     */
+    public List<BatchSigningStats> getStats() {
+        return workers.values().stream()
+                .map(WorkerImpl::getStats)
+                .toList();
+    }
+
     private void handle(SigningRequestWrapper signRequest) {
         // New incoming sign request. Find the corresponding batch signer
         // (if not found, create one) and relay the sign request to the worker.
@@ -128,18 +146,33 @@ public class BatchSigner implements MessageSigner {
         }
     }
 
+    /**
+     * A configured maximum batch size of zero or less means that batches are not limited.
+     */
+    private static int batchSizeLimit(int configuredMaxBatchSize) {
+        return configuredMaxBatchSize > 0 ? configuredMaxBatchSize : Integer.MAX_VALUE;
+    }
+
     /**
      * This is the worker that does the heavy lifting.
      */
     private static class WorkerImpl {
         private final SignerRpcClient signerRpcClient;
+        private final String keyId;
         private final boolean batchSigningEnabled;
+        private final int maxBatchSize = batchSizeLimit(SystemProperties.getBatchSigningMaxBatchSize());
+        private final long maxLingerNanos = TimeUnit.MICROSECONDS.toNanos(SystemProperties.getBatchSigningMaxLingerMicros());
+        private final int maxInFlight = Math.max(1, SystemProperties.getBatchSigningMaxInFlight());
+        private final Semaphore inFlight = new Semaphore(maxInFlight);
         private final BlockingQueue<SigningRequestWrapper> requestsQueue = new LinkedBlockingQueue<>();
-        private boolean stopping;
+        private final StatsCollector stats = new StatsCollector();
+        private volatile boolean stopping;
+        private int previousBatchSize;
         private final Thread workerThread;
 
         protected WorkerImpl(SignerRpcClient signerRpcClient, String keyId) {
             this.signerRpcClient = signerRpcClient;
+            this.keyId = keyId;
             try {
                 batchSigningEnabled = signerRpcClient.isTokenBatchSigningEnabled(keyId);
             } catch (Exception e) {
@@ -156,6 +189,10 @@ public class BatchSigner implements MessageSigner {
             requestsQueue.add(signRequest);
         }
 
+        BatchSigningStats getStats() {
+            return stats.snapshot(keyId, maxInFlight - inFlight.availablePermits());
+        }
+
         private void sendSignatureResponse(BatchSignatureCtx ctx, byte[] signatureValue) throws IOException, TransformerException {
             String signature = ctx.createSignatureXml(signatureValue);
 
@@ -170,7 +207,7 @@ public class BatchSigner implements MessageSigner {
             }
         }
 
-        private void sendException(BatchSignatureCtx ctx, Exception message) {
+        private void sendException(BatchSignatureCtx ctx, Throwable message) {
             for (CompletableFuture<SignatureData> client : ctx.getClients()) {
                 client.completeExceptionally(message);
             }
@@ -181,36 +218,21 @@ public class BatchSigner implements MessageSigner {
             return System.currentTimeMillis() - requestWrapper.getCreatedOn() > TIMEOUT_MILLIS;
         }
 
-        private synchronized void process() {
+        private void process() {
             while (!stopping) {
                 log.trace("polling queue");
-                List<SigningRequestWrapper> requests = new LinkedList<>();
                 try {
-                    SigningRequestWrapper first;
-                    do {
-                        first = requestsQueue.take();
-                    } while (isExpired(first));
-
-                    requests.add(first);
-                    if (batchSigningEnabled) {
-                        // poll all remaining
-                        requestsQueue.drainTo(requests);
+                    SigningRequestWrapper first = requestsQueue.take();
+                    if (isExpired(first)) {
+                        stats.expired.increment();
+                        continue;
                     }
 
-                    log.trace("processing {} sign requests", requests.size());
-                    BatchSignatureCtx ctx = new BatchSignatureCtx(first.getKeyId(), first.getSignatureAlgorithmId());
-                    requests.stream()
-                            .filter(req -> !isExpired(req))
-                            .forEach(req -> ctx.add(req.getClientFuture(), req.getRequest()));
-
-                    try {
-                        byte[] digest = calculateDigest(ctx.getSignatureAlgorithmId().digest(),
-                                ctx.getDataToBeSigned());
-                        final byte[] response = signerRpcClient.sign(ctx.getKeyId(), ctx.getSignatureAlgorithmId(), digest);
-                        sendSignatureResponse(ctx, response);
-                    } catch (Exception exception) {
-                        sendException(ctx, exception);
-                    }
+                    // requests keep accumulating in the queue while all batches allowed for this key are in flight
+                    inFlight.acquire();
+                    List<SigningRequestWrapper> requests = collectBatch(first);
+                    previousBatchSize = requests.size();
+                    signBatch(requests);
                 } catch (InterruptedException interruptedException) {
                     log.trace("queue polling interrupted");
                     Thread.currentThread().interrupt();
@@ -219,6 +241,85 @@ public class BatchSigner implements MessageSigner {
             log.trace("Worker thread stopped");
         }
 
+        private List<SigningRequestWrapper> collectBatch(SigningRequestWrapper first) throws InterruptedException {
+            List<SigningRequestWrapper> requests = new ArrayList<>();
+            requests.add(first);
+            if (!batchSigningEnabled) {
+                return requests;
+            }
+
+            requestsQueue.drainTo(requests, maxBatchSize - requests.size());
+            if (requests.size() < maxBatchSize && shouldLinger()) {
+                long lingerStart = System.nanoTime();
+                long deadline = lingerStart + maxLingerNanos;
+                long remaining = maxLingerNanos;
+                while (remaining > 0 && requests.size() < maxBatchSize) {
+                    SigningRequestWrapper next = requestsQueue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    requests.add(next);
+                    requestsQueue.drainTo(requests, maxBatchSize - requests.size());
+                    remaining = deadline - System.nanoTime();
+                }
+                stats.lingerNanos.add(System.nanoTime() - lingerStart);
+            }
+            return requests;
+        }
+
+        /**
+         * Waiting for more requests only pays off under load: when other batches of this key are still being signed
+         * or the previous batch already combined several requests. An idle key sends its requests immediately.
+         */
+        private boolean shouldLinger() {
+            return maxLingerNanos > 0
+                    && (inFlight.availablePermits() < maxInFlight - 1 || previousBatchSize > 1);
+        }
+
+        private void signBatch(List<SigningRequestWrapper> requests) {
+            log.trace("processing {} sign requests", requests.size());
+            SigningRequestWrapper first = requests.getFirst();
+            BatchSignatureCtx ctx = new BatchSignatureCtx(first.getKeyId(), first.getSignatureAlgorithmId());
+            for (SigningRequestWrapper req : requests) {
+                if (isExpired(req)) {
+                    stats.expired.increment();
+                } else {
+                    ctx.add(req.getClientFuture(), req.getRequest());
+                }
+            }
+            if (ctx.getClients().isEmpty()) {
+                inFlight.release();
+                return;
+            }
+
+            byte[] digest;
+            try {
+                digest = calculateDigest(ctx.getSignatureAlgorithmId().digest(), ctx.getDataToBeSigned());
+            } catch (Exception exception) {
+                inFlight.release();
+                stats.failed.increment();
+                sendException(ctx, exception);
+                return;
+            }
+
+            long signStart = System.nanoTime();
+            signerRpcClient.signAsync(ctx.getKeyId(), ctx.getSignatureAlgorithmId(), digest)
+                    .whenComplete((signature, error) -> {
+                        inFlight.release();
+                        stats.recordBatch(ctx.getClients().size(), System.nanoTime() - signStart);
+                        if (error != null) {
+                            stats.failed.increment();
+                            sendException(ctx, error instanceof CompletionException ? error.getCause() : error);
+                            return;
+                        }
+                        try {
+                            sendSignatureResponse(ctx, signature);
+                        } catch (Exception exception) {
+                            sendException(ctx, exception);
+                        }
+                    });
+        }
+
         protected void stop() {
             log.trace("stop()");
             this.stopping = true;
@@ -227,6 +328,59 @@ public class BatchSigner implements MessageSigner {
 
     }
 
+    /**
+     * Batch signing statistics of a single signing key.
+     *
+     * @param keyId                the signing key
+     * @param batches              number of batch signatures created
+     * @param requests             number of signing requests signed in these batches
+     * @param averageBatchSize     average number of requests per batch
+     * @param maxBatchSize         largest batch so far
+     * @param expiredRequests      number of requests dropped because they timed out before signing
+     * @param failedBatches        number of batches that could not be signed
+     * @param totalLingerMicros    total time spent waiting for more requests, in microseconds
+     * @param averageSignMillis    average signer round trip time per batch, in milliseconds
+     * @param maxSignMillis        longest signer round trip time, in milliseconds
+     * @param batchesInFlight      number of batches currently being signed
+     */
+    public record BatchSigningStats(String keyId, long batches, long requests, double averageBatchSize,
+                                    long maxBatchSize, long expiredRequests, long failedBatches,
+                                    long totalLingerMicros, double averageSignMillis, double maxSignMillis,
+                                    int batchesInFlight) {
+    }
+
+    private static final class StatsCollector {
+        private static final double NANOS_IN_MILLI = 1_000_000d;
+
+        private final LongAdder batches = new LongAdder();
+        private final LongAdder requests = new LongAdder();
+        private final LongAccumulator maxBatchSize = new LongAccumulator(Math::max, 0);
+        private final LongAdder expired = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder lingerNanos = new LongAdder();
+        private final LongAdder signNanos = new LongAdder();
+        private final LongAccumulator maxSignNanos = new LongAccumulator(Math::max, 0);
+
+        void recordBatch(int size, long elapsedNanos) {
+            batches.increment();
+            requests.add(size);
+            maxBatchSize.accumulate(size);
+            signNanos.add(elapsedNanos);
+            maxSignNanos.accumulate(elapsedNanos);
+        }
+
+        BatchSigningStats snapshot(String keyId, int batchesInFlight) {
+            long batchCount = batches.sum();
+            return new BatchSigningStats(keyId, batchCount, requests.sum(),
+                    batchCount == 0 ? 0 : (double) requests.sum() / batchCount,
+                    maxBatchSize.get(), expired.sum(), failed.sum(),
+                    TimeUnit.NANOSECONDS.toMicros(lingerNanos.sum()),
+                    batchCount == 0 ? 0 : signNanos.sum() / NANOS_IN_MILLI / batchCount,
+                    maxSignNanos.get() / NANOS_IN_MILLI,
+                    batchesInFlight);
+        }
+    }
+
     /**
      * Convenience class that wraps the request along with the keyId
      * and algorithm id.
@@ -0,0 +1,67 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.niis.xroad.proxy.core.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.VirtualThreads;
+import org.eclipse.jetty.util.thread.VirtualThreadPool;
+
+/**
+ * Configures a Jetty server to invoke its blocking request handlers on virtual threads.
+ * <p>
+ * The server thread pool keeps running the acceptors and selectors, handlers are invoked on virtual threads
+ * of which at most the given number run at the same time. Requests over the limit wait on a virtual thread
+ * instead of occupying a pooled platform thread.
+ */
+@Slf4j
+public final class VirtualThreadExecution {
+
+    private VirtualThreadExecution() {
+    }
+
+    /**
+     * Makes the server invoke request handlers on virtual threads. Must be called before the server is started.
+     *
+     * @param server                the server to configure
+     * @param name                  prefix of the virtual thread names
+     * @param maxConcurrentRequests the maximum number of handlers running at the same time
+     */
+    public static void configure(Server server, String name, int maxConcurrentRequests) {
+        if (!(server.getThreadPool() instanceof VirtualThreads.Configurable threadPool)) {
+            log.warn("Thread pool {} of {} does not support virtual threads", server.getThreadPool(), name);
+            return;
+        }
+
+        VirtualThreadPool executor = new VirtualThreadPool(maxConcurrentRequests);
+        executor.setName(name);
+        threadPool.setVirtualThreadsExecutor(executor);
+        // started and stopped together with the server
+        server.addBean(executor);
+
+        log.info("{} handles requests on virtual threads, at most {} concurrently", name, maxConcurrentRequests);
+    }
+}
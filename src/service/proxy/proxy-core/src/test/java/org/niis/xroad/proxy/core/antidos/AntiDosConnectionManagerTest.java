@@ -32,6 +32,7 @@ import org.niis.xroad.test.globalconf.EmptyGlobalConf;
 import java.util.HashSet;
 import java.util.Set;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
@@ -153,6 +154,48 @@ public class AntiDosConnectionManagerTest {
         cm.assertEmpty();
     }
 
+    /**
+     * Test to ensure new members are recognized only after the partner index has been synchronized.
+     *
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void partnerIndexIsRefreshedOnSync() throws Exception {
+        TestConfiguration conf = new TestConfiguration(5, 1.1);
+
+        TestSystemMetrics sm = new TestSystemMetrics();
+        sm.addLoad(7, 0.1);
+
+        Set<String> knownAddresses = new HashSet<>(KNOWN_ADDRESSES);
+        TestConnectionManager cm = new TestConnectionManager(new EmptyGlobalConf() {
+            @Override
+            public Set<String> getKnownAddresses() {
+                return knownAddresses;
+            }
+        }, conf, sm);
+        cm.init();
+
+        TestSocketChannel member1 = createConnection("test1");
+        TestSocketChannel newMember1 = createConnection("test4");
+        TestSocketChannel newMember2 = createConnection("test4");
+        TestSocketChannel attacker1 = createConnection("attacker1");
+
+        knownAddresses.add("test4");
+
+        // not yet synchronized, the new member shares the queue of unknown addresses
+        cm.accept(newMember1, attacker1, member1);
+        assertEquals(2, cm.numActivePartners());
+        cm.assertConnections(newMember1, member1, attacker1);
+
+        cm.syncDatabase();
+
+        cm.accept(newMember2, attacker1, member1);
+        assertEquals(3, cm.numActivePartners());
+        cm.assertConnections(newMember2, attacker1, member1);
+
+        cm.assertEmpty();
+    }
+
     // ------------------------------------------------------------------------
 
     private static TestConnectionManager createConnectionManager(
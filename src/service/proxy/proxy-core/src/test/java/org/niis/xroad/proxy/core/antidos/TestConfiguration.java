@@ -33,4 +33,10 @@ import lombok.RequiredArgsConstructor;
 class TestConfiguration extends AntiDosConfiguration {
     private final int minFreeFileHandles;
     private final double maxCpuLoad;
+
+    @Override
+    int getResourceSampleInterval() {
+        // sample on every connection so that each test load step is observed
+        return 0;
+    }
 }
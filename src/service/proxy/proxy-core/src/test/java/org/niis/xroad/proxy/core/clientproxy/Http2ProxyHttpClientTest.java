@@ -0,0 +1,218 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.niis.xroad.proxy.core.clientproxy;
+
+import ee.ria.xroad.common.TestCertUtil;
+import ee.ria.xroad.common.identifier.ServiceId;
+import ee.ria.xroad.common.util.CryptoUtils;
+import ee.ria.xroad.common.util.HttpSender;
+
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.HttpClients;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.io.Content;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Response;
+import org.eclipse.jetty.server.SecureRequestCustomizer;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.niis.xroad.proxy.core.serverproxy.ServerProxy;
+import org.niis.xroad.proxy.core.test.DummySslServerProxy;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.PrivateKey;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.niis.xroad.proxy.core.clientproxy.AuthTrustVerifier.ID_PROVIDERNAME;
+import static org.niis.xroad.proxy.core.clientproxy.FastestConnectionSelectingSSLSocketFactory.ID_TARGETS;
+
+class Http2ProxyHttpClientTest {
+
+    private static final int REQUEST_COUNT = 20;
+    private static final String XROAD_TLS_CIPHERS = "xroad.proxy.xroad-tls-ciphers";
+
+    private final AuthTrustVerifier authTrustVerifier = mock(AuthTrustVerifier.class);
+    private final Set<String> protocols = ConcurrentHashMap.newKeySet();
+    private final Set<String> connections = ConcurrentHashMap.newKeySet();
+
+    private Server server;
+    private Http2ProxyHttpClient client;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        System.clearProperty(XROAD_TLS_CIPHERS);
+        if (client != null) {
+            client.close();
+        }
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    void multiplexesRequestsOverOneConnection() throws Exception {
+        System.setProperty(XROAD_TLS_CIPHERS, "TLS_ECDHE_RSA_WITH_AES_256_GCM_SHA384");
+        URI address = startServer(true);
+        client = createClient();
+
+        ExecutorService executor = Executors.newFixedThreadPool(REQUEST_COUNT);
+        try {
+            List<Future<String>> responses = new ArrayList<>();
+            for (int i = 0; i < REQUEST_COUNT; i++) {
+                String body = "request-" + i;
+                responses.add(executor.submit(() -> send(address, body)));
+            }
+            for (int i = 0; i < REQUEST_COUNT; i++) {
+                assertThat(responses.get(i).get()).isEqualTo("request-" + i);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(protocols).containsExactly("HTTP/2.0");
+        assertThat(connections).hasSize(1);
+        verify(authTrustVerifier, times(1)).verify(any(), any(), any());
+    }
+
+    @Test
+    void fallsBackToHttp11WhenServerDoesNotSupportHttp2() throws Exception {
+        URI address = startServer(false);
+        client = createClient();
+
+        assertThat(send(address, "first")).isEqualTo("first");
+        assertThat(send(address, "second")).isEqualTo("second");
+
+        assertThat(protocols).containsExactly("HTTP/1.1");
+        verify(authTrustVerifier, never()).verify(any(), any(), any());
+    }
+
+    @Test
+    void fallsBackToHttp11WhenCipherSuiteIsNotAllowedForHttp2() throws Exception {
+        // the default X-Road cipher suites are CBC suites that HTTP/2 does not allow
+        URI address = startServer(true);
+        client = createClient();
+
+        assertThat(send(address, "first")).isEqualTo("first");
+
+        assertThat(protocols).containsExactly("HTTP/1.1");
+        verify(authTrustVerifier, never()).verify(any(), any(), any());
+    }
+
+    private String send(URI address, String body) throws Exception {
+        try (HttpSender sender = new HttpSender(client)) {
+            sender.setAttribute(ID_TARGETS, new URI[]{address});
+            sender.setAttribute(ID_PROVIDERNAME, ServiceId.Conf.create("INSTANCE", "CLASS", "CODE", "SUB", "SERVICE"));
+            sender.doPost(address, body, "text/plain");
+            return new String(sender.getResponseContent().readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private URI startServer(boolean http2) throws Exception {
+        SslContextFactory.Server sslContextFactory = new SslContextFactory.Server();
+        sslContextFactory.setIncludeProtocols(CryptoUtils.SSL_PROTOCOL);
+        SSLContext ctx = SSLContext.getInstance(CryptoUtils.SSL_PROTOCOL);
+        ctx.init(new KeyManager[]{new ProducerKeyManager()}, null, new SecureRandom());
+        sslContextFactory.setSslContext(ctx);
+
+        server = new Server();
+        ServerConnector connector = new ServerConnector(server, sslContextFactory);
+        connector.setHost("127.0.0.1");
+        connector.getConnectionFactory(HttpConnectionFactory.class).getHttpConfiguration()
+                .getCustomizer(SecureRequestCustomizer.class).setSniHostCheck(false);
+        if (http2) {
+            ServerProxy.enableHttp2(connector, sslContextFactory);
+        }
+        server.addConnector(connector);
+        server.setHandler(new EchoHandler());
+        server.start();
+
+        return URI.create("https://127.0.0.1:" + connector.getLocalPort() + "/");
+    }
+
+    private Http2ProxyHttpClient createClient() throws Exception {
+        SSLContext ctx = SSLContext.getInstance(CryptoUtils.SSL_PROTOCOL);
+        ctx.init(null, new TrustManager[]{new FastestConnectionSelectingSSLSocketFactoryIntegrationTest.NoopTrustManager()},
+                new SecureRandom());
+
+        return new Http2ProxyHttpClient(HttpClients.custom()
+                .setSSLSocketFactory(new SSLConnectionSocketFactory(ctx, NoopHostnameVerifier.INSTANCE))
+                .build(), authTrustVerifier, () -> ctx);
+    }
+
+    private final class EchoHandler extends Handler.Abstract {
+        @Override
+        public boolean handle(Request request, Response response, Callback callback) throws IOException {
+            protocols.add(request.getConnectionMetaData().getProtocol());
+            connections.add(request.getConnectionMetaData().getId());
+
+            String body = Content.Source.asString(request, StandardCharsets.UTF_8);
+            response.setStatus(HttpStatus.OK_200);
+            response.getHeaders().put(HttpHeader.CONTENT_TYPE, "text/plain");
+            Content.Sink.write(response, true, body, callback);
+            return true;
+        }
+    }
+
+    private static final class ProducerKeyManager extends DummySslServerProxy.DummyAuthKeyManager {
+        @Override
+        public X509Certificate[] getCertificateChain(String alias) {
+            return TestCertUtil.getProducer().certChain;
+        }
+
+        @Override
+        public PrivateKey getPrivateKey(String alias) {
+            return TestCertUtil.getProducer().key;
+        }
+    }
+}
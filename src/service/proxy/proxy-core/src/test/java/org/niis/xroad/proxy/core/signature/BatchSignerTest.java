@@ -45,6 +45,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.niis.xroad.common.core.exception.XrdRuntimeException;
 import org.niis.xroad.globalconf.GlobalConfProvider;
 import org.niis.xroad.globalconf.impl.signature.SignatureVerifier;
 import org.niis.xroad.keyconf.SigningInfo;
@@ -64,6 +65,7 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -74,6 +76,7 @@ import static ee.ria.xroad.common.TestCertUtil.getDefaultValidCertDate;
 import static ee.ria.xroad.common.crypto.Digests.calculateDigest;
 import static ee.ria.xroad.common.crypto.identifier.Providers.BOUNCY_CASTLE;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
@@ -109,19 +112,13 @@ class BatchSignerTest {
 
         when(signerClient.isTokenBatchSigningEnabled(any())).thenReturn(true);
         // Sign with producer private key
-        when(signerClient.sign(any(), any(), any())).thenAnswer(invocation -> {
+        when(signerClient.signAsync(any(), any(), any())).thenAnswer(invocation -> {
             var args = invocation.getArguments();
             var signatureAlgId = (SignAlgorithm) args[1];
             var digest = (byte[]) args[2];
-            byte[] data = SignDataPreparer.of(signatureAlgId).prepare(digest);
-            SignAlgorithm signAlgorithm = KeyManagers.getForRSA().getSoftwareTokenSignAlgorithm();
-            Signature signature = Signature.getInstance(signAlgorithm.name(), BOUNCY_CASTLE);
-            signature.initSign(producerP12.key);
-            signature.update(data);
-            return signature.sign();
+            return CompletableFuture.supplyAsync(() -> signWithProducerKey(signatureAlgId, digest));
         });
 
-
         final var signingCtx = createSigningCtxProvider(producerClientId).createSigningCtx(producerClientId);
 
         List<String> messages = new ArrayList<>();
@@ -156,6 +153,43 @@ class BatchSignerTest {
         } else {
             log.info("Batch signature was triggered {} times", batchSignatureDetectCounter.get());
         }
+
+        assertThat(batchSigner.getStats()).singleElement().satisfies(stats -> {
+            assertThat(stats.requests()).isEqualTo(count);
+            assertThat(stats.batches()).isLessThanOrEqualTo(count);
+            assertThat(stats.failedBatches()).isZero();
+        });
+    }
+
+    @Test
+    void shouldPropagateSignerErrorToAllRequestsOfTheBatch() throws Exception {
+        when(signerClient.isTokenBatchSigningEnabled(any())).thenReturn(true);
+        when(signerClient.signAsync(any(), any(), any()))
+                .thenReturn(CompletableFuture.failedFuture(XrdRuntimeException.systemInternalError("Signing failed")));
+
+        final var signingCtx = createSigningCtxProvider(producerClientId).createSigningCtx(producerClientId);
+        String message = "random-msg:" + RandomStringUtils.secure().nextAlphabetic(100);
+        MessagePart hashPart = new MessagePart(MessageFileNames.MESSAGE, DigestAlgorithm.SHA512,
+                calculateDigest(DigestAlgorithm.SHA512, message.getBytes()), message.getBytes());
+        SignatureBuilder builder = new SignatureBuilder();
+        builder.addPart(hashPart);
+
+        assertThatThrownBy(() -> signingCtx.buildSignature(builder))
+                .rootCause().isInstanceOf(XrdRuntimeException.class);
+        assertThat(batchSigner.getStats()).singleElement().satisfies(stats -> {
+            assertThat(stats.failedBatches()).isEqualTo(1);
+            assertThat(stats.batchesInFlight()).isZero();
+        });
+    }
+
+    @SneakyThrows
+    private byte[] signWithProducerKey(SignAlgorithm signatureAlgId, byte[] digest) {
+        byte[] data = SignDataPreparer.of(signatureAlgId).prepare(digest);
+        SignAlgorithm signAlgorithm = KeyManagers.getForRSA().getSoftwareTokenSignAlgorithm();
+        Signature signature = Signature.getInstance(signAlgorithm.name(), BOUNCY_CASTLE);
+        signature.initSign(producerP12.key);
+        signature.update(data);
+        return signature.sign();
     }
 
     private List<Callable<BatchSignResult>> getCallables(List<String> messages, SigningCtx signingCtx) {
@@ -0,0 +1,136 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.niis.xroad.proxy.core.util;
+
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Response;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.util.Callback;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VirtualThreadExecutionTest {
+
+    private static final int MAX_CONCURRENT_REQUESTS = 2;
+    private static final int REQUEST_COUNT = 5;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger maxActive = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private Server server;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        release.countDown();
+        client.close();
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    void handlersRunOnVirtualThreads() throws Exception {
+        URI address = startServer(new Handler.Abstract() {
+            @Override
+            public boolean handle(Request request, Response response, Callback callback) {
+                response.setStatus(Thread.currentThread().isVirtual() ? HttpStatus.OK_200 : HttpStatus.INTERNAL_SERVER_ERROR_500);
+                callback.succeeded();
+                return true;
+            }
+        });
+
+        HttpResponse<Void> response = client.send(HttpRequest.newBuilder(address).build(),
+                HttpResponse.BodyHandlers.discarding());
+
+        assertThat(response.statusCode()).isEqualTo(HttpStatus.OK_200);
+    }
+
+    @Test
+    void limitsConcurrentlyRunningHandlers() throws Exception {
+        URI address = startServer(new Handler.Abstract() {
+            @Override
+            public boolean handle(Request request, Response response, Callback callback) throws Exception {
+                maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                try {
+                    release.await();
+                } finally {
+                    active.decrementAndGet();
+                }
+                callback.succeeded();
+                return true;
+            }
+        });
+
+        List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>();
+        for (int i = 0; i < REQUEST_COUNT; i++) {
+            responses.add(client.sendAsync(HttpRequest.newBuilder(address).build(), HttpResponse.BodyHandlers.discarding()));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (active.get() < MAX_CONCURRENT_REQUESTS && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        // give the requests over the limit a chance to start if they were not held back
+        Thread.sleep(200);
+        release.countDown();
+
+        for (CompletableFuture<HttpResponse<Void>> response : responses) {
+            assertThat(response.get(10, TimeUnit.SECONDS).statusCode()).isEqualTo(HttpStatus.OK_200);
+        }
+        assertThat(maxActive.get()).isEqualTo(MAX_CONCURRENT_REQUESTS);
+    }
+
+    private URI startServer(Handler handler) throws Exception {
+        server = new Server();
+        VirtualThreadExecution.configure(server, "test", MAX_CONCURRENT_REQUESTS);
+
+        ServerConnector connector = new ServerConnector(server);
+        connector.setHost("127.0.0.1");
+        server.addConnector(connector);
+        server.setHandler(handler);
+        server.start();
+
+        return URI.create("http://127.0.0.1:" + connector.getLocalPort() + "/");
+    }
+}
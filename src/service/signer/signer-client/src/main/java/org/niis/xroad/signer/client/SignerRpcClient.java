@@ -35,6 +35,7 @@ import ee.ria.xroad.common.util.PasswordStore;
 
 import com.google.protobuf.ByteString;
 import io.grpc.Channel;
+import io.grpc.stub.StreamObserver;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import lombok.Getter;
@@ -87,6 +88,7 @@ import org.niis.xroad.signer.proto.SetRenewedCertHashReq;
 import org.niis.xroad.signer.proto.SetTokenFriendlyNameReq;
 import org.niis.xroad.signer.proto.SignCertificateReq;
 import org.niis.xroad.signer.proto.SignReq;
+import org.niis.xroad.signer.proto.SignResp;
 import org.niis.xroad.signer.proto.TokenServiceGrpc;
 import org.niis.xroad.signer.proto.UpdateSoftwareTokenPinReq;
 import org.niis.xroad.signer.protocol.dto.Empty;
@@ -103,6 +105,7 @@ import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -888,6 +891,45 @@ public final class SignerRpcClient {
         );
     }
 
+    /**
+     * Signs the digest asynchronously. The returned future is completed from a gRPC executor thread once the signer
+     * has responded, so callers can keep several signing requests in flight without blocking a thread per request.
+     *
+     * @param keyId                the signing key
+     * @param signatureAlgorithmId ID of the signature algorithm to use
+     * @param digest               the digest to sign
+     * @return future of the signature value
+     */
+    public CompletableFuture<byte[]> signAsync(String keyId, SignAlgorithm signatureAlgorithmId, byte[] digest) {
+        CompletableFuture<byte[]> result = new CompletableFuture<>();
+        try {
+            client.executeAsync(ctx -> ctx.getKeyService()
+                    .sign(SignReq.newBuilder()
+                            .setKeyId(keyId)
+                            .setSignatureAlgorithmId(signatureAlgorithmId.name())
+                            .setDigest(ByteString.copyFrom(digest))
+                            .build(), new StreamObserver<>() {
+                                @Override
+                                public void onNext(SignResp value) {
+                                    result.complete(value.getSignature().toByteArray());
+                                }
+
+                                @Override
+                                public void onError(Throwable t) {
+                                    result.completeExceptionally(client.translateError(t));
+                                }
+
+                                @Override
+                                public void onCompleted() {
+                                    //NO-OP
+                                }
+                            }));
+        } catch (Exception e) {
+            result.completeExceptionally(client.translateError(e));
+        }
+        return result;
+    }
+
     public Boolean isTokenBatchSigningEnabled(String keyId) {
         return tryToRun(
                 () -> client.execute(ctx -> ctx.getBlockingTokenService()
@@ -977,12 +1019,14 @@ public final class SignerRpcClient {
         private final TokenServiceGrpc.TokenServiceBlockingStub blockingTokenService;
         private final CertificateServiceGrpc.CertificateServiceBlockingStub blockingCertificateService;
         private final KeyServiceGrpc.KeyServiceBlockingStub blockingKeyService;
+        private final KeyServiceGrpc.KeyServiceStub keyService;
         private final OcspServiceGrpc.OcspServiceBlockingStub blockingOcspService;
 
         SignerRpcExecutionContext(Channel channel) {
             blockingTokenService = TokenServiceGrpc.newBlockingStub(channel).withWaitForReady();
             blockingCertificateService = CertificateServiceGrpc.newBlockingStub(channel).withWaitForReady();
             blockingKeyService = KeyServiceGrpc.newBlockingStub(channel).withWaitForReady();
+            keyService = KeyServiceGrpc.newStub(channel).withWaitForReady();
             blockingOcspService = OcspServiceGrpc.newBlockingStub(channel).withWaitForReady();
         }
     }
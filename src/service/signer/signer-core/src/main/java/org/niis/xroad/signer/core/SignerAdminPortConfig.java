@@ -35,6 +35,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.niis.xroad.globalconf.status.CertificationServiceDiagnostics;
 import org.niis.xroad.signer.core.certmanager.OcspClientWorker;
 import org.niis.xroad.signer.core.job.OcspClientExecuteScheduler;
+import org.niis.xroad.signer.core.tokenmanager.module.AbstractModuleManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -55,7 +56,8 @@ public class SignerAdminPortConfig {
     @Bean
     AdminPort createAdminPort(final CertificationServiceDiagnostics diagnosticsDefault,
                               final OcspClientWorker ocspClientWorker,
-                              final Optional<OcspClientExecuteScheduler> ocspClientExecuteScheduler) {
+                              final Optional<OcspClientExecuteScheduler> ocspClientExecuteScheduler,
+                              final AbstractModuleManager moduleManager) {
         var port = new AdminPort(SystemProperties.getSignerAdminPort());
 
         port.addHandler("/execute", new AdminPort.SynchronousCallback() {
@@ -99,6 +101,19 @@ public class SignerAdminPortConfig {
             }
         });
 
+        port.addHandler("/token-session-pools", new AdminPort.SynchronousCallback() {
+            @Override
+            public void handle(RequestWrapper request, ResponseWrapper response) {
+                try (var responseOut = response.getOutputStream()) {
+                    response.setContentType(APPLICATION_JSON_UTF_8);
+                    JsonUtils.getObjectWriter()
+                            .writeValue(responseOut, moduleManager.getSessionPoolStatuses());
+                } catch (IOException e) {
+                    log.error("Error writing response", e);
+                }
+            }
+        });
+
         return port;
     }
 
@@ -27,15 +27,18 @@ package org.niis.xroad.signer.core.certmanager;
 
 import ee.ria.xroad.common.CodedException;
 import ee.ria.xroad.common.DiagnosticStatus;
+import ee.ria.xroad.common.SystemProperties;
 import ee.ria.xroad.common.crypto.identifier.SignAlgorithm;
 import ee.ria.xroad.common.util.CertUtils;
 import ee.ria.xroad.common.util.CryptoUtils;
 import ee.ria.xroad.common.util.TimeUtils;
 
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.bouncycastle.cert.ocsp.OCSPException;
 import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.bouncycastle.operator.OperatorCreationException;
 import org.niis.xroad.common.core.exception.ErrorCode;
 import org.niis.xroad.globalconf.GlobalConfProvider;
 import org.niis.xroad.globalconf.cert.CertChain;
@@ -50,6 +53,7 @@ import org.niis.xroad.signer.core.tokenmanager.TokenManager;
 import org.niis.xroad.signer.proto.SetOcspResponsesReq;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.ConnectException;
 import java.security.Principal;
 import java.security.PrivateKey;
@@ -59,12 +63,23 @@ import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntFunction;
 import java.util.stream.Collectors;
 
 import static ee.ria.xroad.common.util.CryptoUtils.calculateCertSha1HexHash;
@@ -76,6 +91,9 @@ import static java.util.Collections.emptyList;
  * server and providing the responses to the message signer.
  * <p>
  * The certificate status is queried from the server at a fixed interval.
+ * Certificates are queried concurrently, limiting the number of concurrent
+ * requests per OCSP responder, and slow responders are hedged by querying
+ * the next responder of the CA.
  */
 @Slf4j
 @RequiredArgsConstructor
@@ -92,10 +110,23 @@ public class OcspClientWorker {
 
     private final CertificationServiceDiagnostics certServDiagnostics = new CertificationServiceDiagnostics();
 
+    private final ExecutorService fetchExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Map<String, Semaphore> responderPermits = new ConcurrentHashMap<>();
+
+    private final Map<String, OcspResponderLatency> responderLatencies = new ConcurrentHashMap<>();
+
+    private final Map<String, CompletableFuture<OCSPResp>> inFlightQueries = new ConcurrentHashMap<>();
+
     public CertificationServiceDiagnostics getDiagnostics() {
         return certServDiagnostics;
     }
 
+    @PreDestroy
+    public void destroy() {
+        fetchExecutor.shutdownNow();
+    }
+
     public void reload(OcspClientExecuteScheduler ocspClientExecuteScheduler) {
         log.trace("reload()");
         log.debug("Checking global configuration for validity and extension changes");
@@ -169,25 +200,39 @@ public class OcspClientWorker {
 
         log.info("Fetching OCSP responses for {} certificates", certs.size());
 
-        boolean failed = false;
-        Map<String, OCSPResp> statuses = new HashMap<>();
-
-        for (X509Certificate subject : certs) {
-            try {
-                OCSPResp status = queryCertStatus(subject, new OcspVerifierOptions(
-                        globalConfProvider.getGlobalConfExtensions().shouldVerifyOcspNextUpdate()));
-                if (status != null) {
-                    String subjectHash = calculateCertSha1HexHash(subject);
-                    statuses.put(subjectHash, status);
-                } else {
-                    failed = true;
-                }
-            } catch (Exception e) {
-                failed = true;
-
-                log.error("Error when querying certificate '{}'", subject.getSerialNumber(), e);
-            }
+        long started = System.nanoTime();
+        OcspVerifierOptions verifierOptions = new OcspVerifierOptions(
+                globalConfProvider.getGlobalConfExtensions().shouldVerifyOcspNextUpdate());
+        Map<String, OCSPResp> statuses = new ConcurrentHashMap<>();
+        AtomicBoolean anyFailed = new AtomicBoolean();
+
+        // certificates are queried concurrently, responders are protected by their own concurrency limits
+        List<CompletableFuture<Void>> queries = certs.stream()
+                .map(subject -> CompletableFuture.runAsync(() -> {
+                    try {
+                        OCSPResp status = queryCertStatusCoalesced(subject, verifierOptions);
+                        if (status != null) {
+                            statuses.put(calculateCertSha1HexHash(subject), status);
+                        } else {
+                            anyFailed.set(true);
+                        }
+                    } catch (Exception e) {
+                        anyFailed.set(true);
+
+                        log.error("Error when querying certificate '{}'", subject.getSerialNumber(), e);
+                    }
+                }, fetchExecutor))
+                .toList();
+        CompletableFuture.allOf(queries.toArray(CompletableFuture[]::new)).join();
+
+        boolean failed = anyFailed.get();
+        log.info("OCSP-response refresh cycle fetched {} of {} responses in {} ms", statuses.size(), certs.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        if (log.isDebugEnabled()) {
+            responderLatencies.forEach((responderURI, latency) ->
+                    log.debug("OCSP responder {} latency: {}", responderURI, latency));
         }
+
         if (ocspClientExecuteScheduler != null) {
             if (failed) {
                 ocspClientExecuteScheduler.failure();
@@ -244,6 +289,43 @@ public class OcspClientWorker {
         return new ArrayList<>(certs);
     }
 
+    /**
+     * Queries the certificate status, joining a query of the same certificate that is already in progress.
+     */
+    OCSPResp queryCertStatusCoalesced(X509Certificate subject, OcspVerifierOptions verifierOptions) throws Exception {
+        String subjectHash = calculateCertSha1HexHash(subject);
+        CompletableFuture<OCSPResp> query = new CompletableFuture<>();
+        CompletableFuture<OCSPResp> inFlightQuery = inFlightQueries.putIfAbsent(subjectHash, query);
+
+        if (inFlightQuery != null) {
+            log.debug("Joining OCSP query in progress for certificate '{}'", subject.getSerialNumber());
+            try {
+                return inFlightQuery.get();
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            }
+        }
+
+        try {
+            OCSPResp response = queryCertStatus(subject, verifierOptions);
+            query.complete(response);
+            return response;
+        } catch (Exception e) {
+            query.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightQueries.remove(subjectHash, query);
+        }
+    }
+
+    /**
+     * Queries the certificate status from the OCSP responders of the certificate in the configured order.
+     * The next responder is queried when the previous one fails or, if hedging is enabled, has not
+     * answered within the hedge delay. The hedge delay starts when the request is sent, time spent waiting
+     * for a concurrency permit of the responder is not counted. The first verified response is returned.
+     *
+     * @return the OCSP response, or null if none of the responders returned a valid response
+     */
     OCSPResp queryCertStatus(X509Certificate subject, OcspVerifierOptions verifierOptions)
             throws CertificateEncodingException, IOException {
         X509Certificate issuer = globalConfProvider.getCaCert(globalConfProvider.getInstanceIdentifier(), subject);
@@ -261,8 +343,81 @@ public class OcspClientWorker {
         }
 
         final OcspVerifier verifier = new OcspVerifier(globalConfProvider, verifierOptions);
+        final int hedgeDelay = SystemProperties.getOcspHedgeDelay();
+        final long hedgeDelayNanos = TimeUnit.MILLISECONDS.toNanos(hedgeDelay);
+
+        CompletionService<OCSPResp> completionService = new ExecutorCompletionService<>(fetchExecutor);
+        List<Future<OCSPResp>> attempts = new ArrayList<>(responderURIs.size());
+        List<CompletableFuture<Long>> sendTimes = new ArrayList<>(responderURIs.size());
+        IntFunction<Future<OCSPResp>> submitAttempt = index -> {
+            CompletableFuture<Long> sent = new CompletableFuture<>();
+            sendTimes.add(sent);
+            return completionService.submit(() -> fetchAndVerifyResponse(responderURIs.get(index), subject, issuer,
+                    signerKey, signer, signAlgoId, verifier, sent));
+        };
+        try {
+            attempts.add(submitAttempt.apply(0));
+            int nextResponder = 1;
+            int pending = 1;
+            while (pending > 0) {
+                Future<OCSPResp> completed = hedgeDelay > 0 && nextResponder < responderURIs.size()
+                        ? completionService.poll(nanosUntilHedge(sendTimes.getLast(), hedgeDelayNanos), TimeUnit.NANOSECONDS)
+                        : completionService.take();
+                if (completed == null) {
+                    if (nanosUntilHedge(sendTimes.getLast(), hedgeDelayNanos) > 0) {
+                        // the latest request is still waiting for a permit, or was sent after the previous poll
+                        continue;
+                    }
+                    log.debug("No OCSP response within {} ms, sending hedged request to {}", hedgeDelay,
+                            responderURIs.get(nextResponder));
+                    attempts.add(submitAttempt.apply(nextResponder++));
+                    pending++;
+                    continue;
+                }
 
-        for (String responderURI : responderURIs) {
+                pending--;
+                OCSPResp response = getAttemptResult(completed);
+                if (response != null) {
+                    return response;
+                }
+
+                if (nextResponder < responderURIs.size()) {
+                    attempts.add(submitAttempt.apply(nextResponder++));
+                    pending++;
+                }
+            }
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while querying OCSP responders");
+        } finally {
+            attempts.forEach(attempt -> attempt.cancel(true));
+        }
+    }
+
+    private static long nanosUntilHedge(CompletableFuture<Long> sent, long hedgeDelayNanos) {
+        Long sentAt = sent.getNow(null);
+        return sentAt == null ? hedgeDelayNanos : Math.max(0, sentAt + hedgeDelayNanos - System.nanoTime());
+    }
+
+    private static OCSPResp getAttemptResult(Future<OCSPResp> attempt) throws InterruptedException {
+        try {
+            return attempt.get();
+        } catch (ExecutionException e) {
+            log.error("OCSP response fetch failed", e.getCause());
+            return null;
+        }
+    }
+
+    private OCSPResp fetchAndVerifyResponse(String responderURI, X509Certificate subject, X509Certificate issuer,
+                                            PrivateKey signerKey, X509Certificate signer, SignAlgorithm signAlgoId,
+                                            OcspVerifier verifier, CompletableFuture<Long> sent)
+            throws InterruptedException {
+        Semaphore permits = responderPermits.computeIfAbsent(responderURI,
+                uri -> new Semaphore(SystemProperties.getOcspResponderMaxConcurrency()));
+        permits.acquire();
+        sent.complete(System.nanoTime());
+        try {
             final OffsetDateTime prevUpdate = TimeUtils.offsetDateTimeNow();
             final OffsetDateTime nextUpdate = prevUpdate
                     .plusSeconds(globalConfProvider.getGlobalConfExtensions().getOcspFetchInterval());
@@ -270,8 +425,7 @@ public class OcspClientWorker {
 
             try {
                 log.debug("Fetching response from: {}", responderURI);
-                final OCSPResp response = ocspClient
-                        .fetchResponse(responderURI, subject, issuer, signerKey, signer, signAlgoId);
+                final OCSPResp response = fetchResponse(responderURI, subject, issuer, signerKey, signer, signAlgoId);
 
                 if (response != null) {
                     log.debug("Verifying response: {}", response);
@@ -283,27 +437,56 @@ public class OcspClientWorker {
 
                     return response;
                 }
-            } catch (OCSPException e) {
-                log.error("Parsing OCSP response from {} failed", responderURI, e);
-                errorCode = ErrorCode.OCSP_RESPONSE_PARSING_FAILURE;
-            } catch (IOException e) {
-                log.error("Unable to connect to responder at {}", responderURI, e);
-                errorCode = ErrorCode.OCSP_CONNECTION_ERROR;
-            } catch (CodedException e) {
-                log.warn("Received OCSP response that failed verification", e);
-                errorCode = ErrorCode.OCSP_RESPONSE_VERIFICATION_FAILURE;
             } catch (Exception e) {
-                log.error("Unable to fetch response from responder at {}", responderURI, e);
-                errorCode = ErrorCode.OCSP_FAILED;
+                if (Thread.currentThread().isInterrupted()) {
+                    // a hedged request to another responder has already succeeded
+                    throw new InterruptedException("OCSP request to " + responderURI + " cancelled");
+                }
+                errorCode = getErrorCode(responderURI, e);
             }
 
             reportOcspDiagnostics(issuer, responderURI, DiagnosticStatus.ERROR, prevUpdate, nextUpdate, errorCode);
+            return null;
+        } finally {
+            permits.release();
+        }
+    }
+
+    private static ErrorCode getErrorCode(String responderURI, Exception e) {
+        if (e instanceof OCSPException) {
+            log.error("Parsing OCSP response from {} failed", responderURI, e);
+            return ErrorCode.OCSP_RESPONSE_PARSING_FAILURE;
+        } else if (e instanceof IOException) {
+            log.error("Unable to connect to responder at {}", responderURI, e);
+            return ErrorCode.OCSP_CONNECTION_ERROR;
+        } else if (e instanceof CodedException) {
+            log.warn("Received OCSP response that failed verification", e);
+            return ErrorCode.OCSP_RESPONSE_VERIFICATION_FAILURE;
         }
+        log.error("Unable to fetch response from responder at {}", responderURI, e);
+        return ErrorCode.OCSP_FAILED;
+    }
+
+    private OCSPResp fetchResponse(String responderURI, X509Certificate subject, X509Certificate issuer,
+                                   PrivateKey signerKey, X509Certificate signer, SignAlgorithm signAlgoId)
+            throws IOException, OCSPException, CertificateEncodingException, OperatorCreationException {
+        final long started = System.nanoTime();
+        try {
+            return ocspClient.fetchResponse(responderURI, subject, issuer, signerKey, signer, signAlgoId);
+        } finally {
+            // cancelled hedged requests do not tell anything about the responder
+            if (!Thread.currentThread().isInterrupted()) {
+                responderLatencies.computeIfAbsent(responderURI, uri -> new OcspResponderLatency())
+                        .record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            }
+        }
+    }
 
-        return null;
+    Map<String, OcspResponderLatency> getResponderLatencies() {
+        return responderLatencies;
     }
 
-    private void reportOcspDiagnostics(X509Certificate issuer, String responderURI, DiagnosticStatus statusCode,
+    private synchronized void reportOcspDiagnostics(X509Certificate issuer, String responderURI, DiagnosticStatus statusCode,
                                        OffsetDateTime prevUpdate, OffsetDateTime nextUpdate, ErrorCode errorCode) {
 
         OcspResponderStatus responderStatus = new OcspResponderStatus(statusCode, responderURI, prevUpdate, nextUpdate);
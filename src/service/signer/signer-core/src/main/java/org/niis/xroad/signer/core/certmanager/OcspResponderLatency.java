@@ -0,0 +1,85 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.niis.xroad.signer.core.certmanager;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Histogram of OCSP responder request latencies with fixed millisecond buckets.
+ */
+final class OcspResponderLatency {
+    @SuppressWarnings("checkstyle:magicnumber")
+    private static final long[] BUCKET_UPPER_BOUNDS_MS = {10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000};
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_UPPER_BOUNDS_MS.length + 1);
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    void record(long latencyMs) {
+        int bucket = 0;
+        while (bucket < BUCKET_UPPER_BOUNDS_MS.length && latencyMs > BUCKET_UPPER_BOUNDS_MS[bucket]) {
+            bucket++;
+        }
+        counts.incrementAndGet(bucket);
+        max.accumulate(latencyMs);
+    }
+
+    long getCount() {
+        long count = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * @param quantile quantile between 0 and 1
+     * @return upper bound of the bucket containing the given quantile, or the maximum recorded latency
+     * if the quantile falls into the last, unbounded bucket
+     */
+    long getQuantileUpperBound(double quantile) {
+        long rank = (long) Math.ceil(quantile * getCount());
+        long seen = 0;
+        for (int i = 0; i < BUCKET_UPPER_BOUNDS_MS.length; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(BUCKET_UPPER_BOUNDS_MS[i], getMax());
+            }
+        }
+        return getMax();
+    }
+
+    long getMax() {
+        return max.get();
+    }
+
+    @Override
+    @SuppressWarnings("checkstyle:magicnumber")
+    public String toString() {
+        return String.format("count=%d, p50<=%dms, p95<=%dms, p99<=%dms, max=%dms", getCount(),
+                getQuantileUpperBound(0.5), getQuantileUpperBound(0.95), getQuantileUpperBound(0.99), getMax());
+    }
+}
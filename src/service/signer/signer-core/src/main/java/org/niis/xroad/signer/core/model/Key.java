@@ -35,8 +35,8 @@ import org.niis.xroad.signer.protocol.dto.CertificateInfoProto;
 import org.niis.xroad.signer.protocol.dto.KeyInfoProto;
 import org.niis.xroad.signer.protocol.dto.KeyUsageInfo;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
 
 import static java.util.Collections.unmodifiableList;
@@ -85,14 +85,14 @@ public final class Key {
     private String publicKey;
 
     /**
-     * List of certificates.
+     * List of certificates. Copy-on-write, since the token manager reads it without locking.
      */
-    private final List<Cert> certs = new ArrayList<>();
+    private final List<Cert> certs = new CopyOnWriteArrayList<>();
 
     /**
-     * List of certificate requests.
+     * List of certificate requests. Copy-on-write, since the token manager reads it without locking.
      */
-    private final List<CertRequest> certRequests = new ArrayList<>();
+    private final List<CertRequest> certRequests = new CopyOnWriteArrayList<>();
 
     /**
      * Signing (PKCS#11) mechanism name.
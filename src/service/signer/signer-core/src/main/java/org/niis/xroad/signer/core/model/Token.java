@@ -25,19 +25,21 @@
  */
 package org.niis.xroad.signer.core.model;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Setter;
 import org.niis.xroad.signer.api.dto.TokenInfo;
 import org.niis.xroad.signer.core.tokenmanager.token.TokenType;
 import org.niis.xroad.signer.protocol.dto.KeyInfoProto;
 import org.niis.xroad.signer.protocol.dto.TokenInfoProto;
 import org.niis.xroad.signer.protocol.dto.TokenStatusInfo;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
 
 import static java.util.Collections.unmodifiableMap;
@@ -110,14 +112,15 @@ public final class Token {
     private TokenStatusInfo status = TokenStatusInfo.OK;
 
     /**
-     * Contains the keys of this token.
+     * Contains the keys of this token. Copy-on-write, since the token manager reads it without locking.
      */
-    private final List<Key> keys = new ArrayList<>();
+    private final List<Key> keys = new CopyOnWriteArrayList<>();
 
     /**
-     * Contains label-value pairs of information about token.
+     * Contains label-value pairs of information about token. Replaced as a whole when changed.
      */
-    private final Map<String, String> tokenInfo = new LinkedHashMap<>();
+    @Setter(AccessLevel.NONE)
+    private volatile Map<String, String> tokenInfo = Map.of();
 
     /**
      * Adds a key to this token.
@@ -134,8 +137,7 @@ public final class Token {
      * @param info the token info
      */
     public void setInfo(Map<String, String> info) {
-        this.tokenInfo.clear();
-        this.tokenInfo.putAll(info);
+        this.tokenInfo = unmodifiableMap(new LinkedHashMap<>(info));
     }
 
     /**
@@ -153,7 +155,7 @@ public final class Token {
                 .setSlotIndex(slotIndex)
                 .setStatus(status)
                 .addAllKeyInfo(Collections.unmodifiableList(getKeysAsDTOs()))
-                .putAllTokenInfo(unmodifiableMap(tokenInfo));
+                .putAllTokenInfo(tokenInfo);
 
         ofNullable(friendlyName).ifPresent(messageBuilder::setFriendlyName);
         ofNullable(serialNumber).ifPresent(messageBuilder::setSerialNumber);
@@ -54,11 +54,10 @@ import org.niis.xroad.signer.protocol.dto.TokenStatusInfo;
 import java.security.cert.X509Certificate;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.function.BiFunction;
-import java.util.function.Function;
 
 import static ee.ria.xroad.common.ErrorCodes.X_WRONG_CERT_USAGE;
 import static java.util.Collections.unmodifiableList;
@@ -70,11 +69,15 @@ import static org.niis.xroad.signer.core.util.ExceptionHelper.tokenNotFound;
 
 /**
  * Manages the current state of tokens, their keys and certificates.
+ * <p>
+ * The tokens are published as an immutable snapshot with lookup indexes. Readers do not lock, writers are serialized
+ * and publish a new snapshot after every change.
  */
 @Slf4j
 public final class TokenManager {
 
-    private static volatile List<Token> currentTokens = new ArrayList<>();
+    @SuppressWarnings("java:S3077")
+    private static volatile Snapshot snapshot = Snapshot.of(List.of());
 
     private static boolean initialized;
 
@@ -96,7 +99,7 @@ public final class TokenManager {
             log.error("Failed to load token conf", e);
         }
 
-        currentTokens = new ArrayList<>(TokenConf.getInstance().getTokens());
+        publish(TokenConf.getInstance().getTokens());
 
         initialized = true;
     }
@@ -109,7 +112,7 @@ public final class TokenManager {
         log.trace("persist()");
 
         if (initialized) {
-            TokenConf.getInstance().save(currentTokens);
+            TokenConf.getInstance().save(snapshot.tokens());
         }
     }
 
@@ -135,8 +138,8 @@ public final class TokenManager {
 
             MergeResult result;
             synchronized (TokenManager.class) {
-                result = mergeStrategy.merge(fileTokens, currentTokens);
-                currentTokens = result.getResultTokens();
+                result = mergeStrategy.merge(fileTokens, snapshot.tokens());
+                publish(result.getResultTokens());
             }
             if (listener != null) {
                 listener.mergeDone(result.getAddedCertificates());
@@ -155,8 +158,8 @@ public final class TokenManager {
     /**
      * @return list of tokens
      */
-    public static synchronized List<TokenInfo> listTokens() {
-        return currentTokens.stream()
+    public static List<TokenInfo> listTokens() {
+        return snapshot.tokens().stream()
                 .map(Token::toDTO)
                 .toList();
     }
@@ -186,7 +189,9 @@ public final class TokenManager {
         token.setBatchSigningEnabled(tokenType.isBatchSigningEnabled());
         token.setAvailable(true);
 
-        currentTokens.add(token);
+        List<Token> tokens = new ArrayList<>(snapshot.tokens());
+        tokens.add(token);
+        publish(tokens);
 
         return token.toDTO();
     }
@@ -209,13 +214,10 @@ public final class TokenManager {
      * @param tokenId the token id
      * @return the token info DTO for the token id or null of not found
      */
-    public static synchronized TokenInfo getTokenInfo(String tokenId) {
+    public static TokenInfo getTokenInfo(String tokenId) {
         log.trace("getTokenInfo({})", tokenId);
 
-        return currentTokens.stream()
-                .filter(t -> t.getId().equals(tokenId))
-                .map(Token::toDTO)
-                .findFirst().orElse(null);
+        return snapshot.token(tokenId).map(Token::toDTO).orElse(null);
     }
 
     /**
@@ -223,7 +225,7 @@ public final class TokenManager {
      * @return the token info DTO for the token
      * @throws Exception if key was not found
      */
-    public static synchronized TokenInfo findTokenInfoForKeyId(String keyId) {
+    public static TokenInfo findTokenInfoForKeyId(String keyId) {
         log.trace("getTokenInfoForKeyId({})", keyId);
         String tokenId = findTokenIdForKeyId(keyId);
         return getTokenInfo(tokenId);
@@ -233,11 +235,11 @@ public final class TokenManager {
      * @param keyId the key id
      * @return the token and key or throws exception if not found
      */
-    public static synchronized TokenAndKey findTokenAndKey(String keyId) {
+    public static TokenAndKey findTokenAndKey(String keyId) {
         log.trace("findTokenAndKey({})", keyId);
 
-        return forKey((t, k) -> k.getId().equals(keyId),
-                (t, k) -> new TokenAndKey(t.getId(), k.toDTO()))
+        return snapshot.key(keyId)
+                .map(e -> new TokenAndKey(e.token().getId(), e.key().toDTO()))
                 .orElseThrow(() -> keyNotFound(keyId));
     }
 
@@ -245,14 +247,15 @@ public final class TokenManager {
      * @param certHash the certificate hash in HEX
      * @return the tokenInfo and key id, or throws exception if not found
      */
-    public static synchronized TokenInfoAndKeyId findTokenAndKeyIdForCertHash(String certHash) {
+    public static TokenInfoAndKeyId findTokenAndKeyIdForCertHash(String certHash) {
         log.trace("findTokenAndKeyIdForCertHash({})", certHash);
 
-        String keyId = forCert((k, c) -> certHash.equals(c.getSha256hash()), (k, c) -> k.getId())
+        Snapshot current = snapshot;
+        String keyId = current.certBySha256(certHash).map(e -> e.key().getId())
                 .orElseThrow(() -> certWithHashNotFound(certHash));
 
-        return forKey((t, k) -> k.getId().equals(keyId),
-                (t, k) -> new TokenInfoAndKeyId(t.toDTO(), keyId))
+        return current.key(keyId)
+                .map(e -> new TokenInfoAndKeyId(e.token().toDTO(), keyId))
                 .orElseThrow(() -> keyNotFound(keyId));
     }
 
@@ -260,15 +263,15 @@ public final class TokenManager {
      * @param certRequestId the certificate request id
      * @return the tokenInfo and key id, or throws exception if not found
      */
-    public static synchronized TokenInfoAndKeyId findTokenAndKeyIdForCertRequestId(String certRequestId) {
+    public static TokenInfoAndKeyId findTokenAndKeyIdForCertRequestId(String certRequestId) {
         log.trace("findTokenAndKeyIdForCertRequestId({})", certRequestId);
 
-        String keyId = forCertRequest((k, c) -> certRequestId.equals(c.getId()),
-                (k, c) -> k.getId())
+        Snapshot current = snapshot;
+        String keyId = current.certRequest(certRequestId).map(e -> e.key().getId())
                 .orElseThrow(() -> csrWithIdNotFound(certRequestId));
 
-        return forKey((t, k) -> k.getId().equals(keyId),
-                (t, k) -> new TokenInfoAndKeyId(t.toDTO(), keyId))
+        return current.key(keyId)
+                .map(e -> new TokenInfoAndKeyId(e.token().toDTO(), keyId))
                 .orElseThrow(() -> keyNotFound(keyId));
     }
 
@@ -276,27 +279,28 @@ public final class TokenManager {
      * @param keyId the key id
      * @return the token id for the key id or throws exception if not found
      */
-    public static synchronized String findTokenIdForKeyId(String keyId) {
+    public static String findTokenIdForKeyId(String keyId) {
         log.trace("findTokenIdForKeyId({})", keyId);
 
-        return forKey((t, k) -> k.getId().equals(keyId),
-                (t, k) -> t.getId()).orElseThrow(() -> keyNotFound(keyId));
+        return snapshot.key(keyId).map(e -> e.token().getId()).orElseThrow(() -> keyNotFound(keyId));
     }
 
     /**
      * @return the software token id
      */
-    public static synchronized String getSoftwareTokenId() {
-        return forToken(t -> t.getType().equals(SoftwareModuleType.TYPE), Token::getId).orElse(null);
+    public static String getSoftwareTokenId() {
+        return snapshot.tokens().stream()
+                .filter(t -> t.getType().equals(SoftwareModuleType.TYPE))
+                .map(Token::getId)
+                .findFirst().orElse(null);
     }
 
     /**
      * @param tokenId the token id
      * @return the module id for the token id or null if not found
      */
-    public static synchronized String getModuleId(String tokenId) {
-        return forToken(t -> t.getId().equals(tokenId),
-                Token::getModuleId).orElse(null);
+    public static String getModuleId(String tokenId) {
+        return snapshot.token(tokenId).map(Token::getModuleId).orElse(null);
     }
 
     /**
@@ -316,23 +320,22 @@ public final class TokenManager {
      * @param keyId the key id
      * @return the key info for the key id or null if not found
      */
-    public static synchronized KeyInfo getKeyInfo(String keyId) {
+    public static KeyInfo getKeyInfo(String keyId) {
         log.trace("getKeyInfo({})", keyId);
 
-        return forKey((t, k) -> k.getId().equals(keyId),
-                (t, k) -> k.toDTO()).orElse(null);
+        return snapshot.key(keyId).map(e -> e.key().toDTO()).orElse(null);
     }
 
     /**
      * @param clientId the client id
      * @return the list of keys for the given client id
      */
-    public static synchronized List<KeyInfo> getKeyInfo(ClientId clientId) {
+    public static List<KeyInfo> getKeyInfo(ClientId clientId) {
         log.trace("getKeyInfo({})", clientId);
 
         List<KeyInfo> keyInfo = new ArrayList<>();
 
-        for (Token token : currentTokens) {
+        for (Token token : snapshot.tokens()) {
             if (token.isInActive()) {
                 // Ignore inactive (not usable) tokens
                 continue;
@@ -380,39 +383,39 @@ public final class TokenManager {
      * @param certId the certificate id
      * @return the certificate info for the certificate id or null if not found
      */
-    public static synchronized CertificateInfo getCertificateInfo(String certId) {
+    public static CertificateInfo getCertificateInfo(String certId) {
         log.trace("getCertificateInfo({})", certId);
 
-        return forCert((k, c) -> c.getId().equals(certId), (k, c) -> c.toDTO()).orElse(null);
+        return snapshot.cert(certId).map(e -> e.cert().toDTO()).orElse(null);
     }
 
     /**
      * @param certHash the certificate hash in HEX
      * @return the certificate info for the certificate hash or null
      */
-    public static synchronized CertificateInfo getCertificateInfoForCertHash(String certHash) {
+    public static CertificateInfo getCertificateInfoForCertHash(String certHash) {
         log.trace("getCertificateInfoForCertHash({})", certHash);
 
-        return forCert((k, c) -> certHash.equals(c.getSha256hash()), (k, c) -> c.toDTO()).orElse(null);
+        return snapshot.certBySha256(certHash).map(e -> e.cert().toDTO()).orElse(null);
     }
 
     /**
      * @param certSha1Hash the certificate SHA-1 hash in HEX
      * @return the certificate for the certificate hash or null
      */
-    public static synchronized X509Certificate getCertificateForCerHash(String certSha1Hash) {
+    public static X509Certificate getCertificateForCerHash(String certSha1Hash) {
         log.trace("getCertificateForCertHash({})", certSha1Hash);
 
-        return forCert((k, c) -> certSha1Hash.equals(c.getSha1hash()), (k, c) -> c.getCertificate()).orElse(null);
+        return snapshot.certBySha1(certSha1Hash).map(e -> e.cert().getCertificate()).orElse(null);
     }
 
     /**
      * @return all certificates
      */
-    public static synchronized List<CertificateInfo> getAllCerts() {
+    public static List<CertificateInfo> getAllCerts() {
         log.trace("getAllCerts()");
 
-        return currentTokens.stream()
+        return snapshot.tokens().stream()
                 .flatMap(t -> t.getKeys().stream())
                 .flatMap(k -> k.getCerts().stream())
                 .map(Cert::toDTO)
@@ -428,10 +431,8 @@ public final class TokenManager {
     public static synchronized void setOcspResponse(String certSha1Hash, OCSPResp response) {
         log.trace("setOcspResponse({})", certSha1Hash);
 
-        forCert((k, c) -> certSha1Hash.equals(c.getSha1hash()), (k, c) -> {
-            c.setOcspResponse(response);
-            return null;
-        });
+        snapshot.certBySha1(certSha1Hash).ifPresent(e -> e.cert().setOcspResponse(response));
+        publish();
     }
 
     /**
@@ -439,7 +440,7 @@ public final class TokenManager {
      * @param memberId the member id
      * @return the certificate request info or null if not found
      */
-    public static synchronized CertRequestInfo getCertRequestInfo(String keyId, ClientId memberId) {
+    public static CertRequestInfo getCertRequestInfo(String keyId, ClientId memberId) {
         log.trace("getCertRequestInfo({}, {})", keyId, memberId);
 
         Key key = findKey(keyId);
@@ -453,33 +454,30 @@ public final class TokenManager {
      * @param certReqId cert request id
      * @return the certificate request info or null if not found
      */
-    public static synchronized CertRequestInfo getCertRequestInfo(String certReqId) {
+    public static CertRequestInfo getCertRequestInfo(String certReqId) {
         log.trace("getCertRequestInfo({})", certReqId);
 
-        return forCertRequest((k, c) -> certReqId.equals(c.getId()),
-                (k, c) -> c.toDTO())
-                .orElse(null);
+        return snapshot.certRequest(certReqId).map(e -> e.certRequest().toDTO()).orElse(null);
     }
 
     /**
      * @param certHash the certificate hash in HEX
      * @return key info for the certificate hash
      */
-    public static synchronized KeyInfo getKeyInfoForCertHash(String certHash) {
+    public static KeyInfo getKeyInfoForCertHash(String certHash) {
         log.trace("getKeyInfoForCertHash({})", certHash);
 
-        return forCert((k, c) -> certHash.equals(c.getSha256hash()), (k, c) -> k.toDTO()).orElse(null);
+        return snapshot.certBySha256(certHash).map(e -> e.key().toDTO()).orElse(null);
     }
 
     /**
      * @param certId the certificate id
      * @return key info for certificate id
      */
-    public static synchronized KeyInfo getKeyInfoForCertId(String certId) {
+    public static KeyInfo getKeyInfoForCertId(String certId) {
         log.trace("getKeyInfoForCertId({})", certId);
 
-        return forCert((k, c) -> c.getId().equals(certId),
-                (k, c) -> k.toDTO()).orElse(null);
+        return snapshot.cert(certId).map(e -> e.key().toDTO()).orElse(null);
     }
 
     /**
@@ -497,7 +495,7 @@ public final class TokenManager {
      * @param tokenId the token id
      * @return true if token is available
      */
-    public static synchronized boolean isTokenAvailable(String tokenId) {
+    public static boolean isTokenAvailable(String tokenId) {
         log.trace("isTokenAvailable({})", tokenId);
 
         return findToken(tokenId).isAvailable();
@@ -507,7 +505,7 @@ public final class TokenManager {
      * @param tokenId the token id
      * @return true if token is active (logged in)
      */
-    public static synchronized boolean isTokenActive(String tokenId) {
+    public static boolean isTokenActive(String tokenId) {
         log.trace("isTokenActive({})", tokenId);
 
         return findToken(tokenId).isActive();
@@ -528,6 +526,7 @@ public final class TokenManager {
         Token token = findToken(tokenId);
         token.setAvailable(available);
         token.setModuleId(tokenType.getModuleType());
+        publish();
     }
 
     /**
@@ -540,6 +539,7 @@ public final class TokenManager {
         log.trace("setTokenAvailable({}, {})", tokenId, available);
 
         findToken(tokenId).setAvailable(available);
+        publish();
     }
 
     /**
@@ -553,6 +553,7 @@ public final class TokenManager {
         log.trace("setTokenActive({}, {})", tokenId, active);
 
         findToken(tokenId).setActive(active);
+        publish();
     }
 
     /**
@@ -566,13 +567,14 @@ public final class TokenManager {
         log.trace("setTokenFriendlyName({}, {})", tokenId, friendlyName);
 
         findToken(tokenId).setFriendlyName(friendlyName);
+        publish();
     }
 
     /**
      * @param tokenId the token if
      * @return the token status info
      */
-    public static synchronized TokenStatusInfo getTokenStatus(String tokenId) {
+    public static TokenStatusInfo getTokenStatus(String tokenId) {
         log.trace("getTokenStatus({})", tokenId);
 
         return findToken(tokenId).getStatus();
@@ -589,6 +591,7 @@ public final class TokenManager {
         log.trace("setTokenStatus({}, {})", tokenId, status);
 
         findToken(tokenId).setStatus(status);
+        publish();
     }
 
     /**
@@ -602,13 +605,14 @@ public final class TokenManager {
         log.trace("setKeyAvailable({}, {})", keyId, available);
 
         findKey(keyId).setAvailable(available);
+        publish();
     }
 
     /**
      * @param keyId the key id
      * @return true if key is available
      */
-    public static synchronized boolean isKeyAvailable(String keyId) {
+    public static boolean isKeyAvailable(String keyId) {
         log.trace("isKeyAvailable()");
 
         return findKey(keyId).isAvailable();
@@ -625,6 +629,7 @@ public final class TokenManager {
         log.trace("setKeyFriendlyName({}, {})", keyId, friendlyName);
 
         findKey(keyId).setFriendlyName(friendlyName);
+        publish();
     }
 
     /**
@@ -635,7 +640,9 @@ public final class TokenManager {
     public static synchronized void deleteToken(String tokenId) {
         log.trace("deleteToken({})", tokenId);
 
-        currentTokens.remove(findToken(tokenId));
+        List<Token> tokens = new ArrayList<>(snapshot.tokens());
+        tokens.remove(findToken(tokenId));
+        publish(tokens);
     }
 
     /**
@@ -648,6 +655,7 @@ public final class TokenManager {
         log.trace("setKeyLabel({}, {})", keyId, label);
 
         findKey(keyId).setLabel(label);
+        publish();
     }
 
     /**
@@ -661,6 +669,7 @@ public final class TokenManager {
         log.trace("setKeyUsage({}, {})", keyId, keyUsage);
 
         findKey(keyId).setUsage(keyUsage);
+        publish();
     }
 
     /**
@@ -680,6 +689,7 @@ public final class TokenManager {
         key.setPublicKey(publicKeyBase64);
 
         token.addKey(key);
+        publish();
 
         return key.toDTO();
     }
@@ -693,8 +703,10 @@ public final class TokenManager {
     public static synchronized boolean removeKey(String keyId) {
         log.trace("removeKey({})", keyId);
 
-        return forKey((t, k) -> k.getId().equals(keyId),
-                (t, k) -> t.getKeys().remove(k)).orElse(false);
+        boolean removed = snapshot.key(keyId).map(e -> e.token().getKeys().remove(e.key())).orElse(false);
+        publish();
+
+        return removed;
     }
 
     /**
@@ -708,6 +720,7 @@ public final class TokenManager {
         log.trace("setPublicKey({}, {})", keyId, publicKeyBase64);
 
         findKey(keyId).setPublicKey(publicKeyBase64);
+        publish();
     }
 
     /**
@@ -725,6 +738,7 @@ public final class TokenManager {
         cert.setCertificate(certBytes);
 
         key.addCert(cert);
+        publish();
     }
 
     /**
@@ -743,6 +757,7 @@ public final class TokenManager {
         cert.setStatus(initialStatus);
 
         key.addCert(cert);
+        publish();
     }
 
     /**
@@ -756,6 +771,7 @@ public final class TokenManager {
         log.trace("setCertActive({}, {})", certId, active);
 
         findCert(certId).setActive(active);
+        publish();
     }
 
     /**
@@ -769,6 +785,7 @@ public final class TokenManager {
         log.trace("setCertStatus({}, {})", certId, status);
 
         findCert(certId).setStatus(status);
+        publish();
     }
 
     /**
@@ -782,6 +799,7 @@ public final class TokenManager {
         log.trace("setRenewedCertHash({}, {})", certId, hash);
 
         findCert(certId).setRenewedCertHash(hash);
+        publish();
     }
 
     /**
@@ -795,6 +813,7 @@ public final class TokenManager {
         log.trace("setRenewalError({}, {})", certId, errorMessage);
 
         findCert(certId).setRenewalError(errorMessage);
+        publish();
     }
 
     /**
@@ -808,6 +827,7 @@ public final class TokenManager {
         log.trace("setOcspVerifyError({}, {})", certId, errorMessage);
 
         findCert(certId).setOcspVerifyBeforeActivationError(errorMessage);
+        publish();
     }
 
     /**
@@ -821,6 +841,7 @@ public final class TokenManager {
         log.trace("setNextPlannedRenewal({}, {})", certId, nextRenewalTime);
 
         findCert(certId).setNextAutomaticRenewalTime(nextRenewalTime);
+        publish();
     }
 
     /**
@@ -832,8 +853,10 @@ public final class TokenManager {
     public static synchronized boolean removeCert(String certId) {
         log.trace("removeCert({})", certId);
 
-        return forCert((k, c) -> c.getId().equals(certId),
-                (k, c) -> k.getCerts().remove(c)).orElse(false);
+        boolean removed = snapshot.cert(certId).map(e -> e.key().getCerts().remove(e.cert())).orElse(false);
+        publish();
+
+        return removed;
     }
 
     /**
@@ -874,12 +897,14 @@ public final class TokenManager {
                 log.warn("Certificate request (memberId: {}, "
                                 + "subjectName: {}) already exists", memberId,
                         subjectName);
+                publish();
                 return certRequest.getId();
             }
         }
 
         String certId = SignerUtil.randomId();
         key.addCertRequest(new CertRequest(certId, memberId, subjectName, subjectAltName, certificateProfile));
+        publish();
 
         log.info("Added new certificate request (memberId: {}, "
                         + "subjectId: {}) under key {}",
@@ -897,14 +922,13 @@ public final class TokenManager {
     public static synchronized String removeCertRequest(String certReqId) {
         log.trace("removeCertRequest({})", certReqId);
 
-        return forCertRequest((k, c) -> c.getId().equals(certReqId),
-                (k, c) -> {
-                    if (!k.getCertRequests().remove(c)) {
-                        return null;
-                    }
+        String keyId = snapshot.certRequest(certReqId)
+                .filter(e -> e.key().getCertRequests().remove(e.certRequest()))
+                .map(e -> e.key().getId())
+                .orElse(null);
+        publish();
 
-                    return k.getId();
-                }).orElse(null);
+        return keyId;
     }
 
     /**
@@ -915,13 +939,14 @@ public final class TokenManager {
      */
     public static synchronized void setTokenInfo(String tokenId, Map<String, String> info) {
         findToken(tokenId).setInfo(info);
+        publish();
     }
 
     /**
      * @param tokenId the token id
      * @return true if batch signing is enabled for a token
      */
-    public static synchronized boolean isBatchSigningEnabled(String tokenId) {
+    public static boolean isBatchSigningEnabled(String tokenId) {
         log.trace("isBatchSigningEnabled({})", tokenId);
 
         return findToken(tokenId).isBatchSigningEnabled();
@@ -929,81 +954,30 @@ public final class TokenManager {
 
     // ------------------------------------------------------------------------
 
-    private static <T> Optional<T> forToken(Function<Token, Boolean> tester, Function<Token, T> mapper) {
-        for (Token token : currentTokens) {
-            if (tester.apply(token)) {
-                return Optional.ofNullable(mapper.apply(token));
-            }
-        }
-
-        return Optional.empty();
-    }
-
-    private static <T> Optional<T> forKey(
-            BiFunction<Token, Key, Boolean> tester,
-            BiFunction<Token, Key, T> mapper) {
-        for (Token token : currentTokens) {
-            for (Key key : token.getKeys()) {
-                if (tester.apply(token, key)) {
-                    return Optional.ofNullable(mapper.apply(token, key));
-                }
-            }
-        }
-
-        return Optional.empty();
+    private static void publish() {
+        publish(snapshot.tokens());
     }
 
-    private static <T> Optional<T> forCert(
-            BiFunction<Key, Cert, Boolean> tester,
-            BiFunction<Key, Cert, T> mapper) {
-        for (Token token : currentTokens) {
-            for (Key key : token.getKeys()) {
-                for (Cert cert : key.getCerts()) {
-                    if (tester.apply(key, cert)) {
-                        return Optional.ofNullable(mapper.apply(key, cert));
-                    }
-                }
-            }
-        }
-
-        return Optional.empty();
-    }
-
-    private static <T> Optional<T> forCertRequest(
-            BiFunction<Key, CertRequest, Boolean> tester,
-            BiFunction<Key, CertRequest, T> mapper) {
-        for (Token token : currentTokens) {
-            for (Key key : token.getKeys()) {
-                for (CertRequest certReq : key.getCertRequests()) {
-                    if (tester.apply(key, certReq)) {
-                        return Optional.ofNullable(mapper.apply(key, certReq));
-                    }
-                }
-            }
-        }
-
-        return Optional.empty();
+    private static void publish(List<Token> tokens) {
+        snapshot = Snapshot.of(tokens);
     }
 
     private static Token findToken(String tokenId) {
         log.trace("findToken({})", tokenId);
 
-        return forToken(t -> t.getId().equals(tokenId), t -> t)
-                .orElseThrow(() -> tokenNotFound(tokenId));
+        return snapshot.token(tokenId).orElseThrow(() -> tokenNotFound(tokenId));
     }
 
     private static Key findKey(String keyId) {
         log.trace("findKey({})", keyId);
 
-        return forKey((t, k) -> k.getId().equals(keyId), (t, k) -> k)
-                .orElseThrow(() -> keyNotFound(keyId));
+        return snapshot.key(keyId).map(KeyEntry::key).orElseThrow(() -> keyNotFound(keyId));
     }
 
     private static Cert findCert(String certId) {
         log.trace("findCert({})", certId);
 
-        return forCert((k, c) -> c.getId().equals(certId), (k, c) -> c)
-                .orElseThrow(() -> certWithIdNotFound(certId));
+        return snapshot.cert(certId).map(CertEntry::cert).orElseThrow(() -> certWithIdNotFound(certId));
     }
 
     private static String getDefaultFriendlyName(TokenType tokenType) {
@@ -1023,4 +997,88 @@ public final class TokenManager {
 
         return name;
     }
+
+    private record KeyEntry(Token token, Key key) {
+    }
+
+    private record CertEntry(Key key, Cert cert) {
+    }
+
+    private record CertRequestEntry(Key key, CertRequest certRequest) {
+    }
+
+    /**
+     * Immutable list of the tokens with indexes to their keys, certificates and certificate requests. If an id or hash
+     * is not unique, the first one in token order is indexed, like a linear search would find.
+     */
+    private record Snapshot(List<Token> tokens,
+                            Map<String, Token> tokensById,
+                            Map<String, KeyEntry> keysById,
+                            Map<String, CertEntry> certsById,
+                            Map<String, CertEntry> certsBySha256,
+                            Map<String, CertEntry> certsBySha1,
+                            Map<String, CertRequestEntry> certRequestsById) {
+
+        static Snapshot of(List<Token> tokens) {
+            Map<String, Token> tokensById = new HashMap<>();
+            Map<String, KeyEntry> keysById = new HashMap<>();
+            Map<String, CertEntry> certsById = new HashMap<>();
+            Map<String, CertEntry> certsBySha256 = new HashMap<>();
+            Map<String, CertEntry> certsBySha1 = new HashMap<>();
+            Map<String, CertRequestEntry> certRequestsById = new HashMap<>();
+
+            for (Token token : tokens) {
+                putFirst(tokensById, token.getId(), token);
+                for (Key key : token.getKeys()) {
+                    putFirst(keysById, key.getId(), new KeyEntry(token, key));
+                    for (Cert cert : key.getCerts()) {
+                        CertEntry entry = new CertEntry(key, cert);
+                        putFirst(certsById, cert.getId(), entry);
+                        putFirst(certsBySha256, cert.getSha256hash(), entry);
+                        putFirst(certsBySha1, cert.getSha1hash(), entry);
+                    }
+                    for (CertRequest certRequest : key.getCertRequests()) {
+                        putFirst(certRequestsById, certRequest.getId(), new CertRequestEntry(key, certRequest));
+                    }
+                }
+            }
+
+            return new Snapshot(List.copyOf(tokens), tokensById, keysById, certsById, certsBySha256, certsBySha1,
+                    certRequestsById);
+        }
+
+        Optional<Token> token(String tokenId) {
+            return lookup(tokensById, tokenId);
+        }
+
+        Optional<KeyEntry> key(String keyId) {
+            return lookup(keysById, keyId);
+        }
+
+        Optional<CertEntry> cert(String certId) {
+            return lookup(certsById, certId);
+        }
+
+        Optional<CertEntry> certBySha256(String certHash) {
+            return lookup(certsBySha256, certHash);
+        }
+
+        Optional<CertEntry> certBySha1(String certSha1Hash) {
+            return lookup(certsBySha1, certSha1Hash);
+        }
+
+        Optional<CertRequestEntry> certRequest(String certRequestId) {
+            return lookup(certRequestsById, certRequestId);
+        }
+
+        private static <T> void putFirst(Map<String, T> index, String key, T value) {
+            if (key != null) {
+                index.putIfAbsent(key, value);
+            }
+        }
+
+        private static <T> Optional<T> lookup(Map<String, T> index, String key) {
+            return key == null ? Optional.empty() : Optional.ofNullable(index.get(key));
+        }
+    }
 }
@@ -35,6 +35,7 @@ import org.niis.xroad.signer.api.message.GetOcspResponses;
 import org.niis.xroad.signer.core.certmanager.OcspResponseManager;
 import org.niis.xroad.signer.core.model.Cert;
 import org.niis.xroad.signer.core.tokenmanager.TokenManager;
+import org.niis.xroad.signer.core.tokenmanager.token.TokenSessionPoolStatus;
 import org.niis.xroad.signer.core.tokenmanager.token.TokenWorker;
 import org.niis.xroad.signer.core.tokenmanager.token.TokenWorkerProvider;
 import org.niis.xroad.signer.core.tokenmanager.token.WorkerWithLifecycle;
@@ -147,6 +148,17 @@ public abstract class AbstractModuleManager implements WorkerWithLifecycle, Toke
         return Optional.empty();
     }
 
+    /**
+     * Returns the signing session pool statuses of all tokens that use a session pool.
+     *
+     * @return list of session pool statuses
+     */
+    public List<TokenSessionPoolStatus> getSessionPoolStatuses() {
+        return moduleWorkers.values().stream()
+                .flatMap(worker -> worker.getSessionPoolStatuses().stream())
+                .toList();
+    }
+
     protected abstract AbstractModuleWorker createModuleWorker(ModuleType module);
 
     /**
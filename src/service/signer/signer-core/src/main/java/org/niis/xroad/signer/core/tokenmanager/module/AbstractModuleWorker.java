@@ -34,6 +34,7 @@ import org.niis.xroad.signer.api.dto.TokenInfo;
 import org.niis.xroad.signer.core.tokenmanager.TokenManager;
 import org.niis.xroad.signer.core.tokenmanager.token.AbstractTokenWorker;
 import org.niis.xroad.signer.core.tokenmanager.token.BlockingTokenWorker;
+import org.niis.xroad.signer.core.tokenmanager.token.TokenSessionPoolStatus;
 import org.niis.xroad.signer.core.tokenmanager.token.TokenType;
 import org.niis.xroad.signer.core.tokenmanager.token.TokenWorker;
 import org.niis.xroad.signer.core.tokenmanager.token.WorkerWithLifecycle;
@@ -64,6 +65,13 @@ public abstract class AbstractModuleWorker implements WorkerWithLifecycle {
         return Optional.ofNullable(tokenWorkers.get(tokenId));
     }
 
+    List<TokenSessionPoolStatus> getSessionPoolStatuses() {
+        return tokenWorkers.values().stream()
+                .map(BlockingTokenWorker::getSessionPoolStatus)
+                .flatMap(Optional::stream)
+                .toList();
+    }
+
     @Override
     public void reload() {
         log.warn("Reloading {}.. ", getClass().getSimpleName());
@@ -62,4 +62,6 @@ public class HardwareModuleType implements ModuleType {
     private final PubKeyAttributes pubKeyAttributes;
 
     private final Set<Long> slotIds;
+
+    private final int signSessionPoolSize;
 }
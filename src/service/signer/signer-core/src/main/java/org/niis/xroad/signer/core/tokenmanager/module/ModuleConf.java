@@ -80,6 +80,8 @@ public final class ModuleConf {
     private static final SignMechanism DEFAULT_RSA_SIGN_MECHANISM_NAME = SignMechanism.CKM_RSA_PKCS;
     private static final SignMechanism DEFAULT_EC_SIGN_MECHANISM_NAME = SignMechanism.CKM_ECDSA;
 
+    private static final int DEFAULT_SIGN_SESSION_POOL_SIZE = 1;
+
     // Module configuration fields.
     private static final String ENABLED_PARAM = "enabled";
     private static final String LIBRARY_PARAM = "library";
@@ -88,6 +90,7 @@ public final class ModuleConf {
     private static final String SIGN_VERIFY_PIN_PARAM = "sign_verify_pin";
     private static final String BATCH_SIGNING_ENABLED_PARAM = "batch_signing_enabled";
     private static final String READ_ONLY_PARAM = "read_only";
+    private static final String SIGN_SESSION_POOL_SIZE_PARAM = "sign_session_pool_size";
     private static final String TOKEN_ID_FORMAT_PARAM = "token_id_format";
     private static final String SIGN_MECHANISM_PARAM = "sign_mechanism";
     private static final String RSA_SIGN_MECHANISM_PARAM = "rsa_sign_mechanism";
@@ -242,6 +245,7 @@ public final class ModuleConf {
         boolean verifyPin = getBoolean(section, SIGN_VERIFY_PIN_PARAM, false);
         boolean batchSigning = getBoolean(section, BATCH_SIGNING_ENABLED_PARAM, true);
         boolean readOnly = getBoolean(section, READ_ONLY_PARAM, false);
+        int signSessionPoolSize = Math.max(1, getInteger(section, SIGN_SESSION_POOL_SIZE_PARAM, DEFAULT_SIGN_SESSION_POOL_SIZE));
         String tokenIdFormat = section.getString(TOKEN_ID_FORMAT_PARAM);
 
         if (StringUtils.isBlank(tokenIdFormat)) {
@@ -281,9 +285,10 @@ public final class ModuleConf {
 
         log.debug("Read module configuration (UID = {}, library = {}, library_cant_create_os_threads = {}"
                         + ", os_locking_ok = {}, token_id_format = {}, pin_verification_per_signing = {}, batch_signing = {}"
-                        + ", rsa_sign_mechanism = {}, ec_sign_mechanism = {},pub_key_attributes = {}, priv_key_attributes = {})",
+                        + ", sign_session_pool_size = {}, rsa_sign_mechanism = {}, ec_sign_mechanism = {},pub_key_attributes = {}"
+                        + ", priv_key_attributes = {})",
                 uid, library, libraryCantCreateOsThreads, osLockingOk, tokenIdFormat, verifyPin, batchSigning,
-                rsaSignMechanismName, ecSignMechanismName, pubKeyAttributes, privKeyAttributes);
+                signSessionPoolSize, rsaSignMechanismName, ecSignMechanismName, pubKeyAttributes, privKeyAttributes);
 
         if (MODULES.containsKey(uid)) {
             log.warn("Module information already defined for {}, skipping...", uid);
@@ -299,7 +304,7 @@ public final class ModuleConf {
                 osLockingOk, tokenIdFormat, verifyPin,
                 batchSigning, readOnly, rsaSignMechanismName,
                 ecSignMechanismName, privKeyAttributes, pubKeyAttributes,
-                slotIds));
+                slotIds, signSessionPoolSize));
     }
 
     private static PubKeyAttributes loadPubKeyAttributes(SubnodeConfiguration section) {
@@ -363,6 +368,15 @@ public final class ModuleConf {
         }
     }
 
+    private static Integer getInteger(SubnodeConfiguration section, String key, Integer defaultValue) {
+        try {
+            return section.getInteger(key, defaultValue);
+        } catch (ConversionException e) {
+            throw new ConversionException(String.format("Invalid value of '%s' for module (%s), skipping...",
+                    key, section.getRootElementName()), e);
+        }
+    }
+
     private static String[] getStringArray(SubnodeConfiguration section, String key) {
         try {
             return section.getStringArray(key);
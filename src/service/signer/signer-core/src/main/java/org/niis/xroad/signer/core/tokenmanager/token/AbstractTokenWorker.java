@@ -63,6 +63,7 @@ import java.security.UnrecoverableKeyException;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 import java.security.spec.InvalidKeySpecException;
+import java.util.Optional;
 
 import static ee.ria.xroad.common.ErrorCodes.X_CANNOT_SIGN;
 import static ee.ria.xroad.common.ErrorCodes.X_FAILED_TO_GENERATE_R_KEY;
@@ -193,6 +194,20 @@ public abstract class AbstractTokenWorker implements TokenWorker, WorkerWithLife
         return workerId;
     }
 
+    /**
+     * @return true if signing operations of this worker are thread-safe and may be executed concurrently
+     */
+    public boolean isConcurrentSigningSupported() {
+        return false;
+    }
+
+    /**
+     * @return the status of the signing session pool, if the worker uses one
+     */
+    public Optional<TokenSessionPoolStatus> getSessionPoolStatus() {
+        return Optional.empty();
+    }
+
     /**
      * Execute additional code post every token worker action.
      */
@@ -34,54 +34,71 @@ import org.niis.xroad.signer.proto.GenerateKeyReq;
 import org.niis.xroad.signer.proto.SignCertificateReq;
 import org.niis.xroad.signer.proto.SignReq;
 
+import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
 import static ee.ria.xroad.common.ErrorCodes.translateException;
 
 /**
- * A blocking (calls to token are synchronized) token worker.
+ * A blocking token worker. Calls to the token are executed exclusively, except for signing operations of
+ * workers that support concurrent signing, which are executed in parallel with each other.
  */
 @Slf4j
 @RequiredArgsConstructor
 public class BlockingTokenWorker implements TokenWorker, WorkerWithLifecycle {
     private final AbstractTokenWorker tokenWorker;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
     @Override
     public void handleActivateToken(ActivateTokenReq message) {
-        synchronizedAction(() -> tokenWorker.handleActivateToken(message));
+        exclusiveAction(() -> tokenWorker.handleActivateToken(message));
     }
 
     @Override
     public KeyInfo handleGenerateKey(GenerateKeyReq message) {
-        return synchronizedAction(() -> tokenWorker.handleGenerateKey(message));
+        return exclusiveAction(() -> tokenWorker.handleGenerateKey(message));
     }
 
     @Override
     public void handleDeleteKey(String keyId) {
-        synchronizedAction(() -> tokenWorker.handleDeleteKey(keyId));
+        exclusiveAction(() -> tokenWorker.handleDeleteKey(keyId));
     }
 
     @Override
     public void handleDeleteCert(String certificateId) {
-        synchronizedAction(() -> tokenWorker.handleDeleteCert(certificateId));
+        exclusiveAction(() -> tokenWorker.handleDeleteCert(certificateId));
     }
 
     @Override
     public byte[] handleSign(SignReq request) {
-        return synchronizedAction(() -> tokenWorker.handleSign(request));
+        Lock signLock = lock.readLock();
+        signLock.lock();
+
+        // concurrent signing support may change while the token is being reconfigured, so it is checked under lock
+        if (!tokenWorker.isConcurrentSigningSupported()) {
+            signLock.unlock();
+            signLock = lock.writeLock();
+            signLock.lock();
+        }
+
+        return lockedAction(signLock, () -> tokenWorker.handleSign(request));
     }
 
     @Override
-    public synchronized byte[] handleSignCertificate(SignCertificateReq request) {
-        return synchronizedAction(() -> tokenWorker.handleSignCertificate(request));
+    public byte[] handleSignCertificate(SignCertificateReq request) {
+        return exclusiveAction(() -> tokenWorker.handleSignCertificate(request));
     }
 
     @Override
-    public synchronized void initializeToken(char[] pin) {
-        synchronizedAction(() -> tokenWorker.initializeToken(pin));
+    public void initializeToken(char[] pin) {
+        exclusiveAction(() -> tokenWorker.initializeToken(pin));
     }
 
     @Override
-    public synchronized void handleUpdateTokenPin(char[] oldPin, char[] newPin) {
-        synchronizedAction(() -> tokenWorker.handleUpdateTokenPin(oldPin, newPin));
+    public void handleUpdateTokenPin(char[] oldPin, char[] newPin) {
+        exclusiveAction(() -> tokenWorker.handleUpdateTokenPin(oldPin, newPin));
     }
 
     @Override
@@ -89,24 +106,28 @@ public class BlockingTokenWorker implements TokenWorker, WorkerWithLifecycle {
         return tokenWorker.isSoftwareToken();
     }
 
+    public Optional<TokenSessionPoolStatus> getSessionPoolStatus() {
+        return tokenWorker.getSessionPoolStatus();
+    }
+
     @Override
     public void start() {
-        synchronizedAction(tokenWorker::start);
+        exclusiveAction(tokenWorker::start);
     }
 
     @Override
     public void destroy() {
-        synchronizedAction(tokenWorker::destroy);
+        exclusiveAction(tokenWorker::destroy);
     }
 
     @Override
     public void reload() {
-        synchronizedAction(tokenWorker::reload);
+        exclusiveAction(tokenWorker::reload);
     }
 
     @Override
     public void refresh() {
-        synchronizedAction(tokenWorker::refresh);
+        exclusiveAction(tokenWorker::refresh);
     }
 
     @FunctionalInterface
@@ -121,25 +142,34 @@ public class BlockingTokenWorker implements TokenWorker, WorkerWithLifecycle {
         void run() throws E;
     }
 
+    private <T> T exclusiveAction(ThrowingSupplier<T, Exception> action) {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
 
-    private synchronized <T> T synchronizedAction(ThrowingSupplier<T, Exception> action) {
-        try {
-            return action.get();
-        } catch (Exception e) {
-            throw translateException(e);
-        } finally {
-            tokenWorker.onActionHandled();
-        }
+        return lockedAction(writeLock, action);
     }
 
+    private void exclusiveAction(ThrowingRunnable<Exception> action) {
+        exclusiveAction(() -> {
+            action.run();
+            return null;
+        });
+    }
 
-    private synchronized void synchronizedAction(ThrowingRunnable<Exception> action) {
+    /**
+     * Executes the action and releases the given lock, which must be held by the current thread.
+     */
+    private <T> T lockedAction(Lock actionLock, ThrowingSupplier<T, Exception> action) {
         try {
-            action.run();
+            return action.get();
         } catch (Exception e) {
             throw translateException(e);
         } finally {
-            tokenWorker.onActionHandled();
+            try {
+                tokenWorker.onActionHandled();
+            } finally {
+                actionLock.unlock();
+            }
         }
     }
 }
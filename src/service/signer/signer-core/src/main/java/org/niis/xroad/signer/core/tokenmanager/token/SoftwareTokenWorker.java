@@ -79,10 +79,12 @@ import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import static ee.ria.xroad.common.ErrorCodes.X_INTERNAL_ERROR;
 import static ee.ria.xroad.common.ErrorCodes.X_TOKEN_PIN_POLICY_FAILURE;
@@ -139,10 +141,16 @@ public class SoftwareTokenWorker extends AbstractTokenWorker {
     );
     private static final String UNSUPPORTED_SIGN_ALGORITHM = "unsupported_sign_algorithm";
 
-    private final Map<String, PrivateKey> privateKeys = new HashMap<>();
+    private final Map<String, PrivateKey> privateKeys = new ConcurrentHashMap<>();
+    /**
+     * Signature instances are not thread-safe, so every key keeps a pool of instances initialised for signing with
+     * it. The pool of a key is dropped together with the private key.
+     */
+    private final Map<String, Queue<Signature>> signatures = new ConcurrentHashMap<>();
     private final TokenType tokenType;
+    private final boolean concurrentSigningEnabled = SystemProperties.isSoftTokenConcurrentSigningEnabled();
 
-    private boolean isTokenLoginAllowed = true;
+    private volatile boolean isTokenLoginAllowed = true;
 
     /**
      * Creates new worker.
@@ -176,6 +184,11 @@ public class SoftwareTokenWorker extends AbstractTokenWorker {
         //No-OP
     }
 
+    @Override
+    public boolean isConcurrentSigningSupported() {
+        return concurrentSigningEnabled;
+    }
+
     @Override
     protected void activateToken(ActivateTokenReq message) {
         if (message.getActivate()) {
@@ -218,6 +231,8 @@ public class SoftwareTokenWorker extends AbstractTokenWorker {
         log.info("Deleting key file {}", path);
 
         Files.deleteIfExists(path);
+        privateKeys.remove(keyId);
+        signatures.remove(keyId);
     }
 
     @Override
@@ -251,12 +266,22 @@ public class SoftwareTokenWorker extends AbstractTokenWorker {
         log.debug("Signing with key '{}' and signature algorithm '{}'", keyId, signatureAlgorithmId);
 
 
-        SignAlgorithm signAlgorithm = KeyManagers.getFor(keyAlgorithm).getSoftwareTokenSignAlgorithm();
-        Signature signature = Signature.getInstance(signAlgorithm.name(), BOUNCY_CASTLE);
-        signature.initSign(key);
+        Queue<Signature> pool = signatures.computeIfAbsent(keyId, k -> new ConcurrentLinkedQueue<>());
+        Signature signature = pool.poll();
+
+        if (signature == null) {
+            SignAlgorithm signAlgorithm = KeyManagers.getFor(keyAlgorithm).getSoftwareTokenSignAlgorithm();
+            signature = Signature.getInstance(signAlgorithm.name(), BOUNCY_CASTLE);
+            signature.initSign(key);
+        }
+
         signature.update(data);
+        byte[] result = signature.sign();
+
+        // signing resets the instance to the state after initSign, it is reused only if signing succeeded
+        pool.offer(signature);
 
-        return signature.sign();
+        return result;
     }
 
     private static void checkSignatureAlgorithm(SignAlgorithm signatureAlgorithmId, KeyAlgorithm algorithm) {
@@ -382,6 +407,7 @@ public class SoftwareTokenWorker extends AbstractTokenWorker {
         log.debug("Found usable key '{}'", keyId);
 
         privateKeys.put(keyId, pkey);
+        signatures.remove(keyId);
     }
 
     @Override
@@ -524,6 +550,7 @@ public class SoftwareTokenWorker extends AbstractTokenWorker {
 
     private void deactivateToken() {
         privateKeys.clear();
+        signatures.clear();
 
         setTokenActive(tokenId, false);
     }
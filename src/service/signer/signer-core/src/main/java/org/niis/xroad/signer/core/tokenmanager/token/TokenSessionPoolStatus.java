@@ -0,0 +1,56 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.niis.xroad.signer.core.tokenmanager.token;
+
+/**
+ * Occupancy and wait-time statistics of a token signing session pool.
+ * @param tokenId the token id
+ * @param poolSize the configured number of sessions
+ * @param openSessions the number of currently open sessions
+ * @param idleSessions the number of sessions currently waiting to be used
+ * @param acquisitions the total number of session acquisitions
+ * @param waits the number of acquisitions that had to wait for a free session
+ * @param totalWaitTimeMicros the total time spent waiting for a free session in microseconds
+ * @param maxWaitTimeMicros the longest time spent waiting for a free session in microseconds
+ * @param recreatedSessions the number of sessions re-created after becoming invalid
+ */
+public record TokenSessionPoolStatus(String tokenId,
+                                     int poolSize,
+                                     int openSessions,
+                                     int idleSessions,
+                                     long acquisitions,
+                                     long waits,
+                                     long totalWaitTimeMicros,
+                                     long maxWaitTimeMicros,
+                                     long recreatedSessions) {
+
+    /**
+     * @return the number of sessions currently in use
+     */
+    public int getActiveSessions() {
+        return openSessions - idleSessions;
+    }
+}
@@ -26,6 +26,7 @@
 package org.niis.xroad.signer.core.certmanager;
 
 import ee.ria.xroad.common.OcspTestUtils;
+import ee.ria.xroad.common.SystemProperties;
 import ee.ria.xroad.common.TestCertUtil;
 import ee.ria.xroad.common.util.TimeUtils;
 
@@ -58,8 +59,10 @@ import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
 
 import java.io.IOException;
 import java.net.ConnectException;
+import java.net.ServerSocket;
 import java.security.PrivateKey;
 import java.security.cert.X509Certificate;
+import java.time.Duration;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -67,13 +70,24 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static ee.ria.xroad.common.SystemProperties.getConfigurationPath;
 import static ee.ria.xroad.common.util.CryptoUtils.calculateCertHexHash;
 import static ee.ria.xroad.common.util.JettyUtils.setContentType;
 import static org.eclipse.jetty.io.Content.Sink.asOutputStream;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -89,6 +103,8 @@ class OcspClientTest {
 
     private static Server ocspResponder;
     private static byte[] responseData;
+    private static volatile CountDownLatch responseGate;
+    private static final AtomicInteger RESPONDER_REQUESTS = new AtomicInteger();
 
     private static final Map<String, OCSPResp> OCSP_RESPONSES = new HashMap<>();
     private static X509Certificate ocspResponderCert;
@@ -202,6 +218,86 @@ class OcspClientTest {
         verifier.verifyValidityAndStatus(ocsp, subject, globalConfProvider.getCaCert("EE", subject));
     }
 
+    /**
+     * Tests that a hedged request is sent to the next responder when the first one does not answer.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    void goodCertificateStatusFromHedgedRequest() throws Exception {
+        X509Certificate subject = getDefaultClientCert();
+
+        Date thisUpdate = Date.from(TimeUtils.now().plus(1, ChronoUnit.DAYS));
+
+        responseData = OcspTestUtils.createOCSPResponse(subject, globalConfProvider.getCaCert("EE", subject),
+                ocspResponderCert, getOcspSignerKey(), CertificateStatus.GOOD, thisUpdate, null).getEncoded();
+
+        // accepts connections, but never answers
+        try (ServerSocket unresponsiveResponder = new ServerSocket(0)) {
+            when(globalConfProvider.getOrderedOcspResponderAddresses(Mockito.any(X509Certificate.class))).thenReturn(
+                    Arrays.asList("http://127.0.0.1:" + unresponsiveResponder.getLocalPort(), RESPONDER_URI));
+            System.setProperty(SystemProperties.SIGNER_OCSP_HEDGE_DELAY, "100");
+
+            OCSPResp ocsp = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                    () -> ocspClientWorker.queryCertStatus(subject, new OcspVerifierOptions(true)));
+
+            assertNotNull(ocsp);
+            assertTrue(ocspClientWorker.getResponderLatencies().get(RESPONDER_URI).getCount() > 0);
+        } finally {
+            System.clearProperty(SystemProperties.SIGNER_OCSP_HEDGE_DELAY);
+        }
+    }
+
+    /**
+     * Tests that a query of a certificate joins the query of the same certificate that is already in progress.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    void concurrentQueriesOfCertificateAreCoalesced() throws Exception {
+        X509Certificate subject = getDefaultClientCert();
+
+        Date thisUpdate = Date.from(TimeUtils.now().plus(1, ChronoUnit.DAYS));
+
+        responseData = OcspTestUtils.createOCSPResponse(subject, globalConfProvider.getCaCert("EE", subject),
+                ocspResponderCert, getOcspSignerKey(), CertificateStatus.GOOD, thisUpdate, null).getEncoded();
+        responseGate = new CountDownLatch(1);
+        RESPONDER_REQUESTS.set(0);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            OcspVerifierOptions verifierOptions = new OcspVerifierOptions(true);
+            Future<OCSPResp> first = executor.submit(() -> ocspClientWorker.queryCertStatusCoalesced(subject, verifierOptions));
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+                while (RESPONDER_REQUESTS.get() == 0) {
+                    Thread.sleep(10);
+                }
+            });
+
+            AtomicReference<Thread> joiningThread = new AtomicReference<>();
+            Future<OCSPResp> second = executor.submit(() -> {
+                joiningThread.set(Thread.currentThread());
+                return ocspClientWorker.queryCertStatusCoalesced(subject, verifierOptions);
+            });
+            // the joining query waits for the result of the query in progress
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+                while (joiningThread.get() == null || joiningThread.get().getState() != Thread.State.WAITING) {
+                    Thread.sleep(10);
+                }
+            });
+            responseGate.countDown();
+
+            OCSPResp response = first.get(10, TimeUnit.SECONDS);
+            assertNotNull(response);
+            assertSame(response, second.get(10, TimeUnit.SECONDS));
+            assertEquals(1, RESPONDER_REQUESTS.get());
+        } finally {
+            responseGate.countDown();
+            responseGate = null;
+            executor.shutdownNow();
+        }
+    }
+
     /**
      * Test.
      *
@@ -367,6 +463,11 @@ class OcspClientTest {
         @Override
         public boolean handle(Request request, Response response, Callback callback) {
             try {
+                RESPONDER_REQUESTS.incrementAndGet();
+                CountDownLatch gate = responseGate;
+                if (gate != null) {
+                    gate.await(10, TimeUnit.SECONDS);
+                }
                 setContentType(response, responseContentType);
 
                 if (responseData != null) {
@@ -0,0 +1,134 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.niis.xroad.signer.core.tokenmanager;
+
+import ee.ria.xroad.common.CodedException;
+import ee.ria.xroad.common.SystemProperties;
+import ee.ria.xroad.common.crypto.identifier.SignMechanism;
+import ee.ria.xroad.common.identifier.ClientId;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.contrib.java.lang.system.RestoreSystemProperties;
+import org.junit.rules.TemporaryFolder;
+import org.niis.xroad.signer.api.dto.CertificateInfo;
+import org.niis.xroad.signer.api.dto.TokenInfo;
+import org.niis.xroad.signer.protocol.dto.KeyUsageInfo;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+import static ee.ria.xroad.common.util.CryptoUtils.calculateCertHexHash;
+import static ee.ria.xroad.common.util.CryptoUtils.calculateCertSha1HexHash;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that the {@link TokenManager} lookups follow the changes to tokens, keys and certificates.
+ */
+public class TokenManagerTest {
+
+    private static final String KEY_CONF = "./build/resources/test/mergetesting/keyconf_base_no_duplicate_keyIds.xml";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Rule
+    public final RestoreSystemProperties restoreSystemProperties = new RestoreSystemProperties();
+
+    @Before
+    public void setUp() throws Exception {
+        File keyConf = temporaryFolder.newFile("keyconf.xml");
+        Files.copy(Paths.get(KEY_CONF), keyConf.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        System.setProperty(SystemProperties.KEY_CONFIGURATION_FILE, keyConf.getPath());
+
+        TokenManager.init();
+    }
+
+    @Test
+    public void shouldFindCertificatesByIdAndHash() throws Exception {
+        List<CertificateInfo> certs = TokenManager.getAllCerts();
+        assertFalse("test setup failure", certs.isEmpty());
+
+        for (CertificateInfo cert : certs) {
+            String hash = calculateCertHexHash(cert.getCertificateBytes());
+            String keyId = TokenManager.getKeyInfoForCertId(cert.getId()).getId();
+
+            assertEquals(cert.getId(), TokenManager.getCertificateInfo(cert.getId()).getId());
+            assertEquals(cert.getId(), TokenManager.getCertificateInfoForCertHash(hash).getId());
+            assertNotNull(TokenManager.getCertificateForCerHash(calculateCertSha1HexHash(cert.getCertificateBytes())));
+            assertEquals(keyId, TokenManager.getKeyInfoForCertHash(hash).getId());
+            assertEquals(keyId, TokenManager.findTokenAndKeyIdForCertHash(hash).getKeyId());
+            assertEquals(TokenManager.findTokenIdForKeyId(keyId),
+                    TokenManager.findTokenAndKeyIdForCertHash(hash).getTokenInfo().getId());
+        }
+    }
+
+    @Test
+    public void shouldFollowCertificateChanges() throws Exception {
+        CertificateInfo cert = TokenManager.getAllCerts().getFirst();
+        String hash = calculateCertHexHash(cert.getCertificateBytes());
+        String keyId = TokenManager.getKeyInfoForCertId(cert.getId()).getId();
+
+        assertTrue(TokenManager.removeCert(cert.getId()));
+        assertNull(TokenManager.getCertificateInfo(cert.getId()));
+        assertNull(TokenManager.getCertificateInfoForCertHash(hash));
+        assertFalse(TokenManager.removeCert(cert.getId()));
+
+        TokenManager.addCert(keyId, cert.getCertificateBytes());
+        assertEquals(keyId, TokenManager.getKeyInfoForCertHash(hash).getId());
+
+        TokenManager.setCertStatus(TokenManager.getCertificateInfoForCertHash(hash).getId(), "changed");
+        assertEquals("changed", TokenManager.getCertificateInfoForCertHash(hash).getStatus());
+    }
+
+    @Test
+    public void shouldFollowKeyAndCertRequestChanges() {
+        TokenInfo token = TokenManager.listTokens().getFirst();
+
+        TokenManager.addKey(token.getId(), "new-key", "", SignMechanism.CKM_RSA_PKCS);
+        assertEquals(token.getId(), TokenManager.findTokenIdForKeyId("new-key"));
+        assertEquals(token.getId(), TokenManager.findTokenAndKey("new-key").tokenId());
+
+        String certRequestId = TokenManager.addCertRequest("new-key", ClientId.Conf.create("EE", "BUSINESS", "member"),
+                "CN=member", null, KeyUsageInfo.SIGNING, null);
+        assertEquals("new-key", TokenManager.findTokenAndKeyIdForCertRequestId(certRequestId).getKeyId());
+        assertEquals("new-key", TokenManager.removeCertRequest(certRequestId));
+        assertNull(TokenManager.getCertRequestInfo(certRequestId));
+
+        assertTrue(TokenManager.removeKey("new-key"));
+        assertNull(TokenManager.getKeyInfo("new-key"));
+        assertThrows(CodedException.class, () -> TokenManager.findTokenIdForKeyId("new-key"));
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.niis.xroad.signer.core.tokenmanager.token;
+
+import ee.ria.xroad.common.CodedException;
+import ee.ria.xroad.common.SystemProperties;
+import ee.ria.xroad.common.crypto.identifier.KeyAlgorithm;
+import ee.ria.xroad.common.crypto.identifier.SignMechanism;
+import ee.ria.xroad.common.util.PasswordStore;
+
+import com.google.protobuf.ByteString;
+import org.apache.commons.io.FileUtils;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.niis.xroad.signer.api.dto.KeyInfo;
+import org.niis.xroad.signer.api.dto.TokenInfo;
+import org.niis.xroad.signer.core.tokenmanager.TokenManager;
+import org.niis.xroad.signer.proto.ActivateTokenReq;
+import org.niis.xroad.signer.proto.Algorithm;
+import org.niis.xroad.signer.proto.GenerateKeyReq;
+import org.niis.xroad.signer.proto.SignReq;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests concurrent signing with the software token and the invalidation of the loaded keys.
+ */
+public class SoftwareTokenWorkerTest {
+
+    private static final Path KEY_CONF_DIR = Paths.get("build/tmp/softtoken-worker-test");
+    private static final char[] PIN = "Secret1234".toCharArray();
+    private static final int THREADS = 8;
+    private static final int SIGNATURES_PER_THREAD = 25;
+
+    private static final SoftwareTokenType TOKEN_TYPE = new SoftwareTokenType(Map.of(
+            KeyAlgorithm.RSA, SignMechanism.CKM_RSA_PKCS,
+            KeyAlgorithm.EC, SignMechanism.CKM_ECDSA));
+
+    private SoftwareTokenWorker softwareTokenWorker;
+    private BlockingTokenWorker tokenWorker;
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        FileUtils.deleteDirectory(KEY_CONF_DIR.toFile());
+        Files.createDirectories(KEY_CONF_DIR.resolve(SoftwareTokenUtil.SOFT_TOKEN_KEY_DIR_NAME));
+        Path keyConf = KEY_CONF_DIR.resolve("keyconf.xml");
+        Files.writeString(keyConf, "<tns:keyConf xmlns:tns=\"http://x-road.eu/xsd/xroad.xsd\"/>", StandardCharsets.UTF_8);
+        System.setProperty(SystemProperties.KEY_CONFIGURATION_FILE, keyConf.toAbsolutePath().toString());
+        System.setProperty(SystemProperties.SOFT_TOKEN_CONCURRENT_SIGNING_ENABLED, "true");
+        // the default password store is backed by a native library
+        System.setProperty(SystemProperties.PREFIX + "internal.passwordstore-provider", "file");
+        System.setProperty(SystemProperties.PREFIX + "internal.passwordstore-file-path", KEY_CONF_DIR.toAbsolutePath().toString());
+    }
+
+    @AfterClass
+    public static void tearDownAfterClass() throws Exception {
+        System.clearProperty(SystemProperties.SOFT_TOKEN_CONCURRENT_SIGNING_ENABLED);
+        FileUtils.deleteDirectory(KEY_CONF_DIR.toFile());
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        File keyDir = SoftwareTokenUtil.getKeyDir();
+        FileUtils.cleanDirectory(keyDir);
+
+        TokenManager.init();
+        TokenInfo tokenInfo = TokenManager.createToken(TOKEN_TYPE);
+
+        softwareTokenWorker = new SoftwareTokenWorker(tokenInfo, TOKEN_TYPE);
+        tokenWorker = new BlockingTokenWorker(softwareTokenWorker);
+        tokenWorker.initializeToken(PIN);
+        PasswordStore.storePassword(tokenInfo.getId(), PIN);
+        tokenWorker.handleActivateToken(activate(tokenInfo.getId(), true));
+    }
+
+    /**
+     * Signatures created concurrently by several threads with several keys are all valid.
+     *
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void signsConcurrently() throws Exception {
+        assertTrue(softwareTokenWorker.isConcurrentSigningSupported());
+
+        List<KeyInfo> keys = List.of(generateKey(), generateKey());
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                int thread = i;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < SIGNATURES_PER_THREAD; j++) {
+                        KeyInfo key = keys.get((thread + j) % keys.size());
+                        byte[] data = ("data-" + thread + "-" + j).getBytes(StandardCharsets.UTF_8);
+                        assertTrue(verify(key, data, sign(key, data)));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Each signature is created with the requested key, not the previously used one.
+     *
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void signsWithRequestedKeyOnSameThread() throws Exception {
+        KeyInfo first = generateKey();
+        KeyInfo second = generateKey();
+        byte[] data = "data".getBytes(StandardCharsets.UTF_8);
+
+        assertTrue(verify(first, data, sign(first, data)));
+        byte[] signature = sign(second, data);
+        assertTrue(verify(second, data, signature));
+        assertFalse(verify(first, data, signature));
+    }
+
+    /**
+     * Deleting a key or deactivating the token drops the loaded private keys.
+     *
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void keyChangesInvalidateLoadedKeys() throws Exception {
+        KeyInfo deleted = generateKey();
+        KeyInfo kept = generateKey();
+        byte[] data = "data".getBytes(StandardCharsets.UTF_8);
+        sign(deleted, data);
+        sign(kept, data);
+
+        tokenWorker.handleDeleteKey(deleted.getId());
+        // the key is restored into the configuration, but its key store is gone
+        TokenManager.addKey(TokenManager.getSoftwareTokenId(), deleted.getId(), deleted.getPublicKey(), SignMechanism.CKM_RSA_PKCS);
+        TokenManager.setKeyAvailable(deleted.getId(), true);
+        assertThrows(CodedException.class, () -> sign(deleted, data));
+
+        // the signer client forgets the PIN before deactivating the token
+        PasswordStore.storePassword(TokenManager.getSoftwareTokenId(), null);
+        tokenWorker.handleActivateToken(activate(TokenManager.getSoftwareTokenId(), false));
+        assertThrows(CodedException.class, () -> sign(kept, data));
+
+        PasswordStore.storePassword(TokenManager.getSoftwareTokenId(), PIN);
+        tokenWorker.handleActivateToken(activate(TokenManager.getSoftwareTokenId(), true));
+        assertTrue(verify(kept, data, sign(kept, data)));
+    }
+
+    private KeyInfo generateKey() {
+        return tokenWorker.handleGenerateKey(GenerateKeyReq.newBuilder()
+                .setTokenId(TokenManager.getSoftwareTokenId())
+                .setKeyLabel("test")
+                .setAlgorithm(Algorithm.RSA)
+                .build());
+    }
+
+    private byte[] sign(KeyInfo key, byte[] data) throws Exception {
+        return tokenWorker.handleSign(SignReq.newBuilder()
+                .setKeyId(key.getId())
+                .setSignatureAlgorithmId("SHA256withRSA")
+                .setDigest(ByteString.copyFrom(MessageDigest.getInstance("SHA-256").digest(data)))
+                .build());
+    }
+
+    private static boolean verify(KeyInfo key, byte[] data, byte[] signatureBytes) throws Exception {
+        PublicKey publicKey = KeyFactory.getInstance("RSA")
+                .generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(key.getPublicKey())));
+        Signature signature = Signature.getInstance("SHA256withRSA");
+        signature.initVerify(publicKey);
+        signature.update(data);
+        return signature.verify(signatureBytes);
+    }
+
+    private static ActivateTokenReq activate(String tokenId, boolean activate) {
+        return ActivateTokenReq.newBuilder().setTokenId(tokenId).setActivate(activate).build();
+    }
+}